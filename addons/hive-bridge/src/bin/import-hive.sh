@@ -113,7 +113,6 @@ fi
 
 JAVA_PROPERTIES="$ATLAS_OPTS -Datlas.log.dir=$ATLAS_LOG_DIR -Datlas.log.file=import-hive.log
 -Dlog4j.configuration=atlas-log4j.xml"
-shift
 
 while [[ ${1} =~ ^\-D ]]; do
   JAVA_PROPERTIES="${JAVA_PROPERTIES} ${1}"
@@ -123,7 +122,7 @@ done
 echo Using Hive configuration directory ["$HIVE_CP"]
 echo "Log file for import is $LOGFILE"
 
-"${JAVA_BIN}" ${JAVA_PROPERTIES} -cp "${CP}" org.apache.atlas.hive.bridge.HiveMetaStoreBridge
+"${JAVA_BIN}" ${JAVA_PROPERTIES} -cp "${CP}" org.apache.atlas.hive.bridge.HiveMetaStoreBridge "$@"
 
 RETVAL=$?
 [ $RETVAL -eq 0 ] && echo Hive Data Model imported successfully!!!
@@ -58,7 +58,9 @@ import org.codehaus.jettison.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -144,7 +146,7 @@ public class HiveMetaStoreBridge {
      * @return
      * @throws Exception
      */
-    private Referenceable registerDatabase(String databaseName) throws Exception {
+    Referenceable registerDatabase(String databaseName) throws Exception {
         Referenceable dbRef = getDatabaseReference(clusterName, databaseName);
         Database db = hiveClient.getDatabase(databaseName);
         if (dbRef == null) {
@@ -276,30 +278,7 @@ public class HiveMetaStoreBridge {
                     Referenceable process = getProcessReference(tableQualifiedName);
                     if (process == null) {
                         LOG.info("Attempting to register create table process for {}", tableQualifiedName);
-                        Referenceable lineageProcess = new Referenceable(HiveDataTypes.HIVE_PROCESS.getName());
-                        ArrayList<Referenceable> sourceList = new ArrayList<>();
-                        ArrayList<Referenceable> targetList = new ArrayList<>();
-                        String tableLocation = table.getDataLocation().toString();
-                        Referenceable path = fillHDFSDataSet(tableLocation);
-                        String query = getCreateTableString(table, tableLocation);
-                        sourceList.add(path);
-                        targetList.add(tableReferenceable);
-                        lineageProcess.set("inputs", sourceList);
-                        lineageProcess.set("outputs", targetList);
-                        lineageProcess.set("userName", table.getOwner());
-                        lineageProcess.set("startTime", new Date(System.currentTimeMillis()));
-                        lineageProcess.set("endTime", new Date(System.currentTimeMillis()));
-                        lineageProcess.set("operationType", "CREATETABLE");
-                        lineageProcess.set("queryText", query);
-                        lineageProcess.set("queryId", query);
-                        lineageProcess.set("queryPlan", "{}");
-                        lineageProcess.set("clusterName", clusterName);
-                        List<String> recentQueries = new ArrayList<>(1);
-                        recentQueries.add(query);
-                        lineageProcess.set("recentQueries", recentQueries);
-                        lineageProcess.set(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, tableQualifiedName);
-                        lineageProcess.set(AtlasClient.NAME, query);
-                        registerInstance(lineageProcess);
+                        registerInstance(createTableProcessInstance(table, tableReferenceable));
                     } else {
                         LOG.info("Process {} is already registered", process.toString());
                     }
@@ -321,6 +300,40 @@ public class HiveMetaStoreBridge {
         return tablesImported;
     }
 
+    /**
+     * Creates the lineage process from the location of an external table to the table
+     * @param table external hive table
+     * @param tableReferenceable reference to the table entity
+     * @return process entity, identified by the qualified name of the table
+     */
+    Referenceable createTableProcessInstance(Table table, Referenceable tableReferenceable) {
+        String tableQualifiedName = getTableQualifiedName(clusterName, table);
+        Referenceable lineageProcess = new Referenceable(HiveDataTypes.HIVE_PROCESS.getName());
+        ArrayList<Referenceable> sourceList = new ArrayList<>();
+        ArrayList<Referenceable> targetList = new ArrayList<>();
+        String tableLocation = table.getDataLocation().toString();
+        Referenceable path = fillHDFSDataSet(tableLocation);
+        String query = getCreateTableString(table, tableLocation);
+        sourceList.add(path);
+        targetList.add(tableReferenceable);
+        lineageProcess.set("inputs", sourceList);
+        lineageProcess.set("outputs", targetList);
+        lineageProcess.set("userName", table.getOwner());
+        lineageProcess.set("startTime", new Date(System.currentTimeMillis()));
+        lineageProcess.set("endTime", new Date(System.currentTimeMillis()));
+        lineageProcess.set("operationType", "CREATETABLE");
+        lineageProcess.set("queryText", query);
+        lineageProcess.set("queryId", query);
+        lineageProcess.set("queryPlan", "{}");
+        lineageProcess.set("clusterName", clusterName);
+        List<String> recentQueries = new ArrayList<>(1);
+        recentQueries.add(query);
+        lineageProcess.set("recentQueries", recentQueries);
+        lineageProcess.set(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, tableQualifiedName);
+        lineageProcess.set(AtlasClient.NAME, query);
+        return lineageProcess;
+    }
+
     /**
      * Gets reference for the table
      *
@@ -348,6 +361,22 @@ public class HiveMetaStoreBridge {
         return dslQuery;
     }
 
+    /**
+     * Query for the qualified names of the entities of a type among the given qualified names
+     */
+    static String getQualifiedNamesDSLQuery(String typeName, Collection<String> qualifiedNames) {
+        StringBuilder dslQuery = new StringBuilder(typeName).append(" where ");
+        boolean first = true;
+        for (String qualifiedName : qualifiedNames) {
+            if (!first) {
+                dslQuery.append(" or ");
+            }
+            dslQuery.append(String.format("%s = '%s'", AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, qualifiedName));
+            first = false;
+        }
+        return dslQuery.append(" select ").append(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME).toString();
+    }
+
     static String getTableDSLQuery(String clusterName, String dbName, String tableName, String typeName, boolean isTemporary) {
         String entityName = getTableQualifiedName(clusterName, dbName, tableName, isTemporary);
         return String.format("%s as t where qualifiedName = '%s'", typeName, entityName);
@@ -652,6 +681,11 @@ public class HiveMetaStoreBridge {
         }
 
         Options options = new Options();
+        options.addOption("failOnError", false, "stop the import at the first table that fails to import");
+        options.addOption("bulk", false, "import tables in parallel batches");
+        options.addOption("threads", true, "number of bulk import workers");
+        options.addOption("batchSize", true, "number of tables per bulk import batch");
+        options.addOption("checkpoint", true, "file recording bulk import progress, to resume an interrupted import");
         CommandLineParser parser = new BasicParser();
         CommandLine cmd = parser.parse( options, args);
 
@@ -662,6 +696,16 @@ public class HiveMetaStoreBridge {
 
         HiveMetaStoreBridge hiveMetaStoreBridge = new HiveMetaStoreBridge(new HiveConf(), atlasClient);
         hiveMetaStoreBridge.registerHiveDataModel();
-        hiveMetaStoreBridge.importHiveMetadata(failOnError);
+        if (cmd.hasOption("bulk")) {
+            int threads = Integer.parseInt(cmd.getOptionValue("threads",
+                    atlasConf.getString(HiveMetaStoreBulkImporter.THREADS, "4")));
+            int batchSize = Integer.parseInt(cmd.getOptionValue("batchSize",
+                    atlasConf.getString(HiveMetaStoreBulkImporter.BATCH_SIZE, "100")));
+            String checkpoint = cmd.getOptionValue("checkpoint");
+            new HiveMetaStoreBulkImporter(hiveMetaStoreBridge, threads, batchSize,
+                    checkpoint != null ? new File(checkpoint) : null).importHiveMetadata(failOnError);
+        } else {
+            hiveMetaStoreBridge.importHiveMetadata(failOnError);
+        }
     }
 }
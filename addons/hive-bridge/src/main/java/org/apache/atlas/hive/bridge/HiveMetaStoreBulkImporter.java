@@ -0,0 +1,415 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hive.bridge;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasClient;
+import org.apache.atlas.hive.model.HiveDataTypes;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.hadoop.hive.metastore.TableType;
+import org.apache.hadoop.hive.ql.metadata.Hive;
+import org.apache.hadoop.hive.ql.metadata.Table;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports the hive metastore in batches of tables, submitted to Atlas by a pool of workers.
+ *
+ * Databases and tables are read from the metastore on the calling thread, since hive clients are bound to the
+ * thread that created them, and handed to the workers batch size tables at a time. A worker builds the entities of
+ * its tables, looks up the create table processes of the external tables that are already registered with a single
+ * query, and creates or updates all the tables and new processes with one request. Tables are created or updated by
+ * their qualified name, so a batch that is submitted again doesn't duplicate them.
+ *
+ * If a checkpoint file is given, the qualified names of the imported tables, and of the databases whose tables were
+ * all imported, are appended to it as batches complete, and an import restarted with the same file skips them.
+ */
+public class HiveMetaStoreBulkImporter {
+    private static final Logger LOG = LoggerFactory.getLogger(HiveMetaStoreBulkImporter.class);
+
+    public static final String CONF_PREFIX = "atlas.hook.hive.import.";
+    public static final String THREADS = CONF_PREFIX + "threads";
+    public static final String BATCH_SIZE = CONF_PREFIX + "batchSize";
+
+    private static final long PROGRESS_INTERVAL_MS = 60000;
+
+    private final HiveMetaStoreBridge bridge;
+    private final int threads;
+    private final int batchSize;
+    private final File checkpointFile;
+
+    private final PhaseMetrics readMetrics = new PhaseMetrics("read");
+    private final PhaseMetrics lookupMetrics = new PhaseMetrics("lookup");
+    private final PhaseMetrics submitMetrics = new PhaseMetrics("submit");
+    private final AtomicLong tablesImported = new AtomicLong();
+    private final AtomicLong tablesFailed = new AtomicLong();
+    private final AtomicLong tablesSkipped = new AtomicLong();
+    private final AtomicLong entitiesCreated = new AtomicLong();
+    private final AtomicLong entitiesUpdated = new AtomicLong();
+    private long startTime;
+    private long lastProgress;
+
+    /**
+     * @param bridge bridge to the metastore and Atlas
+     * @param threads number of workers submitting batches
+     * @param batchSize number of tables submitted in one request
+     * @param checkpointFile file recording the progress of the import, or null to not record it
+     */
+    public HiveMetaStoreBulkImporter(HiveMetaStoreBridge bridge, int threads, int batchSize, File checkpointFile) {
+        this.bridge = bridge;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.checkpointFile = checkpointFile;
+    }
+
+    public void importHiveMetadata(boolean failOnError) throws Exception {
+        LOG.info("Importing hive metadata with {} workers in batches of {} tables", threads, batchSize);
+        Checkpoint checkpoint = new Checkpoint(checkpointFile);
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("hive-import-%d").setDaemon(true).build());
+        //bounds the batches read ahead of the workers
+        Semaphore inFlight = new Semaphore(threads * 2);
+        startTime = lastProgress = System.nanoTime();
+
+        try {
+            Hive hiveClient = bridge.hiveClient;
+            for (String databaseName : hiveClient.getAllDatabases()) {
+                String dbQualifiedName = HiveMetaStoreBridge.getDBQualifiedName(bridge.getClusterName(),
+                        databaseName);
+                if (checkpoint.contains(dbQualifiedName)) {
+                    LOG.info("Skipping database {}, it was imported by a previous run", databaseName);
+                    continue;
+                }
+                importDatabase(hiveClient, databaseName, dbQualifiedName, checkpoint, executor, inFlight,
+                        failOnError);
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            checkpoint.close();
+            logProgress("Finished importing hive metadata");
+        }
+    }
+
+    private void importDatabase(Hive hiveClient, String databaseName, String dbQualifiedName, Checkpoint checkpoint,
+                                ExecutorService executor, Semaphore inFlight, boolean failOnError) throws Exception {
+        final Referenceable dbReference = bridge.registerDatabase(databaseName);
+
+        List<String> tableNames = hiveClient.getAllTables(databaseName);
+        LOG.info("Importing {} tables for db {}", tableNames.size(), databaseName);
+        List<Future<Integer>> batches = new ArrayList<>();
+        List<Table> batch = new ArrayList<>(batchSize);
+        for (String tableName : tableNames) {
+            if (checkpoint.contains(HiveMetaStoreBridge.getTableQualifiedName(bridge.getClusterName(), databaseName,
+                    tableName))) {
+                tablesSkipped.incrementAndGet();
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                batch.add(hiveClient.getTable(databaseName, tableName));
+            } catch (Exception e) {
+                LOG.error("Import failed for hive_table {} ", tableName, e);
+                tablesFailed.incrementAndGet();
+                if (failOnError) {
+                    throw e;
+                }
+            }
+            readMetrics.record(1, System.nanoTime() - start);
+
+            if (batch.size() == batchSize) {
+                batches.add(submit(executor, inFlight, dbReference, batch, checkpoint));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(submit(executor, inFlight, dbReference, batch, checkpoint));
+        }
+
+        boolean complete = tableNames.size() == tablesImportedIn(batches, failOnError) + tablesSkipped(checkpoint,
+                databaseName, tableNames);
+        if (complete) {
+            LOG.info("Successfully imported all {} tables from {} ", tableNames.size(), databaseName);
+            checkpoint.add(dbQualifiedName);
+        } else {
+            LOG.error("Unable to import all of the {} tables from {}", tableNames.size(), databaseName);
+        }
+    }
+
+    private Future<Integer> submit(ExecutorService executor, final Semaphore inFlight,
+                                   final Referenceable dbReference, final List<Table> tables,
+                                   final Checkpoint checkpoint) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            return executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    try {
+                        importTables(dbReference, tables, checkpoint);
+                        return tables.size();
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the batches of a database, and returns the number of tables they imported.
+     */
+    private int tablesImportedIn(List<Future<Integer>> batches, boolean failOnError) throws Exception {
+        int imported = 0;
+        for (Future<Integer> batch : batches) {
+            try {
+                imported += batch.get();
+            } catch (ExecutionException e) {
+                if (failOnError) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        }
+        return imported;
+    }
+
+    private int tablesSkipped(Checkpoint checkpoint, String databaseName, List<String> tableNames) {
+        int skipped = 0;
+        for (String tableName : tableNames) {
+            if (checkpoint.containedAtStart(HiveMetaStoreBridge.getTableQualifiedName(bridge.getClusterName(),
+                    databaseName, tableName))) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    void importTables(Referenceable dbReference, List<Table> tables, Checkpoint checkpoint) throws Exception {
+        try {
+            List<Referenceable> entities = new ArrayList<>();
+            List<String> tableQualifiedNames = new ArrayList<>(tables.size());
+            Map<String, Table> externalTables = new LinkedHashMap<>();
+            Map<String, Referenceable> tableReferences = new LinkedHashMap<>();
+            for (Table table : tables) {
+                Referenceable tableReference = bridge.createTableInstance(dbReference, table);
+                String tableQualifiedName = HiveMetaStoreBridge.getTableQualifiedName(bridge.getClusterName(), table);
+                entities.add(tableReference);
+                tableQualifiedNames.add(tableQualifiedName);
+                if (table.getTableType() == TableType.EXTERNAL_TABLE) {
+                    externalTables.put(tableQualifiedName, table);
+                    tableReferences.put(tableQualifiedName, tableReference);
+                }
+            }
+
+            if (!externalTables.isEmpty()) {
+                long start = System.nanoTime();
+                Set<String> registered = getRegisteredProcesses(externalTables.keySet());
+                lookupMetrics.record(externalTables.size(), System.nanoTime() - start);
+                for (Map.Entry<String, Table> table : externalTables.entrySet()) {
+                    if (registered.contains(table.getKey())) {
+                        LOG.debug("Process {} is already registered", table.getKey());
+                    } else {
+                        entities.add(bridge.createTableProcessInstance(table.getValue(),
+                                tableReferences.get(table.getKey())));
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            AtlasClient.EntityResult result = bridge.getAtlasClient().updateEntities(entities);
+            submitMetrics.record(entities.size(), System.nanoTime() - start);
+            if (result != null) {
+                entitiesCreated.addAndGet(result.getCreatedEntities().size());
+                entitiesUpdated.addAndGet(result.getUpdateEntities().size());
+            }
+
+            checkpoint.addAll(tableQualifiedNames);
+            tablesImported.addAndGet(tables.size());
+        } catch (Exception e) {
+            LOG.error("Import failed for a batch of {} hive_tables", tables.size(), e);
+            tablesFailed.addAndGet(tables.size());
+            throw e;
+        }
+        maybeLogProgress();
+    }
+
+    /**
+     * Returns the qualified names of the processes among the given ones that are registered.
+     */
+    private Set<String> getRegisteredProcesses(Collection<String> qualifiedNames) throws Exception {
+        String dslQuery = HiveMetaStoreBridge.getQualifiedNamesDSLQuery(HiveDataTypes.HIVE_PROCESS.getName(),
+                qualifiedNames);
+        JSONArray results = bridge.getAtlasClient().searchByDSL(dslQuery, qualifiedNames.size(), 0);
+        Set<String> registered = new HashSet<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject row = results.getJSONObject(i);
+            registered.add(row.getString(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME));
+        }
+        return registered;
+    }
+
+    private void maybeLogProgress() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (now - lastProgress < TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MS)) {
+                return;
+            }
+            lastProgress = now;
+        }
+        logProgress("Hive import progress");
+    }
+
+    private void logProgress(String message) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        LOG.info("{}: {} tables imported, {} failed, {} skipped, {} entities created, {} updated in {} ms; {}; {}; {}",
+                message, tablesImported.get(), tablesFailed.get(), tablesSkipped.get(), entitiesCreated.get(),
+                entitiesUpdated.get(), elapsedMs, readMetrics, lookupMetrics, submitMetrics);
+    }
+
+    long getTablesImported() {
+        return tablesImported.get();
+    }
+
+    long getTablesFailed() {
+        return tablesFailed.get();
+    }
+
+    long getTablesSkipped() {
+        return tablesSkipped.get();
+    }
+
+    /**
+     * Number of items and time spent in a phase of the import, summed over the threads running it.
+     */
+    static final class PhaseMetrics {
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        PhaseMetrics(String name) {
+            this.name = name;
+        }
+
+        void record(long count, long elapsedNanos) {
+            items.addAndGet(count);
+            calls.incrementAndGet();
+            nanos.addAndGet(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            long ms = TimeUnit.NANOSECONDS.toMillis(nanos.get());
+            long rate = ms == 0 ? 0 : items.get() * 1000 / ms;
+            return String.format("%s: %d items in %d calls, %d ms, %d items/s", name, items.get(), calls.get(), ms,
+                    rate);
+        }
+    }
+
+    /**
+     * Qualified names of the databases and tables already imported, one per line.
+     */
+    static final class Checkpoint {
+        private final Set<String> imported;
+        private final Set<String> importedAtStart;
+        private final Writer writer;
+
+        Checkpoint(File file) throws IOException {
+            Set<String> names = new HashSet<>();
+            if (file != null && file.exists()) {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            names.add(line);
+                        }
+                    }
+                }
+                LOG.info("Resuming hive import from {}: {} entries already imported", file, names.size());
+            }
+            importedAtStart = Collections.unmodifiableSet(new HashSet<>(names));
+            imported = Collections.synchronizedSet(names);
+            writer = file == null ? null
+                    : new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+        }
+
+        boolean contains(String qualifiedName) {
+            return imported.contains(qualifiedName);
+        }
+
+        boolean containedAtStart(String qualifiedName) {
+            return importedAtStart.contains(qualifiedName);
+        }
+
+        void add(String qualifiedName) throws IOException {
+            addAll(Collections.singletonList(qualifiedName));
+        }
+
+        synchronized void addAll(Collection<String> qualifiedNames) throws IOException {
+            imported.addAll(qualifiedNames);
+            if (writer == null) {
+                return;
+            }
+            for (String qualifiedName : qualifiedNames) {
+                writer.write(qualifiedName);
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+
+        synchronized void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
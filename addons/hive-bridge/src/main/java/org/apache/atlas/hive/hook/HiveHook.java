@@ -27,6 +27,7 @@ import org.apache.atlas.hive.bridge.HiveMetaStoreBridge;
 import org.apache.atlas.hive.model.HiveDataModelGenerator;
 import org.apache.atlas.hive.model.HiveDataTypes;
 import org.apache.atlas.hook.AtlasHook;
+import org.apache.atlas.hook.HookNotificationDispatcher;
 import org.apache.atlas.notification.hook.HookNotification;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.commons.lang.StringUtils;
@@ -95,6 +96,7 @@ public class HiveHook extends AtlasHook implements ExecuteWithHookContext {
     // shutdown. Pending requests after that will not be sent.
     private static final int WAIT_TIME = 3;
     private static ExecutorService executor;
+    private static HookNotificationDispatcher dispatcher;
 
     private static final int minThreadsDefault = 1;
     private static final int maxThreadsDefault = 5;
@@ -116,6 +118,11 @@ public class HiveHook extends AtlasHook implements ExecuteWithHookContext {
                 new LinkedBlockingQueue<Runnable>(queueSize),
                 new ThreadFactoryBuilder().setNameFormat("Atlas Logger %d").build());
 
+            // messages of the hook calls are batched and sent by a single sender thread
+            dispatcher = createDispatcher("Hive hook", CONF_PREFIX, atlasProperties.getInt(HOOK_NUM_RETRIES, 3),
+                    HiveDataTypes.HIVE_DB.getName(), HiveDataTypes.HIVE_TABLE.getName());
+            dispatcher.start();
+
             Runtime.getRuntime().addShutdownHook(new Thread() {
                 @Override
                 public void run() {
@@ -126,6 +133,7 @@ public class HiveHook extends AtlasHook implements ExecuteWithHookContext {
                     } catch (InterruptedException ie) {
                         LOG.info("Interrupt received in shutdown.");
                     }
+                    dispatcher.stop(TimeUnit.SECONDS.toMillis(WAIT_TIME));
                     // shutdown client
                 }
             });
@@ -173,13 +181,13 @@ public class HiveHook extends AtlasHook implements ExecuteWithHookContext {
 
             boolean sync = conf.get(CONF_SYNC, "false").equals("true");
             if (sync) {
-                fireAndForget(event);
+                fireAndForget(event, true);
             } else {
                 executor.submit(new Runnable() {
                     @Override
                     public void run() {
                         try {
-                            fireAndForget(event);
+                            fireAndForget(event, false);
                         } catch (Throwable e) {
                             LOG.error("Atlas hook failed due to error ", e);
                         }
@@ -191,7 +199,7 @@ public class HiveHook extends AtlasHook implements ExecuteWithHookContext {
         }
     }
 
-    private void fireAndForget(HiveEventContext event) throws Exception {
+    private void fireAndForget(HiveEventContext event, boolean sync) throws Exception {
 
         assert event.getHookType() == HookContext.HookType.POST_EXEC_HOOK : "Non-POST_EXEC_HOOK not supported!";
 
@@ -267,7 +275,18 @@ public class HiveHook extends AtlasHook implements ExecuteWithHookContext {
         default:
         }
 
-        notifyEntities(event.getMessages());
+        if (sync) {
+            notifyEntities(event.getMessages());
+        } else {
+            dispatcher.dispatch(event.getMessages());
+        }
+    }
+
+    /**
+     * Dispatcher of the messages of the asynchronous hook calls, for its queue depth and send latency.
+     */
+    public static HookNotificationDispatcher getDispatcher() {
+        return dispatcher;
     }
 
     private void deleteTable(HiveMetaStoreBridge dgiBridge, HiveEventContext event) {
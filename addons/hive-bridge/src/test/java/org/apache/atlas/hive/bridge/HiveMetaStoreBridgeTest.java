@@ -25,6 +25,7 @@ import org.apache.atlas.hive.model.HiveDataTypes;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.hadoop.hive.metastore.TableType;
 import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.ql.metadata.Hive;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.metadata.Partition;
@@ -33,6 +34,8 @@ import org.apache.hadoop.mapred.TextInputFormat;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
+import org.apache.hadoop.fs.Path;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -41,14 +44,29 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import scala.actors.threadpool.Arrays;
 
+import java.io.File;
 import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyCollection;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.startsWith;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class HiveMetaStoreBridgeTest {
@@ -223,6 +241,125 @@ public class HiveMetaStoreBridgeTest {
         }
     }
 
+    @Test
+    public void testBulkImportSubmitsTablesInBatches() throws Exception {
+        setupDB(hiveClient, TEST_DB_NAME);
+        String table2Name = TEST_TABLE_NAME + "_1";
+        String table3Name = TEST_TABLE_NAME + "_2";
+        List<Table> hiveTables = setupTables(hiveClient, TEST_DB_NAME, TEST_TABLE_NAME, table2Name, table3Name);
+        returnExistingDatabase(TEST_DB_NAME, atlasClient, CLUSTER_NAME);
+        returnRegisteredProcesses(hiveTables);
+
+        HiveMetaStoreBridge bridge = new HiveMetaStoreBridge(CLUSTER_NAME, hiveClient, atlasClient);
+        HiveMetaStoreBulkImporter importer = new HiveMetaStoreBulkImporter(bridge, 2, 2, null);
+        importer.importHiveMetadata(true);
+
+        ArgumentCaptor<Collection> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(atlasClient, times(2)).updateEntities(batches.capture());
+        Set<Integer> batchSizes = new HashSet<>();
+        for (Collection batch : batches.getAllValues()) {
+            batchSizes.add(batch.size());
+        }
+        //the processes of all the tables are registered already
+        Assert.assertEquals(batchSizes, new HashSet<>(Arrays.asList(new Integer[]{2, 1})));
+        Assert.assertEquals(importer.getTablesImported(), 3);
+        //only the database is updated on its own
+        verify(atlasClient, times(1)).updateEntity(anyString(), any(Referenceable.class));
+    }
+
+    @Test
+    public void testBulkImportRegistersMissingProcesses() throws Exception {
+        setupDB(hiveClient, TEST_DB_NAME);
+        String table2Name = TEST_TABLE_NAME + "_1";
+        List<Table> hiveTables = setupTables(hiveClient, TEST_DB_NAME, TEST_TABLE_NAME, table2Name);
+        Table externalTable = hiveTables.get(1);
+        externalTable.setDataLocation(new Path("hdfs://localhost:8020/user/hive/" + table2Name));
+        externalTable.setFields(Arrays.asList(new FieldSchema[]{new FieldSchema("id", "int", null)}));
+        returnExistingDatabase(TEST_DB_NAME, atlasClient, CLUSTER_NAME);
+        returnRegisteredProcesses(hiveTables.subList(0, 1));
+
+        HiveMetaStoreBridge bridge = new HiveMetaStoreBridge(CLUSTER_NAME, hiveClient, atlasClient);
+        new HiveMetaStoreBulkImporter(bridge, 1, 10, null).importHiveMetadata(true);
+
+        ArgumentCaptor<Collection> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(atlasClient).updateEntities(batch.capture());
+        List<String> typeNames = new ArrayList<>();
+        for (Object entity : batch.getValue()) {
+            typeNames.add(((Referenceable) entity).getTypeName());
+        }
+        Assert.assertEquals(typeNames, Arrays.asList(new String[]{HiveDataTypes.HIVE_TABLE.getName(),
+                HiveDataTypes.HIVE_TABLE.getName(), HiveDataTypes.HIVE_PROCESS.getName()}));
+    }
+
+    @Test
+    public void testBulkImportResumesFromCheckpoint() throws Exception {
+        setupDB(hiveClient, TEST_DB_NAME);
+        String table2Name = TEST_TABLE_NAME + "_1";
+        List<Table> hiveTables = setupTables(hiveClient, TEST_DB_NAME, TEST_TABLE_NAME, table2Name);
+        returnExistingDatabase(TEST_DB_NAME, atlasClient, CLUSTER_NAME);
+        returnRegisteredProcesses(hiveTables);
+
+        File checkpoint = File.createTempFile("hive-import", ".checkpoint");
+        checkpoint.deleteOnExit();
+        String table1QualifiedName = HiveMetaStoreBridge.getTableQualifiedName(CLUSTER_NAME, hiveTables.get(0));
+        Files.write(checkpoint.toPath(), (table1QualifiedName + "\n").getBytes(StandardCharsets.UTF_8));
+
+        HiveMetaStoreBridge bridge = new HiveMetaStoreBridge(CLUSTER_NAME, hiveClient, atlasClient);
+        HiveMetaStoreBulkImporter importer = new HiveMetaStoreBulkImporter(bridge, 1, 10, checkpoint);
+        importer.importHiveMetadata(true);
+
+        verify(hiveClient, never()).getTable(TEST_DB_NAME, TEST_TABLE_NAME);
+        Assert.assertEquals(importer.getTablesImported(), 1);
+        Assert.assertEquals(importer.getTablesSkipped(), 1);
+        List<String> checkpointed = Files.readAllLines(checkpoint.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(checkpointed, Arrays.asList(new String[]{table1QualifiedName,
+                HiveMetaStoreBridge.getTableQualifiedName(CLUSTER_NAME, hiveTables.get(1)),
+                HiveMetaStoreBridge.getDBQualifiedName(CLUSTER_NAME, TEST_DB_NAME)}));
+
+        //the whole database is skipped once it is complete
+        reset(atlasClient);
+        new HiveMetaStoreBulkImporter(bridge, 1, 10, checkpoint).importHiveMetadata(true);
+        verifyZeroInteractions(atlasClient);
+    }
+
+    @Test
+    public void testBulkImportDoesNotCheckpointFailedBatches() throws Exception {
+        setupDB(hiveClient, TEST_DB_NAME);
+        List<Table> hiveTables = setupTables(hiveClient, TEST_DB_NAME, TEST_TABLE_NAME);
+        returnExistingDatabase(TEST_DB_NAME, atlasClient, CLUSTER_NAME);
+        returnRegisteredProcesses(hiveTables);
+        when(atlasClient.updateEntities(anyCollection())).thenThrow(
+                new AtlasServiceException(AtlasClient.API.UPDATE_ENTITY, new SocketTimeoutException()));
+
+        File checkpoint = File.createTempFile("hive-import", ".checkpoint");
+        checkpoint.deleteOnExit();
+        HiveMetaStoreBridge bridge = new HiveMetaStoreBridge(CLUSTER_NAME, hiveClient, atlasClient);
+        HiveMetaStoreBulkImporter importer = new HiveMetaStoreBulkImporter(bridge, 1, 10, checkpoint);
+        importer.importHiveMetadata(false);
+
+        Assert.assertEquals(importer.getTablesFailed(), 1);
+        Assert.assertTrue(Files.readAllLines(checkpoint.toPath(), StandardCharsets.UTF_8).isEmpty());
+
+        try {
+            new HiveMetaStoreBulkImporter(bridge, 1, 10, checkpoint).importHiveMetadata(true);
+            Assert.fail("Bulk import is supposed to fail");
+        } catch (AtlasServiceException e) {
+            //Expected
+        }
+    }
+
+    private void returnRegisteredProcesses(List<Table> tables) throws Exception {
+        JSONArray rows = new JSONArray();
+        for (Table table : tables) {
+            JSONObject row = new JSONObject();
+            row.put(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME,
+                    HiveMetaStoreBridge.getTableQualifiedName(CLUSTER_NAME, table));
+            rows.put(row);
+        }
+        when(atlasClient.searchByDSL(startsWith(HiveDataTypes.HIVE_PROCESS.getName() + " where"), anyInt(),
+                eq(0))).thenReturn(rows);
+    }
+
     private JSONArray getEntityReference(String id) throws JSONException {
         return new JSONArray(String.format("[{\"$id$\":{\"id\":\"%s\"}}]", id));
     }
@@ -27,6 +27,8 @@ import java.util.Map;
  * Base user API request.
  */
 public abstract class BaseRequest implements Request {
+    public static final int NO_LIMIT = -1;
+
     private final Map<String, Object> queryProperties = new HashMap<>();
     private final Map<String, Object> updateProperties = new HashMap<>();
     private final String queryString;
@@ -65,6 +67,21 @@ public abstract class BaseRequest implements Request {
         return queryString;
     }
 
+    @Override
+    public int getOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getLimit() {
+        return NO_LIMIT;
+    }
+
+    @Override
+    public String getSortProperty() {
+        return null;
+    }
+
     @Override
     public void addAdditionalSelectProperties(Collection<String> resultProperties) {
         additionalSelectProperties.addAll(resultProperties);
@@ -85,6 +102,10 @@ public abstract class BaseRequest implements Request {
         return queryProperties.equals(that.queryProperties) &&
                updateProperties.equals(that.updateProperties) &&
                additionalSelectProperties.equals(that.additionalSelectProperties) &&
+               getOffset() == that.getOffset() &&
+               getLimit() == that.getLimit() &&
+               (getSortProperty() == null ? that.getSortProperty() == null :
+                       getSortProperty().equals(that.getSortProperty())) &&
                queryString == null ? that.queryString == null : queryString.equals(that.queryString);
     }
 
@@ -94,6 +115,9 @@ public abstract class BaseRequest implements Request {
         result = 31 * result + updateProperties.hashCode();
         result = 31 * result + (queryString != null ? queryString.hashCode() : 0);
         result = 31 * result + additionalSelectProperties.hashCode();
+        result = 31 * result + getOffset();
+        result = 31 * result + getLimit();
+        result = 31 * result + (getSortProperty() != null ? getSortProperty().hashCode() : 0);
         return result;
     }
 }
@@ -24,6 +24,10 @@ import java.util.Map;
  * A request for a collection resource.
  */
 public class CollectionRequest extends BaseRequest {
+    private int offset = 0;
+    private int limit = NO_LIMIT;
+    private String sortProperty;
+
     public CollectionRequest(Map<String, Object> queryProperties, String queryString) {
         super(queryProperties, queryString);
     }
@@ -36,4 +40,42 @@ public class CollectionRequest extends BaseRequest {
     public Cardinality getCardinality() {
         return Cardinality.COLLECTION;
     }
+
+    /**
+     * Restrict the request to a page of the results.
+     *
+     * @param offset  number of results to skip
+     * @param limit   maximum number of results to return, negative for all of them
+     */
+    public void setPage(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        this.offset = offset;
+        this.limit = limit < 0 ? NO_LIMIT : limit;
+    }
+
+    /**
+     * Sort the results by a property.
+     *
+     * @param sortProperty  property name or null to leave the results unsorted
+     */
+    public void setSortProperty(String sortProperty) {
+        this.sortProperty = sortProperty;
+    }
+
+    @Override
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String getSortProperty() {
+        return sortProperty;
+    }
 }
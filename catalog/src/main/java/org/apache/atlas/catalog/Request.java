@@ -70,6 +70,27 @@ public interface Request {
      */
     Cardinality getCardinality();
 
+    /**
+     * Get the position of the first result to return.
+     *
+     * @return number of results to skip, 0 to start with the first result
+     */
+    int getOffset();
+
+    /**
+     * Get the maximum number of results to return.
+     *
+     * @return result limit or a negative value if all results should be returned
+     */
+    int getLimit();
+
+    /**
+     * Get the property which the results are sorted by.
+     *
+     * @return property name or null if the results aren't sorted
+     */
+    String getSortProperty();
+
     /**
      * Add additional property names which should be returned in the result.
      *
@@ -59,7 +59,9 @@ public class TermResourceProvider extends BaseResourceProvider implements Resour
 
         TermPath termPath = request.getProperty("termPath");
         String queryString = doQueryStringConversions(termPath, request.getQueryString());
-        Request queryRequest = new CollectionRequest(request.getQueryProperties(), queryString);
+        CollectionRequest queryRequest = new CollectionRequest(request.getQueryProperties(), queryString);
+        queryRequest.setPage(request.getOffset(), request.getLimit());
+        queryRequest.setSortProperty(request.getSortProperty());
         AtlasQuery atlasQuery = queryFactory.createTermQuery(queryRequest);
         Collection<Map<String, Object>> result = atlasQuery.execute();
         return new Result(result);
@@ -23,6 +23,7 @@ import com.tinkerpop.pipes.Pipe;
 import org.apache.atlas.catalog.Request;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
 import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 
 /**
  * Entity resource query.
@@ -32,6 +33,11 @@ public class AtlasEntityQuery extends BaseQuery {
         super(queryExpression, resourceDefinition, request);
     }
 
+    @Override
+    protected void addRootVertexConditions(AtlasGraphQuery query) {
+        queryExpression.addIndexConditions(query, null);
+    }
+
     protected Pipe getQueryPipe() {
         return new GremlinPipeline().has(Constants.ENTITY_TEXT_PROPERTY_KEY).
                 hasNot(Constants.ENTITY_TYPE_PROPERTY_KEY, "Taxonomy");
@@ -30,6 +30,7 @@ import org.apache.atlas.catalog.VertexWrapper;
 import org.apache.atlas.catalog.definition.EntityTagResourceDefinition;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
 import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -45,6 +46,14 @@ public class AtlasEntityTagQuery extends BaseQuery {
         this.guid = guid;
     }
 
+    @Override
+    protected void addRootVertexConditions(AtlasGraphQuery query) {
+        // the query starts from the entity vertices, the expression applies to the tags
+        if (! guid.equals("*")) {
+            query.has(Constants.GUID_PROPERTY_KEY, guid);
+        }
+    }
+
     @Override
     protected Pipe getQueryPipe() {
         GremlinPipeline p;
@@ -22,6 +22,8 @@ import com.tinkerpop.gremlin.java.GremlinPipeline;
 import com.tinkerpop.pipes.Pipe;
 import org.apache.atlas.catalog.Request;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 
 /**
  * Taxonomy resource query.
@@ -31,6 +33,18 @@ public class AtlasTaxonomyQuery extends BaseQuery {
         super(queryExpression, resourceDefinition, request);
     }
 
+    @Override
+    protected void addRootVertexConditions(AtlasGraphQuery query) {
+        query.has(Constants.ENTITY_TYPE_PROPERTY_KEY, "Taxonomy");
+        queryExpression.addIndexConditions(query, "Taxonomy");
+    }
+
+    @Override
+    protected String getRootVertexSortKey(String sortProperty) {
+        // the taxonomy vertices are the results themselves
+        return resourceDefinition.getPropertyMapper().toFullyQualifiedName(sortProperty, "Taxonomy");
+    }
+
     @Override
     protected Pipe getQueryPipe() {
         return new GremlinPipeline().has("__typeName", "Taxonomy");
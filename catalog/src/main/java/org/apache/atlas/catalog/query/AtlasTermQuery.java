@@ -25,6 +25,7 @@ import org.apache.atlas.catalog.Request;
 import org.apache.atlas.catalog.TermPath;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
 import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 
 /**
  * Term resource query.
@@ -37,6 +38,15 @@ public class AtlasTermQuery extends BaseQuery {
         this.termPath = termPath;
     }
 
+    @Override
+    protected void addRootVertexConditions(AtlasGraphQuery query) {
+        // the query starts from the taxonomy vertices, the expression applies to the terms
+        query.has(Constants.ENTITY_TYPE_PROPERTY_KEY, "Taxonomy");
+        if (! termPath.getTaxonomyName().equals("*")) {
+            query.has("Taxonomy.name", termPath.getTaxonomyName());
+        }
+    }
+
     @Override
     protected Pipe getQueryPipe() {
         GremlinPipeline p;
@@ -20,20 +20,27 @@ package org.apache.atlas.catalog.query;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import org.apache.atlas.catalog.Request;
 import org.apache.atlas.catalog.VertexWrapper;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
+import org.apache.atlas.catalog.exception.CatalogRuntimeException;
 import org.apache.atlas.catalog.exception.ResourceNotFoundException;
 import org.apache.atlas.catalog.projection.Projection;
 import org.apache.atlas.catalog.projection.ProjectionResult;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.graph.AtlasGraphProvider;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.typesystem.persistence.Id;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import com.tinkerpop.blueprints.Compare;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.gremlin.java.GremlinPipeline;
@@ -44,6 +51,18 @@ import com.tinkerpop.pipes.filter.PropertyFilterPipe;
  * Base Query implementation.
  */
 public abstract class BaseQuery implements AtlasQuery {
+    private static final Function<AtlasVertex, Vertex> TO_BLUEPRINTS_VERTEX = new Function<AtlasVertex, Vertex>() {
+        @Override
+        public Vertex apply(AtlasVertex vertex) {
+            Object element = vertex.getWrappedElement();
+            if (!(element instanceof Vertex)) {
+                throw new CatalogRuntimeException("Catalog queries require a Blueprints graph, found vertex "
+                        + vertex.getIdForDisplay() + " of type " + element.getClass().getName(), 500);
+            }
+            return (Vertex) element;
+        }
+    };
+
     protected final QueryExpression queryExpression;
     protected final ResourceDefinition resourceDefinition;
     protected final Request request;
@@ -96,8 +115,60 @@ public abstract class BaseQuery implements AtlasQuery {
         Pipe expressionPipe = queryExpression.asPipe();
 
         // AlwaysQuery returns null for pipe
-        return expressionPipe == null ? pipeline.toList() :
-                pipeline.add(expressionPipe).back("root").toList();
+        return getPage(expressionPipe == null ? pipeline : pipeline.add(expressionPipe).back("root"));
+    }
+
+    /**
+     * Get the page of the results selected by the request. Results are only read from the pipeline up to the end of
+     * the page when they are unsorted or sorted by the root vertex query. Other sorted results are all read, but
+     * only the vertices up to the end of the page are kept.
+     */
+    private List<Vertex> getPage(GremlinPipeline pipeline) {
+        String sortProperty = request.getSortProperty();
+        int offset = request.getOffset();
+        int limit = request.getLimit();
+        if (limit == 0) {
+            return Collections.emptyList();
+        }
+
+        if (sortProperty == null || getRootVertexSortKey(sortProperty) != null) {
+            if (offset > 0 || limit > 0) {
+                // range bounds are inclusive, -1 for no upper bound
+                pipeline = pipeline.range(offset, limit > 0 ? offset + limit - 1 : -1);
+            }
+            return pipeline.toList();
+        }
+
+        List<Vertex> vertices = sort(pipeline, sortProperty, limit > 0 ? offset + limit : -1);
+        return offset < vertices.size() ? vertices.subList(offset, vertices.size()) : Collections.<Vertex>emptyList();
+    }
+
+    /**
+     * Sort the vertices of the pipeline by the given property, keeping only the first maxVertices of them.
+     *
+     * @param maxVertices  number of vertices to keep, -1 to keep all of them
+     */
+    private List<Vertex> sort(Iterable<Vertex> vertices, String sortProperty, int maxVertices) {
+        // the queue head is the last of the vertices kept so far
+        PriorityQueue<SortedVertex> kept = new PriorityQueue<>(maxVertices > 0 ? maxVertices : 11,
+                Collections.reverseOrder());
+        for (Vertex vertex : vertices) {
+            SortedVertex sortedVertex = new SortedVertex(vertex, wrapVertex(vertex).getProperty(sortProperty));
+            if (maxVertices < 0 || kept.size() < maxVertices) {
+                kept.add(sortedVertex);
+            } else if (sortedVertex.compareTo(kept.peek()) < 0) {
+                kept.poll();
+                kept.add(sortedVertex);
+            }
+        }
+
+        List<SortedVertex> sorted = new ArrayList<>(kept);
+        Collections.sort(sorted);
+        List<Vertex> result = new ArrayList<>(sorted.size());
+        for (SortedVertex sortedVertex : sorted) {
+            result.add(sortedVertex.vertex);
+        }
+        return result;
     }
 
     protected GremlinPipeline buildPipeline() {
@@ -112,8 +183,41 @@ public abstract class BaseQuery implements AtlasQuery {
 
     protected abstract Pipe getQueryPipe();
 
+    /**
+     * Get the pipeline of the vertices the query starts from, which are selected through the graph indexes.
+     */
     protected GremlinPipeline getRootVertexPipeline() {
-        return new GremlinPipeline(getGraph().getVertices());
+        AtlasGraphQuery query = getGraph().query().has(Constants.STATE_PROPERTY_KEY, Id.EntityState.ACTIVE.name());
+        addRootVertexConditions(query);
+
+        String sortProperty = request.getSortProperty();
+        String sortKey = sortProperty == null ? null : getRootVertexSortKey(sortProperty);
+        if (sortKey != null) {
+            query.orderBy(sortKey, AtlasGraphQuery.SortOrder.ASC);
+        }
+        return new GremlinPipeline(Iterables.transform(query.vertices(), TO_BLUEPRINTS_VERTEX));
+    }
+
+    /**
+     * Get the vertex property key to order the root vertex query by, when the query results are the root vertices
+     * themselves and the sort property maps to a single vertex property for all of them. The pipes only filter the
+     * root vertices, so the results are then in order without being sorted in memory.
+     *
+     * @param sortProperty  property the request sorts the results by
+     * @return the vertex property key, or null if the results have to be sorted after they are read
+     */
+    protected String getRootVertexSortKey(String sortProperty) {
+        return null;
+    }
+
+    /**
+     * Add conditions to the graph query selecting the vertices the query starts from. The query pipe and the
+     * query expression are still applied to the selected vertices, so the conditions only need to narrow the
+     * selection down as far as the graph indexes allow.
+     *
+     * @param query  graph query for the root vertices
+     */
+    protected void addRootVertexConditions(AtlasGraphQuery query) {
     }
 
     protected Pipe getNotDeletedPipe() {
@@ -174,4 +278,26 @@ public abstract class BaseQuery implements AtlasQuery {
     protected VertexWrapper wrapVertex(Vertex v) {
         return new VertexWrapper(v, resourceDefinition);
     }
+
+    /**
+     * Vertex with the value of the property the results are sorted by. Vertices without the property go last.
+     */
+    private static final class SortedVertex implements Comparable<SortedVertex> {
+        private final Vertex vertex;
+        private final Comparable value;
+
+        SortedVertex(Vertex vertex, Object value) {
+            this.vertex = vertex;
+            this.value = value == null || value instanceof Comparable ? (Comparable) value : String.valueOf(value);
+        }
+
+        @Override
+        public int compareTo(SortedVertex other) {
+            if (value == null || other.value == null) {
+                return value == null ? (other.value == null ? 0 : 1) : -1;
+            }
+            return value.getClass() == other.value.getClass() ? value.compareTo(other.value) :
+                    String.valueOf(value).compareTo(String.valueOf(other.value));
+        }
+    }
 }
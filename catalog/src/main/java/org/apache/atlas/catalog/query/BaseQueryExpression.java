@@ -22,16 +22,35 @@ import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.pipes.Pipe;
 import com.tinkerpop.pipes.PipeFunction;
 import com.tinkerpop.pipes.filter.FilterFunctionPipe;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.catalog.VertexWrapper;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
+import org.apache.atlas.typesystem.types.AttributeInfo;
+import org.apache.atlas.typesystem.types.DataTypes;
+import org.apache.atlas.typesystem.types.HierarchicalType;
+import org.apache.atlas.typesystem.types.TypeSystem;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 /**
  * Base query expression class.
  */
 public abstract class BaseQueryExpression implements QueryExpression {
+    // indexed string valued system properties, which are present on vertices of all types
+    private static final Map<String, String> INDEXED_SYSTEM_PROPERTIES = new HashMap<>();
+    static {
+        INDEXED_SYSTEM_PROPERTIES.put("id", Constants.GUID_PROPERTY_KEY);
+        INDEXED_SYSTEM_PROPERTIES.put("type", Constants.ENTITY_TYPE_PROPERTY_KEY);
+        INDEXED_SYSTEM_PROPERTIES.put("state", Constants.STATE_PROPERTY_KEY);
+        INDEXED_SYSTEM_PROPERTIES.put("trait_names", Constants.TRAIT_NAMES_PROPERTY_KEY);
+        INDEXED_SYSTEM_PROPERTIES.put("super_types", Constants.SUPER_TYPES_PROPERTY_KEY);
+    }
+
     protected String m_field;
     protected final String m_expectedValue;
     protected final ResourceDefinition resourceDefinition;
@@ -73,6 +92,41 @@ public abstract class BaseQueryExpression implements QueryExpression {
         });
     }
 
+    @Override
+    public boolean addIndexConditions(AtlasGraphQuery query, String vertexType) {
+        // by default the expression is only evaluated against the vertices
+        return false;
+    }
+
+    /**
+     * Get the indexed graph property holding the unformatted string value of the expression field.
+     *
+     * @param vertexType  type of the queried vertices or null if they may be of different types
+     * @return property key or null if the field doesn't map to such a property
+     */
+    protected String getIndexedPropertyKey(String vertexType) {
+        if (m_field == null || isProjectionExpression() ||
+                resourceDefinition.getPropertyValueFormatters().containsKey(m_field)) {
+            return null;
+        }
+        if (vertexType == null) {
+            return INDEXED_SYSTEM_PROPERTIES.get(m_field);
+        }
+
+        String propertyKey = resourceDefinition.getPropertyMapper().toFullyQualifiedName(m_field, vertexType);
+        if (INDEXED_SYSTEM_PROPERTIES.containsValue(propertyKey)) {
+            return propertyKey;
+        }
+        //todo: abstract this via AtlasTypeSystem
+        try {
+            HierarchicalType type = TypeSystem.getInstance().getDataType(HierarchicalType.class, vertexType);
+            AttributeInfo attribute = type.fieldMapping().fields.get(m_field);
+            return attribute != null && attribute.dataType() == DataTypes.STRING_TYPE ? propertyKey : null;
+        } catch (AtlasException e) {
+            return null;
+        }
+    }
+
     @Override
     public String getField() {
         return m_field;
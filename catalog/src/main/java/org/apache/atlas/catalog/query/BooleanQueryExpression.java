@@ -22,6 +22,7 @@ import com.tinkerpop.pipes.Pipe;
 import com.tinkerpop.pipes.filter.AndFilterPipe;
 import com.tinkerpop.pipes.filter.OrFilterPipe;
 import org.apache.atlas.catalog.definition.ResourceDefinition;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 
@@ -62,6 +63,49 @@ public class BooleanQueryExpression extends BaseQueryExpression {
         }
     }
 
+    @Override
+    public boolean addIndexConditions(AtlasGraphQuery query, String vertexType) {
+        Map<BooleanClause.Occur, Collection<BooleanClause>> groupedClauses = groupClauses();
+        if (groupedClauses.containsKey(BooleanClause.Occur.SHOULD)) {
+            // any SHOULD clause makes the MUST clauses optional, see asPipe()
+            if (groupedClauses.containsKey(BooleanClause.Occur.MUST) ||
+                    groupedClauses.containsKey(BooleanClause.Occur.MUST_NOT)) {
+                return false;
+            }
+            return addOrIndexConditions(query, vertexType, groupedClauses.get(BooleanClause.Occur.SHOULD));
+        }
+        boolean added = false;
+        Collection<BooleanClause> andClauses = groupedClauses.get(BooleanClause.Occur.MUST);
+        if (andClauses != null) {
+            for (BooleanClause andClause : andClauses) {
+                added |= queryFactory.create(andClause.getQuery(), resourceDefinition).addIndexConditions(query, vertexType);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Add the SHOULD clauses as an or-group, which only narrows the selection down if every clause can be
+     * answered by the graph indexes.
+     */
+    private boolean addOrIndexConditions(AtlasGraphQuery query, String vertexType, Collection<BooleanClause> orClauses) {
+        List<AtlasGraphQuery> childQueries = new ArrayList<>();
+        for (BooleanClause orClause : orClauses) {
+            QueryExpression queryExpression = queryFactory.create(orClause.getQuery(), resourceDefinition);
+            // same negation as processOrClauses()
+            if (negate && orClause.getOccur() != BooleanClause.Occur.MUST_NOT) {
+                queryExpression.setNegate();
+            }
+            AtlasGraphQuery childQuery = query.createChildQuery();
+            if (! queryExpression.addIndexConditions(childQuery, vertexType)) {
+                return false;
+            }
+            childQueries.add(childQuery);
+        }
+        query.or(childQueries);
+        return true;
+    }
+
     private Map<BooleanClause.Occur, Collection<BooleanClause>> groupClauses() {
         Map<BooleanClause.Occur, Collection<BooleanClause>> groupedClauses = new HashMap<>();
         for (BooleanClause clause : clauses) {
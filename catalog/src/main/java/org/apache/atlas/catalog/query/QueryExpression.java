@@ -20,6 +20,7 @@ package org.apache.atlas.catalog.query;
 
 import com.tinkerpop.pipes.Pipe;
 import org.apache.atlas.catalog.VertexWrapper;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 
 import java.util.Collection;
 
@@ -57,6 +58,17 @@ public interface QueryExpression {
      */
     Pipe asPipe();
 
+    /**
+     * Add the conditions of the expression which can be answered by the graph indexes to a graph query.
+     * Vertices matching the expression must also match the added conditions; the expression is still
+     * evaluated against the vertices returned by the graph query.
+     *
+     * @param query       graph query for the vertices that the expression is applied to
+     * @param vertexType  type of the queried vertices or null if they may be of different types
+     * @return true if any conditions were added to the query
+     */
+    boolean addIndexConditions(AtlasGraphQuery query, String vertexType);
+
     /**
      * Negate the expression.
      */
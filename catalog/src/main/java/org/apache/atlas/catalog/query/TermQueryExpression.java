@@ -19,6 +19,7 @@
 package org.apache.atlas.catalog.query;
 
 import org.apache.atlas.catalog.definition.ResourceDefinition;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.lucene.search.TermQuery;
 
 import java.util.Collection;
@@ -49,4 +50,18 @@ public class TermQueryExpression extends BaseQueryExpression {
         return m_expectedValue;
     }
 
+    @Override
+    public boolean addIndexConditions(AtlasGraphQuery query, String vertexType) {
+        String expectedValue = getExpectedValue();
+        if (negate || expectedValue.equals("null")) {
+            return false;
+        }
+        String propertyKey = getIndexedPropertyKey(vertexType);
+        if (propertyKey == null) {
+            return false;
+        }
+        query.has(propertyKey, expectedValue.replaceAll(QueryFactory.PATH_SEP_TOKEN, "/"));
+        return true;
+    }
+
 }
@@ -87,6 +87,9 @@ public class AtlasEntityQueryTest {
         expect(expression.asPipe()).andReturn(expressionPipe);
         expect(rootPipeline.add(expressionPipe)).andReturn(expressionPipeline);
         expect(expressionPipeline.back("root")).andReturn(rootPipeline);
+        expect(request.getSortProperty()).andReturn(null);
+        expect(request.getOffset()).andReturn(0);
+        expect(request.getLimit()).andReturn(-1);
         expect(rootPipeline.toList()).andReturn(results);
         graph.commit();
         expect(vertex1Wrapper.getPropertyMap()).andReturn(vertex1PropertyMap);
@@ -120,6 +123,141 @@ public class AtlasEntityQueryTest {
 
 
 
+    @Test
+    public void testExecute_Collection_page() throws Exception {
+        AtlasGraph graph = createStrictMock(AtlasGraph.class);
+        QueryExpression expression = createStrictMock(QueryExpression.class);
+        ResourceDefinition resourceDefinition = createStrictMock(ResourceDefinition.class);
+        Request request = createStrictMock(Request.class);
+        GremlinPipeline initialPipeline = createStrictMock(GremlinPipeline.class);
+        Pipe queryPipe = createStrictMock(Pipe.class);
+        Pipe expressionPipe = createStrictMock(Pipe.class);
+        Pipe notDeletedPipe = createStrictMock(Pipe.class);
+        GremlinPipeline rootPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline queryPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline expressionPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline notDeletedPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline pagePipeline = createStrictMock(GremlinPipeline.class);
+        Vertex vertex1 = createStrictMock(Vertex.class);
+        VertexWrapper vertex1Wrapper = createStrictMock(VertexWrapper.class);
+
+        List<Vertex> results = new ArrayList<>();
+        results.add(vertex1);
+
+        Map<String, Object> vertex1PropertyMap = new HashMap<>();
+        vertex1PropertyMap.put("prop1", "prop1.value1");
+
+        // mock expectations
+        expect(initialPipeline.add(queryPipe)).andReturn(queryPipeline);
+        expect(initialPipeline.add(notDeletedPipe)).andReturn(notDeletedPipeline);
+        expect(initialPipeline.as("root")).andReturn(rootPipeline);
+        expect(expression.asPipe()).andReturn(expressionPipe);
+        expect(rootPipeline.add(expressionPipe)).andReturn(expressionPipeline);
+        expect(expressionPipeline.back("root")).andReturn(rootPipeline);
+        expect(request.getSortProperty()).andReturn(null);
+        expect(request.getOffset()).andReturn(20);
+        expect(request.getLimit()).andReturn(10);
+        expect(rootPipeline.range(20, 29)).andReturn(pagePipeline);
+        expect(pagePipeline.toList()).andReturn(results);
+        graph.commit();
+        expect(vertex1Wrapper.getPropertyMap()).andReturn(vertex1PropertyMap);
+        expect(resourceDefinition.filterProperties(request, vertex1PropertyMap)).andReturn(vertex1PropertyMap);
+        expect(resourceDefinition.resolveHref(vertex1PropertyMap)).andReturn("/foo/bar");
+        expect(request.getCardinality()).andReturn(Request.Cardinality.COLLECTION);
+
+        replay(graph, expression, resourceDefinition, request, initialPipeline, queryPipe, expressionPipe,
+                notDeletedPipe, rootPipeline, queryPipeline, expressionPipeline, notDeletedPipeline,
+                pagePipeline, vertex1, vertex1Wrapper);
+        // end mock expectations
+
+        AtlasEntityQuery query = new TestAtlasEntityQuery(expression, resourceDefinition, request,
+                initialPipeline, queryPipe, notDeletedPipe, graph, vertex1Wrapper);
+
+        // invoke method being tested
+        Collection<Map<String, Object>> queryResults = query.execute();
+
+        assertEquals(queryResults.size(), 1);
+        assertEquals(queryResults.iterator().next().get("prop1"), "prop1.value1");
+
+        verify(graph, expression, resourceDefinition, request, initialPipeline, queryPipe, expressionPipe,
+                notDeletedPipe, rootPipeline, queryPipeline, expressionPipeline, notDeletedPipeline,
+                pagePipeline, vertex1, vertex1Wrapper);
+    }
+
+    @Test
+    public void testExecute_Collection_sortedPage() throws Exception {
+        AtlasGraph graph = createStrictMock(AtlasGraph.class);
+        QueryExpression expression = createStrictMock(QueryExpression.class);
+        ResourceDefinition resourceDefinition = createStrictMock(ResourceDefinition.class);
+        Request request = createStrictMock(Request.class);
+        GremlinPipeline initialPipeline = createStrictMock(GremlinPipeline.class);
+        Pipe queryPipe = createStrictMock(Pipe.class);
+        Pipe expressionPipe = createStrictMock(Pipe.class);
+        Pipe notDeletedPipe = createStrictMock(Pipe.class);
+        GremlinPipeline rootPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline queryPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline expressionPipeline = createStrictMock(GremlinPipeline.class);
+        GremlinPipeline notDeletedPipeline = createStrictMock(GremlinPipeline.class);
+        final Map<Vertex, VertexWrapper> wrappers = new HashMap<>();
+        List<Vertex> results = new ArrayList<>();
+        Vertex pageVertex = null;
+        for (String name : new String[] { "c", "a", "d", "b" }) {
+            Vertex vertex = createMock(Vertex.class);
+            VertexWrapper vertexWrapper = createMock(VertexWrapper.class);
+            expect(vertexWrapper.getProperty("name")).andReturn(name).anyTimes();
+            wrappers.put(vertex, vertexWrapper);
+            results.add(vertex);
+            if (name.equals("b")) {
+                pageVertex = vertex;
+            }
+        }
+
+        Map<String, Object> pageVertexPropertyMap = new HashMap<>();
+        pageVertexPropertyMap.put("name", "b");
+
+        // mock expectations
+        expect(initialPipeline.add(queryPipe)).andReturn(queryPipeline);
+        expect(initialPipeline.add(notDeletedPipe)).andReturn(notDeletedPipeline);
+        expect(initialPipeline.as("root")).andReturn(rootPipeline);
+        expect(expression.asPipe()).andReturn(expressionPipe);
+        expect(rootPipeline.add(expressionPipe)).andReturn(expressionPipeline);
+        expect(expressionPipeline.back("root")).andReturn(rootPipeline);
+        expect(request.getSortProperty()).andReturn("name");
+        expect(request.getOffset()).andReturn(1);
+        expect(request.getLimit()).andReturn(1);
+        // only the vertices up to the end of the page are kept while the results are read
+        expect(rootPipeline.iterator()).andReturn(results.iterator());
+        graph.commit();
+        expect(wrappers.get(pageVertex).getPropertyMap()).andReturn(pageVertexPropertyMap);
+        expect(resourceDefinition.filterProperties(request, pageVertexPropertyMap)).andReturn(pageVertexPropertyMap);
+        expect(resourceDefinition.resolveHref(pageVertexPropertyMap)).andReturn("/foo/bar");
+        expect(request.getCardinality()).andReturn(Request.Cardinality.COLLECTION);
+
+        replay(graph, expression, resourceDefinition, request, initialPipeline, queryPipe, expressionPipe,
+                notDeletedPipe, rootPipeline, queryPipeline, expressionPipeline, notDeletedPipeline);
+        replay(wrappers.keySet().toArray());
+        replay(wrappers.values().toArray());
+        // end mock expectations
+
+        AtlasEntityQuery query = new TestAtlasEntityQuery(expression, resourceDefinition, request,
+                initialPipeline, queryPipe, notDeletedPipe, graph, null) {
+            @Override
+            protected VertexWrapper wrapVertex(Vertex v) {
+                return wrappers.get(v);
+            }
+        };
+
+        // invoke method being tested
+        Collection<Map<String, Object>> queryResults = query.execute();
+
+        assertEquals(queryResults.size(), 1);
+        assertEquals(queryResults.iterator().next().get("name"), "b");
+
+        verify(graph, expression, resourceDefinition, request, initialPipeline, queryPipe, expressionPipe,
+                notDeletedPipe, rootPipeline, queryPipeline, expressionPipeline, notDeletedPipeline);
+        verify(wrappers.values().toArray());
+    }
+
     @Test
     public void testExecute_Collection_rollbackOnException() throws Exception {
         AtlasGraph graph = createStrictMock(AtlasGraph.class);
@@ -142,6 +280,9 @@ public class AtlasEntityQueryTest {
         expect(expression.asPipe()).andReturn(expressionPipe);
         expect(rootPipeline.add(expressionPipe)).andReturn(expressionPipeline);
         expect(expressionPipeline.back("root")).andReturn(rootPipeline);
+        expect(request.getSortProperty()).andReturn(null);
+        expect(request.getOffset()).andReturn(0);
+        expect(request.getLimit()).andReturn(-1);
         expect(rootPipeline.toList()).andThrow(new RuntimeException("something bad happened"));
         graph.rollback();
 
@@ -202,6 +343,9 @@ public class AtlasEntityQueryTest {
         expect(expression.asPipe()).andReturn(expressionPipe);
         expect(rootPipeline.add(expressionPipe)).andReturn(expressionPipeline);
         expect(expressionPipeline.back("root")).andReturn(rootPipeline);
+        expect(request.getSortProperty()).andReturn(null);
+        expect(request.getOffset()).andReturn(0);
+        expect(request.getLimit()).andReturn(-1);
         expect(rootPipeline.toList()).andReturn(results);
         graph.commit();
         vertex1Wrapper.setProperty("prop3", "newValue");
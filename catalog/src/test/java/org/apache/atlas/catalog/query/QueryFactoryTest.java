@@ -24,12 +24,19 @@ import org.apache.atlas.catalog.Request;
 import org.apache.atlas.catalog.TermPath;
 import org.apache.atlas.catalog.definition.EntityResourceDefinition;
 import org.apache.atlas.catalog.definition.EntityTagResourceDefinition;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 import static org.testng.Assert.assertEquals;
 
 /**
@@ -206,4 +213,66 @@ public class QueryFactoryTest {
         assertEquals(query.getRequest(), request);
         assertEquals(query.getResourceDefinition().getTypeName(), "Taxonomy");
     }
+
+    @Test
+    public void testEntityQueryIndexConditions() throws Exception {
+        Request request = new CollectionRequest(Collections.<String, Object>emptyMap(),
+                "type:hive_table AND name:foo AND id:1234 AND -state:DELETED");
+
+        QueryFactory factory = new QueryFactory();
+        AtlasEntityQuery query = (AtlasEntityQuery) factory.createEntityQuery(request);
+
+        // only the non negated terms on indexed system properties are answered by the indexes
+        AtlasGraphQuery graphQuery = createStrictMock(AtlasGraphQuery.class);
+        expect(graphQuery.has(Constants.ENTITY_TYPE_PROPERTY_KEY, "hive_table")).andReturn(graphQuery);
+        expect(graphQuery.has(Constants.GUID_PROPERTY_KEY, "1234")).andReturn(graphQuery);
+        replay(graphQuery);
+
+        query.addRootVertexConditions(graphQuery);
+        verify(graphQuery);
+    }
+
+    @Test
+    public void testEntityQueryIndexConditions_or() throws Exception {
+        Request request = new CollectionRequest(Collections.<String, Object>emptyMap(),
+                "type:hive_table OR id:1234");
+
+        QueryFactory factory = new QueryFactory();
+        AtlasEntityQuery query = (AtlasEntityQuery) factory.createEntityQuery(request);
+
+        // every OR clause is answered by the indexes, so they are added as an or-group
+        AtlasGraphQuery graphQuery = createStrictMock(AtlasGraphQuery.class);
+        AtlasGraphQuery typeQuery = createStrictMock(AtlasGraphQuery.class);
+        AtlasGraphQuery idQuery = createStrictMock(AtlasGraphQuery.class);
+        expect(graphQuery.createChildQuery()).andReturn(typeQuery);
+        expect(typeQuery.has(Constants.ENTITY_TYPE_PROPERTY_KEY, "hive_table")).andReturn(typeQuery);
+        expect(graphQuery.createChildQuery()).andReturn(idQuery);
+        expect(idQuery.has(Constants.GUID_PROPERTY_KEY, "1234")).andReturn(idQuery);
+        expect(graphQuery.or(Arrays.<AtlasGraphQuery>asList(typeQuery, idQuery))).andReturn(graphQuery);
+        replay(graphQuery, typeQuery, idQuery);
+
+        query.addRootVertexConditions(graphQuery);
+        verify(graphQuery, typeQuery, idQuery);
+    }
+
+    @Test
+    public void testEntityQueryIndexConditions_orNotIndexed() throws Exception {
+        Request request = new CollectionRequest(Collections.<String, Object>emptyMap(),
+                "type:hive_table OR name:foo");
+
+        QueryFactory factory = new QueryFactory();
+        AtlasEntityQuery query = (AtlasEntityQuery) factory.createEntityQuery(request);
+
+        // name is not answered by the indexes, so the OR clauses can't narrow the selection down
+        AtlasGraphQuery graphQuery = createStrictMock(AtlasGraphQuery.class);
+        AtlasGraphQuery typeQuery = createStrictMock(AtlasGraphQuery.class);
+        AtlasGraphQuery nameQuery = createStrictMock(AtlasGraphQuery.class);
+        expect(graphQuery.createChildQuery()).andReturn(typeQuery);
+        expect(typeQuery.has(Constants.ENTITY_TYPE_PROPERTY_KEY, "hive_table")).andReturn(typeQuery);
+        expect(graphQuery.createChildQuery()).andReturn(nameQuery);
+        replay(graphQuery, typeQuery, nameQuery);
+
+        query.addRootVertexConditions(graphQuery);
+        verify(graphQuery, typeQuery, nameQuery);
+    }
 }
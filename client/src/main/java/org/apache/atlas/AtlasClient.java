@@ -81,6 +81,8 @@ public class AtlasClient {
     public static final String REQUEST_ID = "requestId";
     public static final String RESULTS = "results";
     public static final String COUNT = "count";
+    public static final String COMMITTED_CHUNKS = "committedChunks";
+    public static final String COMMITTED_ENTITIES = "committedEntities";
     public static final String ROWS = "rows";
     public static final String DATATYPE = "dataType";
     public static final String STATUS = "Status";
@@ -102,6 +104,8 @@ public class AtlasClient {
 
     public static final String QUERY = "query";
     public static final String QUERY_TYPE = "queryType";
+    public static final String LIMIT = "limit";
+    public static final String OFFSET = "offset";
     public static final String ATTRIBUTE_NAME = "property";
     public static final String ATTRIBUTE_VALUE = "value";
 
@@ -464,6 +468,7 @@ public class AtlasClient {
         GET_ENTITY(BASE_URI + URI_ENTITY, HttpMethod.GET, Response.Status.OK),
         UPDATE_ENTITY(BASE_URI + URI_ENTITY, HttpMethod.PUT, Response.Status.OK),
         UPDATE_ENTITY_PARTIAL(BASE_URI + URI_ENTITY, HttpMethod.POST, Response.Status.OK),
+        UPDATE_ENTITIES_BULK(BASE_URI + URI_ENTITY + "/bulk", HttpMethod.POST, Response.Status.OK),
         LIST_ENTITIES(BASE_URI + URI_ENTITY, HttpMethod.GET, Response.Status.OK),
         DELETE_ENTITIES(BASE_URI + URI_ENTITY, HttpMethod.DELETE, Response.Status.OK),
         DELETE_ENTITY(BASE_URI + URI_ENTITY, HttpMethod.DELETE, Response.Status.OK),
@@ -687,6 +692,29 @@ public class AtlasClient {
         return updateEntities(entitiesArray);
     }
 
+    /**
+     * Replaces entity definitions identified by their guid or unique attribute, like updateEntities(), for large
+     * numbers of entities. The server applies the entities in chunks, each in its own transaction, so entities can
+     * only refer to entities of other chunks by their unique attributes. If a chunk fails, the error response has
+     * the guids of the entities of the chunks committed before it, and their number of chunks and entities.
+     * @param entities entities to be updated
+     * @param chunkSize the number of entities applied per transaction, or null for the server default
+     * @return guids of the entities which were updated/created
+     * @throws AtlasServiceException
+     */
+    public EntityResult updateEntitiesBulk(Collection<Referenceable> entities, Integer chunkSize)
+            throws AtlasServiceException {
+        JSONArray entitiesArray = getEntitiesArray(entities);
+        WebResource resource = getResource(API.UPDATE_ENTITIES_BULK);
+        if (chunkSize != null) {
+            resource = resource.queryParam("chunkSize", String.valueOf(chunkSize));
+        }
+        JSONObject response = callAPIWithResource(API.UPDATE_ENTITIES_BULK, resource, entitiesArray.toString());
+        EntityResult results = extractEntityResult(response);
+        LOG.debug("Bulk update entities returned results: {}", results);
+        return results;
+    }
+
     /**
      * Supports Partial updates
      * Updates property for the entity corresponding to guid
@@ -899,11 +927,27 @@ public class AtlasClient {
      * @throws AtlasServiceException
      */
     public List<String> listEntities(final String entityType) throws AtlasServiceException {
+        return listEntities(entityType, -1, 0);
+    }
+
+    /**
+     * List a page of the entities for a given entity type
+     * @param entityType
+     * @param limit maximum number of entities, negative for all of them when the offset is 0,
+     *              or for the server's default limit otherwise
+     * @param offset number of entities to skip
+     * @return
+     * @throws AtlasServiceException
+     */
+    public List<String> listEntities(final String entityType, final int limit, final int offset)
+            throws AtlasServiceException {
         JSONObject jsonResponse = callAPIWithRetries(API.LIST_ENTITIES, null, new ResourceCreator() {
             @Override
             public WebResource createResource() {
                 WebResource resource = getResource(API.LIST_ENTITIES);
                 resource = resource.queryParam(TYPE, entityType);
+                resource = resource.queryParam(LIMIT, String.valueOf(limit));
+                resource = resource.queryParam(OFFSET, String.valueOf(offset));
                 return resource;
             }
         });
@@ -1010,12 +1054,27 @@ public class AtlasClient {
      * @throws AtlasServiceException
      */
     public JSONArray searchByDSL(final String query) throws AtlasServiceException {
-        LOG.debug("DSL query: {}", query);
+        return searchByDSL(query, -1, 0);
+    }
+
+    /**
+     * Search given query DSL for a page of the results
+     * @param query DSL query
+     * @param limit maximum number of results, negative for all of them when the offset is 0,
+     *              or for the server's default limit otherwise
+     * @param offset number of results to skip
+     * @return result json object
+     * @throws AtlasServiceException
+     */
+    public JSONArray searchByDSL(final String query, final int limit, final int offset) throws AtlasServiceException {
+        LOG.debug("DSL query: {}, limit: {}, offset: {}", query, limit, offset);
         JSONObject result = callAPIWithRetries(API.SEARCH_DSL, null, new ResourceCreator() {
             @Override
             public WebResource createResource() {
                 WebResource resource = getResource(API.SEARCH_DSL);
                 resource = resource.queryParam(QUERY, query);
+                resource = resource.queryParam(LIMIT, String.valueOf(limit));
+                resource = resource.queryParam(OFFSET, String.valueOf(offset));
                 return resource;
             }
         });
@@ -1056,11 +1115,27 @@ public class AtlasClient {
      * @throws AtlasServiceException
      */
     public JSONObject searchByFullText(final String query) throws AtlasServiceException {
+        return searchByFullText(query, -1, 0);
+    }
+
+    /**
+     * Search given full text search for a page of the results
+     * @param query Query
+     * @param limit maximum number of results, negative for all of them when the offset is 0,
+     *              or for the server's default limit otherwise
+     * @param offset number of results to skip
+     * @return result json object
+     * @throws AtlasServiceException
+     */
+    public JSONObject searchByFullText(final String query, final int limit, final int offset)
+            throws AtlasServiceException {
         return callAPIWithRetries(API.SEARCH_FULL_TEXT, null, new ResourceCreator() {
             @Override
             public WebResource createResource() {
                 WebResource resource = getResource(API.SEARCH_FULL_TEXT);
                 resource = resource.queryParam(QUERY, query);
+                resource = resource.queryParam(LIMIT, String.valueOf(limit));
+                resource = resource.queryParam(OFFSET, String.valueOf(offset));
                 return resource;
             }
         });
@@ -52,6 +52,13 @@ public final class HAConfiguration {
     public static final int DEFAULT_ZOOKEEPER_SESSION_TIMEOUT_MILLIS = 20000;
     public static final String HA_ZOOKEEPER_ACL = ATLAS_SERVER_HA_PREFIX + ZOOKEEPER_PREFIX + "acl";
     public static final String HA_ZOOKEEPER_AUTH = ATLAS_SERVER_HA_PREFIX + ZOOKEEPER_PREFIX + "auth";
+    public static final String ATLAS_SERVER_HA_PASSIVE_READS_ENABLED_KEY =
+            ATLAS_SERVER_HA_PREFIX + "passive.reads.enabled";
+    public static final String ATLAS_SERVER_HA_PASSIVE_TYPES_REFRESH_INTERVAL_KEY =
+            ATLAS_SERVER_HA_PREFIX + "passive.types.refresh.interval.ms";
+    public static final long DEFAULT_PASSIVE_TYPES_REFRESH_INTERVAL_MILLIS = 30000;
+    public static final String ATLAS_SERVER_HA_WARM_STANDBY_ENABLED_KEY =
+            ATLAS_SERVER_HA_PREFIX + "warm.standby.enabled";
 
     /**
      * Return whether HA is enabled or not.
@@ -62,6 +69,26 @@ public final class HAConfiguration {
         return configuration.getBoolean(ATLAS_SERVER_HA_ENABLED_KEY, false);
     }
 
+    /**
+     * Return whether passive instances serve read requests themselves, instead of redirecting them to the active one.
+     * @param configuration underlying configuration instance
+     * @return
+     */
+    public static boolean isPassiveReadsEnabled(Configuration configuration) {
+        return isHAEnabled(configuration) && configuration.getBoolean(ATLAS_SERVER_HA_PASSIVE_READS_ENABLED_KEY, false);
+    }
+
+    /**
+     * Return whether passive instances keep the type system and index metadata loaded from the store, so that
+     * becoming active does not need to restore them. This is always the case when passive instances serve reads.
+     * @param configuration underlying configuration instance
+     * @return
+     */
+    public static boolean isWarmStandbyEnabled(Configuration configuration) {
+        return isHAEnabled(configuration) && (configuration.getBoolean(ATLAS_SERVER_HA_WARM_STANDBY_ENABLED_KEY, false)
+                || isPassiveReadsEnabled(configuration));
+    }
+
     //TODO just for testing should be removed
     public static boolean isLazyCacheLoading(Configuration configuration)
     {
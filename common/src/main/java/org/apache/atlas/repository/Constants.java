@@ -74,6 +74,11 @@ public final class Constants {
     public static final String MODIFICATION_TIMESTAMP_PROPERTY_KEY =
             INTERNAL_PROPERTY_KEY_PREFIX + "modificationTimestamp";
 
+    /**
+     * Signature of the attributes of the entity as last written.
+     */
+    public static final String ENTITY_SIGNATURE_PROPERTY_KEY = INTERNAL_PROPERTY_KEY_PREFIX + "entitySignature";
+
     /**
      * search backing index name.
      */
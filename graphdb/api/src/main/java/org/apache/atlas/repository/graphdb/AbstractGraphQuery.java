@@ -0,0 +1,436 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+
+/**
+ * Base class for AtlasGraphQuery implementations.
+ *
+ * The predicates of the query are recorded, and applied to a native query of the graph database when the query
+ * is executed, along with the limit and ordering. Graph databases cannot evaluate or-groups themselves, so a query
+ * with or-groups runs one native query for each combination of their branches, and the results are merged here as
+ * they are read. Or-groups that would take the number of combinations over {@link #MAX_BRANCHES} are not expanded;
+ * they are evaluated in memory on the results instead.
+ *
+ * @param <V> vertex class used by the graph
+ * @param <E> edge class used by the graph
+ * @param <Q> native query class of the graph database
+ */
+public abstract class AbstractGraphQuery<V, E, Q> implements AtlasGraphQuery<V, E> {
+
+    /**
+     * Maximum number of native queries run for the combinations of the branches of the or-groups.
+     */
+    public static final int MAX_BRANCHES = 16;
+
+    private final List<QueryPredicate> predicates = new ArrayList<>();
+    private final List<List<AbstractGraphQuery<V, E, Q>>> orGroups = new ArrayList<>();
+    private int limit = -1;
+    private String orderByKey;
+    private SortOrder sortOrder;
+
+    /**
+     * Creates a native query without any predicates.
+     */
+    protected abstract Q createNativeQuery();
+
+    /**
+     * Creates an empty query of the same kind as this one, to be used as a branch of an or-group.
+     */
+    protected abstract AbstractGraphQuery<V, E, Q> createEmptyQuery();
+
+    protected abstract Q has(Q query, String propertyKey, Object value);
+
+    protected abstract Q has(Q query, String propertyKey, ComparisionOperator operator, Object value);
+
+    protected abstract Q in(Q query, String propertyKey, Collection<?> values);
+
+    protected abstract Q limit(Q query, int limit);
+
+    protected abstract Q orderBy(Q query, String propertyKey, SortOrder order);
+
+    protected abstract Iterable<AtlasVertex<V, E>> vertices(Q query);
+
+    protected abstract Iterable<AtlasEdge<V, E>> edges(Q query);
+
+    /**
+     * Counts the vertices that match all of the given predicates. The vertices are iterated by default; graph
+     * databases that can count them without returning them override this.
+     */
+    protected long countVertices(List<QueryPredicate> branch) {
+        return count(vertices(createNativeQuery(branch, false, false)));
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> has(String propertyKey, Object value) {
+        predicates.add(new QueryPredicate(propertyKey, null, value));
+        return this;
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> has(String propertyKey, ComparisionOperator operator, Object value) {
+        predicates.add(new QueryPredicate(propertyKey, operator, value));
+        return this;
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> in(String propertyKey, Collection<?> values) {
+        predicates.add(new QueryPredicate(propertyKey, null, new ArrayList<>(values), true));
+        return this;
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> createChildQuery() {
+        return createEmptyQuery();
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> or(List<AtlasGraphQuery<V, E>> childQueries) {
+        List<AbstractGraphQuery<V, E, Q>> group = new ArrayList<>(childQueries.size());
+        for (AtlasGraphQuery<V, E> childQuery : childQueries) {
+            group.add((AbstractGraphQuery<V, E, Q>) childQuery);
+        }
+        orGroups.add(group);
+        return this;
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    @Override
+    public AtlasGraphQuery<V, E> orderBy(String propertyKey, SortOrder order) {
+        this.orderByKey = propertyKey;
+        this.sortOrder = order;
+        return this;
+    }
+
+    @Override
+    public Iterable<AtlasVertex<V, E>> vertices() {
+        List<List<AbstractGraphQuery<V, E, Q>>> filteredGroups = new ArrayList<>();
+        List<List<QueryPredicate>> branches = getBranches(filteredGroups);
+        //the limit is applied after filtering when there are groups to filter
+        boolean nativeLimit = filteredGroups.isEmpty();
+        if (branches.size() == 1 && nativeLimit) {
+            return vertices(createNativeQuery(branches.get(0), true, true));
+        }
+        List<Iterable<AtlasVertex<V, E>>> results = new ArrayList<>(branches.size());
+        for (List<QueryPredicate> branch : branches) {
+            results.add(vertices(createNativeQuery(branch, true, nativeLimit)));
+        }
+        return merge(results, filteredGroups, orderByKey != null, limit);
+    }
+
+    @Override
+    public Iterable<AtlasEdge<V, E>> edges() {
+        List<List<AbstractGraphQuery<V, E, Q>>> filteredGroups = new ArrayList<>();
+        List<List<QueryPredicate>> branches = getBranches(filteredGroups);
+        boolean nativeLimit = filteredGroups.isEmpty();
+        if (branches.size() == 1 && nativeLimit) {
+            return edges(createNativeQuery(branches.get(0), true, true));
+        }
+        List<Iterable<AtlasEdge<V, E>>> results = new ArrayList<>(branches.size());
+        for (List<QueryPredicate> branch : branches) {
+            results.add(edges(createNativeQuery(branch, true, nativeLimit)));
+        }
+        return merge(results, filteredGroups, orderByKey != null, limit);
+    }
+
+    @Override
+    public long count() {
+        List<List<AbstractGraphQuery<V, E, Q>>> filteredGroups = new ArrayList<>();
+        List<List<QueryPredicate>> branches = getBranches(filteredGroups);
+        if (branches.size() == 1 && filteredGroups.isEmpty()) {
+            return countVertices(branches.get(0));
+        }
+        //vertices matched by several branches are counted once
+        List<Iterable<AtlasVertex<V, E>>> results = new ArrayList<>(branches.size());
+        for (List<QueryPredicate> branch : branches) {
+            results.add(vertices(createNativeQuery(branch, false, false)));
+        }
+        return count(merge(results, filteredGroups, false, -1));
+    }
+
+    private long count(Iterable<?> elements) {
+        long count = 0;
+        Iterator<?> it = elements.iterator();
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Expands the or-groups of this query into the predicates of each combination of their branches, as long as
+     * there are at most {@link #MAX_BRANCHES} combinations. The or-groups that would take the combinations over it
+     * are added to filteredGroups instead.
+     */
+    private List<List<QueryPredicate>> getBranches(List<List<AbstractGraphQuery<V, E, Q>>> filteredGroups) {
+        List<List<QueryPredicate>> branches = new ArrayList<>();
+        branches.add(predicates);
+        for (List<AbstractGraphQuery<V, E, Q>> group : orGroups) {
+            List<List<QueryPredicate>> groupBranches = getGroupBranches(group);
+            if (groupBranches == null || branches.size() * groupBranches.size() > MAX_BRANCHES) {
+                filteredGroups.add(group);
+                continue;
+            }
+            List<List<QueryPredicate>> expanded = new ArrayList<>();
+            for (List<QueryPredicate> branch : branches) {
+                for (List<QueryPredicate> groupBranch : groupBranches) {
+                    List<QueryPredicate> combined = new ArrayList<>(branch);
+                    combined.addAll(groupBranch);
+                    expanded.add(combined);
+                }
+            }
+            branches = expanded;
+        }
+        return branches;
+    }
+
+    /**
+     * @return the branches of the child queries of an or-group, or null if they cannot all be expanded
+     */
+    private List<List<QueryPredicate>> getGroupBranches(List<AbstractGraphQuery<V, E, Q>> group) {
+        List<List<QueryPredicate>> groupBranches = new ArrayList<>();
+        for (AbstractGraphQuery<V, E, Q> childQuery : group) {
+            List<List<AbstractGraphQuery<V, E, Q>>> childFilteredGroups = new ArrayList<>();
+            List<List<QueryPredicate>> childBranches = childQuery.getBranches(childFilteredGroups);
+            if (!childFilteredGroups.isEmpty() || groupBranches.size() + childBranches.size() > MAX_BRANCHES) {
+                return null;
+            }
+            groupBranches.addAll(childBranches);
+        }
+        return groupBranches;
+    }
+
+    private Q createNativeQuery(List<QueryPredicate> branch, boolean applyOrder, boolean applyLimit) {
+        Q query = createNativeQuery();
+        for (QueryPredicate predicate : branch) {
+            if (predicate.isIn()) {
+                query = in(query, predicate.getPropertyKey(), (Collection<?>) predicate.getValue());
+            } else if (predicate.getOperator() != null) {
+                query = has(query, predicate.getPropertyKey(), predicate.getOperator(), predicate.getValue());
+            } else {
+                query = has(query, predicate.getPropertyKey(), predicate.getValue());
+            }
+        }
+        if (applyOrder && orderByKey != null) {
+            query = orderBy(query, orderByKey, sortOrder);
+        }
+        if (applyLimit && limit >= 0) {
+            //the first elements of the merged result are among the first elements of each branch
+            query = limit(query, limit);
+        }
+        return query;
+    }
+
+    /**
+     * Combines the results of the branches of the or-groups as they are read, dropping the elements matched by
+     * several of them and the ones that do not match the filtered groups, up to the limit. Ordered results are
+     * merged by the ordering property, each branch being ordered by the graph database already.
+     */
+    private <T extends AtlasElement> Iterable<T> merge(final List<Iterable<T>> results,
+                                                       final List<List<AbstractGraphQuery<V, E, Q>>> filteredGroups,
+                                                       final boolean ordered, final int limit) {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                List<Iterator<T>> iterators = new ArrayList<>(results.size());
+                for (Iterable<T> result : results) {
+                    iterators.add(result.iterator());
+                }
+                Iterator<T> merged = ordered
+                        ? Iterators.mergeSorted(iterators, new PropertyComparator<T>(orderByKey, sortOrder))
+                        : Iterators.concat(iterators.iterator());
+                Iterator<T> matching = Iterators.filter(merged, new Predicate<T>() {
+                    private final Set<Object> seenIds = new HashSet<>();
+
+                    @Override
+                    public boolean apply(T element) {
+                        return matchesAll(filteredGroups, element) && seenIds.add(element.getId());
+                    }
+                });
+                return limit >= 0 ? Iterators.limit(matching, limit) : matching;
+            }
+        };
+    }
+
+    /**
+     * @return whether the element matches the predicates and or-groups of this query
+     */
+    private boolean matches(AtlasElement element) {
+        for (QueryPredicate predicate : predicates) {
+            if (!predicate.matches(element)) {
+                return false;
+            }
+        }
+        return matchesAll(orGroups, element);
+    }
+
+    /**
+     * @return whether the element matches at least one child query of each of the or-groups
+     */
+    private boolean matchesAll(List<List<AbstractGraphQuery<V, E, Q>>> groups, AtlasElement element) {
+        for (List<AbstractGraphQuery<V, E, Q>> group : groups) {
+            boolean matched = false;
+            for (AbstractGraphQuery<V, E, Q> childQuery : group) {
+                if (childQuery.matches(element)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders elements by the value of a property, elements without the property last.
+     */
+    private static class PropertyComparator<T extends AtlasElement> implements Comparator<T> {
+        private final String propertyKey;
+        private final SortOrder order;
+
+        PropertyComparator(String propertyKey, SortOrder order) {
+            this.propertyKey = propertyKey;
+            this.order = order;
+        }
+
+        @Override
+        public int compare(T e1, T e2) {
+            Comparable v1 = (Comparable) e1.getProperty(propertyKey, Object.class);
+            Comparable v2 = (Comparable) e2.getProperty(propertyKey, Object.class);
+            if (v1 == null || v2 == null) {
+                return v1 == null ? (v2 == null ? 0 : 1) : -1;
+            }
+            int result = v1.compareTo(v2);
+            return order == SortOrder.DESC ? -result : result;
+        }
+    }
+
+    /**
+     * Predicate of a query, as recorded by has and in.
+     */
+    protected static class QueryPredicate {
+        private final String propertyKey;
+        private final ComparisionOperator operator;
+        private final Object value;
+        private final boolean isIn;
+
+        QueryPredicate(String propertyKey, ComparisionOperator operator, Object value) {
+            this(propertyKey, operator, value, false);
+        }
+
+        QueryPredicate(String propertyKey, ComparisionOperator operator, Object value, boolean isIn) {
+            this.propertyKey = propertyKey;
+            this.operator = operator;
+            this.value = value;
+            this.isIn = isIn;
+        }
+
+        public String getPropertyKey() {
+            return propertyKey;
+        }
+
+        /**
+         * @return the comparison operator, null for an equality predicate added with has(key, value) or in
+         */
+        public ComparisionOperator getOperator() {
+            return operator;
+        }
+
+        /**
+         * @return the value compared with, or the collection of values of an in predicate
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        public boolean isIn() {
+            return isIn;
+        }
+
+        /**
+         * @return whether one of the values of the property of the element matches the predicate
+         */
+        boolean matches(AtlasElement element) {
+            for (Object actual : element.getPropertyValues(propertyKey, Object.class)) {
+                if (actual != null && matchesValue(actual)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesValue(Object actual) {
+            if (isIn) {
+                for (Object expected : (Collection<?>) value) {
+                    if (matches(actual, ComparisionOperator.EQUAL, expected)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return matches(actual, operator == null ? ComparisionOperator.EQUAL : operator, value);
+        }
+
+        private static boolean matches(Object actual, ComparisionOperator operator, Object expected) {
+            int result;
+            if (actual instanceof Number && expected instanceof Number) {
+                result = compare((Number) actual, (Number) expected);
+            } else if (operator == ComparisionOperator.EQUAL) {
+                return actual.equals(expected);
+            } else if (actual instanceof Comparable && actual.getClass() == expected.getClass()) {
+                result = ((Comparable) actual).compareTo(expected);
+            } else {
+                return false;
+            }
+
+            switch (operator) {
+            case GREATER_THAN_EQUAL:
+                return result >= 0;
+            case LESS_THAN_EQUAL:
+                return result <= 0;
+            default:
+                return result == 0;
+            }
+        }
+
+        private static int compare(Number n1, Number n2) {
+            if (n1 instanceof Double || n1 instanceof Float || n2 instanceof Double || n2 instanceof Float) {
+                return Double.compare(n1.doubleValue(), n2.doubleValue());
+            }
+            return Long.compare(n1.longValue(), n2.longValue());
+        }
+    }
+}
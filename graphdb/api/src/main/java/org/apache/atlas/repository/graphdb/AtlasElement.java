@@ -130,4 +130,11 @@ public interface AtlasElement {
      * @return
      */
     public String getIdForDisplay();
+
+    /**
+     * Gets the element of the underlying graph database that this element wraps.
+     *
+     * @return
+     */
+    Object getWrappedElement();
 }
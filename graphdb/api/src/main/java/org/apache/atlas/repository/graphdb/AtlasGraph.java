@@ -19,7 +19,9 @@ package org.apache.atlas.repository.graphdb;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.script.ScriptException;
@@ -135,6 +137,26 @@ public interface AtlasGraph<V,E> {
      */
     Iterable<AtlasVertex<V,E>> getVertices(String key, Object value);
 
+    /**
+     * Gets the outgoing edges of all the given vertices, reading
+     * them from the backend in one batch where the implementation
+     * supports it, instead of one query per vertex.
+     *
+     * @param vertices
+     * @return the outgoing edges of each of the given vertices
+     */
+    Map<AtlasVertex<V,E>, List<AtlasEdge<V,E>>> getOutgoingEdges(Collection<AtlasVertex<V,E>> vertices);
+
+    /**
+     * Loads the properties of all the given vertices, reading them
+     * from the backend in one batch where the implementation supports
+     * it, so that reading them afterwards within the same transaction
+     * does not need a backend read per vertex.
+     *
+     * @param vertices
+     */
+    void prefetchProperties(Collection<AtlasVertex<V,E>> vertices);
+
     /**
      * Creates a graph query
      * @return
@@ -281,5 +303,24 @@ public interface AtlasGraph<V,E> {
      */
     Object executeGremlinScript(String gremlinQuery) throws ScriptException;
 
+    /**
+     * Executes a gremlin query with the given variable bindings, returns an
+     * object with the raw result.  Queries that only differ in the values of
+     * their bindings share the same compiled script.
+     *
+     * @param gremlinQuery
+     * @param bindings values of the variables referenced by the query
+     * @return
+     */
+    Object executeGremlinScript(String gremlinQuery, Map<String, Object> bindings) throws ScriptException;
+
+    /**
+     * Gets the metrics of the graph database backend, such as the state of
+     * its index update buffers.
+     *
+     * @return the metric values by name, empty if the backend has none
+     */
+    Map<String, Object> getMetrics();
+
 
 }
\ No newline at end of file
@@ -18,6 +18,9 @@
 
 package org.apache.atlas.repository.graphdb;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Represents a query against the graph.
  *
@@ -62,10 +65,66 @@ public interface AtlasGraphQuery<V,E> {
      */
     AtlasGraphQuery<V,E> has(String propertyKey, ComparisionOperator compMethod, Object value);
 
+    /**
+     * Adds a predicate that the returned elements must have the specified
+     * property and that one of its values must be one of the given values.
+     *
+     * @param propertyKey
+     * @param values
+     * @return
+     */
+    AtlasGraphQuery<V,E> in(String propertyKey, Collection<?> values);
+
+    /**
+     * Creates a query without any predicates, to be passed to {@link #or(List)}.
+     *
+     * @return
+     */
+    AtlasGraphQuery<V,E> createChildQuery();
+
+    /**
+     * Adds a predicate that the returned elements must match the predicates
+     * of at least one of the given child queries, created with
+     * {@link #createChildQuery()}. The limit and ordering of the child
+     * queries are ignored.
+     *
+     * @param childQueries
+     * @return
+     */
+    AtlasGraphQuery<V,E> or(List<AtlasGraphQuery<V,E>> childQueries);
+
+    /**
+     * Limits the number of elements returned by the query.
+     *
+     * @param limit
+     * @return
+     */
+    AtlasGraphQuery<V,E> limit(int limit);
+
+    /**
+     * Orders the elements returned by the query by the value of the specified property.
+     *
+     * @param propertyKey
+     * @param order
+     * @return
+     */
+    AtlasGraphQuery<V,E> orderBy(String propertyKey, SortOrder order);
+
+    /**
+     * Executes the query and returns the number of matching vertices, ignoring the limit.
+     * @return
+     */
+    long count();
+
     public static enum ComparisionOperator {
         GREATER_THAN_EQUAL,
         EQUAL,
         LESS_THAN_EQUAL
     }
 
+    public static enum SortOrder {
+        ASC,
+        DESC
+    }
+
 }
@@ -29,12 +29,23 @@ import java.util.Iterator;
 public interface AtlasIndexQuery<V,E> {
 
     /**
-     * Gets the query results.
+     * Gets the query results. Index backends that support it read the results lazily in fixed size batches as the
+     * iterator advances, so callers can stream through large result sets without holding them in memory.
      *
      * @return
      */
     Iterator<Result<V,E>> vertices();
 
+    /**
+     * Gets a page of the query results, which is selected by the index backend. Like {@link #vertices()}, large
+     * pages and pages far down the results are read in batches as the iterator advances.
+     *
+     * @param offset number of results to skip
+     * @param limit maximum number of results to return
+     * @return
+     */
+    Iterator<Result<V,E>> vertices(int offset, int limit);
+
     /**
      * Query result from an index query.
      *
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasException;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe pool of gremlin script engines. Each engine keeps an LRU cache
+ * of the scripts it compiled, keyed by the script text, since a compiled
+ * script belongs to the engine that compiled it. Graph implementations share
+ * one pool per engine so that the engine bootstrap and the groovy compilation
+ * of a query are paid for once rather than on every call.
+ *
+ * At most poolSize engines are created; callers wait for an engine to be
+ * released when all of them are in use.
+ */
+public class GremlinScriptEnginePool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GremlinScriptEnginePool.class);
+
+    public static final String ENGINE_POOL_SIZE_PROPERTY = "atlas.graph.gremlin.engine.pool.size";
+    public static final String SCRIPT_CACHE_SIZE_PROPERTY = "atlas.graph.gremlin.script.cache.size";
+
+    public static final int DEFAULT_ENGINE_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_SCRIPT_CACHE_SIZE = 1000;
+
+    private static final Map<String, GremlinScriptEnginePool> INSTANCES = new HashMap<>();
+
+    private final String engineName;
+    private final String scriptPrefix;
+    private final int poolSize;
+    private final int cacheSize;
+    private final BlockingQueue<PooledEngine> idleEngines;
+    private final List<PooledEngine> allEngines = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong compileTimeNanos = new AtomicLong();
+
+    /**
+     * @param engineName name of the script engine to create, e.g. gremlin-groovy
+     * @param scriptPrefix text prepended to every script before it is compiled (may be empty)
+     * @param poolSize maximum number of engines in the pool
+     * @param cacheSize maximum number of compiled scripts to keep for each engine
+     */
+    public GremlinScriptEnginePool(String engineName, String scriptPrefix, int poolSize, int cacheSize) {
+        this.engineName = engineName;
+        this.scriptPrefix = scriptPrefix == null ? "" : scriptPrefix;
+        this.poolSize = Math.max(1, poolSize);
+        this.cacheSize = cacheSize;
+        this.idleEngines = new ArrayBlockingQueue<>(this.poolSize);
+    }
+
+    /**
+     * Gets the pool shared by the graph implementations for the given engine and script prefix, sized from
+     * {@link #ENGINE_POOL_SIZE_PROPERTY} and {@link #SCRIPT_CACHE_SIZE_PROPERTY}.
+     */
+    public static synchronized GremlinScriptEnginePool getInstance(String engineName, String scriptPrefix) {
+        String key = engineName + ":" + scriptPrefix;
+        GremlinScriptEnginePool pool = INSTANCES.get(key);
+        if (pool == null) {
+            try {
+                Configuration config = ApplicationProperties.get();
+                pool = new GremlinScriptEnginePool(engineName, scriptPrefix,
+                        config.getInt(ENGINE_POOL_SIZE_PROPERTY, DEFAULT_ENGINE_POOL_SIZE),
+                        config.getInt(SCRIPT_CACHE_SIZE_PROPERTY, DEFAULT_SCRIPT_CACHE_SIZE));
+            } catch (AtlasException e) {
+                throw new RuntimeException(e);
+            }
+            INSTANCES.put(key, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Evaluates the given script with the given bindings.  The compiled form
+     * of the script is cached by the engine that evaluated it, so subsequent
+     * calls with the same script text on that engine skip compilation.
+     *
+     * @param script the gremlin script
+     * @param bindings variables made available to the script
+     * @return the raw result of the script
+     * @throws ScriptException
+     */
+    public Object eval(String script, Map<String, Object> bindings) throws ScriptException {
+        PooledEngine pooled = borrowEngine();
+        try {
+            ScriptEngine engine = pooled.engine;
+            Bindings engineBindings = engine.createBindings();
+            engineBindings.putAll(bindings);
+
+            if (!(engine instanceof Compilable)) {
+                return engine.eval(scriptPrefix + script, engineBindings);
+            }
+
+            CompiledScript compiled = pooled.compiledScripts.get(script);
+            if (compiled != null) {
+                cacheHits.incrementAndGet();
+            } else {
+                cacheMisses.incrementAndGet();
+                long start = System.nanoTime();
+                compiled = ((Compilable) engine).compile(scriptPrefix + script);
+                long elapsed = System.nanoTime() - start;
+                compileTimeNanos.addAndGet(elapsed);
+                pooled.compiledScripts.put(script, compiled);
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Compiled gremlin script in {} ms: {}", elapsed / 1000000, script);
+                }
+            }
+            return compiled.eval(engineBindings);
+        } finally {
+            idleEngines.offer(pooled);
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public long getCompileTimeMillis() {
+        return compileTimeNanos.get() / 1000000;
+    }
+
+    /**
+     * @return the number of compiled scripts kept by all the engines
+     */
+    public int getCacheSize() {
+        int size = 0;
+        for (PooledEngine pooled : allEngines) {
+            size += pooled.compiledScripts.size();
+        }
+        return size;
+    }
+
+    public int getEngineCount() {
+        return allEngines.size();
+    }
+
+    /**
+     * @return the engine and script cache counters of the pool, keyed for {@link AtlasGraph#getMetrics()}
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("gremlin.enginePool.maxEngines", poolSize);
+        metrics.put("gremlin.enginePool.engines", getEngineCount());
+        metrics.put("gremlin.enginePool.idleEngines", idleEngines.size());
+        metrics.put("gremlin.enginePool.cachedScripts", getCacheSize());
+        metrics.put("gremlin.enginePool.cacheHits", getCacheHits());
+        metrics.put("gremlin.enginePool.cacheMisses", getCacheMisses());
+        metrics.put("gremlin.enginePool.compileTimeMs", getCompileTimeMillis());
+        return metrics;
+    }
+
+    public void clearCache() {
+        for (PooledEngine pooled : allEngines) {
+            pooled.compiledScripts.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GremlinScriptEnginePool{engine=%s, engines=%d, cached=%d, hits=%d, misses=%d, compileTimeMs=%d}",
+                engineName, getEngineCount(), getCacheSize(), getCacheHits(), getCacheMisses(), getCompileTimeMillis());
+    }
+
+    private PooledEngine borrowEngine() throws ScriptException {
+        PooledEngine pooled = idleEngines.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        synchronized (allEngines) {
+            if (allEngines.size() < poolSize) {
+                ScriptEngine engine = new ScriptEngineManager().getEngineByName(engineName);
+                if (engine == null) {
+                    throw new ScriptException("Script engine " + engineName + " is not available");
+                }
+                pooled = new PooledEngine(engine, cacheSize);
+                allEngines.add(pooled);
+                return pooled;
+            }
+        }
+
+        try {
+            return idleEngines.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException("Interrupted while waiting for a " + engineName + " script engine");
+        }
+    }
+
+    /**
+     * A script engine with the scripts it compiled.
+     */
+    private static final class PooledEngine {
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> compiledScripts;
+
+        PooledEngine(ScriptEngine engine, final int cacheSize) {
+            this.engine = engine;
+            this.compiledScripts = Collections.synchronizedMap(
+                    new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                            return size() > cacheSize;
+                        }
+                    });
+        }
+    }
+}
@@ -14,10 +14,13 @@
  */
 package com.thinkaurelius.titan.diskstorage.solr;
 
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import com.thinkaurelius.titan.core.Order;
+import com.thinkaurelius.titan.core.TitanException;
 import com.thinkaurelius.titan.core.TitanElement;
 import com.thinkaurelius.titan.core.attribute.Cmp;
 import com.thinkaurelius.titan.core.attribute.Geo;
@@ -83,13 +86,17 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.thinkaurelius.titan.core.attribute.Cmp.*;
 import static com.thinkaurelius.titan.core.schema.Mapping.*;
@@ -181,6 +188,40 @@ public class Solr5Index implements IndexProvider {
             "When mutating - wait for the index to reflect new mutations before returning. This can have a negative impact on performance.",
             ConfigOption.Type.LOCAL, false);
 
+    public static final ConfigOption<Integer> CURSOR_BATCH_SIZE = new ConfigOption<Integer>(SOLR_NS, "cursor-batch-size",
+            "Number of documents fetched per request when reading query results through a Solr cursor. Queries asking " +
+                    "for more results than this, or for results past this many, are read in batches of this size.",
+            ConfigOption.Type.MASKABLE, 1000);
+
+    /** Write-behind Configuration */
+
+    public static final ConfigOption<Boolean> WRITE_BEHIND = new ConfigOption<Boolean>(SOLR_NS, "write-behind",
+            "Buffer index updates across transactions and send them to Solr in batches, instead of sending and committing " +
+                    "the updates of every transaction as it commits. Index queries flush the buffer first, so they see the " +
+                    "updates of committed transactions. Buffered updates are lost if the process dies before they are " +
+                    "flushed, leaving the index behind the graph until it is reindexed.",
+            ConfigOption.Type.MASKABLE, false);
+
+    public static final ConfigOption<Integer> WRITE_BEHIND_BATCH_SIZE = new ConfigOption<Integer>(SOLR_NS, "write-behind-batch-size",
+            "Number of buffered documents that triggers a flush of the write-behind buffer.",
+            ConfigOption.Type.MASKABLE, 1000);
+
+    public static final ConfigOption<Integer> WRITE_BEHIND_MAX_PENDING = new ConfigOption<Integer>(SOLR_NS, "write-behind-max-pending",
+            "Maximum number of buffered documents. Writers flush the buffer themselves when it is full.",
+            ConfigOption.Type.MASKABLE, 10000);
+
+    public static final ConfigOption<Integer> WRITE_BEHIND_FLUSH_INTERVAL = new ConfigOption<Integer>(SOLR_NS, "write-behind-flush-interval",
+            "Maximum time in milliseconds that updates wait in the write-behind buffer.",
+            ConfigOption.Type.MASKABLE, 1000);
+
+    public static final ConfigOption<Boolean> WRITE_BEHIND_SOFT_COMMIT = new ConfigOption<Boolean>(SOLR_NS, "write-behind-soft-commit",
+            "Whether each flush of the write-behind buffer ends with a soft commit rather than a hard commit, leaving " +
+                    "durability to Solr's own hard commits.",
+            ConfigOption.Type.MASKABLE, true);
+
+    private static final Set<Solr5Index> WRITE_BEHIND_INDEXES =
+            Collections.newSetFromMap(new ConcurrentHashMap<Solr5Index, Boolean>());
+
 
 
     private static final IndexFeatures SOLR_FEATURES = new IndexFeatures.Builder().supportsDocumentTTL()
@@ -193,7 +234,9 @@ public class Solr5Index implements IndexProvider {
     private final Map<String, String> keyFieldIds;
     private final String ttlField;
     private final int maxResults;
+    private final int cursorBatchSize;
     private final boolean waitSearcher;
+    private final SolrWriteBehindBuffer writeBehind;
 
     public Solr5Index(final Configuration config) throws BackendException {
         Preconditions.checkArgument(config!=null);
@@ -203,6 +246,7 @@ public class Solr5Index implements IndexProvider {
         dynFields = config.get(DYNAMIC_FIELDS);
         keyFieldIds = parseKeyFieldsForCollections(config);
         maxResults = config.get(GraphDatabaseConfiguration.INDEX_MAX_RESULT_SET_SIZE);
+        cursorBatchSize = config.get(CURSOR_BATCH_SIZE);
         ttlField = config.get(TTL_FIELD);
         waitSearcher = config.get(WAIT_SEARCHER);
 
@@ -227,6 +271,27 @@ public class Solr5Index implements IndexProvider {
         } else {
             throw new IllegalArgumentException("Unsupported Solr operation mode: " + mode);
         }
+
+        if (config.get(WRITE_BEHIND)) {
+            writeBehind = new SolrWriteBehindBuffer(solrClient, config.get(WRITE_BEHIND_BATCH_SIZE),
+                    config.get(WRITE_BEHIND_MAX_PENDING), config.get(WRITE_BEHIND_FLUSH_INTERVAL),
+                    config.get(WRITE_BEHIND_SOFT_COMMIT), waitSearcher);
+            writeBehind.start();
+            WRITE_BEHIND_INDEXES.add(this);
+        } else {
+            writeBehind = null;
+        }
+    }
+
+    /**
+     * @return the write-behind buffers of the open Solr indexes, for their queue depth and flush metrics
+     */
+    public static Collection<SolrWriteBehindBuffer> getWriteBehindBuffers() {
+        List<SolrWriteBehindBuffer> buffers = new ArrayList<SolrWriteBehindBuffer>();
+        for (Solr5Index index : WRITE_BEHIND_INDEXES) {
+            buffers.add(index.writeBehind);
+        }
+        return buffers;
     }
 
     private Map<String, String> parseKeyFieldsForCollections(Configuration config) throws BackendException {
@@ -298,6 +363,11 @@ public class Solr5Index implements IndexProvider {
                     Preconditions.checkArgument(!mutation.isNew() || !mutation.hasDeletions());
                     Preconditions.checkArgument(!mutation.isDeleted() || !mutation.hasAdditions());
 
+                    if (writeBehind != null) {
+                        bufferMutation(collectionName, keyIdField, docId, mutation);
+                        continue;
+                    }
+
                     //Handle any deletions
                     if (mutation.hasDeletions()) {
                         if (mutation.isDeleted()) {
@@ -315,26 +385,7 @@ public class Solr5Index implements IndexProvider {
                     }
 
                     if (mutation.hasAdditions()) {
-                        int ttl = mutation.determineTTL();
-
-                        SolrInputDocument doc = new SolrInputDocument();
-                        doc.setField(keyIdField, docId);
-
-                        boolean isNewDoc = mutation.isNew();
-
-                        if (isNewDoc)
-                            logger.trace("Adding new document {}", docId);
-
-                        for (IndexEntry e : mutation.getAdditions()) {
-                            final Object fieldValue = convertValue(e.value);
-                            doc.setField(e.field, isNewDoc
-                                    ? fieldValue : new HashMap<String, Object>(1) {{ put("set", fieldValue); }});
-                        }
-                        if (ttl>0) {
-                            Preconditions.checkArgument(isNewDoc,"Solr only supports TTL on new documents [%s]",docId);
-                            doc.setField(ttlField, String.format("+%dSECONDS", ttl));
-                        }
-                        changes.add(doc);
+                        changes.add(newDocument(keyIdField, docId, mutation));
                     }
                 }
 
@@ -346,6 +397,47 @@ public class Solr5Index implements IndexProvider {
         }
     }
 
+    private SolrInputDocument newDocument(String keyIdField, String docId, IndexMutation mutation) throws BackendException {
+        int ttl = mutation.determineTTL();
+
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.setField(keyIdField, docId);
+
+        boolean isNewDoc = mutation.isNew();
+
+        if (isNewDoc)
+            logger.trace("Adding new document {}", docId);
+
+        for (IndexEntry e : mutation.getAdditions()) {
+            final Object fieldValue = convertValue(e.value);
+            doc.setField(e.field, isNewDoc
+                    ? fieldValue : new HashMap<String, Object>(1) {{ put("set", fieldValue); }});
+        }
+        if (ttl>0) {
+            Preconditions.checkArgument(isNewDoc,"Solr only supports TTL on new documents [%s]",docId);
+            doc.setField(ttlField, String.format("+%dSECONDS", ttl));
+        }
+        return doc;
+    }
+
+    private void bufferMutation(String collectionName, String keyIdField, String docId, IndexMutation mutation) throws BackendException {
+        List<String> deletedFields = new ArrayList<String>();
+        if (mutation.hasDeletions() && !mutation.isDeleted()) {
+            HashSet<IndexEntry> fieldDeletions = Sets.newHashSet(mutation.getDeletions());
+            if (mutation.hasAdditions()) {
+                for (IndexEntry indexEntry : mutation.getAdditions()) {
+                    fieldDeletions.remove(indexEntry);
+                }
+            }
+            for (IndexEntry fieldDeletion : fieldDeletions) {
+                deletedFields.add(fieldDeletion.field);
+            }
+        }
+
+        SolrInputDocument doc = mutation.hasAdditions() ? newDocument(keyIdField, docId, mutation) : null;
+        writeBehind.add(collectionName, keyIdField, docId, mutation.isDeleted(), deletedFields, doc, mutation.isNew());
+    }
+
     private Object convertValue(Object value) throws BackendException {
         if (value instanceof Geoshape)
             return GeoToWktConverter.convertToWktString((Geoshape) value);
@@ -361,6 +453,7 @@ public class Solr5Index implements IndexProvider {
 
     @Override
     public void restore(Map<String, Map<String, List<IndexEntry>>> documents, KeyInformation.IndexRetriever informations, BaseTransaction tx) throws BackendException {
+        flushWriteBehind();
         try {
             for (Map.Entry<String, Map<String, List<IndexEntry>>> stores : documents.entrySet()) {
                 final String collectionName = stores.getKey();
@@ -443,12 +536,23 @@ public class Solr5Index implements IndexProvider {
         solrClient.request(newUpdateRequest().deleteById(deleteIds), collectionName);
     }
 
+    /**
+     * Sends the buffered updates before a query reads the index, so that queries see the writes of committed
+     * transactions.
+     */
+    private void flushWriteBehind() throws BackendException {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
     @Override
     public List<String> query(IndexQuery query, KeyInformation.IndexRetriever informations, BaseTransaction tx) throws BackendException {
-        List<String> result;
+        flushWriteBehind();
+        List<String> result = new ArrayList<String>();
         String collection = query.getStore();
         String keyIdField = getKeyFieldId(collection);
-        SolrQuery solrQuery = new SolrQuery("*:*");
+        SolrQuery solrQuery = new SolrQuery("*:*").addField(keyIdField);
         String queryFilter = buildQueryFilter(query.getCondition(), informations.get(collection));
         solrQuery.addFilterQuery(queryFilter);
         if (!query.getOrder().isEmpty()) {
@@ -459,63 +563,98 @@ public class Solr5Index implements IndexProvider {
                 solrQuery.addSort(new SolrQuery.SortClause(item, order));
             }
         }
-        solrQuery.setStart(0);
-        if (query.hasLimit()) {
-            solrQuery.setRows(query.getLimit());
-        } else {
-            solrQuery.setRows(maxResults);
-        }
-        try {
-            QueryResponse response = solrClient.query(collection, solrQuery);
-
-            if (logger.isDebugEnabled())
-                logger.debug("Executed query [{}] in {} ms", query.getCondition(), response.getElapsedTime());
-
-            int totalHits = response.getResults().size();
-
-            if (!query.hasLimit() && totalHits >= maxResults)
-                logger.warn("Query result set truncated to first [{}] elements for query: {}", maxResults, query);
 
-            result = new ArrayList<String>(totalHits);
-            for (SolrDocument hit : response.getResults()) {
-                result.add(hit.getFieldValue(keyIdField).toString());
+        Iterator<SolrDocument> hits = execute(collection, solrQuery, keyIdField, 0,
+                query.hasLimit() ? query.getLimit() : maxResults);
+        try {
+            while (hits.hasNext()) {
+                result.add(hits.next().getFieldValue(keyIdField).toString());
             }
-        } catch (IOException e) {
-            logger.error("Query did not complete : ", e);
-            throw new PermanentBackendException(e);
-        } catch (SolrServerException e) {
-            logger.error("Unable to query Solr index.", e);
-            throw new PermanentBackendException(e);
+        } catch (TitanException e) {
+            throw new PermanentBackendException(e.getCause());
         }
+
+        if (!query.hasLimit() && result.size() >= maxResults)
+            logger.warn("Query result set truncated to first [{}] elements for query: {}", maxResults, query);
+
+        if (logger.isDebugEnabled())
+            logger.debug("Query [{}] returned {} results", query.getCondition(), result.size());
         return result;
     }
 
+    /**
+     * Results of raw queries are read lazily. Pages that fit in a single cursor batch are read with one request,
+     * anything larger is read through a Solr cursor as it is iterated, so that callers can stream through any number
+     * of results while neither side holds more than a batch of them. Queries without a limit are capped, like the
+     * other queries, at the maximum result set size.
+     */
     @Override
     public Iterable<RawQuery.Result<String>> query(RawQuery query, KeyInformation.IndexRetriever informations, BaseTransaction tx) throws BackendException {
-        List<RawQuery.Result<String>> result;
-        String collection = query.getStore();
-        String keyIdField = getKeyFieldId(collection);
-        SolrQuery solrQuery = new SolrQuery(query.getQuery())
+        flushWriteBehind();
+        final String collection = query.getStore();
+        final String keyIdField = getKeyFieldId(collection);
+        final SolrQuery solrQuery = new SolrQuery(query.getQuery())
                 .addField(keyIdField)
                 .setIncludeScore(true)
-                .setStart(query.getOffset())
-                .setRows(query.hasLimit() ? query.getLimit() : maxResults);
+                .addSort(new SolrQuery.SortClause("score", SolrQuery.ORDER.desc));
+        final int offset = query.getOffset();
+        final int limit = query.hasLimit() ? query.getLimit() : maxResults;
+        final Function<SolrDocument, RawQuery.Result<String>> toResult = new Function<SolrDocument, RawQuery.Result<String>>() {
+            @Override
+            public RawQuery.Result<String> apply(SolrDocument hit) {
+                double score = Double.parseDouble(hit.getFieldValue("score").toString());
+                return new RawQuery.Result<String>(hit.getFieldValue(keyIdField).toString(), score);
+            }
+        };
+
+        // the first batch is read right away, so that a bad query fails here rather than on iteration
+        final Iterator<SolrDocument> firstHits = execute(collection, solrQuery.getCopy(), keyIdField, offset, limit);
+        return new Iterable<RawQuery.Result<String>>() {
+            private Iterator<SolrDocument> unread = firstHits;
+
+            @Override
+            public Iterator<RawQuery.Result<String>> iterator() {
+                Iterator<SolrDocument> hits = unread;
+                unread = null;
+                if (hits == null) {
+                    try {
+                        hits = execute(collection, solrQuery.getCopy(), keyIdField, offset, limit);
+                    } catch (BackendException e) {
+                        throw new TitanException("Unable to query Solr index", e);
+                    }
+                }
+                return Iterators.transform(hits, toResult);
+            }
+        };
+    }
+
+    /**
+     * Runs the query for the results from offset up to offset + limit. A window that fits in one cursor batch is read
+     * with a single request. Larger windows and windows further down the results are read batch by batch through a
+     * Solr cursor as they are iterated, instead of having Solr rank and return everything up to the end of the window
+     * in one go. Failures reading later batches are thrown as TitanException.
+     */
+    private Iterator<SolrDocument> execute(String collection, SolrQuery solrQuery, String keyIdField, int offset,
+                                           int limit) throws BackendException {
+        if ((long) offset + limit <= cursorBatchSize) {
+            solrQuery.setStart(offset);
+            solrQuery.setRows(limit);
+            return executeQuery(solrClient, collection, solrQuery).getResults().iterator();
+        }
+
+        // a cursor needs the sort to end with the unique key, as the tie breaker
+        solrQuery.addSort(new SolrQuery.SortClause(keyIdField, SolrQuery.ORDER.asc));
+        solrQuery.setStart(0);
+        return new SolrCursorIterator(solrClient, collection, solrQuery, cursorBatchSize, offset, limit);
+    }
 
+    static QueryResponse executeQuery(SolrClient solrClient, String collection, SolrQuery solrQuery)
+            throws BackendException {
         try {
             QueryResponse response = solrClient.query(collection, solrQuery);
             if (logger.isDebugEnabled())
-                logger.debug("Executed query [{}] in {} ms", query.getQuery(), response.getElapsedTime());
-
-            int totalHits = response.getResults().size();
-            if (!query.hasLimit() && totalHits >= maxResults) {
-                logger.warn("Query result set truncated to first [{}] elements for query: {}", maxResults, query);
-            }
-            result = new ArrayList<RawQuery.Result<String>>(totalHits);
-
-            for (SolrDocument hit : response.getResults()) {
-                double score = Double.parseDouble(hit.getFieldValue("score").toString());
-                result.add(new RawQuery.Result<String>(hit.getFieldValue(keyIdField).toString(), score));
-            }
+                logger.debug("Executed query [{}] in {} ms", solrQuery, response.getElapsedTime());
+            return response;
         } catch (IOException e) {
             logger.error("Query did not complete : ", e);
             throw new PermanentBackendException(e);
@@ -523,7 +662,6 @@ public class Solr5Index implements IndexProvider {
             logger.error("Unable to query Solr index.", e);
             throw new PermanentBackendException(e);
         }
-        return result;
     }
 
     private static String escapeValue(Object value) {
@@ -746,6 +884,10 @@ public class Solr5Index implements IndexProvider {
     @Override
     public void close() throws BackendException {
         logger.trace("Shutting down connection to Solr", solrClient);
+        if (writeBehind != null) {
+            WRITE_BEHIND_INDEXES.remove(this);
+            writeBehind.close();
+        }
         try {
             solrClient.close();
         } catch (IOException e) {
@@ -755,6 +897,7 @@ public class Solr5Index implements IndexProvider {
 
     @Override
     public void clearStorage() throws BackendException {
+        flushWriteBehind();
         try {
             if (mode!=Mode.CLOUD) throw new UnsupportedOperationException("Operation only supported for SolrCloud");
             logger.debug("Clearing storage from Solr: {}", solrClient);
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thinkaurelius.titan.diskstorage.solr;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.thinkaurelius.titan.core.TitanException;
+import com.thinkaurelius.titan.diskstorage.BackendException;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+
+import java.util.Iterator;
+
+/**
+ * Iterates over query results with a Solr cursor, reading up to batch size documents at a time. Documents before the
+ * offset are read and dropped, since a cursor can only move forward one batch at a time. Once past the offset, batches
+ * are cut at the limit, so that nothing past it is read. The query must be sorted with the unique key as the last sort
+ * clause.
+ */
+class SolrCursorIterator extends AbstractIterator<SolrDocument> {
+    private final SolrClient solrClient;
+    private final String collection;
+    private final SolrQuery solrQuery;
+    private final int batchSize;
+    private int toSkip;
+    private int remaining;
+    private String cursorMark;
+    private Iterator<SolrDocument> batch = Iterators.emptyIterator();
+    private boolean lastBatch = false;
+
+    /**
+     * Reads the first batch right away, so that a bad query fails here rather than on iteration.
+     */
+    SolrCursorIterator(SolrClient solrClient, String collection, SolrQuery solrQuery, int batchSize, int offset,
+                       int limit) throws BackendException {
+        this.solrClient = solrClient;
+        this.collection = collection;
+        this.solrQuery = solrQuery;
+        this.batchSize = batchSize;
+        this.toSkip = offset;
+        this.remaining = limit;
+        this.cursorMark = CursorMarkParams.CURSOR_MARK_START;
+
+        if (remaining > 0) {
+            readBatch();
+        } else {
+            lastBatch = true;
+        }
+    }
+
+    private void readBatch() throws BackendException {
+        int rows = toSkip > 0 ? batchSize : Math.min(batchSize, remaining);
+        solrQuery.setRows(rows);
+        solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+        QueryResponse response = Solr5Index.executeQuery(solrClient, collection, solrQuery);
+        SolrDocumentList results = response.getResults();
+        String nextCursorMark = response.getNextCursorMark();
+        lastBatch = results.size() < rows || nextCursorMark == null || nextCursorMark.equals(cursorMark);
+        cursorMark = nextCursorMark;
+        batch = results.iterator();
+    }
+
+    @Override
+    protected SolrDocument computeNext() {
+        while (remaining > 0) {
+            if (batch.hasNext()) {
+                SolrDocument hit = batch.next();
+                if (toSkip > 0) {
+                    toSkip--;
+                    continue;
+                }
+                remaining--;
+                return hit;
+            }
+            if (lastBatch) {
+                break;
+            }
+            try {
+                readBatch();
+            } catch (BackendException e) {
+                throw new TitanException("Unable to read the next batch of Solr query results", e);
+            }
+        }
+        return endOfData();
+    }
+}
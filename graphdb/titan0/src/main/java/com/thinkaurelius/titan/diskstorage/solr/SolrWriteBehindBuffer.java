@@ -0,0 +1,410 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thinkaurelius.titan.diskstorage.solr;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkaurelius.titan.diskstorage.BackendException;
+import com.thinkaurelius.titan.diskstorage.TemporaryBackendException;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers Solr index updates across transactions and sends them in batches.
+ *
+ * The updates to a document are merged while they wait: a later new document or delete replaces whatever was
+ * pending for it, and later field updates are folded into the pending document. Each flush sends one delete and
+ * one update request per collection and ends with a single commit, a soft commit unless configured otherwise.
+ * The buffer is flushed every flush interval, as soon as batch size documents are pending, and by {@link #flush()}
+ * for callers that need to read their own writes. Writers flush themselves once max pending documents are waiting,
+ * counting the ones being flushed, so the buffer stays bounded when Solr falls behind: while failed flushes keep it
+ * full, writers fail instead of adding to it.
+ *
+ * Buffered updates only live in memory. Those not flushed yet are lost if the process dies, and the index misses
+ * them until the affected documents are reindexed.
+ */
+public class SolrWriteBehindBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(SolrWriteBehindBuffer.class);
+
+    private final SolrClient solrClient;
+    private final int batchSize;
+    private final int maxPending;
+    private final long flushIntervalMs;
+    private final boolean softCommit;
+    private final boolean waitSearcher;
+
+    /** pending documents by collection and document id, in the order of their first update */
+    private Map<String, Map<String, PendingDocument>> pending = new LinkedHashMap<String, Map<String, PendingDocument>>();
+    private int pendingCount = 0;
+    /** documents of the flush in progress, which are back in pending if it fails */
+    private int inFlightCount = 0;
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong mergedUpdates = new AtomicLong();
+    private final AtomicLong flushedDocuments = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong totalFlushMs = new AtomicLong();
+    private volatile long lastFlushMs = 0;
+
+    public SolrWriteBehindBuffer(SolrClient solrClient, int batchSize, int maxPending, long flushIntervalMs,
+                                 boolean softCommit, boolean waitSearcher) {
+        this.solrClient = solrClient;
+        this.batchSize = batchSize;
+        this.maxPending = Math.max(maxPending, batchSize);
+        this.flushIntervalMs = flushIntervalMs;
+        this.softCommit = softCommit;
+        this.waitSearcher = waitSearcher;
+    }
+
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("solr-write-behind-%d").setDaemon(true).build());
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                backgroundFlush();
+            }
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Started Solr write-behind buffer with batch size {} and flush interval {} ms", batchSize,
+                flushIntervalMs);
+    }
+
+    /**
+     * Flushes the pending updates and stops the background flushes.
+     */
+    public void close() throws BackendException {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(flushIntervalMs + 60000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        logger.info("Closed Solr write-behind buffer: {} documents in {} flushes, {} updates merged, {} failed flushes",
+                flushedDocuments.get(), flushes.get(), mergedUpdates.get(), failedFlushes.get());
+    }
+
+    /**
+     * Queues an update of a document.
+     *
+     * @param collection collection of the document
+     * @param keyIdField unique key field of the collection
+     * @param docId document id
+     * @param deleted whether the whole document is deleted
+     * @param deletedFields fields removed from the document
+     * @param document fields added to the document, a whole document if newDocument, else atomic updates; may be null
+     * @param newDocument whether document replaces the whole document
+     */
+    public void add(String collection, String keyIdField, String docId, boolean deleted,
+                    Collection<String> deletedFields, SolrInputDocument document, boolean newDocument)
+            throws BackendException {
+        PendingDocument update = new PendingDocument(keyIdField, docId);
+        if (deleted) {
+            update.delete();
+        }
+        if (!deletedFields.isEmpty()) {
+            SolrInputDocument fieldDeletions = new SolrInputDocument();
+            fieldDeletions.setField(keyIdField, docId);
+            for (String field : deletedFields) {
+                fieldDeletions.setField(field, atomicSet(null));
+            }
+            update.update(fieldDeletions, false);
+        }
+        if (document != null) {
+            update.update(document, newDocument);
+        }
+
+        //back-pressure: a buffer left full by failed flushes must be flushed before it takes more updates
+        while (isFull()) {
+            logger.debug("{} index updates pending, flushing them before buffering more", maxPending);
+            flush();
+        }
+
+        boolean mustFlush;
+        synchronized (this) {
+            Map<String, PendingDocument> documents = pending.get(collection);
+            if (documents == null) {
+                documents = new LinkedHashMap<String, PendingDocument>();
+                pending.put(collection, documents);
+            }
+            PendingDocument queued = documents.get(docId);
+            if (queued != null) {
+                queued.append(update);
+                mergedUpdates.incrementAndGet();
+            } else {
+                documents.put(docId, update);
+                pendingCount++;
+            }
+            mustFlush = pendingCount + inFlightCount >= maxPending;
+            if (!mustFlush && pendingCount >= batchSize && flusher != null
+                    && flushRequested.compareAndSet(false, true)) {
+                flusher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        backgroundFlush();
+                    }
+                });
+            }
+        }
+
+        if (mustFlush) {
+            logger.debug("{} index updates pending, flushing them on the writing thread", maxPending);
+            flush();
+        }
+    }
+
+    private synchronized boolean isFull() {
+        return pendingCount + inFlightCount >= maxPending;
+    }
+
+    /**
+     * Sends all the updates queued before this call to Solr and waits for them to be committed.
+     */
+    public void flush() throws BackendException {
+        synchronized (flushLock) {
+            Map<String, Map<String, PendingDocument>> batch;
+            int batchCount;
+            synchronized (this) {
+                batch = pending;
+                batchCount = pendingCount;
+                pending = new LinkedHashMap<String, Map<String, PendingDocument>>();
+                pendingCount = 0;
+                inFlightCount = batchCount;
+            }
+            if (batchCount == 0) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            try {
+                for (Map.Entry<String, Map<String, PendingDocument>> collection : batch.entrySet()) {
+                    send(collection.getKey(), collection.getValue().values());
+                }
+            } catch (Exception e) {
+                failedFlushes.incrementAndGet();
+                requeue(batch);
+                throw new TemporaryBackendException("Unable to flush " + batchCount + " index updates to Solr", e);
+            } finally {
+                synchronized (this) {
+                    inFlightCount = 0;
+                }
+            }
+
+            lastFlushMs = System.currentTimeMillis() - start;
+            totalFlushMs.addAndGet(lastFlushMs);
+            flushes.incrementAndGet();
+            flushedDocuments.addAndGet(batchCount);
+            logger.debug("Flushed {} index updates to Solr in {} ms", batchCount, lastFlushMs);
+        }
+    }
+
+    private void backgroundFlush() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Throwable t) {
+            logger.error("Failed to flush index updates to Solr, retrying with the next flush", t);
+        }
+    }
+
+    private void send(String collection, Collection<PendingDocument> documents) throws Exception {
+        List<String> deleteIds = new ArrayList<String>();
+        List<SolrInputDocument> changes = new ArrayList<SolrInputDocument>();
+        for (PendingDocument document : documents) {
+            //a new document replaces the whole document, so a delete before it doesn't need to be sent
+            if (document.deleted && !document.newDocument) {
+                deleteIds.add(document.docId);
+            }
+            if (document.document != null) {
+                changes.add(document.document);
+            }
+        }
+
+        //deletes go first, they were queued before the updates to the same documents
+        if (!deleteIds.isEmpty()) {
+            UpdateRequest deletes = new UpdateRequest();
+            deletes.deleteById(deleteIds);
+            if (changes.isEmpty()) {
+                commit(deletes);
+            }
+            solrClient.request(deletes, collection);
+        }
+        if (!changes.isEmpty()) {
+            UpdateRequest updates = new UpdateRequest();
+            updates.add(changes);
+            commit(updates);
+            solrClient.request(updates, collection);
+        }
+    }
+
+    private void commit(UpdateRequest request) {
+        request.setAction(UpdateRequest.ACTION.COMMIT, true, waitSearcher, softCommit);
+    }
+
+    /**
+     * Puts the updates of a failed flush back in front of the ones queued since.
+     */
+    private synchronized void requeue(Map<String, Map<String, PendingDocument>> failed) {
+        for (Map.Entry<String, Map<String, PendingDocument>> collection : pending.entrySet()) {
+            Map<String, PendingDocument> documents = failed.get(collection.getKey());
+            if (documents == null) {
+                failed.put(collection.getKey(), collection.getValue());
+                continue;
+            }
+            for (PendingDocument later : collection.getValue().values()) {
+                PendingDocument earlier = documents.get(later.docId);
+                if (earlier != null) {
+                    earlier.append(later);
+                } else {
+                    documents.put(later.docId, later);
+                }
+            }
+        }
+
+        int count = 0;
+        for (Map<String, PendingDocument> documents : failed.values()) {
+            count += documents.size();
+        }
+        pending = failed;
+        pendingCount = count;
+    }
+
+    private static Map<String, Object> atomicSet(Object value) {
+        Map<String, Object> set = new HashMap<String, Object>(1);
+        set.put("set", value);
+        return set;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlightCount;
+    }
+
+    public long getMergedUpdates() {
+        return mergedUpdates.get();
+    }
+
+    public long getFlushedDocuments() {
+        return flushedDocuments.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public long getLastFlushMs() {
+        return lastFlushMs;
+    }
+
+    public long getTotalFlushMs() {
+        return totalFlushMs.get();
+    }
+
+    /**
+     * The net update of a document: an optional delete, followed by an optional document that is either a whole new
+     * document or a set of atomic field updates.
+     */
+    private static final class PendingDocument {
+        private final String keyIdField;
+        private final String docId;
+        private boolean deleted = false;
+        private SolrInputDocument document;
+        private boolean newDocument = false;
+
+        PendingDocument(String keyIdField, String docId) {
+            this.keyIdField = keyIdField;
+            this.docId = docId;
+        }
+
+        void delete() {
+            deleted = true;
+            document = null;
+            newDocument = false;
+        }
+
+        void update(SolrInputDocument update, boolean isNewDocument) {
+            if (isNewDocument || document == null) {
+                document = update;
+                newDocument = isNewDocument;
+                return;
+            }
+
+            for (SolrInputField field : update) {
+                if (field.getName().equals(keyIdField)) {
+                    continue;
+                }
+                if (newDocument) {
+                    //apply the atomic update to the pending document
+                    Object value = ((Map<?, ?>) field.getValue()).get("set");
+                    if (value == null) {
+                        document.removeField(field.getName());
+                    } else {
+                        document.setField(field.getName(), value);
+                    }
+                } else {
+                    document.setField(field.getName(), field.getValue());
+                }
+            }
+        }
+
+        void append(PendingDocument later) {
+            if (later.deleted) {
+                delete();
+            }
+            if (later.document != null) {
+                update(later.document, later.newDocument);
+            }
+        }
+    }
+}
@@ -21,9 +21,9 @@ package org.apache.atlas.repository.graphdb.titan0;
 import org.apache.atlas.repository.graphdb.AtlasGraphIndex;
 
 import com.thinkaurelius.titan.core.PropertyKey;
+import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.schema.TitanGraphIndex;
 import com.tinkerpop.blueprints.Edge;
-import com.tinkerpop.blueprints.GraphQuery;
 import com.tinkerpop.blueprints.Vertex;
 
 /**
@@ -51,14 +51,14 @@ public final class GraphDbObjectFactory {
     }
 
     /**
-     * Creates a Titan0GraphQuery that corresponds to the given GraphQuery.
+     * Creates a Titan0GraphQuery against the given TitanGraph.
      *
-     * @param source
+     * @param graph
      * @return
      */
-    public static Titan0GraphQuery createQuery(GraphQuery query) {
+    public static Titan0GraphQuery createQuery(TitanGraph graph) {
 
-        return new Titan0GraphQuery(query);
+        return new Titan0GraphQuery(graph);
     }
 
     /**
@@ -113,7 +113,7 @@ public class Titan0Element<T extends Element> implements AtlasElement {
 
     }
 
-    // not in interface
+    @Override
     public T getWrappedElement() {
         return wrappedElement;
     }
@@ -128,7 +128,7 @@ public class Titan0Element<T extends Element> implements AtlasElement {
 
     @Override
     public boolean equals(Object other) {
-        if (other.getClass() != getClass()) {
+        if (other == null || other.getClass() != getClass()) {
             return false;
         }
         Titan0Element otherElement = (Titan0Element) other;
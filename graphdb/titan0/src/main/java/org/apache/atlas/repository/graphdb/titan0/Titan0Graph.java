@@ -19,12 +19,15 @@ package org.apache.atlas.repository.graphdb.titan0;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.apache.atlas.repository.graphdb.AtlasEdge;
@@ -34,6 +37,7 @@ import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasIndexQuery;
 import org.apache.atlas.repository.graphdb.AtlasSchemaViolationException;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.graphdb.GremlinScriptEnginePool;
 import org.apache.atlas.repository.graphdb.GremlinVersion;
 import org.apache.atlas.typesystem.types.IDataType;
 import org.apache.atlas.utils.EdgeToAtlasEdgeFunction;
@@ -41,12 +45,16 @@ import org.apache.atlas.utils.VertexToAtlasVertexFunction;
 
 import com.google.common.collect.Iterables;
 import com.thinkaurelius.titan.core.SchemaViolationException;
+import com.thinkaurelius.titan.core.TitanEdge;
 import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.TitanIndexQuery;
+import com.thinkaurelius.titan.core.TitanVertex;
 import com.thinkaurelius.titan.core.util.TitanCleanup;
+import com.thinkaurelius.titan.diskstorage.solr.Solr5Index;
+import com.thinkaurelius.titan.diskstorage.solr.SolrWriteBehindBuffer;
+import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Element;
-import com.tinkerpop.blueprints.GraphQuery;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.util.io.graphson.GraphSONWriter;
 import com.tinkerpop.pipes.util.structures.Row;
@@ -74,8 +82,7 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
 
     @Override
     public AtlasGraphQuery<Titan0Vertex, Titan0Edge> query() {
-        GraphQuery query = getGraph().query();
-        return GraphDbObjectFactory.createQuery(query);
+        return GraphDbObjectFactory.createQuery(getGraph());
     }
 
     @Override
@@ -168,6 +175,48 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
         return Iterables.transform(result, VertexToAtlasVertexFunction.INSTANCE);
     }
 
+    @Override
+    public Map<AtlasVertex<Titan0Vertex, Titan0Edge>, List<AtlasEdge<Titan0Vertex, Titan0Edge>>> getOutgoingEdges(
+            Collection<AtlasVertex<Titan0Vertex, Titan0Edge>> vertices) {
+        Map<AtlasVertex<Titan0Vertex, Titan0Edge>, List<AtlasEdge<Titan0Vertex, Titan0Edge>>> result = new HashMap<>();
+        Map<TitanVertex, AtlasVertex<Titan0Vertex, Titan0Edge>> titanVertices = getTitanVertices(vertices);
+        if (titanVertices.isEmpty()) {
+            return result;
+        }
+
+        Map<TitanVertex, Iterable<TitanEdge>> edges =
+                getGraph().multiQuery(titanVertices.keySet()).direction(Direction.OUT).titanEdges();
+        for (Map.Entry<TitanVertex, AtlasVertex<Titan0Vertex, Titan0Edge>> entry : titanVertices.entrySet()) {
+            List<AtlasEdge<Titan0Vertex, Titan0Edge>> outEdges = new ArrayList<>();
+            Iterable<TitanEdge> vertexEdges = edges.get(entry.getKey());
+            if (vertexEdges != null) {
+                for (TitanEdge edge : vertexEdges) {
+                    outEdges.add(GraphDbObjectFactory.createEdge(edge));
+                }
+            }
+            result.put(entry.getValue(), outEdges);
+        }
+        return result;
+    }
+
+    @Override
+    public void prefetchProperties(Collection<AtlasVertex<Titan0Vertex, Titan0Edge>> vertices) {
+        Map<TitanVertex, AtlasVertex<Titan0Vertex, Titan0Edge>> titanVertices = getTitanVertices(vertices);
+        if (!titanVertices.isEmpty()) {
+            // the loaded properties are kept in the transaction cache of each vertex
+            getGraph().multiQuery(titanVertices.keySet()).properties();
+        }
+    }
+
+    private Map<TitanVertex, AtlasVertex<Titan0Vertex, Titan0Edge>> getTitanVertices(
+            Collection<AtlasVertex<Titan0Vertex, Titan0Edge>> vertices) {
+        Map<TitanVertex, AtlasVertex<Titan0Vertex, Titan0Edge>> result = new LinkedHashMap<>();
+        for (AtlasVertex<Titan0Vertex, Titan0Edge> vertex : vertices) {
+            result.put((TitanVertex) vertex.getV().getWrappedElement(), vertex);
+        }
+        return result;
+    }
+
     @Override
     public Object getGremlinColumnValue(Object rowValue, String colName, int idx) {
         Row<List> rV = (Row<List>) rowValue;
@@ -227,12 +276,19 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
     @Override
     public Object executeGremlinScript(String gremlinQuery) throws ScriptException {
 
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName("gremlin-groovy");
-        Bindings bindings = engine.createBindings();
-        bindings.put("g", getGraph());
-        Object result = engine.eval(gremlinQuery, bindings);
-        return result;
+        return executeGremlinScript(gremlinQuery, Collections.<String, Object>emptyMap());
+    }
+
+    @Override
+    public Object executeGremlinScript(String gremlinQuery, Map<String, Object> bindings) throws ScriptException {
+
+        Map<String, Object> allBindings = new HashMap<>(bindings);
+        allBindings.put("g", getGraph());
+        return getScriptEnginePool().eval(gremlinQuery, allBindings);
+    }
+
+    static GremlinScriptEnginePool getScriptEnginePool() {
+        return GremlinScriptEnginePool.getInstance("gremlin-groovy", "");
     }
 
     @Override
@@ -257,4 +313,37 @@ public class Titan0Graph implements AtlasGraph<Titan0Vertex, Titan0Edge> {
     public String getInitialIndexedPredicate() {
         return "";
     }
+
+    /**
+     * Reports the gremlin script engine pool, and the write-behind buffers of the Solr indexes summed over the
+     * open indexes.
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(getScriptEnginePool().getMetrics());
+        Collection<SolrWriteBehindBuffer> buffers = Solr5Index.getWriteBehindBuffers();
+        if (buffers.isEmpty()) {
+            return metrics;
+        }
+
+        long pending = 0, inFlight = 0, merged = 0, flushed = 0, flushes = 0, failedFlushes = 0, flushMs = 0;
+        for (SolrWriteBehindBuffer buffer : buffers) {
+            pending += buffer.getPendingCount();
+            inFlight += buffer.getInFlightCount();
+            merged += buffer.getMergedUpdates();
+            flushed += buffer.getFlushedDocuments();
+            flushes += buffer.getFlushes();
+            failedFlushes += buffer.getFailedFlushes();
+            flushMs += buffer.getTotalFlushMs();
+        }
+
+        metrics.put("solr.writeBehind.pendingDocuments", pending);
+        metrics.put("solr.writeBehind.inFlightDocuments", inFlight);
+        metrics.put("solr.writeBehind.mergedUpdates", merged);
+        metrics.put("solr.writeBehind.flushedDocuments", flushed);
+        metrics.put("solr.writeBehind.flushes", flushes);
+        metrics.put("solr.writeBehind.failedFlushes", failedFlushes);
+        metrics.put("solr.writeBehind.totalFlushMs", flushMs);
+        return metrics;
+    }
 }
@@ -17,53 +17,81 @@
  */
 package org.apache.atlas.repository.graphdb.titan0;
 
+import java.util.Collection;
+
+import org.apache.atlas.repository.graphdb.AbstractGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
-import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.utils.EdgeToAtlasEdgeFunction;
 import org.apache.atlas.utils.VertexToAtlasVertexFunction;
 
 import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.core.Order;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanGraphQuery;
+import com.thinkaurelius.titan.core.attribute.Contain;
 import com.tinkerpop.blueprints.Compare;
 import com.tinkerpop.blueprints.Edge;
-import com.tinkerpop.blueprints.GraphQuery;
 import com.tinkerpop.blueprints.Vertex;
 
 /**
  * Titan 0.5.4 implementation of AtlasGraphQuery.
  */
-public class Titan0GraphQuery implements AtlasGraphQuery<Titan0Vertex, Titan0Edge> {
+public class Titan0GraphQuery extends AbstractGraphQuery<Titan0Vertex, Titan0Edge, TitanGraphQuery> {
 
-    private GraphQuery wrappedQuery;
+    private final TitanGraph graph;
 
-    public Titan0GraphQuery(GraphQuery query) {
-        wrappedQuery = query;
+    public Titan0GraphQuery(TitanGraph graph) {
+        this.graph = graph;
     }
 
     @Override
-    public AtlasGraphQuery<Titan0Vertex, Titan0Edge> has(String propertyKey, Object value) {
-        wrappedQuery = wrappedQuery.has(propertyKey, value);
-        return this;
+    protected TitanGraphQuery createNativeQuery() {
+        return graph.query();
     }
 
     @Override
-    public Iterable<AtlasVertex<Titan0Vertex, Titan0Edge>> vertices() {
-        Iterable<Vertex> result = wrappedQuery.vertices();
-        return Iterables.transform(result, VertexToAtlasVertexFunction.INSTANCE);
+    protected AbstractGraphQuery<Titan0Vertex, Titan0Edge, TitanGraphQuery> createEmptyQuery() {
+        return new Titan0GraphQuery(graph);
     }
 
     @Override
-    public Iterable<AtlasEdge<Titan0Vertex, Titan0Edge>> edges() {
-        Iterable<Edge> result = wrappedQuery.edges();
-        return Iterables.transform(result, EdgeToAtlasEdgeFunction.INSTANCE);
+    protected TitanGraphQuery has(TitanGraphQuery query, String propertyKey, Object value) {
+        return (TitanGraphQuery) query.has(propertyKey, value);
     }
 
     @Override
-    public AtlasGraphQuery<Titan0Vertex, Titan0Edge> has(String propertyKey, ComparisionOperator operator,
+    protected TitanGraphQuery has(TitanGraphQuery query, String propertyKey, ComparisionOperator operator,
             Object value) {
         Compare c = getGremlinPredicate(operator);
-        wrappedQuery = wrappedQuery.has(propertyKey, c, value);
-        return this;
+        return (TitanGraphQuery) query.has(propertyKey, c, value);
+    }
+
+    @Override
+    protected TitanGraphQuery in(TitanGraphQuery query, String propertyKey, Collection<?> values) {
+        return (TitanGraphQuery) query.has(propertyKey, Contain.IN, values);
+    }
+
+    @Override
+    protected TitanGraphQuery limit(TitanGraphQuery query, int limit) {
+        return (TitanGraphQuery) query.limit(limit);
+    }
+
+    @Override
+    protected TitanGraphQuery orderBy(TitanGraphQuery query, String propertyKey, SortOrder order) {
+        return (TitanGraphQuery) query.orderBy(propertyKey, order == SortOrder.DESC ? Order.DESC : Order.ASC);
+    }
+
+    @Override
+    protected Iterable<AtlasVertex<Titan0Vertex, Titan0Edge>> vertices(TitanGraphQuery query) {
+        Iterable<Vertex> result = query.vertices();
+        return Iterables.transform(result, VertexToAtlasVertexFunction.INSTANCE);
+    }
+
+    @Override
+    protected Iterable<AtlasEdge<Titan0Vertex, Titan0Edge>> edges(TitanGraphQuery query) {
+        Iterable<Edge> result = query.edges();
+        return Iterables.transform(result, EdgeToAtlasEdgeFunction.INSTANCE);
     }
 
     private Compare getGremlinPredicate(ComparisionOperator op) {
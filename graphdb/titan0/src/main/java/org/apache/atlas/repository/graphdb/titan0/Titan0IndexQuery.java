@@ -46,6 +46,14 @@ public class Titan0IndexQuery implements AtlasIndexQuery<Titan0Vertex, Titan0Edg
         return Iterators.transform(results, QUERY_RESULT_MAPPER);
     }
 
+    @Override
+    public Iterator<AtlasIndexQuery.Result<Titan0Vertex, Titan0Edge>> vertices(int offset, int limit) {
+        Iterator<TitanIndexQuery.Result<Vertex>> results =
+                wrappedIndexQuery.offset(offset).limit(limit).vertices().iterator();
+
+        return Iterators.transform(results, QUERY_RESULT_MAPPER);
+    }
+
     private static final class IndexQueryResultMapper
             implements Function<TitanIndexQuery.Result<Vertex>, AtlasIndexQuery.Result<Titan0Vertex, Titan0Edge>> {
         @Override
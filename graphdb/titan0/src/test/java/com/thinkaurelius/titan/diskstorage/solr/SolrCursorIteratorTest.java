@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thinkaurelius.titan.diskstorage.solr;
+
+import com.google.common.collect.Lists;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class SolrCursorIteratorTest {
+    private static final String COLLECTION = "vertex_index";
+    private static final String KEY = "id";
+    private static final int DOCUMENTS = 5;
+
+    private SolrClient solrClient;
+    /** cursor mark and rows of each request, as sent */
+    private List<String> requests;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        solrClient = Mockito.mock(SolrClient.class);
+        requests = new ArrayList<>();
+        //documents 0 to 4, where cursor mark "m<n>" is the mark of the documents from n on
+        Mockito.when(solrClient.query(eq(COLLECTION), any(SolrParams.class))).thenAnswer(new Answer<QueryResponse>() {
+            @Override
+            public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                SolrParams params = (SolrParams) invocation.getArguments()[1];
+                String cursorMark = params.get(CursorMarkParams.CURSOR_MARK_PARAM);
+                int rows = params.getInt(CommonParams.ROWS);
+                requests.add(cursorMark + ":" + rows);
+
+                int from = CursorMarkParams.CURSOR_MARK_START.equals(cursorMark) ? 0
+                        : Integer.parseInt(cursorMark.substring(1));
+                int to = Math.min(from + rows, DOCUMENTS);
+                SolrDocumentList results = new SolrDocumentList();
+                for (int i = from; i < to; i++) {
+                    SolrDocument document = new SolrDocument();
+                    document.setField(KEY, String.valueOf(i));
+                    results.add(document);
+                }
+
+                QueryResponse response = Mockito.mock(QueryResponse.class);
+                Mockito.when(response.getResults()).thenReturn(results);
+                Mockito.when(response.getNextCursorMark()).thenReturn(to > from ? "m" + to : cursorMark);
+                return response;
+            }
+        });
+    }
+
+    @Test
+    public void testResultsAreReadInBatches() throws Exception {
+        SolrCursorIterator iterator = newIterator(0, Integer.MAX_VALUE);
+
+        assertEquals(ids(iterator), Arrays.asList("0", "1", "2", "3", "4"));
+        assertEquals(requests, Arrays.asList("*:2", "m2:2", "m4:2"));
+    }
+
+    @Test
+    public void testFirstBatchIsReadRightAway() throws Exception {
+        newIterator(0, 10);
+
+        assertEquals(requests, Arrays.asList("*:2"));
+    }
+
+    @Test
+    public void testLastBatchIsCutAtTheLimit() throws Exception {
+        SolrCursorIterator iterator = newIterator(0, 3);
+
+        assertEquals(ids(iterator), Arrays.asList("0", "1", "2"));
+        assertEquals(requests, Arrays.asList("*:2", "m2:1"));
+    }
+
+    @Test
+    public void testOffsetIsSkipped() throws Exception {
+        SolrCursorIterator iterator = newIterator(3, 1);
+
+        assertEquals(ids(iterator), Arrays.asList("3"));
+        assertEquals(requests, Arrays.asList("*:2", "m2:2"));
+    }
+
+    @Test
+    public void testEmptyPageReadsNothing() throws Exception {
+        SolrCursorIterator iterator = newIterator(0, 0);
+
+        assertFalse(iterator.hasNext());
+        assertTrue(requests.isEmpty());
+    }
+
+    private SolrCursorIterator newIterator(int offset, int limit) throws Exception {
+        SolrQuery solrQuery = new SolrQuery("*:*").addSort(new SolrQuery.SortClause(KEY, SolrQuery.ORDER.asc));
+        return new SolrCursorIterator(solrClient, COLLECTION, solrQuery, 2, offset, limit);
+    }
+
+    private List<String> ids(SolrCursorIterator iterator) {
+        List<String> result = new ArrayList<>();
+        for (SolrDocument document : Lists.newArrayList(iterator)) {
+            result.add(document.getFieldValue(KEY).toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.thinkaurelius.titan.diskstorage.solr;
+
+import com.thinkaurelius.titan.diskstorage.BackendException;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.UpdateParams;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class SolrWriteBehindBufferTest {
+    private static final String COLLECTION = "vertex_index";
+    private static final String KEY = "id";
+
+    private SolrClient solrClient;
+    private SolrWriteBehindBuffer buffer;
+
+    @BeforeMethod
+    public void setUp() {
+        solrClient = Mockito.mock(SolrClient.class);
+        //not started, so nothing is flushed in the background
+        buffer = new SolrWriteBehindBuffer(solrClient, 100, 1000, 1000, true, false);
+    }
+
+    @Test
+    public void testUpdatesAreSentOnFlush() throws Exception {
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        buffer.add(COLLECTION, KEY, "2", false, Collections.<String>emptyList(), newDocument("2", "name", "b"), true);
+        Mockito.verifyZeroInteractions(solrClient);
+        assertEquals(buffer.getPendingCount(), 2);
+
+        buffer.flush();
+
+        List<UpdateRequest> requests = captureRequests(1);
+        assertEquals(requests.get(0).getDocuments().size(), 2);
+        assertNull(requests.get(0).getDeleteById());
+        assertEquals(requests.get(0).getParams().get(UpdateParams.SOFT_COMMIT), "true");
+        assertEquals(buffer.getPendingCount(), 0);
+        assertEquals(buffer.getFlushedDocuments(), 2);
+        assertEquals(buffer.getFlushes(), 1);
+    }
+
+    @Test
+    public void testUpdatesToTheSameDocumentAreMerged() throws Exception {
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), atomicUpdate("1", "name", "b"), false);
+        buffer.add(COLLECTION, KEY, "1", false, Arrays.asList("owner"), null, false);
+        assertEquals(buffer.getPendingCount(), 1);
+        assertEquals(buffer.getMergedUpdates(), 2);
+
+        buffer.flush();
+
+        List<UpdateRequest> requests = captureRequests(1);
+        SolrInputDocument document = requests.get(0).getDocuments().get(0);
+        assertEquals(document.getFieldValue("name"), "b");
+        assertNull(document.getField("owner"));
+    }
+
+    @Test
+    public void testDeleteReplacesPendingDocument() throws Exception {
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        buffer.add(COLLECTION, KEY, "1", true, Collections.<String>emptyList(), null, false);
+
+        buffer.flush();
+
+        List<UpdateRequest> requests = captureRequests(1);
+        assertEquals(requests.get(0).getDeleteById(), Arrays.asList("1"));
+        assertNull(requests.get(0).getDocuments());
+    }
+
+    @Test
+    public void testNewDocumentAfterDeleteSkipsDelete() throws Exception {
+        buffer.add(COLLECTION, KEY, "1", true, Collections.<String>emptyList(), null, false);
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        buffer.add(COLLECTION, KEY, "2", true, Collections.<String>emptyList(), null, false);
+        buffer.add(COLLECTION, KEY, "2", false, Collections.<String>emptyList(), atomicUpdate("2", "name", "b"), false);
+
+        buffer.flush();
+
+        //the delete of 2 goes before its atomic update
+        List<UpdateRequest> requests = captureRequests(2);
+        assertEquals(requests.get(0).getDeleteById(), Arrays.asList("2"));
+        assertEquals(requests.get(1).getDocuments().size(), 2);
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() throws Exception {
+        Mockito.when(solrClient.request(any(SolrRequest.class), eq(COLLECTION))).thenThrow(new IOException("down"));
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        try {
+            buffer.flush();
+            fail("Expected the flush to fail");
+        } catch (BackendException e) {
+            //expected
+        }
+        assertEquals(buffer.getFailedFlushes(), 1);
+
+        //updates queued since are applied on top of the failed ones
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), atomicUpdate("1", "name", "b"), false);
+        assertEquals(buffer.getPendingCount(), 1);
+
+        Mockito.reset(solrClient);
+        buffer.flush();
+        List<UpdateRequest> requests = captureRequests(1);
+        assertEquals(requests.get(0).getDocuments().get(0).getFieldValue("name"), "b");
+    }
+
+    @Test
+    public void testWritersFlushWhenBufferIsFull() throws Exception {
+        buffer = new SolrWriteBehindBuffer(solrClient, 2, 2, 1000, true, false);
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        Mockito.verifyZeroInteractions(solrClient);
+        buffer.add(COLLECTION, KEY, "2", false, Collections.<String>emptyList(), newDocument("2", "name", "b"), true);
+
+        captureRequests(1);
+        assertEquals(buffer.getPendingCount(), 0);
+    }
+
+    @Test
+    public void testWritersFailWhileFailedFlushesKeepBufferFull() throws Exception {
+        Mockito.when(solrClient.request(any(SolrRequest.class), eq(COLLECTION))).thenThrow(new IOException("down"));
+        buffer = new SolrWriteBehindBuffer(solrClient, 2, 2, 1000, true, false);
+        buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"), true);
+        try {
+            buffer.add(COLLECTION, KEY, "2", false, Collections.<String>emptyList(), newDocument("2", "name", "b"),
+                    true);
+            fail("Expected the flush of the full buffer to fail");
+        } catch (BackendException e) {
+            //expected, the update stays buffered for the next flush
+        }
+        assertEquals(buffer.getPendingCount(), 2);
+
+        try {
+            buffer.add(COLLECTION, KEY, "3", false, Collections.<String>emptyList(), newDocument("3", "name", "c"),
+                    true);
+            fail("Expected the writer to fail while the buffer is full");
+        } catch (BackendException e) {
+            //expected
+        }
+        assertEquals(buffer.getPendingCount(), 2);
+        assertEquals(buffer.getInFlightCount(), 0);
+
+        Mockito.reset(solrClient);
+        buffer.add(COLLECTION, KEY, "3", false, Collections.<String>emptyList(), newDocument("3", "name", "c"), true);
+        assertEquals(captureRequests(1).get(0).getDocuments().size(), 2);
+        assertEquals(buffer.getPendingCount(), 1);
+    }
+
+    @Test
+    public void testBackgroundFlush() throws Exception {
+        buffer = new SolrWriteBehindBuffer(solrClient, 100, 1000, 50, true, false);
+        buffer.start();
+        try {
+            buffer.add(COLLECTION, KEY, "1", false, Collections.<String>emptyList(), newDocument("1", "name", "a"),
+                    true);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (buffer.getFlushes() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(buffer.getFlushes() > 0);
+        } finally {
+            buffer.close();
+        }
+        captureRequests(1);
+    }
+
+    private List<UpdateRequest> captureRequests(int count) throws IOException, SolrServerException {
+        ArgumentCaptor<UpdateRequest> captor = ArgumentCaptor.forClass(UpdateRequest.class);
+        Mockito.verify(solrClient, Mockito.times(count)).request(captor.capture(), eq(COLLECTION));
+        return captor.getAllValues();
+    }
+
+    private SolrInputDocument newDocument(String id, String field, Object value) {
+        SolrInputDocument document = new SolrInputDocument();
+        document.setField(KEY, id);
+        document.setField(field, value);
+        return document;
+    }
+
+    private SolrInputDocument atomicUpdate(String id, String field, Object value) {
+        Map<String, Object> set = new HashMap<>();
+        set.put("set", value);
+        SolrInputDocument document = new SolrInputDocument();
+        document.setField(KEY, id);
+        document.setField(field, set);
+        return document;
+    }
+}
@@ -30,7 +30,9 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.repository.Constants;
@@ -40,8 +42,10 @@ import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasGraphManagement;
 import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasGraphQuery.ComparisionOperator;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery.SortOrder;
 import org.apache.atlas.repository.graphdb.AtlasPropertyKey;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.graphdb.GremlinScriptEnginePool;
 import org.apache.atlas.typesystem.types.DataTypes.TypeCategory;
 import org.apache.atlas.typesystem.types.Multiplicity;
 import org.testng.annotations.AfterClass;
@@ -373,6 +377,104 @@ public class Titan0DatabaseTest {
 
     }
 
+    @Test
+    public <V, E> void testGraphQueryInOrLimitAndOrder() {
+
+        AtlasGraph<V, E> graph = getGraph();
+
+        AtlasVertex<V, E> v1 = graph.addVertex();
+        AtlasVertex<V, E> v2 = graph.addVertex();
+        AtlasVertex<V, E> v3 = graph.addVertex();
+
+        v1.setProperty("queryTestName", "a");
+        v1.setProperty("queryTestRank", 3);
+        v2.setProperty("queryTestName", "b");
+        v2.setProperty("queryTestRank", 1);
+        v3.setProperty("queryTestName", "c");
+        v3.setProperty("queryTestRank", 2);
+
+        AtlasGraphQuery<V, E> query = graph.query().in("queryTestName", Arrays.asList("a", "c"));
+        assertEquals(query.count(), 2);
+
+        query = graph.query().has("queryTestRank", ComparisionOperator.GREATER_THAN_EQUAL, 1)
+                .orderBy("queryTestRank", SortOrder.DESC).limit(2);
+        assertEquals(toList(query.vertices()), Arrays.asList(v1, v3));
+
+        query = graph.query();
+        AtlasGraphQuery<V, E> nameQuery = query.createChildQuery().has("queryTestName", "b");
+        AtlasGraphQuery<V, E> rankQuery = query.createChildQuery().has("queryTestRank", 2);
+        AtlasGraphQuery<V, E> bothQuery = query.createChildQuery().has("queryTestName", "c");
+        query.or(Arrays.asList(nameQuery, rankQuery, bothQuery)).orderBy("queryTestRank", SortOrder.ASC);
+        assertEquals(toList(query.vertices()), Arrays.asList(v2, v3));
+        assertEquals(query.count(), 2);
+    }
+
+    @Test
+    public <V, E> void testGraphQueryOrGroupsOverMaxBranches() {
+
+        AtlasGraph<V, E> graph = getGraph();
+
+        AtlasVertex<V, E> v1 = graph.addVertex();
+        AtlasVertex<V, E> v2 = graph.addVertex();
+        AtlasVertex<V, E> v3 = graph.addVertex();
+
+        v1.setProperty("queryFilterName", "x");
+        v1.setProperty("queryFilterRank", 1);
+        v2.setProperty("queryFilterName", "y");
+        v2.setProperty("queryFilterRank", 2);
+        v3.setProperty("queryFilterName", "z");
+        v3.setProperty("queryFilterRank", 3);
+
+        //the first four groups make 16 branches, so the last one is evaluated on their results
+        AtlasGraphQuery<V, E> query = graph.query();
+        for (int i = 0; i < 4; i++) {
+            AtlasGraphQuery<V, E> nameQuery = query.createChildQuery().has("queryFilterName", "y");
+            AtlasGraphQuery<V, E> rankQuery = query.createChildQuery()
+                    .has("queryFilterRank", ComparisionOperator.GREATER_THAN_EQUAL, 2);
+            query.or(Arrays.asList(nameQuery, rankQuery));
+        }
+        AtlasGraphQuery<V, E> nameQuery = query.createChildQuery().has("queryFilterName", "x");
+        AtlasGraphQuery<V, E> rankQuery = query.createChildQuery()
+                .has("queryFilterRank", ComparisionOperator.GREATER_THAN_EQUAL, 3);
+        query.or(Arrays.asList(nameQuery, rankQuery)).orderBy("queryFilterRank", SortOrder.DESC);
+
+        assertEquals(toList(query.vertices()), Arrays.asList(v3));
+        assertEquals(query.count(), 1);
+
+        query.limit(0);
+        assertTrue(toList(query.vertices()).isEmpty());
+    }
+
+    @Test
+    public <V, E> void testGetOutgoingEdgesAndPrefetchProperties() {
+
+        AtlasGraph<V, E> graph = getGraph();
+
+        AtlasVertex<V, E> v1 = graph.addVertex();
+        AtlasVertex<V, E> v2 = graph.addVertex();
+        AtlasVertex<V, E> v3 = graph.addVertex();
+        AtlasVertex<V, E> v4 = graph.addVertex();
+        v2.setProperty("prefetchTestName", "b");
+        v3.setProperty("prefetchTestName", "c");
+
+        AtlasEdge<V, E> e1 = graph.addEdge(v1, v2, "prefetchTestLabel");
+        AtlasEdge<V, E> e2 = graph.addEdge(v1, v3, "prefetchTestLabel");
+        AtlasEdge<V, E> e3 = graph.addEdge(v2, v3, "prefetchTestOther");
+
+        Map<AtlasVertex<V, E>, List<AtlasEdge<V, E>>> edges = graph.getOutgoingEdges(Arrays.asList(v1, v2, v4));
+        assertEquals(edges.size(), 3);
+        assertEquals(edges.get(v1).size(), 2);
+        assertTrue(edges.get(v1).containsAll(Arrays.asList(e1, e2)));
+        assertEquals(edges.get(v2), Arrays.asList(e3));
+        assertTrue(edges.get(v4).isEmpty());
+
+        graph.prefetchProperties(Arrays.asList(v2, v3));
+        assertEquals(v2.getProperty("prefetchTestName", String.class), "b");
+        assertEquals(v3.getProperty("prefetchTestName", String.class), "c");
+
+        assertTrue(graph.getOutgoingEdges(new ArrayList<AtlasVertex<V, E>>()).isEmpty());
+    }
+
     private <V, E> void testExecuteGraphQuery(String property, ComparisionOperator op, Object value,
             AtlasVertex<V, E>... expected) {
         AtlasGraph<V, E> graph = getGraph();
@@ -410,6 +512,59 @@ public class Titan0DatabaseTest {
         validateDuplicatePropertyVertex(graph.getVertex(vertexId));
     }
 
+    @Test
+    public <V, E> void testCompiledGremlinScriptIsReused() throws Exception {
+
+        AtlasGraph<V, E> graph = getGraph();
+        GremlinScriptEnginePool pool = Titan0Graph.getScriptEnginePool();
+        String script = "g.V.has('" + Constants.GUID_PROPERTY_KEY + "', 'no-such-guid').count()";
+
+        long misses = pool.getCacheMisses();
+        long hits = pool.getCacheHits();
+
+        assertEquals(0L, ((Number) graph.executeGremlinScript(script)).longValue());
+        assertEquals(0L, ((Number) graph.executeGremlinScript(script)).longValue());
+
+        assertEquals(misses + 1, pool.getCacheMisses());
+        assertEquals(hits + 1, pool.getCacheHits());
+
+        Map<String, Object> metrics = graph.getMetrics();
+        assertEquals(pool.getCacheMisses(), metrics.get("gremlin.enginePool.cacheMisses"));
+        assertEquals(pool.getCacheHits(), metrics.get("gremlin.enginePool.cacheHits"));
+    }
+
+    @Test
+    public void testScriptEnginePoolIsBounded() throws Exception {
+
+        final GremlinScriptEnginePool pool = new GremlinScriptEnginePool("gremlin-groovy", "", 1, 10);
+        final Map<String, Object> bindings = Collections.<String, Object>singletonMap("x", 1);
+
+        List<Thread> threads = new ArrayList<>();
+        final List<Object> results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        results.add(pool.eval("x + 1", bindings));
+                    } catch (Exception e) {
+                        results.add(e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(results, Arrays.<Object>asList(2, 2, 2, 2));
+        assertEquals(pool.getEngineCount(), 1);
+        assertEquals(pool.getCacheMisses(), 1);
+        assertEquals(pool.getCacheHits(), 3);
+    }
+
     private <V, E> void validateDuplicatePropertyVertex(AtlasVertex<V, E> vertex) {
         assertEquals(2, vertex.getPropertyValues(Constants.TRAIT_NAMES_PROPERTY_KEY, String.class).size());
         assertTrue(vertex.getPropertyKeys().contains(Constants.TRAIT_NAMES_PROPERTY_KEY));
@@ -94,7 +94,7 @@ public class Titan1Element<T extends Element> implements AtlasElement {
     }
 
 
-    //not in interface
+    @Override
     public T getWrappedElement() {
 
         T element = getElement();
@@ -137,7 +137,7 @@ public class Titan1Element<T extends Element> implements AtlasElement {
 
     @Override
     public boolean equals(Object other) {
-        if(other.getClass() != getClass()) {
+        if(other == null || other.getClass() != getClass()) {
             return false;
         }
         Titan1Element otherElement = (Titan1Element) other;
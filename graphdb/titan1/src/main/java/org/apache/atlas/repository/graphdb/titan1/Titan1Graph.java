@@ -2,16 +2,18 @@
 package org.apache.atlas.repository.graphdb.titan1;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.script.Bindings;
 import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import javax.script.SimpleScriptContext;
 
@@ -22,6 +24,7 @@ import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasIndexQuery;
 import org.apache.atlas.repository.graphdb.AtlasSchemaViolationException;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.graphdb.GremlinScriptEnginePool;
 import org.apache.atlas.repository.graphdb.GremlinVersion;
 import org.apache.atlas.typesystem.types.IDataType;
 import org.apache.atlas.utils.adapters.IteratorAdapter;
@@ -29,6 +32,7 @@ import org.apache.tinkerpop.gremlin.groovy.jsr223.GremlinGroovyScriptEngine;
 import org.apache.tinkerpop.gremlin.groovy.jsr223.customizer.CompileStaticCustomizerProvider;
 import org.apache.tinkerpop.gremlin.groovy.jsr223.customizer.TypeCheckedCustomizerProvider;
 import org.apache.tinkerpop.gremlin.process.traversal.step.util.ImmutablePath;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
@@ -37,16 +41,16 @@ import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONMapper;
 import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
 
 import com.thinkaurelius.titan.core.SchemaViolationException;
+import com.thinkaurelius.titan.core.TitanEdge;
 import com.thinkaurelius.titan.core.TitanGraph;
-import com.thinkaurelius.titan.core.TitanGraphQuery;
 import com.thinkaurelius.titan.core.TitanIndexQuery;
+import com.thinkaurelius.titan.core.TitanVertex;
 import com.thinkaurelius.titan.core.schema.TitanGraphIndex;
 import com.thinkaurelius.titan.core.schema.TitanManagement;
 import com.thinkaurelius.titan.core.util.TitanCleanup;
 
 public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
 
-
     public Titan1Graph() {
 
     }
@@ -68,8 +72,7 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
     @Override
     public AtlasGraphQuery<Titan1Vertex, Titan1Edge> query() {
 
-        TitanGraphQuery<?> query = getGraph().query();
-        return TitanObjectFactory.createQuery(query);
+        return TitanObjectFactory.createQuery(getGraph());
     }
 
     @Override
@@ -204,6 +207,48 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
         return query.vertices();
     }
 
+    @Override
+    public Map<AtlasVertex<Titan1Vertex, Titan1Edge>, List<AtlasEdge<Titan1Vertex, Titan1Edge>>> getOutgoingEdges(
+            Collection<AtlasVertex<Titan1Vertex, Titan1Edge>> vertices) {
+        Map<AtlasVertex<Titan1Vertex, Titan1Edge>, List<AtlasEdge<Titan1Vertex, Titan1Edge>>> result = new HashMap<>();
+        Map<TitanVertex, AtlasVertex<Titan1Vertex, Titan1Edge>> titanVertices = getTitanVertices(vertices);
+        if (titanVertices.isEmpty()) {
+            return result;
+        }
+
+        Map<TitanVertex, Iterable<TitanEdge>> edges =
+                getGraph().multiQuery(titanVertices.keySet()).direction(Direction.OUT).edges();
+        for (Map.Entry<TitanVertex, AtlasVertex<Titan1Vertex, Titan1Edge>> entry : titanVertices.entrySet()) {
+            List<AtlasEdge<Titan1Vertex, Titan1Edge>> outEdges = new ArrayList<>();
+            Iterable<TitanEdge> vertexEdges = edges.get(entry.getKey());
+            if (vertexEdges != null) {
+                for (TitanEdge edge : vertexEdges) {
+                    outEdges.add(TitanObjectFactory.createEdge(edge));
+                }
+            }
+            result.put(entry.getValue(), outEdges);
+        }
+        return result;
+    }
+
+    @Override
+    public void prefetchProperties(Collection<AtlasVertex<Titan1Vertex, Titan1Edge>> vertices) {
+        Map<TitanVertex, AtlasVertex<Titan1Vertex, Titan1Edge>> titanVertices = getTitanVertices(vertices);
+        if (!titanVertices.isEmpty()) {
+            // the loaded properties are kept in the transaction cache of each vertex
+            getGraph().multiQuery(titanVertices.keySet()).properties();
+        }
+    }
+
+    private Map<TitanVertex, AtlasVertex<Titan1Vertex, Titan1Edge>> getTitanVertices(
+            Collection<AtlasVertex<Titan1Vertex, Titan1Edge>> vertices) {
+        Map<TitanVertex, AtlasVertex<Titan1Vertex, Titan1Edge>> result = new LinkedHashMap<>();
+        for (AtlasVertex<Titan1Vertex, Titan1Edge> vertex : vertices) {
+            result.put((TitanVertex) vertex.getV().getWrappedElement(), vertex);
+        }
+        return result;
+    }
+
     @Override
     public Object getGremlinColumnValue(Object rowValue, String colName, int idx) {
 
@@ -277,14 +322,19 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
     @Override
     public Object executeGremlinScript(String gremlinQuery) throws ScriptException {
 
+        return executeGremlinScript(gremlinQuery, Collections.<String, Object>emptyMap());
+    }
 
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName("gremlin-groovy");
-        Bindings bindings = engine.createBindings();
-        bindings.put("g", getGraph().traversal());
-        Object result = engine.eval("import java.util.function.Function;" + gremlinQuery, bindings);
-        return result;
+    @Override
+    public Object executeGremlinScript(String gremlinQuery, Map<String, Object> bindings) throws ScriptException {
 
+        Map<String, Object> allBindings = new HashMap<>(bindings);
+        allBindings.put("g", getGraph().traversal());
+        return getScriptEnginePool().eval(gremlinQuery, allBindings);
+    }
+
+    static GremlinScriptEnginePool getScriptEnginePool() {
+        return GremlinScriptEnginePool.getInstance("gremlin-groovy", "import java.util.function.Function;");
     }
 
     @Override
@@ -307,4 +357,12 @@ public class Titan1Graph implements AtlasGraph<Titan1Vertex, Titan1Edge> {
     public String getInitialIndexedPredicate() {
         return "";
     }
+
+    /**
+     * Reports the gremlin script engine pool.
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        return getScriptEnginePool().getMetrics();
+    }
 }
@@ -1,61 +1,102 @@
-
 package org.apache.atlas.repository.graphdb.titan1;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.atlas.repository.graphdb.AbstractGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
-import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.utils.adapters.IterableAdapter;
 import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Order;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 
+import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.TitanGraphQuery;
+import com.thinkaurelius.titan.core.attribute.Contain;
 import com.thinkaurelius.titan.graphdb.query.TitanPredicate;
 
-public class Titan1GraphQuery implements AtlasGraphQuery<Titan1Vertex, Titan1Edge> {
+public class Titan1GraphQuery extends AbstractGraphQuery<Titan1Vertex, Titan1Edge, TitanGraphQuery<?>> {
 
-    private TitanGraphQuery<?> wrapped_;
+    private final TitanGraph graph_;
 
-    public Titan1GraphQuery(TitanGraphQuery<?> query) {
-        wrapped_ = query;
+    public Titan1GraphQuery(TitanGraph graph) {
+        graph_ = graph;
     }
 
     @Override
-    public AtlasGraphQuery<Titan1Vertex, Titan1Edge> has(String propertyKey, Object value) {
+    protected TitanGraphQuery<?> createNativeQuery() {
+        return graph_.query();
+    }
 
-        TitanGraphQuery<?> result = wrapped_.has(propertyKey, value);
-        return wrapResult(result);
+    @Override
+    protected AbstractGraphQuery<Titan1Vertex, Titan1Edge, TitanGraphQuery<?>> createEmptyQuery() {
+        return TitanObjectFactory.createQuery(graph_);
+    }
 
+    @Override
+    protected TitanGraphQuery<?> has(TitanGraphQuery<?> query, String propertyKey, Object value) {
+        return query.has(propertyKey, value);
     }
 
-    private AtlasGraphQuery<Titan1Vertex, Titan1Edge> wrapResult(TitanGraphQuery<?> result) {
-        if(result == wrapped_) {
-            return this;
-        }
-        return TitanObjectFactory.createQuery(result);
+    @Override
+    protected TitanGraphQuery<?> has(TitanGraphQuery<?> query, String propertyKey, ComparisionOperator operator,
+            Object value) {
+        Compare c = getGremlinPredicate(operator);
+        TitanPredicate pred = TitanPredicate.Converter.convert(c);
+        return query.has(propertyKey, pred, value);
     }
 
     @Override
-    public Iterable<AtlasVertex<Titan1Vertex, Titan1Edge>> vertices() {
-        Iterable it = wrapped_.vertices();
+    protected TitanGraphQuery<?> in(TitanGraphQuery<?> query, String propertyKey, Collection<?> values) {
+        return query.has(propertyKey, Contain.IN, values);
+    }
+
+    @Override
+    protected TitanGraphQuery<?> limit(TitanGraphQuery<?> query, int limit) {
+        return query.limit(limit);
+    }
+
+    @Override
+    protected TitanGraphQuery<?> orderBy(TitanGraphQuery<?> query, String propertyKey, SortOrder order) {
+        return query.orderBy(propertyKey, order == SortOrder.DESC ? Order.decr : Order.incr);
+    }
+
+    @Override
+    protected Iterable<AtlasVertex<Titan1Vertex, Titan1Edge>> vertices(TitanGraphQuery<?> query) {
+        Iterable it = query.vertices();
         Iterable<Vertex> result = (Iterable<Vertex>)it;
         return new IterableAdapter<Vertex, AtlasVertex<Titan1Vertex, Titan1Edge>>(result, VertexMapper.INSTANCE);
     }
 
     @Override
-    public Iterable<AtlasEdge<Titan1Vertex, Titan1Edge>> edges() {
-        Iterable it = wrapped_.edges();
+    protected Iterable<AtlasEdge<Titan1Vertex, Titan1Edge>> edges(TitanGraphQuery<?> query) {
+        Iterable it = query.edges();
         Iterable<Edge> result = (Iterable<Edge>)it;
         return new IterableAdapter<Edge, AtlasEdge<Titan1Vertex, Titan1Edge>>(result, EdgeMapper.INSTANCE);
     }
 
-
+    /**
+     * Counts the vertices in a traversal, rather than wrapping and returning each of them.
+     */
     @Override
-    public AtlasGraphQuery<Titan1Vertex, Titan1Edge> has(String propertyKey, ComparisionOperator operator, Object value) {
-        Compare c = getGremlinPredicate(operator);
-        TitanPredicate pred = TitanPredicate.Converter.convert(c);
-        TitanGraphQuery<?> result = wrapped_.has(propertyKey, pred, value);
-        return wrapResult(result);
+    protected long countVertices(List<QueryPredicate> branch) {
+        GraphTraversal<Vertex, Vertex> traversal = graph_.traversal().V();
+        for (QueryPredicate predicate : branch) {
+            if (predicate.isIn()) {
+                traversal = traversal.has(predicate.getPropertyKey(),
+                        P.within((Collection<?>) predicate.getValue()));
+            } else if (predicate.getOperator() != null) {
+                traversal = traversal.has(predicate.getPropertyKey(),
+                        new P<Object>(getGremlinPredicate(predicate.getOperator()), predicate.getValue()));
+            } else {
+                traversal = traversal.has(predicate.getPropertyKey(), predicate.getValue());
+            }
+        }
+        return traversal.count().next();
     }
 
     private Compare getGremlinPredicate(ComparisionOperator op) {
@@ -28,6 +28,14 @@ public class Titan1IndexQuery implements AtlasIndexQuery<Titan1Vertex, Titan1Edg
                 QUERY_RESULT_MAPPER);
     }
 
+    @Override
+    public Iterator<AtlasIndexQuery.Result<Titan1Vertex, Titan1Edge>> vertices(int offset, int limit) {
+        Iterator<TitanIndexQuery.Result<TitanVertex>> results = query_.offset(offset).limit(limit).vertices().iterator();
+
+        return new IteratorAdapter<TitanIndexQuery.Result<TitanVertex>, AtlasIndexQuery.Result<Titan1Vertex, Titan1Edge>>(results,
+                QUERY_RESULT_MAPPER);
+    }
+
     private static final class IndexQueryResultMapper
             implements Mapper<TitanIndexQuery.Result<TitanVertex>, AtlasIndexQuery.Result<Titan1Vertex, Titan1Edge>> {
 
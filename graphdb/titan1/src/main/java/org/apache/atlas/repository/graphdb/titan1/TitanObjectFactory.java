@@ -11,7 +11,7 @@ import org.apache.tinkerpop.gremlin.structure.Vertex;
 
 import com.thinkaurelius.titan.core.Cardinality;
 import com.thinkaurelius.titan.core.PropertyKey;
-import com.thinkaurelius.titan.core.TitanGraphQuery;
+import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.schema.TitanGraphIndex;
 
 public class TitanObjectFactory {
@@ -51,8 +51,8 @@ public class TitanObjectFactory {
 
 
 
-    public static Titan1GraphQuery createQuery(TitanGraphQuery<?> query) {
-       return new Titan1GraphQuery(query);
+    public static Titan1GraphQuery createQuery(TitanGraph graph) {
+       return new Titan1GraphQuery(graph);
     }
 
     public static Titan1Vertex createVertex(Vertex source) {
@@ -60,6 +60,12 @@ public abstract class AtlasHook {
     public static final String ATLAS_HOOK_FAILED_MESSAGES_LOG_DEFAULT_NAME = "atlas_hook_failed_messages.log";
     public static final String ATLAS_NOTIFICATION_LOG_FAILED_MESSAGES_ENABLED_KEY =
             "atlas.notification.log.failed.messages";
+    public static final String ATLAS_NOTIFICATION_ASYNCHRONOUS_KEY = "atlas.notification.hook.asynchronous";
+    public static final String ATLAS_NOTIFICATION_SHUTDOWN_WAIT_MS_KEY = "atlas.notification.hook.shutdown.wait.ms";
+
+    private static boolean asynchronous;
+    private static final Object asyncSendsLock = new Object();
+    private static int pendingAsyncSends = 0;
 
     static {
         try {
@@ -79,6 +85,20 @@ public abstract class AtlasHook {
         Injector injector = Guice.createInjector(new NotificationModule());
         notifInterface = injector.getInstance(NotificationInterface.class);
 
+        asynchronous = atlasProperties.getBoolean(ATLAS_NOTIFICATION_ASYNCHRONOUS_KEY, true);
+        if (asynchronous) {
+            // give the messages sent last a chance to be acknowledged before the process exits
+            final long shutdownWaitMs = atlasProperties.getLong(ATLAS_NOTIFICATION_SHUTDOWN_WAIT_MS_KEY, 10000);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    if (!awaitAsyncSends(shutdownWaitMs)) {
+                        LOG.warn("Messages not acknowledged within {} ms of shutdown", shutdownWaitMs);
+                    }
+                }
+            });
+        }
+
         LOG.info("Created Atlas Hook");
     }
 
@@ -105,45 +125,176 @@ public abstract class AtlasHook {
      * unique attribute on the entities.
      *
      * @param messages hook notification messages
-     * @param maxRetries maximum number of retries while sending message to messaging system
+     * @param maxRetries maximum number of retries while sending message to messaging system, for synchronous sends
      */
     public static void notifyEntities(List<HookNotification.HookNotificationMessage> messages, int maxRetries) {
-        notifyEntitiesInternal(messages, maxRetries, notifInterface, logFailedMessages, failedMessagesLogger);
+        if (asynchronous) {
+            notifyEntitiesAsyncInternal(messages, notifInterface, logFailedMessages, failedMessagesLogger);
+        } else {
+            notifyEntitiesInternal(messages, maxRetries, notifInterface, logFailedMessages, failedMessagesLogger);
+        }
     }
 
+    /**
+     * Sends the messages without waiting for them to be acknowledged. The messages are not sent again when the send
+     * fails: the messaging system client retries the send itself, keeping the messages in order, so sending the
+     * batch again would duplicate the messages it acknowledged and reorder them after later sends. The messages that
+     * still fail are logged.
+     */
     @VisibleForTesting
-    static void notifyEntitiesInternal(List<HookNotification.HookNotificationMessage> messages, int maxRetries,
+    static void notifyEntitiesAsyncInternal(final List<HookNotification.HookNotificationMessage> messages,
+                                            NotificationInterface notificationInterface,
+                                            final boolean shouldLogFailedMessages, final FailedMessagesLogger logger) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+
+        synchronized (asyncSendsLock) {
+            pendingAsyncSends++;
+        }
+        try {
+            notificationInterface.sendAsync(NotificationInterface.NotificationType.HOOK, messages,
+                    new NotificationInterface.SendCallback() {
+                        @Override
+                        public void onCompletion(NotificationException exception) {
+                            if (exception == null) {
+                                asyncSendCompleted();
+                            } else {
+                                asyncSendFailed(messages, exception, shouldLogFailedMessages, logger);
+                            }
+                        }
+                    });
+        } catch (RuntimeException e) {
+            asyncSendFailed(messages, new NotificationException(e), shouldLogFailedMessages, logger);
+        }
+    }
+
+    private static void asyncSendFailed(List<HookNotification.HookNotificationMessage> messages,
+                                        NotificationException exception, boolean shouldLogFailedMessages,
+                                        FailedMessagesLogger logger) {
+        try {
+            logFailedMessages(messages, exception, shouldLogFailedMessages, logger);
+        } finally {
+            asyncSendCompleted();
+        }
+    }
+
+    private static void logFailedMessages(List<HookNotification.HookNotificationMessage> messages,
+                                          NotificationException exception, boolean shouldLogFailedMessages,
+                                          FailedMessagesLogger logger) {
+        if (shouldLogFailedMessages && exception.getFailedMessages() != null) {
+            for (String msg : exception.getFailedMessages()) {
+                logger.log(msg);
+            }
+        }
+        LOG.error("Failed to notify atlas for entity {}", messages, exception);
+    }
+
+    private static void asyncSendCompleted() {
+        synchronized (asyncSendsLock) {
+            pendingAsyncSends--;
+            asyncSendsLock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the asynchronous sends to be acknowledged or to fail.
+     *
+     * @return false if sends were still pending after timeoutMs
+     */
+    @VisibleForTesting
+    static boolean awaitAsyncSends(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (asyncSendsLock) {
+            while (pendingAsyncSends > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    asyncSendsLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a dispatcher that sends the messages of a hook in batches from a background thread.
+     *
+     * @param name name of the hook
+     * @param confPrefix prefix of the configuration properties of the hook
+     * @param maxRetries maximum number of retries while sending a batch to messaging system
+     * @param dedupTypes types of the entities that are deduplicated across hook events
+     */
+    protected static HookNotificationDispatcher createDispatcher(String name, String confPrefix, int maxRetries,
+                                                                 String... dedupTypes) {
+        return new HookNotificationDispatcher(name, atlasProperties, confPrefix, notifInterface, maxRetries,
+                logFailedMessages ? failedMessagesLogger : null, dedupTypes);
+    }
+
+    /**
+     * Sends the messages, up to maxRetries times. When the notification reports which of the messages failed, only
+     * those are sent again, so that the messages that made it are not duplicated.
+     *
+     * @return whether the messages were sent
+     */
+    @VisibleForTesting
+    static boolean notifyEntitiesInternal(List<HookNotification.HookNotificationMessage> messages, int maxRetries,
                                        NotificationInterface notificationInterface,
                                        boolean shouldLogFailedMessages, FailedMessagesLogger logger) {
         if (messages == null || messages.isEmpty()) {
-            return;
+            return true;
         }
 
-        final String message = messages.toString();
         int numRetries = 0;
         while (true) {
             try {
                 notificationInterface.send(NotificationInterface.NotificationType.HOOK, messages);
-                return;
+                return true;
             } catch (Exception e) {
                 numRetries++;
                 if (numRetries < maxRetries) {
-                    LOG.debug("Failed to notify atlas for entity {}. Retrying", message, e);
+                    LOG.debug("Failed to notify atlas for entity {}. Retrying", messages, e);
+                    if (e instanceof NotificationException) {
+                        messages = getFailedMessages(messages, (NotificationException) e);
+                    }
                 } else {
-                    if (shouldLogFailedMessages && e instanceof NotificationException) {
+                    if (shouldLogFailedMessages && e instanceof NotificationException
+                            && ((NotificationException) e).getFailedMessages() != null) {
                         List<String> failedMessages = ((NotificationException) e).getFailedMessages();
                         for (String msg : failedMessages) {
                             logger.log(msg);
                         }
                     }
                     LOG.error("Failed to notify atlas for entity {} after {} retries. Quitting",
-                            message, maxRetries, e);
-                    return;
+                            messages, maxRetries, e);
+                    return false;
                 }
             }
         }
     }
 
+    /**
+     * @return the messages that failed to be sent, all of them if the exception doesn't tell which
+     */
+    private static List<HookNotification.HookNotificationMessage> getFailedMessages(
+            List<HookNotification.HookNotificationMessage> messages, NotificationException exception) {
+        List<Integer> failedIndexes = exception.getFailedMessageIndexes();
+        if (failedIndexes == null || failedIndexes.isEmpty()) {
+            return messages;
+        }
+
+        List<HookNotification.HookNotificationMessage> failedMessages = new ArrayList<>(failedIndexes.size());
+        for (Integer index : failedIndexes) {
+            failedMessages.add(messages.get(index));
+        }
+        return failedMessages;
+    }
+
     /**
      * Notify atlas of the entity through message. The entity can be a
      * complex entity with reference to other entities.
@@ -0,0 +1,435 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.commons.configuration.Configuration;
+import org.codehaus.jettison.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the notification messages of a hook from a background thread, in batches that span many hook events.
+ *
+ * The messages of a hook event are queued together, in a queue bounded by queueSize events. The sender takes the
+ * first queued event, waits up to lingerMs for more, and sends up to batchSize messages with a single send.
+ * When the queue is full, dispatch either drops the event or, with the block overflow policy, waits up to
+ * blockTimeoutMs for room before dropping it. Dropped messages are logged to the failed messages log. When a send
+ * fails, only the messages of the batch that failed are sent again.
+ *
+ * Entities of the dedupTypes that are sent in full again within dedupWindowMs with the same content are left out of
+ * the later messages. A delete or partial update message forgets everything sent so far, so an entity that is
+ * changed by those is always sent again.
+ */
+public class HookNotificationDispatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(HookNotificationDispatcher.class);
+
+    public static final String QUEUE_SIZE = "dispatch.queueSize";
+    public static final String BATCH_SIZE = "dispatch.batchSize";
+    public static final String LINGER_MS = "dispatch.lingerMs";
+    public static final String OVERFLOW_POLICY = "dispatch.overflowPolicy";
+    public static final String BLOCK_TIMEOUT_MS = "dispatch.blockTimeoutMs";
+    public static final String DEDUP_WINDOW_MS = "dispatch.dedupWindowMs";
+    public static final String DEDUP_MAX_ENTRIES = "dispatch.dedupMaxEntries";
+
+    private static final String QUALIFIED_NAME = "qualifiedName";
+
+    /**
+     * What dispatch does when the queue is full.
+     */
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final String name;
+    private final NotificationInterface notificationInterface;
+    private final int maxRetries;
+    private final FailedMessagesLogger failedMessagesLogger;
+    private final int batchSize;
+    private final long lingerMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final long dedupWindowMs;
+    private final Set<String> dedupTypes;
+
+    private final BlockingQueue<List<HookNotification.HookNotificationMessage>> queue;
+    /** content signature and send time of the entities sent recently, by type and qualified name */
+    private final Map<String, SentEntity> sentEntities;
+    private Thread sender;
+    private volatile boolean running = false;
+
+    private final AtomicLong dispatchedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong dedupedEntities = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong totalSendMs = new AtomicLong();
+    private volatile long lastSendMs = 0;
+
+    /**
+     * @param name name of the hook, for the sender thread and the logs
+     * @param configuration configuration of the hook
+     * @param confPrefix prefix of the dispatch properties of the hook in configuration
+     * @param notificationInterface notification to send the messages with
+     * @param maxRetries maximum number of attempts to send a batch
+     * @param failedMessagesLogger log of the messages that could not be sent, may be null
+     * @param dedupTypes types of the entities to deduplicate
+     */
+    public HookNotificationDispatcher(String name, Configuration configuration, String confPrefix,
+                                      NotificationInterface notificationInterface, int maxRetries,
+                                      FailedMessagesLogger failedMessagesLogger, String... dedupTypes) {
+        this.name = name;
+        this.notificationInterface = notificationInterface;
+        this.maxRetries = maxRetries;
+        this.failedMessagesLogger = failedMessagesLogger;
+        this.batchSize = Math.max(1, configuration.getInt(confPrefix + BATCH_SIZE, 100));
+        this.lingerMs = configuration.getLong(confPrefix + LINGER_MS, 100);
+        this.overflowPolicy = OverflowPolicy.valueOf(
+                configuration.getString(confPrefix + OVERFLOW_POLICY, OverflowPolicy.BLOCK.name()).toUpperCase());
+        this.blockTimeoutMs = configuration.getLong(confPrefix + BLOCK_TIMEOUT_MS, 1000);
+        this.dedupWindowMs = configuration.getLong(confPrefix + DEDUP_WINDOW_MS, 10000);
+        this.dedupTypes = new HashSet<>(Arrays.asList(dedupTypes));
+        this.queue = new LinkedBlockingQueue<>(configuration.getInt(confPrefix + QUEUE_SIZE, 10000));
+
+        final int dedupMaxEntries = configuration.getInt(confPrefix + DEDUP_MAX_ENTRIES, 10000);
+        this.sentEntities = new LinkedHashMap<String, SentEntity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SentEntity> eldest) {
+                return size() > dedupMaxEntries;
+            }
+        };
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sendLoop();
+            }
+        }, name + " notification sender");
+        sender.setDaemon(true);
+        sender.start();
+        LOG.info("Started {} notification sender with batch size {}, linger {} ms and overflow policy {}", name,
+                batchSize, lingerMs, overflowPolicy);
+    }
+
+    /**
+     * Stops the sender after sending the queued messages, waiting at most timeoutMs for them to be sent.
+     */
+    public void stop(long timeoutMs) {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = sender;
+        }
+
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            LOG.warn("{} notification sender didn't finish within {} ms, {} events not sent", name, timeoutMs,
+                    queue.size());
+            thread.interrupt();
+        }
+        LOG.info("Stopped {} notification sender: {} events dispatched, {} dropped, {} messages sent in {} batches, "
+                        + "{} failed batches, {} entities deduplicated", name, dispatchedEvents.get(),
+                droppedEvents.get(), sentMessages.get(), sentBatches.get(), failedBatches.get(),
+                dedupedEntities.get());
+    }
+
+    /**
+     * Queues the messages of a hook event to be sent.
+     *
+     * @return false if the messages were dropped because the queue is full or the sender is stopped
+     */
+    public boolean dispatch(List<HookNotification.HookNotificationMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return true;
+        }
+
+        boolean queued = false;
+        if (running) {
+            try {
+                queued = overflowPolicy == OverflowPolicy.BLOCK
+                        ? queue.offer(messages, blockTimeoutMs, TimeUnit.MILLISECONDS)
+                        : queue.offer(messages);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (queued) {
+            dispatchedEvents.incrementAndGet();
+        } else {
+            droppedEvents.incrementAndGet();
+            LOG.warn("{} notification queue is full, dropping messages {}", name, messages);
+            if (failedMessagesLogger != null) {
+                for (HookNotification.HookNotificationMessage message : messages) {
+                    failedMessagesLogger.log(AbstractNotification.getMessageJson(message));
+                }
+            }
+        }
+        return queued;
+    }
+
+    private void sendLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                List<HookNotification.HookNotificationMessage> batch = takeBatch();
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                LOG.info("{} notification sender interrupted", name);
+                break;
+            } catch (Throwable t) {
+                LOG.error("Failure in {} notification sender", name, t);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    List<HookNotification.HookNotificationMessage> takeBatch() throws InterruptedException {
+        List<HookNotification.HookNotificationMessage> batch = new ArrayList<>();
+        List<HookNotification.HookNotificationMessage> event = queue.poll(running ? 1000 : 0, TimeUnit.MILLISECONDS);
+        if (event == null) {
+            return batch;
+        }
+        batch.addAll(event);
+
+        long deadline = System.currentTimeMillis() + lingerMs;
+        while (batch.size() < batchSize) {
+            event = queue.peek();
+            if (event != null && batch.size() + event.size() > batchSize) {
+                break;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            event = remaining > 0 && running ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+            if (event == null) {
+                break;
+            }
+            batch.addAll(event);
+        }
+        return batch;
+    }
+
+    @VisibleForTesting
+    void send(List<HookNotification.HookNotificationMessage> batch) {
+        List<HookNotification.HookNotificationMessage> messages = deduplicate(batch);
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        boolean sent = AtlasHook.notifyEntitiesInternal(messages, maxRetries, notificationInterface,
+                failedMessagesLogger != null, failedMessagesLogger);
+        lastSendMs = System.currentTimeMillis() - start;
+        totalSendMs.addAndGet(lastSendMs);
+        if (sent) {
+            sentBatches.incrementAndGet();
+            sentMessages.addAndGet(messages.size());
+        } else {
+            failedBatches.incrementAndGet();
+            //the entities may not have made it, so they are not skipped next time
+            sentEntities.clear();
+        }
+        LOG.debug("Sent {} {} notification messages in {} ms, {} events queued", messages.size(), name, lastSendMs,
+                queue.size());
+    }
+
+    private List<HookNotification.HookNotificationMessage> deduplicate(
+            List<HookNotification.HookNotificationMessage> batch) {
+        if (dedupTypes.isEmpty() || dedupWindowMs <= 0) {
+            return batch;
+        }
+
+        long now = System.currentTimeMillis();
+        List<HookNotification.HookNotificationMessage> messages = new ArrayList<>(batch.size());
+        for (HookNotification.HookNotificationMessage message : batch) {
+            if (!(message instanceof HookNotification.EntityCreateRequest)) {
+                sentEntities.clear();
+                messages.add(message);
+                continue;
+            }
+
+            List<Referenceable> entities;
+            try {
+                entities = ((HookNotification.EntityCreateRequest) message).getEntities();
+            } catch (JSONException e) {
+                messages.add(message);
+                continue;
+            }
+            List<Referenceable> remaining = new ArrayList<>(entities.size());
+            for (Referenceable entity : entities) {
+                if (isDuplicate(entity, now)) {
+                    dedupedEntities.incrementAndGet();
+                } else {
+                    remaining.add(entity);
+                }
+            }
+
+            if (remaining.size() == entities.size()) {
+                messages.add(message);
+            } else if (!remaining.isEmpty()) {
+                messages.add(message.getType() == HookNotification.HookNotificationType.ENTITY_FULL_UPDATE
+                        ? new HookNotification.EntityUpdateRequest(message.getUser(), remaining)
+                        : new HookNotification.EntityCreateRequest(message.getUser(), remaining));
+            }
+        }
+        return messages;
+    }
+
+    private boolean isDuplicate(Referenceable entity, long now) {
+        Object qualifiedName = entity.getValuesMap().get(QUALIFIED_NAME);
+        if (!dedupTypes.contains(entity.getTypeName()) || qualifiedName == null) {
+            return false;
+        }
+
+        String key = entity.getTypeName() + "." + qualifiedName;
+        String signature = signature(entity);
+        SentEntity sent = sentEntities.get(key);
+        if (sent != null && sent.signature.equals(signature) && now - sent.sentAt < dedupWindowMs) {
+            return true;
+        }
+        sentEntities.put(key, new SentEntity(signature, now));
+        return false;
+    }
+
+    /**
+     * Content of an entity, without the ids that hooks assign to new entities on every event.
+     */
+    @VisibleForTesting
+    static String signature(Object value) {
+        StringBuilder signature = new StringBuilder();
+        appendSignature(signature, value);
+        return signature.toString();
+    }
+
+    private static void appendSignature(StringBuilder signature, Object value) {
+        if (value instanceof Struct) {
+            Struct struct = (Struct) value;
+            signature.append(struct.getTypeName()).append('{');
+            appendSignature(signature, struct.getValuesMap());
+            if (value instanceof Referenceable) {
+                signature.append(traits((Referenceable) value));
+            }
+            signature.append('}');
+        } else if (value instanceof Map) {
+            signature.append('{');
+            for (Map.Entry<?, ?> entry : new TreeMap<>((Map<?, ?>) value).entrySet()) {
+                signature.append(entry.getKey()).append('=');
+                appendSignature(signature, entry.getValue());
+                signature.append(',');
+            }
+            signature.append('}');
+        } else if (value instanceof Collection) {
+            signature.append('[');
+            for (Object element : (Collection<?>) value) {
+                appendSignature(signature, element);
+                signature.append(',');
+            }
+            signature.append(']');
+        } else {
+            signature.append(value);
+        }
+    }
+
+    private static Map<String, Object> traits(Referenceable entity) {
+        Map<String, Object> traits = new TreeMap<>();
+        for (String traitName : entity.getTraits()) {
+            traits.put(traitName, signature(entity.getTrait(traitName)));
+        }
+        return traits;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getDispatchedEvents() {
+        return dispatchedEvents.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public long getDedupedEntities() {
+        return dedupedEntities.get();
+    }
+
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public long getSentBatches() {
+        return sentBatches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getLastSendMs() {
+        return lastSendMs;
+    }
+
+    public long getTotalSendMs() {
+        return totalSendMs.get();
+    }
+
+    private static final class SentEntity {
+        private final String signature;
+        private final long sentAt;
+
+        SentEntity(String signature, long sentAt) {
+            this.signature = signature;
+            this.sentAt = sentAt;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.atlas.service.Service;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationConverter;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -55,11 +56,13 @@ import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Kafka specific access point to the Atlas notification framework.
@@ -124,6 +127,35 @@ public class KafkaNotification extends AbstractNotification implements Service {
                 "org.apache.kafka.common.serialization.StringDeserializer");
         properties.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, "roundrobin");
         properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "smallest");
+
+        setProducerDefaults(properties);
+    }
+
+    /**
+     * Sets the producer defaults of Atlas, and keeps messages in order when the producer retries them.
+     */
+    @VisibleForTesting
+    static void setProducerDefaults(Properties properties) {
+        //batch the records of concurrent sends, unless configured otherwise
+        setDefault(properties, ProducerConfig.LINGER_MS_CONFIG, "10");
+        setDefault(properties, ProducerConfig.BATCH_SIZE_CONFIG, "65536");
+        //retry the records of asynchronous sends in the producer as well
+        setDefault(properties, ProducerConfig.RETRIES_CONFIG, "3");
+        //a retried batch must not overtake the batches sent after it, the messages of an entity must stay in order
+        if (Integer.parseInt(properties.getProperty(ProducerConfig.RETRIES_CONFIG)) > 0) {
+            Object maxInFlight = properties.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION);
+            if (maxInFlight != null && !"1".equals(maxInFlight.toString())) {
+                LOG.warn("Ignoring {}={}, it is 1 when retries are enabled to keep messages in order",
+                        ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, maxInFlight);
+            }
+            properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "1");
+        }
+    }
+
+    private static void setDefault(Properties properties, String key, String value) {
+        if (!properties.containsKey(key)) {
+            properties.put(key, value);
+        }
     }
 
     @VisibleForTesting
@@ -222,6 +254,37 @@ public class KafkaNotification extends AbstractNotification implements Service {
         sendInternalToProducer(producer, type, messages);
     }
 
+    @Override
+    protected void sendInternalAsync(NotificationType type, String[] messages, SendCallback callback) {
+        try {
+            if (producer == null) {
+                createProducer();
+            }
+        } catch (Exception e) {
+            if (callback != null) {
+                callback.onCompletion(new NotificationException(e, Arrays.asList(messages)));
+            }
+            return;
+        }
+        sendInternalToProducerAsync(producer, type, messages, callback);
+    }
+
+    @VisibleForTesting
+    void sendInternalToProducerAsync(Producer p, NotificationType type, String[] messages, SendCallback callback) {
+        String topic = TOPIC_MAP.get(type);
+        BatchCallback batchCallback = new BatchCallback(messages.length, callback);
+        for (String message : messages) {
+            ProducerRecord record = new ProducerRecord(topic, message);
+            LOG.debug("Sending message for topic {}: {}", topic, message);
+            try {
+                p.send(record, batchCallback.forMessage(message));
+            } catch (Exception e) {
+                //the producer fails some sends, like too large records, before sending them
+                batchCallback.forMessage(message).onCompletion(null, e);
+            }
+        }
+    }
+
     @VisibleForTesting
     void sendInternalToProducer(Producer p, NotificationType type, String[] messages) throws NotificationException {
         String topic = TOPIC_MAP.get(type);
@@ -234,8 +297,10 @@ public class KafkaNotification extends AbstractNotification implements Service {
         }
 
         List<String> failedMessages = new ArrayList<>();
+        List<Integer> failedMessageIndexes = new ArrayList<>();
         Exception lastFailureException = null;
-        for (MessageContext context : messageContexts) {
+        for (int index = 0; index < messageContexts.size(); index++) {
+            MessageContext context = messageContexts.get(index);
             try {
                 RecordMetadata response = context.getFuture().get();
                 LOG.debug("Sent message for topic - {}, partition - {}, offset - {}", response.topic(),
@@ -244,10 +309,11 @@ public class KafkaNotification extends AbstractNotification implements Service {
                 LOG.warn("Could not send message - {}", context.getMessage(), e);
                 lastFailureException = e;
                 failedMessages.add(context.getMessage());
+                failedMessageIndexes.add(index);
             }
         }
         if (lastFailureException != null) {
-            throw new NotificationException(lastFailureException, failedMessages);
+            throw new NotificationException(lastFailureException, failedMessages, failedMessageIndexes);
         }
     }
 
@@ -377,6 +443,61 @@ public class KafkaNotification extends AbstractNotification implements Service {
         }
     }
 
+    /**
+     * Calls the send callback once the records of all the messages of a send are acknowledged or have failed.
+     */
+    private static final class BatchCallback {
+        private final SendCallback callback;
+        private final AtomicInteger remaining;
+        private final List<String> failedMessages = new ArrayList<>();
+        private Exception lastFailureException;
+
+        BatchCallback(int count, SendCallback callback) {
+            this.callback = callback;
+            this.remaining = new AtomicInteger(count);
+            if (count == 0) {
+                complete();
+            }
+        }
+
+        Callback forMessage(final String message) {
+            return new Callback() {
+                @Override
+                public void onCompletion(RecordMetadata metadata, Exception exception) {
+                    if (exception != null) {
+                        LOG.warn("Could not send message - {}", message, exception);
+                        synchronized (BatchCallback.this) {
+                            failedMessages.add(message);
+                            lastFailureException = exception;
+                        }
+                    } else {
+                        LOG.debug("Sent message for topic - {}, partition - {}, offset - {}", metadata.topic(),
+                                metadata.partition(), metadata.offset());
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        complete();
+                    }
+                }
+            };
+        }
+
+        private void complete() {
+            if (callback == null) {
+                return;
+            }
+            NotificationException failure;
+            synchronized (this) {
+                failure = lastFailureException == null ? null
+                        : new NotificationException(lastFailureException, new ArrayList<>(failedMessages));
+            }
+            try {
+                callback.onCompletion(failure);
+            } catch (Throwable t) {
+                LOG.error("Failure in notification send callback", t);
+            }
+        }
+    }
+
     private class MessageContext {
 
         private final Future<RecordMetadata> future;
@@ -26,6 +26,8 @@ import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.ha.HAConfiguration;
+import org.apache.atlas.notification.hook.HookMessageBinaryCodec;
+import org.apache.atlas.notification.hook.HookNotification;
 import org.apache.atlas.typesystem.IReferenceableInstance;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.atlas.typesystem.json.InstanceSerialization;
@@ -48,8 +50,17 @@ public abstract class AbstractNotification implements NotificationInterface {
     public static final MessageVersion CURRENT_MESSAGE_VERSION = new MessageVersion("1.0.0");
 
     public static final String PROPERTY_EMBEDDED = PROPERTY_PREFIX + ".embedded";
+
+    /**
+     * The encoding of hook messages, json or binary. Servers accept both, so producers can switch to binary once
+     * the servers they send to are upgraded.
+     */
+    public static final String PROPERTY_HOOK_MESSAGE_ENCODING = PROPERTY_PREFIX + ".hook.message.encoding";
+    public static final String HOOK_MESSAGE_ENCODING_BINARY = "binary";
+
     private final boolean embedded;
     private final boolean isHAEnabled;
+    private final boolean binaryHookMessages;
 
     /**
      * Used for message serialization.
@@ -65,12 +76,15 @@ public abstract class AbstractNotification implements NotificationInterface {
     public AbstractNotification(Configuration applicationProperties) throws AtlasException {
         this.embedded = applicationProperties.getBoolean(PROPERTY_EMBEDDED, false);
         this.isHAEnabled = HAConfiguration.isHAEnabled(applicationProperties);
+        this.binaryHookMessages = HOOK_MESSAGE_ENCODING_BINARY.equalsIgnoreCase(
+                applicationProperties.getString(PROPERTY_HOOK_MESSAGE_ENCODING, "json"));
     }
 
     @VisibleForTesting
     protected AbstractNotification() {
         embedded = false;
         isHAEnabled = false;
+        binaryHookMessages = false;
     }
 
     // ----- NotificationInterface -------------------------------------------
@@ -79,7 +93,7 @@ public abstract class AbstractNotification implements NotificationInterface {
     public <T> void send(NotificationType type, List<T> messages) throws NotificationException {
         String[] strMessages = new String[messages.size()];
         for (int index = 0; index < messages.size(); index++) {
-            strMessages[index] = getMessageJson(messages.get(index));
+            strMessages[index] = getMessage(type, messages.get(index));
         }
         sendInternal(type, strMessages);
     }
@@ -89,6 +103,15 @@ public abstract class AbstractNotification implements NotificationInterface {
         send(type, Arrays.asList(messages));
     }
 
+    @Override
+    public <T> void sendAsync(NotificationType type, List<T> messages, SendCallback callback) {
+        String[] strMessages = new String[messages.size()];
+        for (int index = 0; index < messages.size(); index++) {
+            strMessages[index] = getMessage(type, messages.get(index));
+        }
+        sendInternalAsync(type, strMessages, callback);
+    }
+
     // ----- AbstractNotification --------------------------------------------
 
     /**
@@ -119,6 +142,47 @@ public abstract class AbstractNotification implements NotificationInterface {
      */
     protected abstract void sendInternal(NotificationType type, String[] messages) throws NotificationException;
 
+    /**
+     * Send the given messages without waiting for them to be acknowledged. Sends them synchronously, and calls the
+     * callback before returning, unless overridden.
+     *
+     * @param type      the message type
+     * @param messages  the array of messages to send
+     * @param callback  the completion callback, may be null
+     */
+    protected void sendInternalAsync(NotificationType type, String[] messages, SendCallback callback) {
+        NotificationException failure = null;
+        try {
+            sendInternal(type, messages);
+        } catch (NotificationException e) {
+            failure = e;
+        }
+        if (callback != null) {
+            callback.onCompletion(failure);
+        }
+    }
+
+
+    /**
+     * Get the notification message string for the given object, in the configured encoding.
+     *
+     * @param type     the message type
+     * @param message  the message in object form
+     *
+     * @return the message string
+     */
+    protected String getMessage(NotificationType type, Object message) {
+        if (binaryHookMessages && type == NotificationType.HOOK
+                && message instanceof HookNotification.HookNotificationMessage) {
+            String encoded = HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION,
+                    (HookNotification.HookNotificationMessage) message);
+            if (encoded != null) {
+                return encoded;
+            }
+        }
+        return getMessageJson(message);
+    }
+
 
     // ----- utility methods -------------------------------------------------
 
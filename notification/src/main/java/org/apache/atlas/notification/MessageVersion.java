@@ -51,6 +51,18 @@ public class MessageVersion implements Comparable<MessageVersion> {
     }
 
 
+    // ----- MessageVersion --------------------------------------------------
+
+    /**
+     * Get the version string.
+     *
+     * @return the version string
+     */
+    public String getVersion() {
+        return version;
+    }
+
+
     // ----- Comparable ------------------------------------------------------
 
     @Override
@@ -26,6 +26,7 @@ import java.util.List;
  */
 public class NotificationException extends AtlasException {
     private List<String> failedMessages;
+    private List<Integer> failedMessageIndexes;
 
     public NotificationException(Exception e) {
         super(e);
@@ -36,7 +37,22 @@ public class NotificationException extends AtlasException {
         this.failedMessages = failedMessages;
     }
 
+    /**
+     * @param failedMessageIndexes positions of the failed messages among the messages sent
+     */
+    public NotificationException(Exception e, List<String> failedMessages, List<Integer> failedMessageIndexes) {
+        this(e, failedMessages);
+        this.failedMessageIndexes = failedMessageIndexes;
+    }
+
     public List<String> getFailedMessages() {
         return failedMessages;
     }
+
+    /**
+     * @return positions of the failed messages among the messages sent, null if they are not known
+     */
+    public List<Integer> getFailedMessageIndexes() {
+        return failedMessageIndexes;
+    }
 }
@@ -129,6 +129,27 @@ public interface NotificationInterface {
      */
     <T> void send(NotificationType type, List<T> messages) throws NotificationException;
 
+    /**
+     * Send the given messages without waiting for them to be acknowledged.
+     *
+     * @param type      the message type
+     * @param messages  the list of messages to send
+     * @param callback  called once all the messages are sent or have failed, from a thread of the notification
+     *                  framework; may be null
+     * @param <T>       the message type
+     */
+    <T> void sendAsync(NotificationType type, List<T> messages, SendCallback callback);
+
+    /**
+     * Completion callback of {@link #sendAsync(NotificationType, List, SendCallback)}.
+     */
+    interface SendCallback {
+        /**
+         * @param exception null if all the messages were sent, else the failure with the messages that weren't sent
+         */
+        void onCompletion(NotificationException exception);
+    }
+
     /**
      * Shutdown any notification producers and consumers associated with this interface instance.
      */
@@ -86,12 +86,25 @@ public abstract class VersionedMessageDeserializer<T> implements MessageDeserial
      * @throws IncompatibleVersionException  if the message version is incompatable with the expected version
      */
     protected void checkVersion(VersionedMessage<T> versionedMessage, String messageJson) {
+        checkVersion(versionedMessage, messageJson, expectedVersion);
+    }
+
+    /**
+     * Check the message version against the given expected version.
+     *
+     * @param versionedMessage  the versioned message
+     * @param message           the notification message string
+     * @param expectedVersion   the expected version
+     *
+     * @throws IncompatibleVersionException  if the message version is incompatable with the expected version
+     */
+    protected void checkVersion(VersionedMessage<T> versionedMessage, String message, MessageVersion expectedVersion) {
         int comp = versionedMessage.compareVersion(expectedVersion);
 
         // message has newer version
         if (comp > 0) {
             String msg =
-                    String.format(VERSION_MISMATCH_MSG, expectedVersion, versionedMessage.getVersion(), messageJson);
+                    String.format(VERSION_MISMATCH_MSG, expectedVersion, versionedMessage.getVersion(), message);
             notificationLogger.error(msg);
             throw new IncompatibleVersionException(msg);
         }
@@ -99,7 +112,7 @@ public abstract class VersionedMessageDeserializer<T> implements MessageDeserial
         // message has older version
         if (comp < 0) {
             notificationLogger.info(String.format(VERSION_MISMATCH_MSG, expectedVersion, versionedMessage.getVersion(),
-                    messageJson));
+                    message));
         }
     }
 }
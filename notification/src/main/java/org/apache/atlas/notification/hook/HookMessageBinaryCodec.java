@@ -0,0 +1,562 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.notification.hook;
+
+import org.apache.atlas.notification.MessageVersion;
+import org.apache.atlas.notification.VersionedMessage;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.atlas.typesystem.persistence.Id;
+import org.codehaus.jettison.json.JSONException;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of hook notification messages.
+ *
+ * A message starts with a magic byte, its message version and the code of its type, followed by the message fields
+ * and the entities with their values in a tagged binary form. Every distinct string, type and attribute names
+ * included, is written once per message and then referred to by its index, so the attribute names repeated across
+ * the entities and columns of a message cost a byte or two each. The bytes are carried as base64 text; a message is
+ * recognized as binary by the magic byte its first two characters decode to, so both encodings can share a topic.
+ *
+ * Binary messages carry {@link #VERSION}, newer than the version of the JSON encoding, so that servers that predate
+ * an incompatible change of the binary form reject the message rather than misread it. Message types are written
+ * as fixed codes rather than ordinals, so that changes to {@link HookNotification.HookNotificationType} don't
+ * change the meaning of messages already written.
+ *
+ * Entities are decoded straight into {@link Referenceable}s, without the JSON strings the JSON encoding nests in the
+ * message. Type messages, and values of classes the encoding doesn't know, are left to the JSON encoding.
+ */
+public final class HookMessageBinaryCodec {
+    /**
+     * The message version of binary encoded messages.
+     */
+    public static final MessageVersion VERSION = new MessageVersion("1.1.0");
+
+    private static final byte MAGIC = (byte) 0xA7;
+
+    private static final int CODE_ENTITY_CREATE = 1;
+    private static final int CODE_ENTITY_PARTIAL_UPDATE = 2;
+    private static final int CODE_ENTITY_FULL_UPDATE = 3;
+    private static final int CODE_ENTITY_DELETE = 4;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte SHORT = 6;
+    private static final byte BYTE = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte BIG_DECIMAL = 11;
+    private static final byte DATE = 12;
+    private static final byte LIST = 13;
+    private static final byte MAP = 14;
+    private static final byte STRUCT = 15;
+    private static final byte REFERENCEABLE = 16;
+    private static final byte ID = 17;
+
+    private HookMessageBinaryCodec() {
+    }
+
+    /**
+     * Whether the given notification message is binary encoded.
+     */
+    public static boolean isBinary(String message) {
+        if (message == null || message.length() < 2) {
+            return false;
+        }
+
+        //the first two base64 characters hold the 6 + 2 bits of the first byte
+        int first = base64Value(message.charAt(0));
+        int second = base64Value(message.charAt(1));
+        return first >= 0 && second >= 0 && (byte) ((first << 2) | (second >> 4)) == MAGIC;
+    }
+
+    private static int base64Value(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        }
+        if (c == '+') {
+            return 62;
+        }
+        if (c == '/') {
+            return 63;
+        }
+        return -1;
+    }
+
+    private static int typeCode(HookNotification.HookNotificationType type) {
+        switch (type) {
+        case ENTITY_CREATE:
+            return CODE_ENTITY_CREATE;
+        case ENTITY_PARTIAL_UPDATE:
+            return CODE_ENTITY_PARTIAL_UPDATE;
+        case ENTITY_FULL_UPDATE:
+            return CODE_ENTITY_FULL_UPDATE;
+        case ENTITY_DELETE:
+            return CODE_ENTITY_DELETE;
+        default:
+            return -1;
+        }
+    }
+
+    private static HookNotification.HookNotificationType type(int typeCode) {
+        switch (typeCode) {
+        case CODE_ENTITY_CREATE:
+            return HookNotification.HookNotificationType.ENTITY_CREATE;
+        case CODE_ENTITY_PARTIAL_UPDATE:
+            return HookNotification.HookNotificationType.ENTITY_PARTIAL_UPDATE;
+        case CODE_ENTITY_FULL_UPDATE:
+            return HookNotification.HookNotificationType.ENTITY_FULL_UPDATE;
+        case CODE_ENTITY_DELETE:
+            return HookNotification.HookNotificationType.ENTITY_DELETE;
+        default:
+            throw new IllegalArgumentException("Unknown binary hook message type code " + typeCode);
+        }
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @return the encoded message, or null if the message can only be encoded as JSON
+     */
+    public static String encode(MessageVersion version, HookNotification.HookNotificationMessage message) {
+        int typeCode = typeCode(message.getType());
+        if (message instanceof HookNotification.TypeRequest || typeCode < 0) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        Encoder encoder = new Encoder(new DataOutputStream(bytes));
+        try {
+            encoder.out.writeByte(MAGIC);
+            encoder.writeString(version.getVersion());
+            encoder.writeVarInt(typeCode);
+            encoder.writeString(message.getUser());
+            switch (message.getType()) {
+            case ENTITY_CREATE:
+            case ENTITY_FULL_UPDATE:
+                List<Referenceable> entities = ((HookNotification.EntityCreateRequest) message).getEntities();
+                encoder.writeVarInt(entities.size());
+                for (Referenceable entity : entities) {
+                    encoder.writeValue(entity);
+                }
+                break;
+
+            case ENTITY_PARTIAL_UPDATE:
+                HookNotification.EntityPartialUpdateRequest partialUpdate =
+                        (HookNotification.EntityPartialUpdateRequest) message;
+                encoder.writeString(partialUpdate.getTypeName());
+                encoder.writeString(partialUpdate.getAttribute());
+                encoder.writeString(partialUpdate.getAttributeValue());
+                encoder.writeValue(partialUpdate.getEntity());
+                break;
+
+            case ENTITY_DELETE:
+                HookNotification.EntityDeleteRequest delete = (HookNotification.EntityDeleteRequest) message;
+                encoder.writeString(delete.getTypeName());
+                encoder.writeString(delete.getAttribute());
+                encoder.writeString(delete.getAttributeValue());
+                break;
+
+            default:
+                return null;
+            }
+            encoder.out.flush();
+        } catch (UnsupportedValueException e) {
+            return null;
+        } catch (IOException | JSONException e) {
+            throw new IllegalStateException("Failed to encode message " + message, e);
+        }
+        return DatatypeConverter.printBase64Binary(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a message encoded by {@link #encode(MessageVersion, HookNotification.HookNotificationMessage)}.
+     */
+    public static VersionedMessage<HookNotification.HookNotificationMessage> decode(String encoded) {
+        byte[] bytes;
+        try {
+            bytes = DatatypeConverter.parseBase64Binary(encoded);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Not a binary hook message: " + encoded, e);
+        }
+
+        Decoder decoder = new Decoder(new DataInputStream(new ByteArrayInputStream(bytes)));
+        try {
+            if (bytes.length == 0 || decoder.in.readByte() != MAGIC) {
+                throw new IllegalArgumentException("Not a binary hook message: " + encoded);
+            }
+            MessageVersion version = new MessageVersion(decoder.readString());
+            HookNotification.HookNotificationType type = type(decoder.readVarInt());
+            String user = decoder.readString();
+
+            HookNotification.HookNotificationMessage message;
+            switch (type) {
+            case ENTITY_CREATE:
+            case ENTITY_FULL_UPDATE:
+                int count = decoder.readVarInt();
+                List<Referenceable> entities = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    entities.add((Referenceable) decoder.readValue());
+                }
+                message = type == HookNotification.HookNotificationType.ENTITY_CREATE
+                        ? new HookNotification.EntityCreateRequest(user, entities)
+                        : new HookNotification.EntityUpdateRequest(user, entities);
+                break;
+
+            case ENTITY_PARTIAL_UPDATE:
+                String typeName = decoder.readString();
+                String attribute = decoder.readString();
+                String attributeValue = decoder.readString();
+                message = new HookNotification.EntityPartialUpdateRequest(user, typeName, attribute,
+                        attributeValue, (Referenceable) decoder.readValue());
+                break;
+
+            case ENTITY_DELETE:
+                message = new HookNotification.EntityDeleteRequest(user, decoder.readString(), decoder.readString(),
+                        decoder.readString());
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unhandled binary hook message type " + type);
+            }
+            return new VersionedMessage<>(version, message);
+        } catch (IOException | ClassCastException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed binary hook message: " + encoded, e);
+        }
+    }
+
+    /**
+     * Thrown for values of classes the binary encoding doesn't know.
+     */
+    private static final class UnsupportedValueException extends RuntimeException {
+        UnsupportedValueException(Object value) {
+            super("Unsupported value of " + value.getClass());
+        }
+    }
+
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            //zigzag, so small negative numbers stay short
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.writeByte((int) zigzag);
+        }
+
+        /**
+         * Writes a string as 0 followed by its bytes the first time, and as its index + 1 after that.
+         */
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                out.writeBoolean(false);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            strings.put(value, strings.size());
+            writeVarInt(0);
+            out.writeBoolean(true);
+            byte[] utf8 = value.getBytes("UTF-8");
+            writeVarInt(utf8.length);
+            out.write(utf8);
+        }
+
+        void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer) {
+                out.writeByte(INT);
+                writeVarLong((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                writeVarLong((Long) value);
+            } else if (value instanceof Short) {
+                out.writeByte(SHORT);
+                writeVarLong((Short) value);
+            } else if (value instanceof Byte) {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof BigInteger) {
+                out.writeByte(BIG_INTEGER);
+                writeString(value.toString());
+            } else if (value instanceof BigDecimal) {
+                out.writeByte(BIG_DECIMAL);
+                writeString(value.toString());
+            } else if (value instanceof Date) {
+                out.writeByte(DATE);
+                writeVarLong(((Date) value).getTime());
+            } else if (value instanceof Referenceable) {
+                Referenceable entity = (Referenceable) value;
+                out.writeByte(REFERENCEABLE);
+                writeId(entity.getId());
+                writeString(entity.getTypeName());
+                writeValues(entity.getValuesMap());
+                writeVarInt(entity.getTraits().size());
+                for (String traitName : entity.getTraits()) {
+                    writeString(traitName);
+                    IStruct trait = entity.getTrait(traitName);
+                    if (!(trait instanceof Struct)) {
+                        throw new UnsupportedValueException(trait);
+                    }
+                    writeValues(((Struct) trait).getValuesMap());
+                }
+            } else if (value instanceof Struct) {
+                out.writeByte(STRUCT);
+                writeString(((Struct) value).getTypeName());
+                writeValues(((Struct) value).getValuesMap());
+            } else if (value instanceof Id) {
+                out.writeByte(ID);
+                writeId((Id) value);
+            } else if (value instanceof Collection) {
+                out.writeByte(LIST);
+                Collection<?> collection = (Collection<?>) value;
+                writeVarInt(collection.size());
+                for (Object element : collection) {
+                    writeValue(element);
+                }
+            } else if (value instanceof Map) {
+                out.writeByte(MAP);
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeVarInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else {
+                throw new UnsupportedValueException(value);
+            }
+        }
+
+        /**
+         * Writes the attribute values, leaving out null values as the JSON encoding does.
+         */
+        private void writeValues(Map<String, Object> values) throws IOException {
+            int count = 0;
+            for (Object value : values.values()) {
+                if (value != null) {
+                    count++;
+                }
+            }
+            writeVarInt(count);
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                if (entry.getValue() != null) {
+                    writeString(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+        }
+
+        private void writeId(Id id) throws IOException {
+            writeString(id._getId());
+            writeString(id.getTypeName());
+            writeVarInt(id.getVersion());
+            writeString(id.getStateAsString());
+        }
+    }
+
+    private static final class Decoder {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable length int");
+        }
+
+        long readVarLong() throws IOException {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                long b = in.readByte();
+                zigzag |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IOException("Malformed variable length long");
+        }
+
+        String readString() throws IOException {
+            int index = readVarInt();
+            if (index > 0) {
+                return strings.get(index - 1);
+            }
+            if (!in.readBoolean()) {
+                return null;
+            }
+            byte[] utf8 = new byte[readVarInt()];
+            in.readFully(utf8);
+            String value = new String(utf8, "UTF-8");
+            strings.add(value);
+            return value;
+        }
+
+        Object readValue() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString();
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case INT:
+                return (int) readVarLong();
+            case LONG:
+                return readVarLong();
+            case SHORT:
+                return (short) readVarLong();
+            case BYTE:
+                return in.readByte();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case BIG_INTEGER:
+                return new BigInteger(readString());
+            case BIG_DECIMAL:
+                return new BigDecimal(readString());
+            case DATE:
+                return new Date(readVarLong());
+            case REFERENCEABLE:
+                Id id = readId();
+                String typeName = readString();
+                Map<String, Object> values = readValues();
+                int traitCount = readVarInt();
+                List<String> traitNames = new ArrayList<>(traitCount);
+                Map<String, IStruct> traits = new HashMap<>();
+                for (int i = 0; i < traitCount; i++) {
+                    String traitName = readString();
+                    traitNames.add(traitName);
+                    traits.put(traitName, new Struct(traitName, readValues()));
+                }
+                return new Referenceable(id, typeName, values, traitNames, traits);
+            case STRUCT:
+                return new Struct(readString(), readValues());
+            case ID:
+                return readId();
+            case LIST:
+                int size = readVarInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            case MAP:
+                int entries = readVarInt();
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < entries; i++) {
+                    map.put(readValue(), readValue());
+                }
+                return map;
+            default:
+                throw new IOException("Unknown value tag " + tag);
+            }
+        }
+
+        private Map<String, Object> readValues() throws IOException {
+            int count = readVarInt();
+            Map<String, Object> values = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                values.put(name, readValue());
+            }
+            return values;
+        }
+
+        private Id readId() throws IOException {
+            String id = readString();
+            String typeName = readString();
+            int version = readVarInt();
+            return new Id(id, version, typeName, readString());
+        }
+    }
+}
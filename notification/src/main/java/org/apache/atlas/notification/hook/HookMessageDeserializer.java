@@ -22,6 +22,7 @@ import com.google.gson.JsonDeserializer;
 import org.apache.atlas.notification.AbstractMessageDeserializer;
 import org.apache.atlas.notification.AbstractNotification;
 import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.VersionedMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +52,25 @@ public class HookMessageDeserializer extends AbstractMessageDeserializer<HookNot
     }
 
 
+    // ----- MessageDeserializer ---------------------------------------------
+
+    /**
+     * Deserialize a message in either the JSON or the binary encoding. Binary messages are checked against the
+     * version of the binary encoding.
+     */
+    @Override
+    public HookNotification.HookNotificationMessage deserialize(String message) {
+        if (!HookMessageBinaryCodec.isBinary(message)) {
+            return super.deserialize(message);
+        }
+
+        VersionedMessage<HookNotification.HookNotificationMessage> versionedMessage =
+                HookMessageBinaryCodec.decode(message);
+        checkVersion(versionedMessage, message, HookMessageBinaryCodec.VERSION);
+        return versionedMessage.getMessage();
+    }
+
+
     // ----- helper methods --------------------------------------------------
 
     private static Map<Type, JsonDeserializer> getDeserializerMap() {
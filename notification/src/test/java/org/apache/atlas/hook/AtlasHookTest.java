@@ -21,6 +21,7 @@ package org.apache.atlas.hook;
 import org.apache.atlas.notification.NotificationException;
 import org.apache.atlas.notification.NotificationInterface;
 import org.apache.atlas.notification.hook.HookNotification;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
@@ -30,10 +31,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 
 public class AtlasHookTest {
@@ -75,6 +82,26 @@ public class AtlasHookTest {
                 send(NotificationInterface.NotificationType.HOOK, hookNotificationMessages);
     }
 
+    @Test
+    public void testOnlyFailedMessagesAreRetried() throws NotificationException {
+        HookNotification.HookNotificationMessage sentMessage = new HookNotification.EntityCreateRequest("user1");
+        HookNotification.HookNotificationMessage failedMessage = new HookNotification.EntityCreateRequest("user2");
+        List<HookNotification.HookNotificationMessage> hookNotificationMessages =
+                Arrays.asList(sentMessage, failedMessage);
+        doThrow(new NotificationException(new Exception(), Arrays.asList("test message"), Arrays.asList(1)))
+                .when(notificationInterface)
+                .send(NotificationInterface.NotificationType.HOOK, hookNotificationMessages);
+
+        assertTrue(AtlasHook.notifyEntitiesInternal(hookNotificationMessages, 2, notificationInterface, true,
+                failedMessagesLogger));
+
+        verify(notificationInterface, times(1))
+                .send(NotificationInterface.NotificationType.HOOK, hookNotificationMessages);
+        verify(notificationInterface, times(1))
+                .send(NotificationInterface.NotificationType.HOOK, Arrays.asList(failedMessage));
+        verifyZeroInteractions(failedMessagesLogger);
+    }
+
     @Test
     public void testFailedMessageIsLoggedIfRequired() throws NotificationException {
         List<HookNotification.HookNotificationMessage> hookNotificationMessages =
@@ -130,4 +157,66 @@ public class AtlasHookTest {
 
         verifyZeroInteractions(failedMessagesLogger);
     }
+
+    @Test
+    public void testAsyncFailedMessagesAreLoggedFromCallback() throws Exception {
+        List<HookNotification.HookNotificationMessage> hookNotificationMessages =
+                new ArrayList<HookNotification.HookNotificationMessage>() {{
+                    add(new HookNotification.EntityCreateRequest("user"));
+                }
+            };
+        ArgumentCaptor<NotificationInterface.SendCallback> callback =
+                ArgumentCaptor.forClass(NotificationInterface.SendCallback.class);
+        AtlasHook.notifyEntitiesAsyncInternal(hookNotificationMessages, notificationInterface, true,
+                failedMessagesLogger);
+
+        verify(notificationInterface).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                eq(hookNotificationMessages), callback.capture());
+        verify(notificationInterface, never()).send(any(NotificationInterface.NotificationType.class), anyList());
+        verifyZeroInteractions(failedMessagesLogger);
+        assertFalse(AtlasHook.awaitAsyncSends(0));
+
+        callback.getValue().onCompletion(new NotificationException(new Exception(), Arrays.asList("test message")));
+        verify(failedMessagesLogger, times(1)).log("test message");
+        assertTrue(AtlasHook.awaitAsyncSends(0));
+    }
+
+    @Test
+    public void testAsyncSendIsCompletedIfSendFails() throws Exception {
+        List<HookNotification.HookNotificationMessage> hookNotificationMessages =
+                new ArrayList<HookNotification.HookNotificationMessage>() {{
+                    add(new HookNotification.EntityCreateRequest("user"));
+                }
+            };
+        doThrow(new RuntimeException("test message")).when(notificationInterface).sendAsync(
+                eq(NotificationInterface.NotificationType.HOOK), eq(hookNotificationMessages),
+                any(NotificationInterface.SendCallback.class));
+        AtlasHook.notifyEntitiesAsyncInternal(hookNotificationMessages, notificationInterface, true,
+                failedMessagesLogger);
+
+        assertTrue(AtlasHook.awaitAsyncSends(0));
+    }
+
+    @Test
+    public void testAsyncFailedSendIsNotResent() throws Exception {
+        List<HookNotification.HookNotificationMessage> hookNotificationMessages =
+                new ArrayList<HookNotification.HookNotificationMessage>() {{
+                    add(new HookNotification.EntityCreateRequest("user"));
+                }
+            };
+        ArgumentCaptor<NotificationInterface.SendCallback> callback =
+                ArgumentCaptor.forClass(NotificationInterface.SendCallback.class);
+        AtlasHook.notifyEntitiesAsyncInternal(hookNotificationMessages, notificationInterface, true,
+                failedMessagesLogger);
+
+        verify(notificationInterface).sendAsync(eq(NotificationInterface.NotificationType.HOOK),
+                eq(hookNotificationMessages), callback.capture());
+        callback.getValue().onCompletion(new NotificationException(new Exception(), Arrays.asList("test message")));
+
+        //the messaging client already retried the send, in order
+        verify(notificationInterface, times(1)).sendAsync(any(NotificationInterface.NotificationType.class),
+                anyList(), any(NotificationInterface.SendCallback.class));
+        verify(failedMessagesLogger, times(1)).log("test message");
+        assertTrue(AtlasHook.awaitAsyncSends(0));
+    }
 }
@@ -0,0 +1,257 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.hook;
+
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class HookNotificationDispatcherTest {
+    private static final String PREFIX = "atlas.hook.test.";
+    private static final String DB_TYPE = "test_db";
+    private static final String TABLE_TYPE = "test_table";
+    private static final String PROCESS_TYPE = "test_process";
+
+    @Mock
+    private NotificationInterface notificationInterface;
+
+    @Mock
+    private FailedMessagesLogger failedMessagesLogger;
+
+    private Configuration configuration;
+
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        configuration = new BaseConfiguration();
+    }
+
+    @Test
+    public void testEventsAreSentInOneBatch() throws Exception {
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.start();
+        dispatcher.dispatch(messages(process("p1")));
+        dispatcher.dispatch(messages(process("p2")));
+        dispatcher.dispatch(messages(process("p3")));
+        dispatcher.stop(10000);
+
+        List<List> batches = captureBatches(1);
+        assertEquals(batches.get(0).size(), 3);
+        assertEquals(dispatcher.getSentMessages(), 3);
+        assertEquals(dispatcher.getSentBatches(), 1);
+        assertEquals(dispatcher.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testBatchesAreLimitedToBatchSize() throws Exception {
+        configuration.setProperty(PREFIX + HookNotificationDispatcher.BATCH_SIZE, 2);
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.dispatch(messages(process("p1")));
+        dispatcher.dispatch(messages(process("p2")));
+        dispatcher.dispatch(messages(process("p3")));
+        assertEquals(dispatcher.getQueueDepth(), 0);
+
+        dispatcher.start();
+        dispatcher.dispatch(messages(process("p1")));
+        dispatcher.dispatch(messages(process("p2")));
+        dispatcher.dispatch(messages(process("p3")));
+        dispatcher.stop(10000);
+
+        List<List> batches = captureBatches(2);
+        assertEquals(batches.get(0).size(), 2);
+        assertEquals(batches.get(1).size(), 1);
+        //dispatched before the start
+        assertEquals(dispatcher.getDroppedEvents(), 3);
+    }
+
+    @Test
+    public void testRepeatedEntitiesAreSentOnce() throws Exception {
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.send(messages(db("db1"), table("t1", "a"), process("p1")));
+        dispatcher.send(messages(db("db1"), table("t1", "a"), process("p2")));
+        dispatcher.send(messages(db("db1")));
+
+        List<List> batches = captureBatches(2);
+        assertEquals(entityTypes(batches.get(1)), Arrays.asList(PROCESS_TYPE));
+        assertEquals(dispatcher.getDedupedEntities(), 3);
+    }
+
+    @Test
+    public void testChangedEntitiesAreSentAgain() throws Exception {
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.send(messages(db("db1"), table("t1", "a")));
+        dispatcher.send(messages(db("db1"), table("t1", "b")));
+
+        List<List> batches = captureBatches(2);
+        assertEquals(entityTypes(batches.get(1)), Arrays.asList(TABLE_TYPE));
+    }
+
+    @Test
+    public void testEntitiesAreSentAgainAfterDelete() throws Exception {
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.send(messages(table("t1", "a")));
+        List<HookNotification.HookNotificationMessage> delete = new ArrayList<>();
+        delete.add(new HookNotification.EntityDeleteRequest("user", TABLE_TYPE, "qualifiedName", "t1"));
+        delete.add(new HookNotification.EntityUpdateRequest("user", table("t1", "a")));
+        dispatcher.send(delete);
+
+        List<List> batches = captureBatches(2);
+        assertEquals(batches.get(1).size(), 2);
+        assertEquals(dispatcher.getDedupedEntities(), 0);
+    }
+
+    @Test
+    public void testEntitiesAreSentAgainAfterWindow() throws Exception {
+        configuration.setProperty(PREFIX + HookNotificationDispatcher.DEDUP_WINDOW_MS, 0);
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.send(messages(table("t1", "a")));
+        dispatcher.send(messages(table("t1", "a")));
+
+        captureBatches(2);
+        assertEquals(dispatcher.getDedupedEntities(), 0);
+    }
+
+    @Test
+    public void testEntitiesAreSentAgainAfterFailedSend() throws Exception {
+        doThrow(new NotificationException(new Exception())).doNothing().when(notificationInterface)
+                .send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.send(messages(table("t1", "a")));
+        dispatcher.send(messages(table("t1", "a")));
+
+        captureBatches(2);
+        assertEquals(dispatcher.getFailedBatches(), 1);
+        assertEquals(dispatcher.getSentBatches(), 1);
+    }
+
+    @Test(timeOut = 10000)
+    public void testEventsAreDroppedWhenQueueIsFull() throws Exception {
+        configuration.setProperty(PREFIX + HookNotificationDispatcher.QUEUE_SIZE, 1);
+        configuration.setProperty(PREFIX + HookNotificationDispatcher.OVERFLOW_POLICY, "drop");
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                sending.countDown();
+                release.await();
+                return null;
+            }
+        }).when(notificationInterface).send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        HookNotificationDispatcher dispatcher = newDispatcher();
+        dispatcher.start();
+        assertTrue(dispatcher.dispatch(messages(process("p1"))));
+        sending.await();
+        assertTrue(dispatcher.dispatch(messages(process("p2"))));
+        assertFalse(dispatcher.dispatch(messages(process("p3"))));
+        assertEquals(dispatcher.getQueueDepth(), 1);
+        verify(failedMessagesLogger).log(any(String.class));
+
+        release.countDown();
+        dispatcher.stop(10000);
+        assertEquals(dispatcher.getSentMessages(), 2);
+        assertEquals(dispatcher.getDroppedEvents(), 1);
+    }
+
+    @Test
+    public void testSignatureIgnoresIds() {
+        assertEquals(HookNotificationDispatcher.signature(table("t1", "a")),
+                HookNotificationDispatcher.signature(table("t1", "a")));
+        assertFalse(HookNotificationDispatcher.signature(table("t1", "a"))
+                .equals(HookNotificationDispatcher.signature(table("t1", "b"))));
+        verifyZeroInteractions(notificationInterface);
+    }
+
+    private HookNotificationDispatcher newDispatcher() {
+        return new HookNotificationDispatcher("test", configuration, PREFIX, notificationInterface, 1,
+                failedMessagesLogger, DB_TYPE, TABLE_TYPE);
+    }
+
+    private List<List> captureBatches(int count) throws NotificationException {
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(notificationInterface, times(count)).send(eq(NotificationInterface.NotificationType.HOOK),
+                batches.capture());
+        return batches.getAllValues();
+    }
+
+    private List<String> entityTypes(List batch) throws Exception {
+        List<String> typeNames = new ArrayList<>();
+        for (Object message : batch) {
+            for (Referenceable entity : ((HookNotification.EntityCreateRequest) message).getEntities()) {
+                typeNames.add(entity.getTypeName());
+            }
+        }
+        return typeNames;
+    }
+
+    private List<HookNotification.HookNotificationMessage> messages(Referenceable... entities) {
+        return Collections.<HookNotification.HookNotificationMessage>singletonList(
+                new HookNotification.EntityUpdateRequest("user", entities));
+    }
+
+    private Referenceable db(String name) {
+        Referenceable db = new Referenceable(DB_TYPE);
+        db.set("qualifiedName", name);
+        return db;
+    }
+
+    private Referenceable table(String name, String comment) {
+        Referenceable table = new Referenceable(TABLE_TYPE);
+        table.set("qualifiedName", name);
+        table.set("comment", comment);
+        table.set("db", db("db1"));
+        return table;
+    }
+
+    private Referenceable process(String name) {
+        Referenceable process = new Referenceable(PROCESS_TYPE);
+        process.set("qualifiedName", name);
+        process.set("outputs", Arrays.asList(table("t1", "a")));
+        return process;
+    }
+}
@@ -24,13 +24,17 @@ import org.apache.atlas.notification.MessageDeserializer;
 import org.apache.atlas.notification.NotificationConsumer;
 import org.apache.atlas.notification.NotificationException;
 import org.apache.atlas.notification.NotificationInterface;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,8 +45,10 @@ import java.util.concurrent.Future;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -85,6 +91,28 @@ public class KafkaNotificationTest {
         assertTrue(consumers.contains(consumer2));
     }
 
+    @Test
+    public void testRetriesAllowOneRequestInFlight() {
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "5");
+
+        KafkaNotification.setProducerDefaults(properties);
+
+        assertEquals(properties.getProperty(ProducerConfig.RETRIES_CONFIG), "3");
+        assertEquals(properties.getProperty(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION), "1");
+    }
+
+    @Test
+    public void testInFlightRequestsAreKeptWithoutRetries() {
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.RETRIES_CONFIG, "0");
+        properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "5");
+
+        KafkaNotification.setProducerDefaults(properties);
+
+        assertEquals(properties.getProperty(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION), "5");
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void shouldSendMessagesSuccessfully() throws NotificationException,
@@ -159,9 +187,58 @@ public class KafkaNotificationTest {
             assertEquals(e.getFailedMessages().size(), 2);
             assertEquals(e.getFailedMessages().get(0), "This is a test message1");
             assertEquals(e.getFailedMessages().get(1), "This is a test message2");
+            assertEquals(e.getFailedMessageIndexes(), Arrays.asList(0, 1));
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCallBackOnceAllAsyncMessagesAreSent() throws Exception {
+        KafkaNotification kafkaNotification = new KafkaNotification(mock(Properties.class));
+
+        Producer producer = mock(Producer.class);
+        String topicName = kafkaNotification.getTopicName(NotificationInterface.NotificationType.HOOK);
+        NotificationInterface.SendCallback sendCallback = mock(NotificationInterface.SendCallback.class);
+        kafkaNotification.sendInternalToProducerAsync(producer, NotificationInterface.NotificationType.HOOK,
+                new String[]{"message1", "message2"}, sendCallback);
+
+        ArgumentCaptor<Callback> callbacks = ArgumentCaptor.forClass(Callback.class);
+        verify(producer).send(eq(new ProducerRecord(topicName, "message1")), callbacks.capture());
+        verify(producer).send(eq(new ProducerRecord(topicName, "message2")), callbacks.capture());
+        verify(producer, never()).send(any(ProducerRecord.class));
+
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(topicName, 0), 0, 0);
+        callbacks.getAllValues().get(0).onCompletion(metadata, null);
+        verifyZeroInteractions(sendCallback);
+        callbacks.getAllValues().get(1).onCompletion(metadata, null);
+        verify(sendCallback).onCompletion(null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCollectFailedAsyncMessages() throws Exception {
+        KafkaNotification kafkaNotification = new KafkaNotification(mock(Properties.class));
+
+        Producer producer = mock(Producer.class);
+        String topicName = kafkaNotification.getTopicName(NotificationInterface.NotificationType.HOOK);
+        when(producer.send(eq(new ProducerRecord(topicName, "message2")), any(Callback.class)))
+                .thenThrow(new RuntimeException("Simulating exception"));
+        NotificationInterface.SendCallback sendCallback = mock(NotificationInterface.SendCallback.class);
+        kafkaNotification.sendInternalToProducerAsync(producer, NotificationInterface.NotificationType.HOOK,
+                new String[]{"message1", "message2", "message3"}, sendCallback);
+
+        ArgumentCaptor<Callback> callbacks = ArgumentCaptor.forClass(Callback.class);
+        verify(producer, times(3)).send(any(ProducerRecord.class), callbacks.capture());
+        callbacks.getAllValues().get(0).onCompletion(null, new RuntimeException("Simulating exception"));
+        callbacks.getAllValues().get(2).onCompletion(new RecordMetadata(new TopicPartition(topicName, 0), 0, 0),
+                null);
+
+        ArgumentCaptor<NotificationException> failure = ArgumentCaptor.forClass(NotificationException.class);
+        verify(sendCallback).onCompletion(failure.capture());
+        //in the order they failed
+        assertEquals(failure.getValue().getFailedMessages(), Arrays.asList("message2", "message1"));
+    }
+
     class TestKafkaNotification extends KafkaNotification {
 
         private final ConsumerConnector consumerConnector;
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.notification.hook;
+
+import com.google.gson.JsonParser;
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.IncompatibleVersionException;
+import org.apache.atlas.notification.MessageVersion;
+import org.apache.atlas.notification.VersionedMessage;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.atlas.typesystem.TypesDef;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.apache.atlas.typesystem.persistence.Id;
+import org.testng.annotations.Test;
+
+import javax.xml.bind.DatatypeConverter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * HookMessageBinaryCodec tests.
+ */
+public class HookMessageBinaryCodecTest {
+    @Test
+    public void testEntityMessagesRoundTrip() throws Exception {
+        Referenceable table = table("default.t1@cl1", 3);
+
+        HookNotification.EntityUpdateRequest update = new HookNotification.EntityUpdateRequest("user1", table);
+        HookNotification.EntityUpdateRequest decodedUpdate = (HookNotification.EntityUpdateRequest) roundTrip(update);
+        assertEquals(decodedUpdate.getType(), HookNotification.HookNotificationType.ENTITY_FULL_UPDATE);
+        assertEquals(decodedUpdate.getUser(), "user1");
+        assertEntityEquals(decodedUpdate.getEntities().get(0), table);
+
+        HookNotification.EntityCreateRequest create = new HookNotification.EntityCreateRequest("user1", table, table);
+        HookNotification.EntityCreateRequest decodedCreate = (HookNotification.EntityCreateRequest) roundTrip(create);
+        assertEquals(decodedCreate.getType(), HookNotification.HookNotificationType.ENTITY_CREATE);
+        assertEquals(decodedCreate.getEntities().size(), 2);
+        assertEntityEquals(decodedCreate.getEntities().get(1), table);
+    }
+
+    @Test
+    public void testPartialUpdateAndDeleteRoundTrip() throws Exception {
+        Referenceable table = table("default.t1@cl1", 1);
+        HookNotification.EntityPartialUpdateRequest partialUpdate =
+                new HookNotification.EntityPartialUpdateRequest("user1", "hive_table", "qualifiedName",
+                        "default.t1@cl1", table);
+        HookNotification.EntityPartialUpdateRequest decodedPartialUpdate =
+                (HookNotification.EntityPartialUpdateRequest) roundTrip(partialUpdate);
+        assertEquals(decodedPartialUpdate.getTypeName(), "hive_table");
+        assertEquals(decodedPartialUpdate.getAttribute(), "qualifiedName");
+        assertEquals(decodedPartialUpdate.getAttributeValue(), "default.t1@cl1");
+        assertEntityEquals(decodedPartialUpdate.getEntity(), table);
+
+        HookNotification.EntityDeleteRequest delete =
+                new HookNotification.EntityDeleteRequest("user1", "hive_table", "qualifiedName", "default.t1@cl1");
+        HookNotification.EntityDeleteRequest decodedDelete = (HookNotification.EntityDeleteRequest) roundTrip(delete);
+        assertEquals(decodedDelete.getType(), HookNotification.HookNotificationType.ENTITY_DELETE);
+        assertEquals(decodedDelete.getTypeName(), "hive_table");
+        assertEquals(decodedDelete.getAttribute(), "qualifiedName");
+        assertEquals(decodedDelete.getAttributeValue(), "default.t1@cl1");
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJson() throws Exception {
+        HookNotification.EntityUpdateRequest message =
+                new HookNotification.EntityUpdateRequest("user1", table("default.t1@cl1", 50));
+        String json = AbstractNotification.getMessageJson(message);
+        String binary = HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION, message);
+
+        assertFalse(HookMessageBinaryCodec.isBinary(json));
+        assertTrue(HookMessageBinaryCodec.isBinary(binary));
+        assertTrue(binary.length() * 2 < json.length(), binary.length() + " vs " + json.length());
+    }
+
+    @Test
+    public void testUnsupportedMessagesAreLeftToJson() throws Exception {
+        HookNotification.TypeRequest typeRequest = new HookNotification.TypeRequest(
+                HookNotification.HookNotificationType.TYPE_CREATE, new TypesDef(), "user1");
+        assertNull(HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION, typeRequest));
+
+        Referenceable entity = new Referenceable("test_type");
+        entity.set("unknown", new StringBuilder("value"));
+        assertNull(HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION,
+                new HookNotification.EntityCreateRequest("user1", entity)));
+    }
+
+    @Test
+    public void testDeserializerAcceptsBothEncodings() throws Exception {
+        HookMessageDeserializer deserializer = new HookMessageDeserializer();
+        Referenceable table = table("default.t1@cl1", 1);
+        HookNotification.EntityUpdateRequest message = new HookNotification.EntityUpdateRequest("user1", table);
+
+        HookNotification.HookNotificationMessage fromJson =
+                deserializer.deserialize(AbstractNotification.getMessageJson(message));
+        HookNotification.HookNotificationMessage fromBinary = deserializer.deserialize(
+                HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION, message));
+
+        assertEquals(fromBinary.getType(), fromJson.getType());
+        assertEquals(fromBinary.getUser(), fromJson.getUser());
+        assertEntityEquals(((HookNotification.EntityUpdateRequest) fromBinary).getEntities().get(0),
+                ((HookNotification.EntityUpdateRequest) fromJson).getEntities().get(0));
+    }
+
+    @Test
+    public void testBinaryIsRecognizedByItsMagicByte() throws Exception {
+        HookNotification.EntityDeleteRequest message =
+                new HookNotification.EntityDeleteRequest("user1", "hive_table", "qualifiedName", "default.t1@cl1");
+        String binary = HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION, message);
+        assertEquals(DatatypeConverter.parseBase64Binary(binary)[0], (byte) 0xA7);
+        assertTrue(HookMessageBinaryCodec.isBinary(binary));
+
+        //base64 text that doesn't start with the magic byte, and text that isn't base64, is not binary
+        assertFalse(HookMessageBinaryCodec.isBinary(DatatypeConverter.printBase64Binary("message".getBytes("UTF-8"))));
+        assertFalse(HookMessageBinaryCodec.isBinary(" " + binary));
+        assertFalse(HookMessageBinaryCodec.isBinary("p"));
+    }
+
+    @Test
+    public void testBinaryIsNewerThanJson() throws Exception {
+        assertTrue(HookMessageBinaryCodec.VERSION.compareTo(AbstractNotification.CURRENT_MESSAGE_VERSION) > 0);
+    }
+
+    @Test(expectedExceptions = IncompatibleVersionException.class)
+    public void testNewerVersionIsRejected() throws Exception {
+        HookNotification.EntityDeleteRequest message =
+                new HookNotification.EntityDeleteRequest("user1", "hive_table", "qualifiedName", "default.t1@cl1");
+        new HookMessageDeserializer().deserialize(HookMessageBinaryCodec.encode(new MessageVersion("2.0.0"), message));
+    }
+
+    private HookNotification.HookNotificationMessage roundTrip(HookNotification.HookNotificationMessage message) {
+        String encoded = HookMessageBinaryCodec.encode(HookMessageBinaryCodec.VERSION, message);
+        VersionedMessage<HookNotification.HookNotificationMessage> decoded = HookMessageBinaryCodec.decode(encoded);
+        assertEquals(decoded.getVersion(), HookMessageBinaryCodec.VERSION);
+        return decoded.getMessage();
+    }
+
+    private void assertEntityEquals(Referenceable actual, Referenceable expected) throws Exception {
+        //structs don't implement equals, so compare the json trees. The json encoding of messages leaves out null
+        //values, so compare with the entity as the json encoding delivers it
+        String json = AbstractNotification.getMessageJson(new HookNotification.EntityCreateRequest("user1", expected));
+        Referenceable expectedViaJson = ((HookNotification.EntityCreateRequest) new HookMessageDeserializer()
+                .deserialize(json)).getEntities().get(0);
+        JsonParser parser = new JsonParser();
+        assertEquals(parser.parse(InstanceSerialization.toJson(actual, true)),
+                parser.parse(InstanceSerialization.toJson(expectedViaJson, true)));
+    }
+
+    private Referenceable table(String qualifiedName, int columnCount) {
+        Map<String, IStruct> traits = new HashMap<>();
+        traits.put("PII", new Struct("PII", Collections.<String, Object>singletonMap("level", 2)));
+        Referenceable table = new Referenceable(new Id("-1234", 0, "hive_table"), "hive_table",
+                new HashMap<String, Object>(), Arrays.asList("PII"), traits);
+
+        Referenceable db = new Referenceable("hive_db");
+        db.set("qualifiedName", "default@cl1");
+        db.set("name", "default");
+
+        List<Referenceable> columns = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            Referenceable column = new Referenceable("hive_column");
+            column.set("qualifiedName", qualifiedName + ".col" + i);
+            column.set("name", "col" + i);
+            column.set("type", "string");
+            column.set("position", i);
+            column.set("comment", null);
+            column.set("owner", "hive");
+            column.set("table", table.getId());
+            columns.add(column);
+        }
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("transient_lastDdlTime", "1476700000");
+        table.set("qualifiedName", qualifiedName);
+        table.set("name", "t1");
+        table.set("db", db);
+        table.set("columns", columns);
+        table.set("parameters", parameters);
+        table.set("createTime", new Date(1476700000000L));
+        table.set("retention", 0L);
+        table.set("temporary", false);
+        table.set("sizeInBytes", new BigDecimal("12345.67"));
+        table.set("sd", new Struct("hive_serde", Collections.<String, Object>singletonMap("name", "serde")));
+        return table;
+    }
+}
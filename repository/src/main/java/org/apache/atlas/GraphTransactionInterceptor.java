@@ -20,6 +20,7 @@ package org.apache.atlas;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.atlas.repository.graph.GraphProvider;
+import org.apache.atlas.repository.graph.VertexLookupCache;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.GremlinVersion;
 import org.slf4j.Logger;
@@ -27,33 +28,151 @@ import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class GraphTransactionInterceptor implements MethodInterceptor {
     private static final Logger LOG = LoggerFactory.getLogger(GraphTransactionInterceptor.class);
     private AtlasGraph<?,?> graph;
 
+    /**
+     * Number of @GraphTransaction methods currently executing on this thread.  Nested
+     * calls join the transaction of the outermost call, which does the commit/rollback.
+     */
+    private static final ThreadLocal<Integer> NESTING_LEVEL = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
+
+    /**
+     * Actions to run once the outermost @GraphTransaction method of this thread has committed.
+     */
+    private static final ThreadLocal<List<PostCommitAction>> POST_COMMIT_ACTIONS = new ThreadLocal<>();
+
+    private static final AtomicLong FAILED_POST_COMMIT_ACTIONS = new AtomicLong();
+
     @Inject
     GraphProvider<AtlasGraph> graphProvider;
 
+    /**
+     * Work that must only happen once the changes it is about are committed, like notifying listeners.
+     */
+    public interface PostCommitAction {
+        void run() throws AtlasException;
+    }
+
+    /**
+     * Runs the given action once the outermost graph transaction of the current thread has committed, with the
+     * request context that is current now. Actions of a transaction that is rolled back are dropped. Outside of
+     * a graph transaction, the action runs right away.
+     *
+     * An action that fails after the commit is logged and counted, but does not fail the transactional call: its
+     * changes are committed, and callers that retry on failure would apply them again.
+     *
+     * @throws AtlasException if the action runs right away and fails
+     */
+    public static void runAfterCommit(PostCommitAction action) throws AtlasException {
+        if (NESTING_LEVEL.get() == 0) {
+            action.run();
+            return;
+        }
+
+        List<PostCommitAction> actions = POST_COMMIT_ACTIONS.get();
+        if (actions == null) {
+            actions = new ArrayList<>();
+            POST_COMMIT_ACTIONS.set(actions);
+        }
+        actions.add(new ContextPostCommitAction(action, RequestContext.get()));
+    }
+
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
         if (graph == null) {
             graph = (AtlasGraph<?,?>)graphProvider.get();
         }
 
+        int nestingLevel = NESTING_LEVEL.get();
+        if (nestingLevel > 0) {
+            NESTING_LEVEL.set(nestingLevel + 1);
+            try {
+                return invocation.proceed();
+            } finally {
+                NESTING_LEVEL.set(nestingLevel);
+            }
+        }
+
+        NESTING_LEVEL.set(1);
+        VertexLookupCache.begin();
+        Object response;
+        List<PostCommitAction> postCommitActions;
         try {
             //force rollback to ensure this thread has a consistent view
             //of the graph
             if(graph.getSupportedGremlinVersion() == GremlinVersion.THREE) {
                 graph.rollback();
             }
-            Object response = invocation.proceed();
+            response = invocation.proceed();
             graph.commit();
             LOG.debug("graph commit");
-            return response;
         } catch (Throwable t) {
             graph.rollback();
             LOG.error("graph rollback due to exception ", t);
             throw t;
+        } finally {
+            VertexLookupCache.end();
+            NESTING_LEVEL.remove();
+            postCommitActions = POST_COMMIT_ACTIONS.get();
+            POST_COMMIT_ACTIONS.remove();
+        }
+
+        if (postCommitActions != null) {
+            runPostCommitActions(postCommitActions);
+        }
+        return response;
+    }
+
+    /**
+     * @return the number of actions that failed after their graph transaction had committed
+     */
+    public static long getFailedPostCommitActions() {
+        return FAILED_POST_COMMIT_ACTIONS.get();
+    }
+
+    /**
+     * Runs all the actions, even if some fail; failures are logged and counted.
+     */
+    private void runPostCommitActions(List<PostCommitAction> actions) {
+        for (PostCommitAction action : actions) {
+            try {
+                action.run();
+            } catch (AtlasException | RuntimeException e) {
+                FAILED_POST_COMMIT_ACTIONS.incrementAndGet();
+                LOG.error("Failed to run action after graph commit, the changes remain committed", e);
+            }
+        }
+    }
+
+    private static final class ContextPostCommitAction implements PostCommitAction {
+        private final PostCommitAction action;
+        private final RequestContext requestContext;
+
+        ContextPostCommitAction(PostCommitAction action, RequestContext requestContext) {
+            this.action = action;
+            this.requestContext = requestContext;
+        }
+
+        @Override
+        public void run() throws AtlasException {
+            RequestContext current = RequestContext.get();
+            RequestContext.setCurrentContext(requestContext);
+            try {
+                action.run();
+            } finally {
+                RequestContext.setCurrentContext(current);
+            }
         }
     }
 }
@@ -31,6 +31,7 @@ import org.apache.atlas.repository.audit.EntityAuditListener;
 import org.apache.atlas.repository.audit.EntityAuditRepository;
 import org.apache.atlas.repository.audit.HBaseBasedAuditRepository;
 import org.apache.atlas.repository.graph.AtlasGraphProvider;
+import org.apache.atlas.repository.graph.DeferredFullTextIndexer;
 import org.apache.atlas.repository.graph.DeleteHandler;
 import org.apache.atlas.repository.graph.GraphBackedMetadataRepository;
 import org.apache.atlas.repository.graph.GraphBackedSearchIndexer;
@@ -109,6 +110,11 @@ public class RepositoryMetadataModule extends com.google.inject.AbstractModule {
                 Multibinder.newSetBinder(binder(), EntityChangeListener.class);
         entityChangeListenerBinder.addBinding().to(EntityAuditListener.class);
 
+        //DeferredFullTextIndexer is both an EntityChangeListener and a Service, backed by the same instance
+        bind(DeferredFullTextIndexer.class).asEagerSingleton();
+        entityChangeListenerBinder.addBinding().to(DeferredFullTextIndexer.class);
+        Multibinder.newSetBinder(binder(), Service.class).addBinding().to(DeferredFullTextIndexer.class);
+
         MethodInterceptor interceptor = new GraphTransactionInterceptor();
         requestInjection(interceptor);
         bindInterceptor(Matchers.any(), Matchers.annotatedWith(GraphTransaction.class), interceptor);
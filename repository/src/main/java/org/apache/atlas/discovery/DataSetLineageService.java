@@ -25,24 +25,27 @@ import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.GraphTransaction;
-import org.apache.atlas.discovery.graph.DefaultGraphPersistenceStrategy;
 import org.apache.atlas.discovery.graph.GraphBackedDiscoveryService;
+import org.apache.atlas.discovery.graph.LineageGraphWalker;
 import org.apache.atlas.query.GremlinQueryResult;
-import org.apache.atlas.query.InputLineageClosureQuery;
-import org.apache.atlas.query.OutputLineageClosureQuery;
-import org.apache.atlas.repository.MetadataRepository;
-import org.apache.atlas.repository.graph.GraphProvider;
-import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.typesystem.Struct;
 import org.apache.atlas.typesystem.exception.EntityNotFoundException;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
 import org.apache.atlas.typesystem.persistence.ReferenceableInstance;
+import org.apache.atlas.typesystem.types.ClassType;
+import org.apache.atlas.typesystem.types.TypeSystem;
 import org.apache.atlas.utils.ParamChecker;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import scala.Option;
-import scala.Some;
-import scala.collection.immutable.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Hive implementation of Lineage service interface.
@@ -52,13 +55,21 @@ public class DataSetLineageService implements LineageService {
 
     private static final Logger LOG = LoggerFactory.getLogger(DataSetLineageService.class);
 
-    private static final Option<List<String>> SELECT_ATTRIBUTES =
-            Some.<List<String>>apply(List.<String>fromArray(new String[]{AtlasClient.NAME,
-                    AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME}));
     public static final String SELECT_INSTANCE_GUID = "__guid";
 
     public static final String DATASET_SCHEMA_QUERY_PREFIX = "atlas.lineage.schema.query.";
 
+    /** maximum number of processes walked from a dataset for its lineage, unlimited if not positive */
+    public static final String LINEAGE_MAX_DEPTH = "atlas.lineage.max.depth";
+
+    private static final String LINEAGE_GRAPH_TYPE_NAME = "__LineageGraph";
+    private static final String LINEAGE_VERTEX_TYPE_NAME = "__LineageVertex";
+    private static final String VERTICES_ATTRIBUTE_NAME = "vertices";
+    private static final String EDGES_ATTRIBUTE_NAME = "edges";
+    private static final String VERTEX_ID_ATTRIBUTE_NAME = "vertexId";
+    private static final String VERTEX_ID_TYPE_ATTRIBUTE_NAME = "typeName";
+    private static final String VERTEX_ID_STATE_ATTRIBUTE_NAME = "state";
+
     private static final String HIVE_PROCESS_TYPE_NAME = "Process";
     private static final String HIVE_PROCESS_INPUT_ATTRIBUTE_NAME = "inputs";
     private static final String HIVE_PROCESS_OUTPUT_ATTRIBUTE_NAME = "outputs";
@@ -78,15 +89,10 @@ public class DataSetLineageService implements LineageService {
     }
 
 
-    private final AtlasGraph graph;
-    private final DefaultGraphPersistenceStrategy graphPersistenceStrategy;
     private final GraphBackedDiscoveryService discoveryService;
 
     @Inject
-    DataSetLineageService(GraphProvider<AtlasGraph> graphProvider, MetadataRepository metadataRepository,
-                          GraphBackedDiscoveryService discoveryService) throws DiscoveryException {
-        this.graph = graphProvider.get();
-        this.graphPersistenceStrategy = new DefaultGraphPersistenceStrategy(metadataRepository);
+    DataSetLineageService(GraphBackedDiscoveryService discoveryService) throws DiscoveryException {
         this.discoveryService = discoveryService;
     }
 
@@ -129,13 +135,8 @@ public class DataSetLineageService implements LineageService {
         return getInputsGraphForId(guid);
     }
 
-    private String getInputsGraphForId(String guid) {
-        InputLineageClosureQuery
-                inputsQuery = new InputLineageClosureQuery(AtlasClient.DATA_SET_SUPER_TYPE, SELECT_INSTANCE_GUID,
-                guid, HIVE_PROCESS_TYPE_NAME,
-                HIVE_PROCESS_INPUT_ATTRIBUTE_NAME, HIVE_PROCESS_OUTPUT_ATTRIBUTE_NAME, Option.empty(),
-                SELECT_ATTRIBUTES, true, graphPersistenceStrategy, graph);
-        return inputsQuery.graph().toInstanceJson();
+    private String getInputsGraphForId(String guid) throws AtlasException {
+        return getLineageGraph(guid, HIVE_PROCESS_OUTPUT_ATTRIBUTE_NAME, HIVE_PROCESS_INPUT_ATTRIBUTE_NAME);
     }
 
     @Override
@@ -147,12 +148,29 @@ public class DataSetLineageService implements LineageService {
         return getOutputsGraphForId(guid);
     }
 
-    private String getOutputsGraphForId(String guid) {
-        OutputLineageClosureQuery outputsQuery =
-                new OutputLineageClosureQuery(AtlasClient.DATA_SET_SUPER_TYPE, SELECT_INSTANCE_GUID, guid, HIVE_PROCESS_TYPE_NAME,
-                        HIVE_PROCESS_INPUT_ATTRIBUTE_NAME, HIVE_PROCESS_OUTPUT_ATTRIBUTE_NAME, Option.empty(),
-                        SELECT_ATTRIBUTES, true, graphPersistenceStrategy, graph);
-        return outputsQuery.graph().toInstanceJson();
+    private String getOutputsGraphForId(String guid) throws AtlasException {
+        return getLineageGraph(guid, HIVE_PROCESS_INPUT_ATTRIBUTE_NAME, HIVE_PROCESS_OUTPUT_ATTRIBUTE_NAME);
+    }
+
+    /**
+     * Walks the lineage of the dataset from the processes referring to it through toDatasetAttribute, to the
+     * datasets they refer to through fromDatasetAttribute.
+     */
+    private String getLineageGraph(String guid, String toDatasetAttribute, String fromDatasetAttribute)
+        throws AtlasException {
+        TypeSystem typeSystem = TypeSystem.getInstance();
+        ClassType processType = typeSystem.getDataType(ClassType.class, HIVE_PROCESS_TYPE_NAME);
+        ClassType datasetType = typeSystem.getDataType(ClassType.class, AtlasClient.DATA_SET_SUPER_TYPE);
+
+        LineageGraphWalker walker = new LineageGraphWalker(AtlasClient.DATA_SET_SUPER_TYPE,
+                GraphHelper.EDGE_LABEL_PREFIX + GraphHelper.getQualifiedFieldName(processType, toDatasetAttribute),
+                GraphHelper.EDGE_LABEL_PREFIX + GraphHelper.getQualifiedFieldName(processType, fromDatasetAttribute),
+                propertiesConf.getInt(LINEAGE_MAX_DEPTH, 0));
+        LineageGraphBuilder builder = new LineageGraphBuilder(
+                GraphHelper.getQualifiedFieldName(datasetType, AtlasClient.NAME),
+                GraphHelper.getQualifiedFieldName(datasetType, AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME));
+        walker.walk(GraphHelper.getInstance().getVertexForGUID(guid), builder);
+        return InstanceSerialization.toJson(builder.build(), false);
     }
 
     /**
@@ -217,4 +235,62 @@ public class DataSetLineageService implements LineageService {
         return referenceable.getTypeName();
     }
 
+    /**
+     * Collects the walked lineage in the result struct: the datasets by guid, and the guids of the vertices each
+     * dataset or process has an edge to.
+     */
+    private static final class LineageGraphBuilder implements LineageGraphWalker.Visitor {
+        private final String namePropertyKey;
+        private final String qualifiedNamePropertyKey;
+        private final Map<String, Struct> vertices = new LinkedHashMap<>();
+        private final Map<String, List<String>> edges = new LinkedHashMap<>();
+
+        LineageGraphBuilder(String namePropertyKey, String qualifiedNamePropertyKey) {
+            this.namePropertyKey = namePropertyKey;
+            this.qualifiedNamePropertyKey = qualifiedNamePropertyKey;
+        }
+
+        @Override
+        public void visitVertex(AtlasVertex<?, ?> vertex) {
+            String guid = GraphHelper.getIdFromVertex(vertex);
+            Map<String, Object> id = new HashMap<>();
+            id.put(TypeSystem.ID_STRUCT_ID_ATTRNAME, guid);
+            id.put(VERTEX_ID_STATE_ATTRIBUTE_NAME, GraphHelper.getStateAsString(vertex));
+            id.put(VERTEX_ID_TYPE_ATTRIBUTE_NAME, GraphHelper.getTypeName(vertex));
+
+            Map<String, Object> values = new HashMap<>();
+            values.put(VERTEX_ID_ATTRIBUTE_NAME, new Struct(TypeSystem.ID_STRUCT_TYP_NAME, id));
+            putIfNotNull(values, AtlasClient.NAME, vertex.getProperty(namePropertyKey, String.class));
+            putIfNotNull(values, AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME,
+                    vertex.getProperty(qualifiedNamePropertyKey, String.class));
+            vertices.put(guid, new Struct(LINEAGE_VERTEX_TYPE_NAME, values));
+        }
+
+        @Override
+        public void visitEdge(AtlasVertex<?, ?> from, AtlasVertex<?, ?> to) {
+            String fromGuid = GraphHelper.getIdFromVertex(from);
+            List<String> toGuids = edges.get(fromGuid);
+            if (toGuids == null) {
+                toGuids = new ArrayList<>();
+                edges.put(fromGuid, toGuids);
+            }
+            String toGuid = GraphHelper.getIdFromVertex(to);
+            if (!toGuids.contains(toGuid)) {
+                toGuids.add(toGuid);
+            }
+        }
+
+        private void putIfNotNull(Map<String, Object> values, String name, Object value) {
+            if (value != null) {
+                values.put(name, value);
+            }
+        }
+
+        Struct build() {
+            Map<String, Object> values = new HashMap<>();
+            values.put(VERTICES_ATTRIBUTE_NAME, vertices);
+            values.put(EDGES_ATTRIBUTE_NAME, edges);
+            return new Struct(LINEAGE_GRAPH_TYPE_NAME, values);
+        }
+    }
 }
@@ -28,7 +28,9 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.script.ScriptException;
 
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.GraphTransaction;
 import org.apache.atlas.discovery.DiscoveryException;
 import org.apache.atlas.discovery.DiscoveryService;
@@ -37,6 +39,7 @@ import org.apache.atlas.query.GremlinEvaluator;
 import org.apache.atlas.query.GremlinQuery;
 import org.apache.atlas.query.GremlinQueryResult;
 import org.apache.atlas.query.GremlinTranslator;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.query.QueryParser;
 import org.apache.atlas.query.QueryProcessor;
 import org.apache.atlas.repository.Constants;
@@ -46,6 +49,7 @@ import org.apache.atlas.repository.graph.GraphHelper;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasIndexQuery;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.typesystem.types.DataTypes;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
@@ -68,11 +72,22 @@ public class GraphBackedDiscoveryService implements DiscoveryService {
 
     public final static String SCORE = "score";
 
+    /** maximum number of full text search results, also used by the REST API to cap the requested limit */
+    public static final String CONFIG_MAX_LIMIT = "atlas.search.maxlimit";
+    public static final int DEFAULT_MAX_LIMIT = 10000;
+
+    private final int maxLimit;
+
     @Inject
     GraphBackedDiscoveryService(AtlasGraphProvider graphProvider, MetadataRepository metadataRepository)
     throws DiscoveryException {
         this.graph = (AtlasGraph<?,?>)graphProvider.get();
         this.graphPersistenceStrategy = new DefaultGraphPersistenceStrategy(metadataRepository);
+        try {
+            this.maxLimit = ApplicationProperties.get().getInt(CONFIG_MAX_LIMIT, DEFAULT_MAX_LIMIT);
+        } catch (AtlasException e) {
+            throw new DiscoveryException(e);
+        }
     }
 
     //Refer http://s3.thinkaurelius.com/docs/titan/0.5.4/index-backends.html for indexed query
@@ -81,10 +96,23 @@ public class GraphBackedDiscoveryService implements DiscoveryService {
     @Override
     @GraphTransaction
     public String searchByFullText(String query) throws DiscoveryException {
+        return searchByFullText(query, QueryParams.all());
+    }
+
+    @Override
+    @GraphTransaction
+    public String searchByFullText(String query, QueryParams queryParams) throws DiscoveryException {
         String graphQuery = String.format("v.%s:(%s)", Constants.ENTITY_TEXT_PROPERTY_KEY, query);
-        LOG.debug("Full text query: {}", graphQuery);
-        Iterator<AtlasIndexQuery.Result<?, ?>> results =
-                graph.indexQuery(Constants.FULLTEXT_INDEX, graphQuery).vertices();
+        LOG.debug("Full text query: {}, {}", graphQuery, queryParams);
+        AtlasIndexQuery indexQuery = graph.indexQuery(Constants.FULLTEXT_INDEX, graphQuery);
+        Iterator<AtlasIndexQuery.Result<?, ?>> results;
+        if (queryParams.hasLimit()) {
+            // the page is selected by the index backend
+            results = indexQuery.vertices(queryParams.offset(), queryParams.limit());
+        } else {
+            // without a limit, the search still stops at the configured maximum rather than reading the whole index
+            results = indexQuery.vertices(queryParams.offset(), maxLimit);
+        }
         JSONArray response = new JSONArray();
 
         while (results.hasNext()) {
@@ -118,18 +146,28 @@ public class GraphBackedDiscoveryService implements DiscoveryService {
     @Override
     @GraphTransaction
     public String searchByDSL(String dslQuery) throws DiscoveryException {
-        LOG.info("Executing dsl query={}", dslQuery);
-        GremlinQueryResult queryResult = evaluate(dslQuery);
+        return searchByDSL(dslQuery, QueryParams.all());
+    }
+
+    @Override
+    @GraphTransaction
+    public String searchByDSL(String dslQuery, QueryParams queryParams) throws DiscoveryException {
+        LOG.info("Executing dsl query={}, {}", dslQuery, queryParams);
+        GremlinQueryResult queryResult = evaluate(dslQuery, queryParams);
         return queryResult.toJson();
     }
 
     public GremlinQueryResult evaluate(String dslQuery) throws DiscoveryException {
+        return evaluate(dslQuery, QueryParams.all());
+    }
+
+    public GremlinQueryResult evaluate(String dslQuery, QueryParams queryParams) throws DiscoveryException {
         LOG.info("Executing dsl query={}", dslQuery);
         try {
             Either<Parsers.NoSuccess, Expressions.Expression> either = QueryParser.apply(dslQuery);
             if (either.isRight()) {
                 Expressions.Expression expression = either.right().get();
-                return evaluate(expression);
+                return evaluate(applyPage(expression, queryParams));
             } else {
                 throw new DiscoveryException("Invalid expression : " + dslQuery + ". " + either.left());
             }
@@ -138,12 +176,32 @@ public class GraphBackedDiscoveryService implements DiscoveryService {
         }
     }
 
+    /**
+     * Add the page to the query as a limit clause, which the gremlin translation turns into a range of the
+     * results. Queries with their own limit clause are left as they are.
+     */
+    private Expressions.Expression applyPage(Expressions.Expression expression, QueryParams queryParams) {
+        if (!queryParams.isPaged() || expression instanceof Expressions.LimitExpression) {
+            return expression;
+        }
+        if (expression instanceof Expressions.PathExpression) {
+            Expressions.Expression child = ((Expressions.PathExpression) expression).child();
+            return child instanceof Expressions.LimitExpression ? expression :
+                    new Expressions.PathExpression(applyPage(child, queryParams));
+        }
+
+        // the range end is offset + limit
+        int limit = queryParams.hasLimit() ? queryParams.limit() : Integer.MAX_VALUE - queryParams.offset();
+        return expression.limit(Expressions.literal(DataTypes.INT_TYPE, limit),
+                Expressions.literal(DataTypes.INT_TYPE, queryParams.offset()));
+    }
+
     public GremlinQueryResult evaluate(Expressions.Expression expression) {
         Expressions.Expression validatedExpression = QueryProcessor.validate(expression);
         GremlinQuery gremlinQuery = new GremlinTranslator(validatedExpression, graphPersistenceStrategy).translate();
         LOG.debug("Query = {}", validatedExpression);
         LOG.debug("Expression Tree = {}", validatedExpression.treeString());
-        LOG.debug("Gremlin Query = {}", gremlinQuery.queryStr());
+        LOG.debug("Gremlin Query = {}, bindings = {}", gremlinQuery.queryStr(), gremlinQuery.queryBindings());
         return new GremlinEvaluator(gremlinQuery, graphPersistenceStrategy, graph).evaluate();
     }
 
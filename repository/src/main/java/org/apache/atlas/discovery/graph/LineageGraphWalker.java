@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.discovery.graph;
+
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Breadth first walk of the lineage of a dataset vertex over the process edges.
+ *
+ * For the inputs of a dataset, each step follows the process output edges into the dataset back to the process,
+ * and then the process input edges to the input datasets; for outputs, the other way round. Datasets and processes
+ * are visited once, so cycles in the lineage terminate, and the walk stops after maxDepth steps if maxDepth is
+ * positive. Processes that don't lead to any dataset are left out. Vertices and edges are passed to the
+ * {@link Visitor} as they are discovered.
+ */
+public class LineageGraphWalker {
+    private static final Logger LOG = LoggerFactory.getLogger(LineageGraphWalker.class);
+
+    /**
+     * Receives the lineage as it is walked.
+     */
+    public interface Visitor {
+        /**
+         * Called once for the start vertex, before its first edge, and once for every dataset reached from it.
+         * The start vertex isn't visited if it has no lineage.
+         */
+        void visitVertex(AtlasVertex<?, ?> vertex) throws AtlasException;
+
+        /**
+         * Called for every edge from a dataset to a process and from a process to a dataset. The same pair of
+         * vertices may be passed more than once.
+         */
+        void visitEdge(AtlasVertex<?, ?> from, AtlasVertex<?, ?> to) throws AtlasException;
+    }
+
+    private final String datasetTypeName;
+    private final String toProcessEdgeLabel;
+    private final String fromProcessEdgeLabel;
+    private final int maxDepth;
+
+    /**
+     * @param datasetTypeName type of the vertices to walk through and visit
+     * @param toProcessEdgeLabel label of the process edges pointing at the current dataset
+     * @param fromProcessEdgeLabel label of the process edges pointing at the next datasets
+     * @param maxDepth maximum number of process steps to walk, unlimited if not positive
+     */
+    public LineageGraphWalker(String datasetTypeName, String toProcessEdgeLabel, String fromProcessEdgeLabel,
+                              int maxDepth) {
+        this.datasetTypeName = datasetTypeName;
+        this.toProcessEdgeLabel = toProcessEdgeLabel;
+        this.fromProcessEdgeLabel = fromProcessEdgeLabel;
+        this.maxDepth = maxDepth;
+    }
+
+    public void walk(AtlasVertex<?, ?> start, Visitor visitor) throws AtlasException {
+        Set<Object> visitedDatasets = new HashSet<>();
+        //whether each visited process leads to any dataset, processes that don't are left out of the lineage
+        Map<Object, Boolean> visitedProcesses = new HashMap<>();
+        List<AtlasVertex<?, ?>> frontier = new ArrayList<>();
+        visitedDatasets.add(start.getId());
+        frontier.add(start);
+        boolean startVisited = false;
+
+        int depth = 0;
+        while (!frontier.isEmpty() && (maxDepth <= 0 || depth < maxDepth)) {
+            List<AtlasVertex<?, ?>> next = new ArrayList<>();
+            for (AtlasVertex<?, ?> dataset : frontier) {
+                for (AtlasEdge<?, ?> processEdge : dataset.getEdges(AtlasEdgeDirection.IN, toProcessEdgeLabel)) {
+                    AtlasVertex<?, ?> process = processEdge.getOutVertex();
+                    Boolean leadsToDatasets = visitedProcesses.get(process.getId());
+                    if (leadsToDatasets != null) {
+                        if (leadsToDatasets) {
+                            visitor.visitEdge(dataset, process);
+                        }
+                        continue;
+                    }
+
+                    List<AtlasVertex<?, ?>> processDatasets = getDatasets(process);
+                    visitedProcesses.put(process.getId(), !processDatasets.isEmpty());
+                    if (processDatasets.isEmpty()) {
+                        continue;
+                    }
+                    if (!startVisited) {
+                        visitor.visitVertex(start);
+                        startVisited = true;
+                    }
+                    visitor.visitEdge(dataset, process);
+                    for (AtlasVertex<?, ?> nextDataset : processDatasets) {
+                        visitor.visitEdge(process, nextDataset);
+                        if (visitedDatasets.add(nextDataset.getId())) {
+                            visitor.visitVertex(nextDataset);
+                            next.add(nextDataset);
+                        }
+                    }
+                }
+            }
+            frontier = next;
+            depth++;
+        }
+        LOG.debug("Walked lineage of {} to depth {}: {} datasets, {} processes", start.getIdForDisplay(), depth,
+                visitedDatasets.size(), visitedProcesses.size());
+    }
+
+    private List<AtlasVertex<?, ?>> getDatasets(AtlasVertex<?, ?> process) {
+        List<AtlasVertex<?, ?>> datasets = new ArrayList<>();
+        for (AtlasEdge<?, ?> datasetEdge : process.getEdges(AtlasEdgeDirection.OUT, fromProcessEdgeLabel)) {
+            AtlasVertex<?, ?> dataset = datasetEdge.getInVertex();
+            if (isDataset(dataset)) {
+                datasets.add(dataset);
+            }
+        }
+        return datasets;
+    }
+
+    private boolean isDataset(AtlasVertex<?, ?> vertex) {
+        if (datasetTypeName.equals(GraphHelper.getTypeName(vertex))) {
+            return true;
+        }
+        Collection<String> superTypes = vertex.getPropertyValues(Constants.SUPER_TYPES_PROPERTY_KEY, String.class);
+        return superTypes != null && superTypes.contains(datasetTypeName);
+    }
+}
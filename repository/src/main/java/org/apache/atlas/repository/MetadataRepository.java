@@ -20,6 +20,7 @@ package org.apache.atlas.repository;
 
 import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasException;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.typesystem.ITypedReferenceableInstance;
 import org.apache.atlas.typesystem.ITypedStruct;
 import org.apache.atlas.typesystem.exception.EntityExistsException;
@@ -28,7 +29,9 @@ import org.apache.atlas.typesystem.exception.TraitNotFoundException;
 import org.apache.atlas.typesystem.types.AttributeInfo;
 import org.apache.atlas.typesystem.types.IDataType;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * An interface for persisting metadata into a blueprints enabled graph db.
@@ -101,6 +104,40 @@ public interface MetadataRepository {
      */
     ITypedReferenceableInstance getEntityDefinition(String guid) throws RepositoryException, EntityNotFoundException;
 
+    /**
+     * Fetch the complete definitions of the entities with the given GUIDs. Entities written earlier in the current
+     * request are returned as they were written, without reading them again.
+     *
+     * @param guids globally unique identifiers for the entities
+     * @return entity (typed instance) definitions, in the order of the given guids
+     * @throws RepositoryException
+     */
+    List<ITypedReferenceableInstance> getEntityDefinitions(List<String> guids)
+            throws RepositoryException, EntityNotFoundException;
+
+    /**
+     * Fetch the complete definition of an entity given its GUID, along with the modification timestamps of the
+     * entity, of the composite entities included in its definition and of the entities it references, as read with
+     * the definition.
+     *
+     * @param guid globally unique identifier for the entity
+     * @param modificationTimestamps filled with the modification timestamps, by guid
+     * @return entity (typed instance) definition
+     * @throws RepositoryException
+     */
+    ITypedReferenceableInstance getEntityDefinition(String guid, Map<String, Long> modificationTimestamps)
+            throws RepositoryException, EntityNotFoundException;
+
+    /**
+     * Returns the modification timestamps of the entities with the given GUIDs, which are looked up together. Entities
+     * that don't exist are left out.
+     *
+     * @param guids globally unique identifiers for the entities
+     * @return the modification timestamps, by guid
+     * @throws RepositoryException
+     */
+    Map<String, Long> getModificationTimestamps(Collection<String> guids) throws RepositoryException;
+
     /**
      * Gets the list of entities for a given entity type.
      *
@@ -110,6 +147,16 @@ public interface MetadataRepository {
      */
     <V,E> List<String> getEntityList(String entityType) throws RepositoryException;
 
+    /**
+     * Gets a page of the list of entities for a given entity type.
+     *
+     * @param entityType name of a type which is unique
+     * @param queryParams page of the list to return
+     * @return a list of entity guids for the given type
+     * @throws RepositoryException
+     */
+    <V,E> List<String> getEntityList(String entityType, QueryParams queryParams) throws RepositoryException;
+
     /**
      * Deletes entities for the specified guids.
      *
@@ -169,4 +216,12 @@ public interface MetadataRepository {
      * @return entity instance
      */
     ITypedReferenceableInstance getEntityDefinition(String entityType, String attribute, Object value) throws AtlasException;
+
+    /**
+     * Gets the metrics of the repository, such as the number of entity updates skipped since the entities were
+     * unchanged.
+     *
+     * @return the metric values by name
+     */
+    Map<String, Object> getMetrics();
 }
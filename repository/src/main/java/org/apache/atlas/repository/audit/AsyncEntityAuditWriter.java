@@ -0,0 +1,379 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.audit;
+
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.EntityAuditEvent;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes entity audit events to HBase from a background thread.
+ *
+ * Events are put on a bounded queue and written through a {@link BufferedMutator} in batches of up to batchSize
+ * events, or whatever was queued within flushIntervalMs. When the queue is full, callers block for up to
+ * enqueueTimeoutMs in total. Events that cannot be queued in time, or written to HBase, are appended to a spill
+ * file. The spill file is replayed to HBase when the writer is started, and by the flusher every
+ * spillReplayIntervalMs while it exists.
+ */
+public class AsyncEntityAuditWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncEntityAuditWriter.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** marker put on the queue to make the flusher write what it has without waiting for more events */
+    private static final EntityAuditEvent FLUSH_MARKER = new EntityAuditEvent();
+
+    private final HBaseBasedAuditRepository repository;
+    private final BufferedMutator mutator;
+    private final BlockingQueue<EntityAuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final File spillFile;
+    private final long spillReplayIntervalMs;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    private final Object progressLock = new Object();
+    private long submittedCount = 0;
+    private long completedCount = 0;
+
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong writtenBatches = new AtomicLong();
+    private final AtomicLong spilledEvents = new AtomicLong();
+    private final AtomicLong blockedEnqueues = new AtomicLong();
+
+    public AsyncEntityAuditWriter(HBaseBasedAuditRepository repository, BufferedMutator mutator, int queueSize,
+                                  int batchSize, long flushIntervalMs, long enqueueTimeoutMs, File spillFile,
+                                  long spillReplayIntervalMs) {
+        this.repository = repository;
+        this.mutator = mutator;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.spillFile = spillFile;
+        this.spillReplayIntervalMs = spillReplayIntervalMs;
+
+        replaySpillFile();
+
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, AsyncEntityAuditWriter.class.getSimpleName());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the given events for writing. Blocks while the queue is full, for up to enqueueTimeoutMs for all the
+     * events together; events that still can't be queued are spilled to disk.
+     * @param events events to be written
+     * @throws AtlasException if interrupted while waiting for space in the queue
+     */
+    public void enqueue(List<EntityAuditEvent> events) throws AtlasException {
+        List<EntityAuditEvent> rejected = null;
+        long deadline = System.currentTimeMillis() + enqueueTimeoutMs;
+        try {
+            for (EntityAuditEvent event : events) {
+                if (!running || !offer(event, deadline)) {
+                    if (rejected == null) {
+                        rejected = new ArrayList<>();
+                    }
+                    rejected.add(event);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AtlasException("Interrupted while queuing audit events", e);
+        } finally {
+            if (rejected != null) {
+                LOG.warn("Audit queue is full, spilling {} events to {}", rejected.size(), spillFile);
+                repository.invalidateLastDefinitions(rejected);
+                spill(rejected);
+            }
+        }
+    }
+
+    private boolean offer(EntityAuditEvent event, long deadline) throws InterruptedException {
+        synchronized (progressLock) {
+            submittedCount++;
+        }
+        if (queue.offer(event)) {
+            return true;
+        }
+
+        blockedEnqueues.incrementAndGet();
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining > 0 && queue.offer(event, remaining, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        markCompleted(1);
+        return false;
+    }
+
+    /**
+     * Waits until all the events queued before this call have been written (or spilled).
+     * @param timeoutMs maximum time to wait
+     * @return true if all the events were processed within the timeout
+     */
+    public boolean flush(long timeoutMs) throws InterruptedException {
+        long target;
+        synchronized (progressLock) {
+            target = submittedCount;
+            if (completedCount >= target) {
+                return true;
+            }
+        }
+
+        queue.offer(FLUSH_MARKER);
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (progressLock) {
+            while (completedCount < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                progressLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the flusher after it has written the queued events, waiting up to timeoutMs. Events still queued
+     * after that are spilled to disk.
+     */
+    public void close(long timeoutMs) {
+        running = false;
+        queue.offer(FLUSH_MARKER);
+        try {
+            flusher.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            flusher.interrupt();
+        }
+
+        List<EntityAuditEvent> remaining = new ArrayList<>();
+        drain(remaining, Integer.MAX_VALUE);
+        if (!remaining.isEmpty()) {
+            LOG.warn("Spilling {} unwritten audit events to {}", remaining.size(), spillFile);
+            spill(remaining);
+        }
+
+        try {
+            mutator.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close audit mutator", e);
+        }
+        LOG.info("Stopped {}", this);
+    }
+
+    private void flushLoop() {
+        List<EntityAuditEvent> batch = new ArrayList<>(batchSize);
+        long lastReplay = System.currentTimeMillis();
+        while (running || !queue.isEmpty()) {
+            try {
+                if (running && System.currentTimeMillis() - lastReplay >= spillReplayIntervalMs) {
+                    replaySpillFile();
+                    lastReplay = System.currentTimeMillis();
+                }
+
+                EntityAuditEvent event = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+                if (event != FLUSH_MARKER) {
+                    batch.add(event);
+                    long deadline = System.currentTimeMillis() + flushIntervalMs;
+                    while (batch.size() < batchSize && running) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        event = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                        if (event == null || event == FLUSH_MARKER) {
+                            break;
+                        }
+                        batch.add(event);
+                    }
+                }
+                drain(batch, batchSize - batch.size());
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                LOG.info("Audit flusher interrupted");
+                break;
+            } catch (Throwable t) {
+                LOG.error("Failure in audit flusher", t);
+            }
+        }
+        if (!batch.isEmpty()) {
+            spill(batch);
+        }
+    }
+
+    private void drain(List<EntityAuditEvent> batch, int maxEvents) {
+        List<EntityAuditEvent> drained = new ArrayList<>();
+        queue.drainTo(drained, maxEvents);
+        for (EntityAuditEvent event : drained) {
+            if (event != FLUSH_MARKER) {
+                batch.add(event);
+            }
+        }
+    }
+
+    private void write(List<EntityAuditEvent> batch) {
+        try {
+            mutator.mutate(repository.toPuts(batch));
+            mutator.flush();
+            writtenEvents.addAndGet(batch.size());
+            writtenBatches.incrementAndGet();
+            LOG.debug("Wrote {} audit events", batch.size());
+        } catch (Exception e) {
+            LOG.error("Failed to write {} audit events to HBase, spilling them to {}", batch.size(), spillFile, e);
+            repository.invalidateLastDefinitions(batch);
+            spill(batch);
+        } finally {
+            markCompleted(batch.size());
+        }
+    }
+
+    private void markCompleted(int count) {
+        synchronized (progressLock) {
+            completedCount += count;
+            progressLock.notifyAll();
+        }
+    }
+
+    private synchronized void spill(List<EntityAuditEvent> events) {
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spillFile, true), UTF_8));
+            for (EntityAuditEvent event : events) {
+                writer.write(event.toString());
+                writer.write('\n');
+            }
+            spilledEvents.addAndGet(events.size());
+        } catch (IOException e) {
+            LOG.error("Failed to spill {} audit events to {}, they are lost: {}", events.size(), spillFile, events, e);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private synchronized void replaySpillFile() {
+        if (spillFile == null || !spillFile.exists()) {
+            return;
+        }
+
+        List<EntityAuditEvent> events = new ArrayList<>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(spillFile), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    events.add(EntityAuditEvent.fromString(line));
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to read audit spill file {}, leaving it in place", spillFile, e);
+            return;
+        } finally {
+            closeQuietly(reader);
+        }
+
+        LOG.info("Replaying {} audit events from {}", events.size(), spillFile);
+        try {
+            for (int start = 0; start < events.size(); start += batchSize) {
+                mutator.mutate(repository.toPuts(events.subList(start, Math.min(events.size(), start + batchSize))));
+            }
+            mutator.flush();
+            writtenEvents.addAndGet(events.size());
+        } catch (IOException | AtlasException e) {
+            LOG.error("Failed to replay audit spill file {}, leaving it in place", spillFile, e);
+            return;
+        }
+
+        if (!spillFile.delete()) {
+            LOG.warn("Failed to delete replayed audit spill file {}", spillFile);
+        }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close {}", closeable, e);
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.get();
+    }
+
+    public long getWrittenBatches() {
+        return writtenBatches.get();
+    }
+
+    public long getSpilledEvents() {
+        return spilledEvents.get();
+    }
+
+    public long getBlockedEnqueues() {
+        return blockedEnqueues.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AsyncEntityAuditWriter{queued=%d, written=%d, batches=%d, spilled=%d, blocked=%d}",
+                getQueueSize(), getWrittenEvents(), getWrittenBatches(), getSpilledEvents(), getBlockedEnqueues());
+    }
+}
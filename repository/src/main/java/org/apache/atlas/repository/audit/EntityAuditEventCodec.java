@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.audit;
+
+import org.apache.atlas.AtlasException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact encoding of audit column values.
+ *
+ * Encoded values start with a format version byte followed by a kind byte and the gzip compressed UTF-8 text;
+ * deltas also carry the timestamp of the event they are relative to, ahead of the compressed text.
+ * Values written before this format was introduced are plain UTF-8 text, which never starts with the version
+ * byte, so both kinds of rows can be read from the same table.
+ *
+ * Entity definitions are stored either in full, or as a delta against an earlier definition of the same entity:
+ * the changed and removed attribute values plus any other changed top-level fields of the serialized instance.
+ */
+public final class EntityAuditEventCodec {
+    static final byte FORMAT_VERSION = 1;
+
+    static final byte KIND_TEXT  = 0;
+    static final byte KIND_FULL  = 1;
+    static final byte KIND_DELTA = 2;
+
+    private static final String VALUES = "values";
+    private static final String DELTA_SET = "set";
+    private static final String DELTA_VALUES = "values";
+    private static final String DELTA_REMOVED = "removed";
+
+    private EntityAuditEventCodec() {
+    }
+
+    public static byte[] encodeText(String text) throws AtlasException {
+        return encode(KIND_TEXT, null, text);
+    }
+
+    public static byte[] encodeFullDefinition(String definition) throws AtlasException {
+        return encode(KIND_FULL, null, definition);
+    }
+
+    /**
+     * @param baseTimestamp timestamp of the audit event of the same entity holding the definition the delta applies to
+     * @param delta delta computed by {@link #diff(String, String)}
+     */
+    public static byte[] encodeDeltaDefinition(long baseTimestamp, String delta) throws AtlasException {
+        return encode(KIND_DELTA, baseTimestamp, delta);
+    }
+
+    public static boolean isEncoded(byte[] value) {
+        return value != null && value.length >= 2 && value[0] == FORMAT_VERSION;
+    }
+
+    /**
+     * @return kind of the given column value; plain text for values not written in this format
+     */
+    public static byte getKind(byte[] value) {
+        return isEncoded(value) ? value[1] : KIND_TEXT;
+    }
+
+    /**
+     * @return timestamp of the event a delta definition applies to
+     */
+    public static long getDeltaBase(byte[] value) {
+        if (getKind(value) != KIND_DELTA) {
+            throw new IllegalArgumentException("Not a delta definition");
+        }
+        return Bytes.toLong(value, 2);
+    }
+
+    /**
+     * Decodes a column value, returning legacy plain text values as is.
+     */
+    public static String decode(byte[] value) throws AtlasException {
+        if (value == null) {
+            return null;
+        }
+        if (!isEncoded(value)) {
+            return Bytes.toString(value);
+        }
+
+        int offset = getKind(value) == KIND_DELTA ? 2 + Bytes.SIZEOF_LONG : 2;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(value, offset, value.length - offset))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length * 4);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return Bytes.toString(out.toByteArray());
+        } catch (IOException e) {
+            throw new AtlasException(e);
+        }
+    }
+
+    private static byte[] encode(byte kind, Long baseTimestamp, String text) throws AtlasException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        out.write(kind);
+        try {
+            if (baseTimestamp != null) {
+                out.write(Bytes.toBytes(baseTimestamp));
+            }
+        } catch (IOException e) {
+            throw new AtlasException(e);
+        }
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(Bytes.toBytes(text));
+        } catch (IOException e) {
+            throw new AtlasException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Computes the delta that turns the previous serialized definition into the current one.
+     */
+    public static String diff(String previous, String current) throws AtlasException {
+        try {
+            JSONObject previousJson = new JSONObject(previous);
+            JSONObject currentJson = new JSONObject(current);
+            JSONObject set = new JSONObject();
+            JSONObject values = new JSONObject();
+            JSONArray removed = new JSONArray();
+
+            Iterator keys = currentJson.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                if (VALUES.equals(key)) {
+                    continue;
+                }
+                if (!previousJson.has(key) || !sameValue(previousJson.get(key), currentJson.get(key))) {
+                    set.put(key, currentJson.get(key));
+                }
+            }
+
+            JSONObject previousValues = previousJson.optJSONObject(VALUES);
+            JSONObject currentValues = currentJson.optJSONObject(VALUES);
+            if (previousValues == null) {
+                previousValues = new JSONObject();
+            }
+            if (currentValues != null) {
+                keys = currentValues.keys();
+                while (keys.hasNext()) {
+                    String key = (String) keys.next();
+                    if (!previousValues.has(key) || !sameValue(previousValues.get(key), currentValues.get(key))) {
+                        values.put(key, currentValues.get(key));
+                    }
+                }
+            }
+            keys = previousValues.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                if (currentValues == null || !currentValues.has(key)) {
+                    removed.put(key);
+                }
+            }
+
+            JSONObject delta = new JSONObject();
+            delta.put(DELTA_SET, set);
+            delta.put(DELTA_VALUES, values);
+            delta.put(DELTA_REMOVED, removed);
+            return delta.toString();
+        } catch (JSONException e) {
+            throw new AtlasException(e);
+        }
+    }
+
+    /**
+     * Applies a delta computed by {@link #diff(String, String)} to the previous serialized definition.
+     */
+    public static String apply(String previous, String delta) throws AtlasException {
+        try {
+            JSONObject json = new JSONObject(previous);
+            JSONObject deltaJson = new JSONObject(delta);
+
+            JSONObject set = deltaJson.getJSONObject(DELTA_SET);
+            Iterator keys = set.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                json.put(key, set.get(key));
+            }
+
+            JSONObject values = json.optJSONObject(VALUES);
+            if (values == null) {
+                values = new JSONObject();
+                json.put(VALUES, values);
+            }
+            JSONObject changedValues = deltaJson.getJSONObject(DELTA_VALUES);
+            keys = changedValues.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                values.put(key, changedValues.get(key));
+            }
+            JSONArray removed = deltaJson.getJSONArray(DELTA_REMOVED);
+            for (int i = 0; i < removed.length(); i++) {
+                values.remove(removed.getString(i));
+            }
+            return json.toString();
+        } catch (JSONException e) {
+            throw new AtlasException(e);
+        }
+    }
+
+    private static boolean sameValue(Object previous, Object current) {
+        return String.valueOf(previous).equals(String.valueOf(current));
+    }
+}
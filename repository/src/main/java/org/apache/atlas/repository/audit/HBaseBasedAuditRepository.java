@@ -35,6 +35,7 @@ import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
@@ -46,11 +47,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * HBase based repository for entity audit events
@@ -72,6 +77,32 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
     public static final String CONFIG_TABLE_NAME = CONFIG_PREFIX + ".hbase.tablename";
     public static final String DEFAULT_TABLE_NAME = "ATLAS_ENTITY_AUDIT_EVENTS";
 
+    public static final String CONFIG_ASYNC_PREFIX = CONFIG_PREFIX + ".hbase.async";
+    public static final String CONFIG_ASYNC_ENABLED = CONFIG_ASYNC_PREFIX + ".enabled";
+    public static final String CONFIG_ASYNC_QUEUE_SIZE = CONFIG_ASYNC_PREFIX + ".queue.size";
+    public static final String CONFIG_ASYNC_BATCH_SIZE = CONFIG_ASYNC_PREFIX + ".batch.size";
+    public static final String CONFIG_ASYNC_FLUSH_INTERVAL_MS = CONFIG_ASYNC_PREFIX + ".flush.interval.ms";
+    public static final String CONFIG_ASYNC_ENQUEUE_TIMEOUT_MS = CONFIG_ASYNC_PREFIX + ".enqueue.timeout.ms";
+    public static final String CONFIG_ASYNC_SPILL_FILE = CONFIG_ASYNC_PREFIX + ".spill.file";
+    public static final String CONFIG_ASYNC_SPILL_REPLAY_INTERVAL_MS =
+            CONFIG_ASYNC_PREFIX + ".spill.replay.interval.ms";
+    public static final String CONFIG_ASYNC_LIST_FLUSH_TIMEOUT_MS = CONFIG_ASYNC_PREFIX + ".list.flush.timeout.ms";
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_ASYNC_BATCH_SIZE = 500;
+    public static final long DEFAULT_ASYNC_FLUSH_INTERVAL_MS = 1000;
+    public static final long DEFAULT_ASYNC_ENQUEUE_TIMEOUT_MS = 5000;
+    public static final long DEFAULT_ASYNC_SPILL_REPLAY_INTERVAL_MS = 60000;
+    public static final long DEFAULT_ASYNC_LIST_FLUSH_TIMEOUT_MS = 1000;
+    private static final long ASYNC_FLUSH_TIMEOUT_MS = 30000;
+
+    public static final String CONFIG_COMPACT_PREFIX = CONFIG_PREFIX + ".hbase.compact";
+    public static final String CONFIG_COMPACT_ENABLED = CONFIG_COMPACT_PREFIX + ".enabled";
+    public static final String CONFIG_COMPACT_FULL_DEFINITION_INTERVAL =
+            CONFIG_COMPACT_PREFIX + ".full.definition.interval";
+    public static final String CONFIG_COMPACT_CACHE_SIZE = CONFIG_COMPACT_PREFIX + ".cache.size";
+    public static final int DEFAULT_COMPACT_FULL_DEFINITION_INTERVAL = 10;
+    public static final int DEFAULT_COMPACT_CACHE_SIZE = 10000;
+
     private static final String FIELD_SEPARATOR = ":";
 
     public static final byte[] COLUMN_FAMILY = Bytes.toBytes("dt");
@@ -82,6 +113,27 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
 
     private TableName tableName;
     private Connection connection;
+    private AsyncEntityAuditWriter asyncWriter;
+    private long listFlushTimeoutMs = DEFAULT_ASYNC_LIST_FLUSH_TIMEOUT_MS;
+
+    private boolean compactEncoding = false;
+    private int fullDefinitionInterval = DEFAULT_COMPACT_FULL_DEFINITION_INTERVAL;
+    private Map<String, LastDefinition> lastDefinitions;
+
+    /**
+     * Definition last written for an entity, which the next definition of the entity is diffed against
+     */
+    private static class LastDefinition {
+        final String definition;
+        final long timestamp;
+        final int deltas;
+
+        LastDefinition(String definition, long timestamp, int deltas) {
+            this.definition = definition;
+            this.timestamp = timestamp;
+            this.deltas = deltas;
+        }
+    }
 
     /**
      * Add events to the event repository
@@ -101,6 +153,11 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
      */
     public void putEvents(List<EntityAuditEvent> events) throws AtlasException {
         LOG.info("Putting {} events", events.size());
+        if (asyncWriter != null) {
+            asyncWriter.enqueue(events);
+            return;
+        }
+
         Table table = null;
         try {
         	if(connection == null) {
@@ -108,24 +165,78 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
         		return;
         	}
             table = connection.getTable(tableName);
-            List<Put> puts = new ArrayList<>(events.size());
-            for (EntityAuditEvent event : events) {
-                LOG.debug("Adding entity audit event {}", event);
-                Put put = new Put(getKey(event.getEntityId(), event.getTimestamp()));
-                addColumn(put, COLUMN_ACTION, event.getAction());
-                addColumn(put, COLUMN_USER, event.getUser());
-                addColumn(put, COLUMN_DETAIL, event.getDetails());
-                addColumn(put, COLUMN_DEFINITION, event.getEntityDefinitionString());
-                puts.add(put);
-            }
-            table.put(puts);
+            table.put(toPuts(events));
         } catch (IOException e) {
+            invalidateLastDefinitions(events);
             throw new AtlasException(e);
         } finally {
             close(table);
         }
     }
 
+    List<Put> toPuts(List<EntityAuditEvent> events) throws AtlasException {
+        List<Put> puts = new ArrayList<>(events.size());
+        for (EntityAuditEvent event : events) {
+            LOG.debug("Adding entity audit event {}", event);
+            Put put = new Put(getKey(event.getEntityId(), event.getTimestamp()));
+            addColumn(put, COLUMN_ACTION, event.getAction());
+            addColumn(put, COLUMN_USER, event.getUser());
+            if (compactEncoding) {
+                String details = event.getDetails();
+                if (StringUtils.isNotEmpty(details)) {
+                    put.addColumn(COLUMN_FAMILY, COLUMN_DETAIL, EntityAuditEventCodec.encodeText(details));
+                }
+                String definition = event.getEntityDefinitionString();
+                if (StringUtils.isNotEmpty(definition)) {
+                    put.addColumn(COLUMN_FAMILY, COLUMN_DEFINITION,
+                            encodeDefinition(event.getEntityId(), event.getTimestamp(), definition));
+                }
+            } else {
+                addColumn(put, COLUMN_DETAIL, event.getDetails());
+                addColumn(put, COLUMN_DEFINITION, event.getEntityDefinitionString());
+            }
+            puts.add(put);
+        }
+        return puts;
+    }
+
+    /**
+     * Encodes the definition as a delta against the last definition written for the entity. A full definition is
+     * written every fullDefinitionInterval events, and whenever the last definition isn't known or would be
+     * overwritten by this event (same timestamp, same row key).
+     */
+    private byte[] encodeDefinition(String entityId, long timestamp, String definition) throws AtlasException {
+        synchronized (lastDefinitions) {
+            LastDefinition last = lastDefinitions.get(entityId);
+            byte[] value;
+            int deltas;
+            if (last == null || last.timestamp >= timestamp || last.deltas + 1 >= fullDefinitionInterval) {
+                value = EntityAuditEventCodec.encodeFullDefinition(definition);
+                deltas = 0;
+            } else {
+                value = EntityAuditEventCodec.encodeDeltaDefinition(last.timestamp,
+                        EntityAuditEventCodec.diff(last.definition, definition));
+                deltas = last.deltas + 1;
+            }
+            lastDefinitions.put(entityId, new LastDefinition(definition, timestamp, deltas));
+            return value;
+        }
+    }
+
+    /**
+     * Forgets the last definitions of the entities of events that were not written, so that the next event of
+     * those entities stores the full definition.
+     */
+    void invalidateLastDefinitions(List<EntityAuditEvent> events) {
+        if (lastDefinitions != null) {
+            synchronized (lastDefinitions) {
+                for (EntityAuditEvent event : events) {
+                    lastDefinitions.remove(event.getEntityId());
+                }
+            }
+        }
+    }
+
     private <T> void addColumn(Put put, byte[] columnName, T columnValue) {
         if (columnValue != null && !columnValue.toString().isEmpty()) {
             put.addColumn(COLUMN_FAMILY, columnName, Bytes.toBytes(columnValue.toString()));
@@ -150,6 +261,18 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
     public List<EntityAuditEvent> listEvents(String entityId, String startKey, short n)
             throws AtlasException {
         LOG.info("Listing events for entity id {}, starting timestamp {}, #records {}", entityId, startKey, n);
+        if (asyncWriter != null) {
+            // make the events queued so far visible to the scan, without holding up the listing for long
+            try {
+                if (!asyncWriter.flush(listFlushTimeoutMs)) {
+                    LOG.warn("Timed out waiting for queued audit events to be written, listing may be incomplete");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AtlasException(e);
+            }
+        }
+
         Table table = null;
         ResultScanner scanner = null;
         try {
@@ -176,6 +299,7 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
             scanner = table.getScanner(scan);
             Result result;
             List<EntityAuditEvent> events = new ArrayList<>();
+            List<byte[]> definitions = new ArrayList<>();
 
             //PageFilter doesn't ensure n results are returned. The filter is per region server.
             //So, adding extra check on n here
@@ -188,9 +312,19 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
                 }
                 event.setUser(getResultString(result, COLUMN_USER));
                 event.setAction(EntityAuditEvent.EntityAuditAction.valueOf(getResultString(result, COLUMN_ACTION)));
-                event.setDetails(getResultString(result, COLUMN_DETAIL));
-                event.setEntityDefinition(getResultString(result, COLUMN_DEFINITION));
+                event.setDetails(EntityAuditEventCodec.decode(result.getValue(COLUMN_FAMILY, COLUMN_DETAIL)));
                 events.add(event);
+                definitions.add(result.getValue(COLUMN_FAMILY, COLUMN_DEFINITION));
+            }
+
+            //Resolve the oldest events first, so that deltas in the page can be applied to the definitions before them
+            Map<Long, String> resolved = new HashMap<>();
+            for (int i = events.size() - 1; i >= 0; i--) {
+                EntityAuditEvent event = events.get(i);
+                String definition = getDefinition(table, entityId, event.getTimestamp(), definitions.get(i), resolved);
+                if (definition != null) {
+                    event.setEntityDefinition(definition);
+                }
             }
             LOG.info("Got events for entity id {}, starting timestamp {}, #records {}", entityId, startKey, events.size());
             return events;
@@ -202,6 +336,34 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
         }
     }
 
+    /**
+     * Decodes the definition column of an event, rebuilding delta definitions from the events they apply to.
+     */
+    private String getDefinition(Table table, String entityId, long timestamp, byte[] value,
+                                 Map<Long, String> resolved) throws AtlasException, IOException {
+        String definition;
+        if (EntityAuditEventCodec.getKind(value) != EntityAuditEventCodec.KIND_DELTA) {
+            definition = EntityAuditEventCodec.decode(value);
+        } else {
+            long baseTimestamp = EntityAuditEventCodec.getDeltaBase(value);
+            String base = resolved.get(baseTimestamp);
+            if (base == null) {
+                Result result = table.get(new Get(getKey(entityId, baseTimestamp))
+                        .addColumn(COLUMN_FAMILY, COLUMN_DEFINITION));
+                byte[] baseValue = result.getValue(COLUMN_FAMILY, COLUMN_DEFINITION);
+                base = baseValue == null ? null : getDefinition(table, entityId, baseTimestamp, baseValue, resolved);
+            }
+            if (base == null) {
+                LOG.warn("Unable to rebuild definition of entity {} at {}: missing base event {}", entityId,
+                        timestamp, baseTimestamp);
+                return null;
+            }
+            definition = EntityAuditEventCodec.apply(base, EntityAuditEventCodec.decode(value));
+        }
+        resolved.put(timestamp, definition);
+        return definition;
+    }
+
     private String getResultString(Result result, byte[] columnName) {
         return Bytes.toString(result.getValue(COLUMN_FAMILY, columnName));
     }
@@ -281,6 +443,17 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
         String tableNameStr = atlasConf.getString(CONFIG_TABLE_NAME, DEFAULT_TABLE_NAME);
         tableName = TableName.valueOf(tableNameStr);
 
+        compactEncoding = atlasConf.getBoolean(CONFIG_COMPACT_ENABLED, false);
+        fullDefinitionInterval = Math.max(1, atlasConf.getInt(CONFIG_COMPACT_FULL_DEFINITION_INTERVAL,
+                DEFAULT_COMPACT_FULL_DEFINITION_INTERVAL));
+        final int cacheSize = atlasConf.getInt(CONFIG_COMPACT_CACHE_SIZE, DEFAULT_COMPACT_CACHE_SIZE);
+        lastDefinitions = new LinkedHashMap<String, LastDefinition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LastDefinition> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
         try {
             connection = createConnection(hbaseConf);
         } catch (IOException e) {
@@ -291,6 +464,30 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
             LOG.info("HA is disabled. Hence creating table on startup.");
             createTableIfNotExists();
         }
+
+        if (atlasConf.getBoolean(CONFIG_ASYNC_ENABLED, false)) {
+            File spillFile = new File(atlasConf.getString(CONFIG_ASYNC_SPILL_FILE,
+                    new File(System.getProperty("java.io.tmpdir"), tableNameStr + ".spill").getPath()));
+            try {
+                asyncWriter = new AsyncEntityAuditWriter(this, connection.getBufferedMutator(tableName),
+                        atlasConf.getInt(CONFIG_ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE),
+                        atlasConf.getInt(CONFIG_ASYNC_BATCH_SIZE, DEFAULT_ASYNC_BATCH_SIZE),
+                        atlasConf.getLong(CONFIG_ASYNC_FLUSH_INTERVAL_MS, DEFAULT_ASYNC_FLUSH_INTERVAL_MS),
+                        atlasConf.getLong(CONFIG_ASYNC_ENQUEUE_TIMEOUT_MS, DEFAULT_ASYNC_ENQUEUE_TIMEOUT_MS),
+                        spillFile, atlasConf.getLong(CONFIG_ASYNC_SPILL_REPLAY_INTERVAL_MS,
+                                DEFAULT_ASYNC_SPILL_REPLAY_INTERVAL_MS));
+            } catch (IOException e) {
+                throw new AtlasException(e);
+            }
+            listFlushTimeoutMs = atlasConf.getLong(CONFIG_ASYNC_LIST_FLUSH_TIMEOUT_MS,
+                    DEFAULT_ASYNC_LIST_FLUSH_TIMEOUT_MS);
+            LOG.info("Writing audit events asynchronously, spill file {}", spillFile);
+        }
+    }
+
+    @VisibleForTesting
+    AsyncEntityAuditWriter getAsyncWriter() {
+        return asyncWriter;
     }
 
     @VisibleForTesting
@@ -300,6 +497,10 @@ public class HBaseBasedAuditRepository implements Service, EntityAuditRepository
 
     @Override
     public void stop() throws AtlasException {
+        if (asyncWriter != null) {
+            asyncWriter.close(ASYNC_FLUSH_TIMEOUT_MS);
+            asyncWriter = null;
+        }
         close(connection);
     }
 
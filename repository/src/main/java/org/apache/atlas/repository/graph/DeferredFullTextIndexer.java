@@ -0,0 +1,374 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.graph;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.GraphTransaction;
+import org.apache.atlas.listener.EntityChangeListener;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.service.Service;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.exception.EntityNotFoundException;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the full text property of entities in the background, instead of while they are written.
+ *
+ * Entities are queued through the entity change notifications, which carry the entities as committed, and their
+ * full text is built from those instances rather than read back from the graph. An entity queued again before it
+ * is indexed replaces its queued instance, so an entity updated many times within the delay is indexed once, no
+ * later than delay.ms after its first queued change.
+ *
+ * The entities are queued once the graph transaction that changed them has committed. An entity that is still not
+ * found when it is indexed is queued again, up to MAX_NOT_FOUND_ATTEMPTS times, before it is taken as deleted.
+ *
+ * At most max.pending entities are kept queued: a writing thread that fills the queue indexes batches itself until
+ * the queue is below max.pending again, so writers are slowed down to the indexing rate instead of growing the queue.
+ *
+ * Enabled with atlas.fulltext.deferred.enabled; the repository then stops building the full text on writes.
+ */
+@Singleton
+public class DeferredFullTextIndexer implements EntityChangeListener, Service {
+    private static final Logger LOG = LoggerFactory.getLogger(DeferredFullTextIndexer.class);
+
+    public static final String CONFIG_PREFIX = "atlas.fulltext.deferred.";
+    public static final String CONFIG_ENABLED = CONFIG_PREFIX + "enabled";
+    public static final String CONFIG_DELAY_MS = CONFIG_PREFIX + "delay.ms";
+    public static final String CONFIG_BATCH_SIZE = CONFIG_PREFIX + "batch.size";
+    public static final String CONFIG_MAX_PENDING = CONFIG_PREFIX + "max.pending";
+
+    private static final GraphHelper graphHelper = GraphHelper.getInstance();
+
+    @VisibleForTesting
+    static final int MAX_NOT_FOUND_ATTEMPTS = 3;
+
+    private final GraphToTypedInstanceMapper graphToInstanceMapper;
+    private final boolean enabled;
+    private final long delayMs;
+    private final int batchSize;
+    private final int maxPending;
+
+    /** entities waiting to be indexed by guid, in the order of their first queued change */
+    private final Map<String, PendingEntity> pending = new LinkedHashMap<>();
+    private Thread indexerThread;
+    private volatile boolean running = false;
+
+    private final AtomicLong indexedEntities = new AtomicLong();
+    private final AtomicLong coalescedChanges = new AtomicLong();
+
+    @Inject
+    public DeferredFullTextIndexer(AtlasGraphProvider graphProvider) throws AtlasException {
+        this(graphProvider.get(), ApplicationProperties.get());
+    }
+
+    @VisibleForTesting
+    DeferredFullTextIndexer(AtlasGraph<?, ?> graph, Configuration configuration) {
+        this.graphToInstanceMapper = new GraphToTypedInstanceMapper(graph);
+        this.enabled = isEnabled(configuration);
+        this.delayMs = configuration.getLong(CONFIG_DELAY_MS, 1000);
+        this.batchSize = configuration.getInt(CONFIG_BATCH_SIZE, 100);
+        this.maxPending = configuration.getInt(CONFIG_MAX_PENDING, 10000);
+    }
+
+    public static boolean isEnabled() {
+        try {
+            return isEnabled(ApplicationProperties.get());
+        } catch (AtlasException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static boolean isEnabled(Configuration configuration) {
+        return configuration.getBoolean(CONFIG_ENABLED, false);
+    }
+
+    @Override
+    public synchronized void start() throws AtlasException {
+        if (!enabled || running) {
+            return;
+        }
+
+        running = true;
+        indexerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                indexLoop();
+            }
+        }, DeferredFullTextIndexer.class.getSimpleName());
+        indexerThread.setDaemon(true);
+        indexerThread.start();
+        LOG.info("Started deferred full text indexer with delay {} ms", delayMs);
+    }
+
+    @Override
+    public void stop() throws AtlasException {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = indexerThread;
+            notifyAll();
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        LOG.info("Stopped deferred full text indexer: {} entities indexed, {} changes coalesced",
+                indexedEntities.get(), coalescedChanges.get());
+    }
+
+    @Override
+    public void onEntitiesAdded(Collection<ITypedReferenceableInstance> entities) throws AtlasException {
+        if (enabled) {
+            enqueue(entities);
+        }
+    }
+
+    @Override
+    public void onEntitiesUpdated(Collection<ITypedReferenceableInstance> entities) throws AtlasException {
+        if (enabled) {
+            enqueue(entities);
+        }
+    }
+
+    @Override
+    public void onTraitAdded(ITypedReferenceableInstance entity, IStruct trait) throws AtlasException {
+        if (enabled) {
+            enqueue(Collections.singletonList(entity));
+        }
+    }
+
+    @Override
+    public void onTraitDeleted(ITypedReferenceableInstance entity, String traitName) throws AtlasException {
+        if (enabled) {
+            enqueue(Collections.singletonList(entity));
+        }
+    }
+
+    @Override
+    public void onEntitiesDeleted(Collection<ITypedReferenceableInstance> entities) throws AtlasException {
+        if (enabled) {
+            synchronized (this) {
+                for (ITypedReferenceableInstance entity : entities) {
+                    pending.remove(entity.getId()._getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the entities, then indexes batches on the calling thread while max.pending entities are queued.
+     */
+    @VisibleForTesting
+    void enqueue(Collection<ITypedReferenceableInstance> entities) {
+        queue(entities);
+
+        List<PendingEntity> batch;
+        while (!(batch = takeOverflow()).isEmpty()) {
+            index(batch);
+        }
+    }
+
+    private synchronized void queue(Collection<ITypedReferenceableInstance> entities) {
+        long now = System.currentTimeMillis();
+        for (ITypedReferenceableInstance entity : entities) {
+            String guid = entity.getId()._getId();
+            PendingEntity queued = pending.get(guid);
+            if (queued != null) {
+                queued.instance = entity;
+                coalescedChanges.incrementAndGet();
+            } else {
+                pending.put(guid, new PendingEntity(entity, now));
+            }
+        }
+    }
+
+    private synchronized List<PendingEntity> takeOverflow() {
+        if (pending.size() < maxPending) {
+            return Collections.emptyList();
+        }
+        return takeBatch(true);
+    }
+
+    /**
+     * Indexes all the queued entities without waiting for their delay.
+     */
+    public void flush() {
+        List<PendingEntity> batch;
+        while (!(batch = takeBatch(true)).isEmpty()) {
+            index(batch);
+        }
+    }
+
+    private void indexLoop() {
+        while (running) {
+            try {
+                List<PendingEntity> batch = waitForBatch();
+                if (!batch.isEmpty()) {
+                    index(batch);
+                }
+            } catch (InterruptedException e) {
+                LOG.info("Deferred full text indexer interrupted");
+                break;
+            } catch (Throwable t) {
+                LOG.error("Failure in deferred full text indexer", t);
+            }
+        }
+    }
+
+    private synchronized List<PendingEntity> waitForBatch() throws InterruptedException {
+        while (running) {
+            if (!pending.isEmpty()) {
+                long firstQueued = pending.values().iterator().next().queuedAt;
+                long remaining = firstQueued + delayMs - System.currentTimeMillis();
+                if (remaining <= 0 || pending.size() >= maxPending) {
+                    return takeBatch(pending.size() >= maxPending);
+                }
+                wait(remaining);
+            } else {
+                wait();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private synchronized List<PendingEntity> takeBatch(boolean ignoreDelay) {
+        List<PendingEntity> batch = new ArrayList<>();
+        long dueBefore = System.currentTimeMillis() - delayMs;
+        Iterator<PendingEntity> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            PendingEntity entity = iterator.next();
+            if (!ignoreDelay && entity.queuedAt > dueBefore) {
+                break;
+            }
+            batch.add(entity);
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void index(List<PendingEntity> batch) {
+        List<PendingEntity> notFound = new ArrayList<>();
+        try {
+            indexBatch(batch, notFound);
+        } catch (Exception e) {
+            LOG.warn("Failed to index full text of {} entities, indexing them one at a time", batch.size(), e);
+            notFound.clear();
+            for (PendingEntity entity : batch) {
+                try {
+                    indexBatch(Collections.singletonList(entity), notFound);
+                } catch (Exception e1) {
+                    LOG.error("Failed to index full text of entity {}", entity.instance.getId()._getId(), e1);
+                }
+            }
+        }
+        requeue(notFound);
+    }
+
+    @GraphTransaction
+    void indexBatch(List<PendingEntity> batch, List<PendingEntity> notFound) throws AtlasException {
+        FullTextMapper fullTextMapper = new FullTextMapper(graphToInstanceMapper);
+        for (PendingEntity entity : batch) {
+            fullTextMapper.cache(entity.instance);
+        }
+
+        int indexed = 0;
+        for (PendingEntity entity : batch) {
+            String guid = entity.instance.getId()._getId();
+            AtlasVertex<?, ?> vertex;
+            try {
+                vertex = graphHelper.getVertexForGUID(guid);
+            } catch (EntityNotFoundException e) {
+                notFound.add(entity);
+                continue;
+            }
+            GraphHelper.setProperty(vertex, Constants.ENTITY_TEXT_PROPERTY_KEY,
+                    fullTextMapper.mapInstance(entity.instance, true));
+            indexed++;
+        }
+        indexedEntities.addAndGet(indexed);
+        LOG.debug("Indexed full text of {} entities", indexed);
+    }
+
+    /**
+     * Queues again the entities that were not found, unless they were changed again meanwhile or have been
+     * looked for too often.
+     */
+    private synchronized void requeue(List<PendingEntity> notFound) {
+        long now = System.currentTimeMillis();
+        for (PendingEntity entity : notFound) {
+            String guid = entity.instance.getId()._getId();
+            if (entity.attempts + 1 >= MAX_NOT_FOUND_ATTEMPTS) {
+                LOG.debug("Entity {} was not found after {} attempts, taking it as deleted", guid,
+                        MAX_NOT_FOUND_ATTEMPTS);
+            } else if (!pending.containsKey(guid)) {
+                PendingEntity requeued = new PendingEntity(entity.instance, now);
+                requeued.attempts = entity.attempts + 1;
+                pending.put(guid, requeued);
+            }
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getIndexedEntities() {
+        return indexedEntities.get();
+    }
+
+    public long getCoalescedChanges() {
+        return coalescedChanges.get();
+    }
+
+    @VisibleForTesting
+    static final class PendingEntity {
+        private ITypedReferenceableInstance instance;
+        private final long queuedAt;
+        private int attempts = 0;
+
+        PendingEntity(ITypedReferenceableInstance instance, long queuedAt) {
+            this.instance = instance;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
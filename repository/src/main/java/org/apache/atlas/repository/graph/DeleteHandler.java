@@ -380,6 +380,8 @@ public abstract class DeleteHandler {
             RequestContext requestContext = RequestContext.get();
             deleteContext.setProperty(outVertex, Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY,
                     requestContext.getRequestTime());
+            //the entity no longer has the attributes it was last written with
+            deleteContext.setProperty(outVertex, Constants.ENTITY_SIGNATURE_PROPERTY_KEY, null);
             requestContext.recordEntityUpdate(outId);
         }
     }
@@ -50,6 +50,20 @@ public class FullTextMapper {
         instanceCache = new HashMap<>();
     }
 
+    /**
+     * @return the instance mapped from the graph for the given guid by this mapper, null if it hasn't been mapped
+     */
+    ITypedReferenceableInstance getCachedInstance(String guid) {
+        return instanceCache.get(guid);
+    }
+
+    /**
+     * Adds an instance to the cache, so that it is used instead of being mapped from the graph.
+     */
+    void cache(ITypedReferenceableInstance instance) {
+        instanceCache.put(instance.getId()._getId(), instance);
+    }
+
     public <V,E> String mapRecursive(AtlasVertex<V,E> instanceVertex, boolean followReferences) throws AtlasException {
         String guid = instanceVertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class);
         ITypedReferenceableInstance typedReference;
@@ -62,6 +76,15 @@ public class FullTextMapper {
             instanceCache.put(guid, typedReference);
             LOG.debug("Cache miss: guid = {}, entityId = {}", guid, typedReference.getId().getId());
         }
+        return mapInstance(typedReference, followReferences);
+    }
+
+    /**
+     * Builds the full text of the given instance. Referred entities are taken from the cache, and only mapped from
+     * the graph if they are not in it.
+     */
+    public String mapInstance(ITypedReferenceableInstance typedReference, boolean followReferences)
+        throws AtlasException {
         String fullText = forInstance(typedReference, followReferences);
         StringBuilder fullTextBuilder =
             new StringBuilder(typedReference.getTypeName()).append(FULL_TEXT_DELIMITER).append(fullText);
@@ -122,6 +145,10 @@ public class FullTextMapper {
         case CLASS:
             if (followReferences) {
                 String refGuid = ((ITypedReferenceableInstance) value).getId()._getId();
+                ITypedReferenceableInstance refInstance = instanceCache.get(refGuid);
+                if (refInstance != null) {
+                    return mapInstance(refInstance, false);
+                }
                 AtlasVertex refVertex = graphHelper.getVertexForGUID(refGuid);
                 return mapRecursive(refVertex, false);
             }
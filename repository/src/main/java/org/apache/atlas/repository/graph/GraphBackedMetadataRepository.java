@@ -19,17 +19,27 @@
 package org.apache.atlas.repository.graph;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.GraphTransaction;
+import org.apache.atlas.GraphTransactionInterceptor;
 import org.apache.atlas.RequestContext;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.MetadataRepository;
 import org.apache.atlas.repository.RepositoryException;
@@ -52,7 +62,9 @@ import org.apache.atlas.typesystem.types.TypeSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 
 /**
  * An implementation backed by a Graph database provided
@@ -73,11 +85,49 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
 
     private GraphToTypedInstanceMapper graphToInstanceMapper;
 
+    private final boolean deferFullText;
+
+    public static final String CONFIG_SKIP_UNCHANGED = "atlas.repository.skipUnchanged.enabled";
+
+    /** metric of the number of entity updates skipped since the entities were unchanged */
+    public static final String METRIC_SKIPPED_ENTITY_UPDATES = "repository.skippedEntityUpdates";
+
+    /** metric of the number of listener notifications and other actions that failed after their commit */
+    public static final String METRIC_FAILED_POST_COMMIT_ACTIONS = "repository.failedPostCommitActions";
+
+    private final boolean skipUnchanged;
+
+    private final AtomicLong skippedEntityUpdates = new AtomicLong();
+
     @Inject
     public GraphBackedMetadataRepository(AtlasGraphProvider graphProvider, DeleteHandler deleteHandler) {
+        this(graphProvider, deleteHandler, isSkipUnchangedEnabled());
+    }
+
+    @VisibleForTesting
+    GraphBackedMetadataRepository(AtlasGraphProvider graphProvider, DeleteHandler deleteHandler,
+                                  boolean skipUnchanged) {
         this.graph = graphProvider.get();
         this.graphToInstanceMapper = new GraphToTypedInstanceMapper(graph);
         this.deleteHandler = deleteHandler;
+        this.deferFullText = DeferredFullTextIndexer.isEnabled();
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public static boolean isSkipUnchangedEnabled() {
+        try {
+            return ApplicationProperties.get().getBoolean(CONFIG_SKIP_UNCHANGED, false);
+        } catch (AtlasException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put(METRIC_SKIPPED_ENTITY_UPDATES, skippedEntityUpdates.get());
+        metrics.put(METRIC_FAILED_POST_COMMIT_ACTIONS, GraphTransactionInterceptor.getFailedPostCommitActions());
+        return metrics;
     }
 
     public GraphToTypedInstanceMapper getGraphToInstanceMapper() {
@@ -136,7 +186,8 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
         EntityExistsException {
         LOG.debug("adding entities={}", entities);
         try {
-            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler);
+            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler,
+                    deferFullText, skipUnchanged);
             instanceToGraphMapper.mapTypedInstanceToGraph(TypedInstanceToGraphMapper.Operation.CREATE, entities);
             return RequestContext.get().getCreatedEntityIds();
         } catch (EntityExistsException e) {
@@ -160,6 +211,95 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
         }
     }
 
+    @Override
+    @GraphTransaction
+    public List<ITypedReferenceableInstance> getEntityDefinitions(List<String> guids)
+            throws RepositoryException, EntityNotFoundException {
+        LOG.debug("Retrieving entities with guids={}", guids);
+
+        RequestContext context = RequestContext.get();
+        Map<String, ITypedReferenceableInstance> entitiesByGuid = new HashMap<>();
+        Map<String, AtlasVertex<?,?>> instanceVertices = new LinkedHashMap<>();
+        try {
+            for (String guid : guids) {
+                ITypedReferenceableInstance entity = context.getInstance(guid);
+                if (entity != null) {
+                    LOG.debug("Using entity guid={} written in the current request", guid);
+                    entitiesByGuid.put(guid, entity);
+                } else if (!instanceVertices.containsKey(guid)) {
+                    AtlasVertex<?,?> instanceVertex = graphHelper.getVertexForGUID(guid);
+                    instanceVertices.put(guid, instanceVertex);
+                }
+            }
+
+            //the entities read from the graph are mapped together, so that their adjacency is prefetched together
+            List<ITypedReferenceableInstance> mapped = graphToInstanceMapper.mapGraphToTypedInstances(instanceVertices);
+            for (ITypedReferenceableInstance entity : mapped) {
+                entitiesByGuid.put(entity.getId()._getId(), entity);
+            }
+        } catch (EntityNotFoundException e) {
+            throw e;
+        } catch (AtlasException e) {
+            throw new RepositoryException(e);
+        }
+
+        List<ITypedReferenceableInstance> entities = new ArrayList<>(guids.size());
+        for (String guid : guids) {
+            entities.add(entitiesByGuid.get(guid));
+        }
+        return entities;
+    }
+
+    @Override
+    @GraphTransaction
+    public ITypedReferenceableInstance getEntityDefinition(String guid, Map<String, Long> modificationTimestamps)
+            throws RepositoryException, EntityNotFoundException {
+        ITypedReferenceableInstance entity = getEntityDefinition(guid);
+
+        //the vertices were read by the mapping in this transaction, so their timestamps match the definition
+        Set<String> guids = new LinkedHashSet<>();
+        guids.add(guid);
+        try {
+            addIncludedGuids(entity.getValuesMap().values(), guids);
+        } catch (AtlasException e) {
+            throw new RepositoryException(e);
+        }
+        modificationTimestamps.putAll(getModificationTimestamps(guids));
+        return entity;
+    }
+
+    private static void addIncludedGuids(Collection<?> values, Set<String> guids) throws AtlasException {
+        for (Object value : values) {
+            if (value instanceof Id) {
+                //other references are ids, whose state changes when the referenced entity is deleted
+                guids.add(((Id) value)._getId());
+            } else if (value instanceof ITypedReferenceableInstance) {
+                //composite entities are included in the definition
+                ITypedReferenceableInstance entity = (ITypedReferenceableInstance) value;
+                if (guids.add(entity.getId()._getId())) {
+                    addIncludedGuids(entity.getValuesMap().values(), guids);
+                }
+            } else if (value instanceof ITypedStruct) {
+                addIncludedGuids(((ITypedStruct) value).getValuesMap().values(), guids);
+            } else if (value instanceof Collection) {
+                addIncludedGuids((Collection<?>) value, guids);
+            } else if (value instanceof Map) {
+                addIncludedGuids(((Map<?, ?>) value).values(), guids);
+            }
+        }
+    }
+
+    @Override
+    @GraphTransaction
+    public Map<String, Long> getModificationTimestamps(Collection<String> guids) throws RepositoryException {
+        Map<String, Long> modificationTimestamps = new HashMap<>();
+        for (Map.Entry<String, AtlasVertex<?, ?>> entry : graphHelper.getVerticesForGUIDs(guids).entrySet()) {
+            modificationTimestamps.put(entry.getKey(),
+                    entry.getValue().getProperty(Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY, Long.class));
+        }
+        return modificationTimestamps;
+    }
+
     @Override
     @GraphTransaction
     public ITypedReferenceableInstance getEntityDefinition(String entityType, String attribute, Object value)
@@ -179,10 +319,24 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     @Override
     @GraphTransaction
     public <V,E> List<String> getEntityList(String entityType) throws RepositoryException {
-        LOG.debug("Retrieving entity list for type={}", entityType);
+        return getEntityList(entityType, QueryParams.all());
+    }
+
+    @Override
+    @GraphTransaction
+    public <V,E> List<String> getEntityList(String entityType, QueryParams queryParams) throws RepositoryException {
+        LOG.debug("Retrieving entity list for type={}, {}", entityType, queryParams);
         AtlasGraph<V,E> graph = getGraph();
         AtlasGraphQuery<V,E> query = graph.query().has(Constants.ENTITY_TYPE_PROPERTY_KEY, entityType);
+        if (queryParams.hasLimit()) {
+            //the backend cannot skip, so it returns the skipped vertices as well
+            query.limit(queryParams.offset() + queryParams.limit());
+        }
         Iterator<AtlasVertex<V,E>> results = query.vertices().iterator();
+        Iterators.advance(results, queryParams.offset());
+        if (queryParams.hasLimit()) {
+            results = Iterators.limit(results, queryParams.limit());
+        }
         if (!results.hasNext()) {
             return Collections.emptyList();
         }
@@ -225,6 +379,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
         Preconditions.checkNotNull(traitInstance, "Trait instance cannot be null");
         final String traitName = traitInstance.getTypeName();
         LOG.debug("Adding a new trait={} for entity={}", traitName, guid);
+        RequestContext.get().evictInstance(guid);
 
         try {
             AtlasVertex instanceVertex = graphHelper.getVertexForGUID(guid);
@@ -232,7 +387,8 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
             // add the trait instance as a new vertex
             final String typeName = GraphHelper.getTypeName(instanceVertex);
 
-            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler);
+            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler,
+                    deferFullText);
             instanceToGraphMapper.mapTraitInstanceToVertex(traitInstance,
                     typeSystem.getDataType(ClassType.class, typeName), instanceVertex);
 
@@ -260,6 +416,7 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     @GraphTransaction
     public void deleteTrait(String guid, String traitNameToBeDeleted) throws TraitNotFoundException, EntityNotFoundException, RepositoryException {
         LOG.debug("Deleting trait={} from entity={}", traitNameToBeDeleted, guid);
+        RequestContext.get().evictInstance(guid);
 
         AtlasVertex instanceVertex = graphHelper.getVertexForGUID(guid);
 
@@ -303,9 +460,11 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     public AtlasClient.EntityResult updateEntities(ITypedReferenceableInstance... entitiesUpdated) throws RepositoryException {
         LOG.debug("updating entity {}", entitiesUpdated);
         try {
-            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler);
+            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler,
+                    deferFullText, skipUnchanged);
             instanceToGraphMapper.mapTypedInstanceToGraph(TypedInstanceToGraphMapper.Operation.UPDATE_FULL,
                     entitiesUpdated);
+            recordSkippedUpdates(instanceToGraphMapper);
             RequestContext requestContext = RequestContext.get();
             return new AtlasClient.EntityResult(requestContext.getCreatedEntityIds(),
                     requestContext.getUpdatedEntityIds(), requestContext.getDeletedEntityIds());
@@ -319,8 +478,10 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
     public AtlasClient.EntityResult updatePartial(ITypedReferenceableInstance entity) throws RepositoryException {
         LOG.debug("updating entity {}", entity);
         try {
-            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler);
+            TypedInstanceToGraphMapper instanceToGraphMapper = new TypedInstanceToGraphMapper(graphToInstanceMapper, deleteHandler,
+                    deferFullText, skipUnchanged);
             instanceToGraphMapper.mapTypedInstanceToGraph(TypedInstanceToGraphMapper.Operation.UPDATE_PARTIAL, entity);
+            recordSkippedUpdates(instanceToGraphMapper);
             RequestContext requestContext = RequestContext.get();
             return new AtlasClient.EntityResult(requestContext.getCreatedEntityIds(),
                     requestContext.getUpdatedEntityIds(), requestContext.getDeletedEntityIds());
@@ -329,6 +490,14 @@ public class GraphBackedMetadataRepository implements MetadataRepository {
         }
     }
 
+    private void recordSkippedUpdates(TypedInstanceToGraphMapper instanceToGraphMapper) {
+        List<String> skippedEntityIds = instanceToGraphMapper.getSkippedEntityIds();
+        if (!skippedEntityIds.isEmpty()) {
+            LOG.debug("Skipped updates of unchanged entities {}", skippedEntityIds);
+            skippedEntityUpdates.addAndGet(skippedEntityIds.size());
+        }
+    }
+
     @Override
     @GraphTransaction
     public AtlasClient.EntityResult deleteEntities(List<String> guids) throws RepositoryException {
@@ -62,6 +62,9 @@ public class GraphBackedSearchIndexer implements SearchIndexer, ActiveStateChang
 
     private final AtlasGraph<?,?> graph;
 
+    //set once the global indexes are known to exist, so that becoming active again does not need to check for them
+    private volatile boolean globalIndexesExist = false;
+
     List<Class> MIXED_INDEX_EXCLUSIONS = new ArrayList<Class>() {{
             add(Boolean.class);
             add(BigDecimal.class);
@@ -78,6 +81,28 @@ public class GraphBackedSearchIndexer implements SearchIndexer, ActiveStateChang
         this.graph = (AtlasGraph<?,?>)graphProvider.get();
 	    if (!HAConfiguration.isHAEnabled(configuration)) {
             initialize();
+        } else if (HAConfiguration.isWarmStandbyEnabled(configuration)) {
+            checkGlobalIndexes();
+        }
+    }
+
+    /**
+     * Checks, without creating them, whether the global indexes exist, so that a passive instance that becomes
+     * active does not need to initialize them.
+     */
+    private void checkGlobalIndexes() {
+        AtlasGraphManagement management = graph.getManagementSystem();
+        try {
+            globalIndexesExist = management.containsPropertyKey(Constants.VERTEX_TYPE_PROPERTY_KEY);
+            LOG.info("Global indexes exist for graph: {}", globalIndexesExist);
+        } catch (Exception e) {
+            LOG.warn("Could not check for global indexes, they will be initialized on becoming active", e);
+        } finally {
+            try {
+                rollback(management);
+            } catch (IndexException e) {
+                LOG.warn("Could not close the management system after checking for global indexes", e);
+            }
         }
     }
 
@@ -92,6 +117,7 @@ public class GraphBackedSearchIndexer implements SearchIndexer, ActiveStateChang
 
             if (management.containsPropertyKey(Constants.VERTEX_TYPE_PROPERTY_KEY)) {
                 LOG.info("Global indexes already exist for graph");
+                globalIndexesExist = true;
                 return;
             }
 
@@ -141,6 +167,7 @@ public class GraphBackedSearchIndexer implements SearchIndexer, ActiveStateChang
             createTypeStoreIndexes(management);
 
             commit(management);
+            globalIndexesExist = true;
             LOG.info("Index creation for global keys complete.");
 
         } catch (Throwable t) {
@@ -376,6 +403,10 @@ public class GraphBackedSearchIndexer implements SearchIndexer, ActiveStateChang
      */
     @Override
     public void instanceIsActive() throws AtlasException {
+        if (globalIndexesExist) {
+            LOG.info("Reacting to active: global indexes already exist");
+            return;
+        }
         LOG.info("Reacting to active: initializing index");
         try {
             initialize();
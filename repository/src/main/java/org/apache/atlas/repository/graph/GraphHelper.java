@@ -20,13 +20,20 @@ package org.apache.atlas.repository.graph;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.google.common.collect.Lists;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.repository.Constants;
@@ -70,6 +77,9 @@ public final class GraphHelper {
 
     private static final TypeSystem typeSystem = TypeSystem.getInstance();
 
+    /** maximum number of values looked up in one index query */
+    private static final int IN_QUERY_BATCH_SIZE = 100;
+
     private static final GraphHelper INSTANCE = new GraphHelper(AtlasGraphProvider.getGraphInstance());
 
     private AtlasGraph<?,?> graph;
@@ -94,6 +104,11 @@ public final class GraphHelper {
         // add version information
         setProperty(vertexWithIdentity, Constants.VERSION_PROPERTY_KEY, typedInstance.getId().version);
 
+        VertexLookupCache lookupCache = VertexLookupCache.get();
+        if (lookupCache != null) {
+            lookupCache.putByGuid(guid, vertexWithIdentity);
+        }
+
         return vertexWithIdentity;
     }
 
@@ -186,8 +201,8 @@ public final class GraphHelper {
         String conditionStr = condition.toString();
         LOG.debug("Finding vertex with {}", conditionStr);
 
-        Iterator<AtlasVertex<V,E>> results = query.vertices().iterator();
         // returning one since entityType, qualifiedName should be unique
+        Iterator<AtlasVertex<V,E>> results = query.limit(1).vertices().iterator();
         AtlasVertex<V,E> vertex = results.hasNext() ? results.next() : null;
 
         //in some cases, even though the state property has been changed to DELETED, the 
@@ -219,6 +234,15 @@ public final class GraphHelper {
      */
     public static <V,E> AtlasEdge<V,E> getEdgeForLabel(AtlasVertex<V,E> vertex, String edgeLabel) {
         Iterable<AtlasEdge<V,E>> edges = GraphHelper.getOutGoingEdgesByLabel(vertex, edgeLabel);
+        return getActiveOrLatestDeletedEdge(edges);
+    }
+
+    /**
+     * Returns the first active edge among the given edges, or the latest deleted edge if there is no active edge
+     * @param edges
+     * @return
+     */
+    public static <V,E> AtlasEdge<V,E> getActiveOrLatestDeletedEdge(Iterable<AtlasEdge<V,E>> edges) {
         AtlasEdge<V,E> latestDeletedEdge = null;
         if(edges != null) {
 
@@ -325,7 +349,34 @@ public final class GraphHelper {
     }
 
     public <V,E> AtlasVertex<V,E> getVertexForGUID(String guid) throws EntityNotFoundException {
-        return findVertex(Constants.GUID_PROPERTY_KEY, guid);
+        VertexLookupCache lookupCache = VertexLookupCache.get();
+        if (lookupCache == null) {
+            return findVertex(Constants.GUID_PROPERTY_KEY, guid);
+        }
+
+        AtlasVertex<V,E> vertex = lookupCache.getByGuid(guid);
+        if (vertex == null) {
+            vertex = findVertex(Constants.GUID_PROPERTY_KEY, guid);
+            lookupCache.putByGuid(guid, vertex);
+        }
+        return vertex;
+    }
+
+    /**
+     * Looks up the vertices of the given guids in one index query per IN_QUERY_BATCH_SIZE guids.
+     *
+     * @return the vertices found, by guid; guids without a vertex are left out
+     */
+    public Map<String, AtlasVertex<?, ?>> getVerticesForGUIDs(Collection<String> guids) {
+        Map<String, AtlasVertex<?, ?>> result = new HashMap<>();
+        for (List<String> batch : Lists.partition(new ArrayList<>(guids), IN_QUERY_BATCH_SIZE)) {
+            for (AtlasVertex<?, ?> vertex : getGraph().query().in(Constants.GUID_PROPERTY_KEY, batch).vertices()) {
+                if (elementExists(vertex)) {
+                    result.put(getIdFromVertex(vertex), vertex);
+                }
+            }
+        }
+        return result;
     }
 
     public static String getQualifiedNameForMapKey(String prefix, String key) {
@@ -417,11 +468,23 @@ public final class GraphHelper {
         for (AttributeInfo attributeInfo : classType.fieldMapping().fields.values()) {
             if (attributeInfo.isUnique) {
                 String propertyKey = getQualifiedFieldName(classType, attributeInfo.name);
+                Object value = instance.get(attributeInfo.name);
+                VertexLookupCache lookupCache = value != null ? VertexLookupCache.get() : null;
+                if (lookupCache != null) {
+                    AtlasVertex cached = lookupCache.getByUniqueAttribute(classType.getName(), propertyKey, value);
+                    if (cached != null) {
+                        result = cached;
+                        continue;
+                    }
+                }
                 try {
-                    result = findVertex(propertyKey, instance.get(attributeInfo.name),
+                    result = findVertex(propertyKey, value,
                             Constants.ENTITY_TYPE_PROPERTY_KEY, classType.getName(),
                             Constants.STATE_PROPERTY_KEY, Id.EntityState.ACTIVE.name());
-                    LOG.debug("Found vertex by unique attribute : " + propertyKey + "=" + instance.get(attributeInfo.name));
+                    LOG.debug("Found vertex by unique attribute : " + propertyKey + "=" + value);
+                    if (lookupCache != null) {
+                        lookupCache.putByUniqueAttribute(classType.getName(), propertyKey, value, result);
+                    }
                 } catch (EntityNotFoundException e) {
                     //Its ok if there is no entity with the same unique value
                 }
@@ -431,6 +494,112 @@ public final class GraphHelper {
         return result;
     }
 
+    /**
+     * Looks up the vertices of the given instances in a few index queries: one for the assigned guids, and one
+     * per unique attribute of each type for the values of the instances without a guid, up to
+     * IN_QUERY_BATCH_SIZE values per query. The vertices found are added to the lookup cache of the current graph
+     * transaction, where {@link #getVertexForGUID(String)} and
+     * {@link #getVertexForInstanceByUniqueAttribute(ClassType, IReferenceableInstance)} find them. Does nothing
+     * outside of a graph transaction.
+     *
+     * @return the instances without a guid that match no vertex by any of their unique attribute values, and share
+     * none of those values with another of the given instances
+     */
+    public Set<IReferenceableInstance> prefetchVertices(Collection<? extends IReferenceableInstance> instances)
+        throws AtlasException {
+        Set<IReferenceableInstance> notFound =
+                Collections.newSetFromMap(new IdentityHashMap<IReferenceableInstance, Boolean>());
+        VertexLookupCache lookupCache = VertexLookupCache.get();
+        if (lookupCache == null) {
+            return notFound;
+        }
+
+        Set<String> guids = new LinkedHashSet<>();
+        Map<String, UniqueAttributeLookup> uniqueAttributeLookups = new LinkedHashMap<>();
+        for (IReferenceableInstance instance : instances) {
+            if (instance.getId().isAssigned()) {
+                guids.add(instance.getId()._getId());
+                continue;
+            }
+
+            notFound.add(instance);
+            ClassType classType = typeSystem.getDataType(ClassType.class, instance.getTypeName());
+            for (AttributeInfo attributeInfo : classType.fieldMapping().fields.values()) {
+                Object value = attributeInfo.isUnique ? instance.get(attributeInfo.name) : null;
+                if (value != null) {
+                    String propertyKey = getQualifiedFieldName(classType, attributeInfo.name);
+                    String lookupKey = classType.getName() + Constants.SEPARATOR + propertyKey;
+                    UniqueAttributeLookup lookup = uniqueAttributeLookups.get(lookupKey);
+                    if (lookup == null) {
+                        lookup = new UniqueAttributeLookup(classType.getName(), propertyKey);
+                        uniqueAttributeLookups.put(lookupKey, lookup);
+                    }
+                    lookup.add(value, instance);
+                }
+            }
+        }
+
+        for (List<String> batch : Lists.partition(new ArrayList<>(guids), IN_QUERY_BATCH_SIZE)) {
+            for (AtlasVertex<?, ?> vertex : getGraph().query().in(Constants.GUID_PROPERTY_KEY, batch).vertices()) {
+                if (elementExists(vertex)) {
+                    lookupCache.putByGuid(getIdFromVertex(vertex), vertex);
+                }
+            }
+        }
+
+        for (UniqueAttributeLookup lookup : uniqueAttributeLookups.values()) {
+            for (List<Object> batch : Lists.partition(new ArrayList<>(lookup.instancesByValue.keySet()),
+                    IN_QUERY_BATCH_SIZE)) {
+                AtlasGraphQuery<?, ?> query = getGraph().query()
+                        .has(Constants.ENTITY_TYPE_PROPERTY_KEY, lookup.typeName)
+                        .has(Constants.STATE_PROPERTY_KEY, Id.EntityState.ACTIVE.name())
+                        .in(lookup.propertyKey, batch);
+                for (AtlasVertex<?, ?> vertex : query.vertices()) {
+                    Object value = vertex.getProperty(lookup.propertyKey, Object.class);
+                    List<IReferenceableInstance> matching = lookup.instancesByValue.get(value);
+                    if (matching != null && elementExists(vertex)) {
+                        lookupCache.putByUniqueAttribute(lookup.typeName, lookup.propertyKey, value, vertex);
+                        notFound.removeAll(matching);
+                    }
+                }
+            }
+
+            //an instance sharing a value with another may find the vertex created for the other one
+            for (List<IReferenceableInstance> sharing : lookup.instancesByValue.values()) {
+                if (sharing.size() > 1) {
+                    notFound.removeAll(sharing);
+                }
+            }
+        }
+
+        LOG.debug("Prefetched vertices of {} guids and {} unique attributes, {} instances have no vertex",
+                guids.size(), uniqueAttributeLookups.size(), notFound.size());
+        return notFound;
+    }
+
+    /**
+     * Instances to be looked up by the values of one unique attribute of a type.
+     */
+    private static final class UniqueAttributeLookup {
+        private final String typeName;
+        private final String propertyKey;
+        private final Map<Object, List<IReferenceableInstance>> instancesByValue = new LinkedHashMap<>();
+
+        UniqueAttributeLookup(String typeName, String propertyKey) {
+            this.typeName = typeName;
+            this.propertyKey = propertyKey;
+        }
+
+        void add(Object value, IReferenceableInstance instance) {
+            List<IReferenceableInstance> instances = instancesByValue.get(value);
+            if (instances == null) {
+                instances = new ArrayList<>(1);
+                instancesByValue.put(value, instances);
+            }
+            instances.add(instance);
+        }
+    }
+
     private <V,E> AtlasGraph<V,E> getGraph() {
         return (AtlasGraph<V,E>)graph;
     }
@@ -17,6 +17,7 @@
  */
 package org.apache.atlas.repository.graph;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Singleton;
 
 
@@ -24,6 +25,7 @@ import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.typesystem.ITypedInstance;
@@ -44,13 +46,22 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.apache.atlas.repository.graph.GraphHelper.string;
 
+/**
+ * Maps entity vertices to typed instances.
+ *
+ * With atlas.repository.prefetch.enabled, the edges and vertices making up an entity are read in one batch per
+ * level of the entity before it is mapped (see {@link PrefetchedAdjacency}), instead of one read per reference.
+ */
 @Singleton
 public final class GraphToTypedInstanceMapper {
 
@@ -58,15 +69,86 @@ public final class GraphToTypedInstanceMapper {
     private static TypeSystem typeSystem = TypeSystem.getInstance();
     private static final GraphHelper graphHelper = GraphHelper.getInstance();
 
+    public static final String CONFIG_PREFETCH_ENABLED = "atlas.repository.prefetch.enabled";
+
     private final AtlasGraph<?,?> graph;
+    private final boolean prefetchEnabled;
 
+    /** adjacency prefetched for the entities being mapped by the current thread */
+    private final ThreadLocal<PrefetchedAdjacency<?,?>> prefetched = new ThreadLocal<>();
 
     public GraphToTypedInstanceMapper(AtlasGraph<?,?> graph) {
+        this(graph, isPrefetchEnabled());
+    }
+
+    @VisibleForTesting
+    GraphToTypedInstanceMapper(AtlasGraph<?,?> graph, boolean prefetchEnabled) {
         this.graph = graph;
+        this.prefetchEnabled = prefetchEnabled;
+    }
+
+    public static boolean isPrefetchEnabled() {
+        try {
+            return ApplicationProperties.get().getBoolean(CONFIG_PREFETCH_ENABLED, false);
+        } catch (AtlasException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public ITypedReferenceableInstance mapGraphToTypedInstance(String guid, AtlasVertex<?,?> instanceVertex)
         throws AtlasException {
+        if (!prefetchEnabled || prefetched.get() != null) {
+            return mapVertexToTypedInstance(guid, instanceVertex);
+        }
+
+        //composite entities are mapped with the adjacency prefetched for the entity referencing them
+        prefetched.set(prefetch(Collections.<AtlasVertex<?,?>>singleton(instanceVertex)));
+        try {
+            return mapVertexToTypedInstance(guid, instanceVertex);
+        } finally {
+            prefetched.remove();
+        }
+    }
+
+    /**
+     * Maps the entity vertices, keyed by guid, to typed instances in the order of the map. With prefetching enabled,
+     * the adjacency of all the entities is prefetched together.
+     */
+    public List<ITypedReferenceableInstance> mapGraphToTypedInstances(Map<String, AtlasVertex<?,?>> instanceVertices)
+        throws AtlasException {
+        List<ITypedReferenceableInstance> result = new ArrayList<>(instanceVertices.size());
+        boolean prefetch = prefetchEnabled && prefetched.get() == null;
+        if (prefetch) {
+            prefetched.set(prefetch(instanceVertices.values()));
+        }
+        try {
+            for (Map.Entry<String, AtlasVertex<?,?>> entry : instanceVertices.entrySet()) {
+                result.add(mapVertexToTypedInstance(entry.getKey(), entry.getValue()));
+            }
+        } finally {
+            if (prefetch) {
+                prefetched.remove();
+            }
+        }
+        return result;
+    }
+
+    private <V,E> PrefetchedAdjacency<V,E> prefetch(Collection<AtlasVertex<?,?>> instanceVertices)
+        throws AtlasException {
+        Map<AtlasVertex<V,E>, ClassType> entityVertices = new LinkedHashMap<>();
+        for (AtlasVertex<?,?> instanceVertex : instanceVertices) {
+            String typeName = instanceVertex.getProperty(Constants.ENTITY_TYPE_PROPERTY_KEY, String.class);
+            entityVertices.put((AtlasVertex<V,E>) instanceVertex, typeSystem.getDataType(ClassType.class, typeName));
+        }
+        return PrefetchedAdjacency.load((AtlasGraph<V,E>) graph, entityVertices);
+    }
+
+    private <V,E> PrefetchedAdjacency<V,E> getPrefetched() {
+        return (PrefetchedAdjacency<V,E>) prefetched.get();
+    }
+
+    private ITypedReferenceableInstance mapVertexToTypedInstance(String guid, AtlasVertex<?,?> instanceVertex)
+        throws AtlasException {
 
         LOG.debug("Mapping graph root vertex {} to typed instance for guid {}", instanceVertex, guid);
         String typeName = instanceVertex.getProperty(Constants.ENTITY_TYPE_PROPERTY_KEY, String.class);
@@ -162,7 +244,7 @@ public final class GraphToTypedInstanceMapper {
     private <V,E> Object mapVertexToClassReference(AtlasVertex<V,E> instanceVertex, AttributeInfo attributeInfo,
             String relationshipLabel, IDataType dataType, String edgeId) throws AtlasException {
         
-        AtlasEdge<V,E> edge = graphHelper.getEdgeByEdgeId(instanceVertex, relationshipLabel, edgeId);
+        AtlasEdge<V,E> edge = getEdgeByEdgeId(instanceVertex, relationshipLabel, edgeId);
         return mapVertexToClassReference(instanceVertex, attributeInfo, relationshipLabel, dataType, edge);
         
     }
@@ -172,7 +254,7 @@ public final class GraphToTypedInstanceMapper {
 
  		AtlasEdge<V,E> edge = null;
         if (theEdge == null) {
-            edge = GraphHelper.getEdgeForLabel(instanceVertex, relationshipLabel);
+            edge = getEdgeForLabel(instanceVertex, relationshipLabel);
         } else {
             edge = theEdge;
         }
@@ -282,9 +364,9 @@ public final class GraphToTypedInstanceMapper {
 
         AtlasEdge<V,E> edge;
         if (edgeId == null) {
-            edge = GraphHelper.getEdgeForLabel(instanceVertex, relationshipLabel);
+            edge = getEdgeForLabel(instanceVertex, relationshipLabel);
         } else {
-            edge = graphHelper.getEdgeByEdgeId(instanceVertex, relationshipLabel, edgeId);
+            edge = getEdgeByEdgeId(instanceVertex, relationshipLabel, edgeId);
         }
 
         if (GraphHelper.elementExists(edge)) {
@@ -309,7 +391,7 @@ public final class GraphToTypedInstanceMapper {
         TraitType traitType, ITypedStruct traitInstance) throws AtlasException {
         String relationshipLabel = GraphHelper.getTraitLabel(typedInstanceTypeName, traitName);
         LOG.debug("Finding edge for {} -> label {} ", instanceVertex, relationshipLabel);
-        for (AtlasEdge<?,?> edge : instanceVertex.getEdges(AtlasEdgeDirection.OUT, relationshipLabel)) {
+        for (AtlasEdge<?,?> edge : getOutGoingEdgesByLabel(instanceVertex, relationshipLabel)) {
             final AtlasVertex<?,?> traitInstanceVertex = edge.getInVertex();
             if (traitInstanceVertex != null) {
                 LOG.debug("Found trait instance vertex {}, mapping to instance {} ", traitInstanceVertex,
@@ -320,6 +402,25 @@ public final class GraphToTypedInstanceMapper {
         }
     }
 
+    private <V,E> AtlasEdge<V,E> getEdgeByEdgeId(AtlasVertex<V,E> outVertex, String edgeLabel, String edgeId) {
+        PrefetchedAdjacency<V,E> adjacency = getPrefetched();
+        AtlasEdge<V,E> edge = adjacency == null || edgeId == null ? null : adjacency.getEdge(edgeId);
+        return edge != null ? edge : graphHelper.getEdgeByEdgeId(outVertex, edgeLabel, edgeId);
+    }
+
+    private <V,E> AtlasEdge<V,E> getEdgeForLabel(AtlasVertex<V,E> vertex, String edgeLabel) {
+        PrefetchedAdjacency<V,E> adjacency = getPrefetched();
+        List<AtlasEdge<V,E>> edges = adjacency == null ? null : adjacency.getOutEdges(vertex, edgeLabel);
+        return edges == null ? GraphHelper.getEdgeForLabel(vertex, edgeLabel)
+            : GraphHelper.getActiveOrLatestDeletedEdge(edges);
+    }
+
+    private <V,E> Iterable<AtlasEdge<V,E>> getOutGoingEdgesByLabel(AtlasVertex<V,E> vertex, String edgeLabel) {
+        PrefetchedAdjacency<V,E> adjacency = getPrefetched();
+        List<AtlasEdge<V,E>> edges = adjacency == null ? null : adjacency.getOutEdges(vertex, edgeLabel);
+        return edges == null ? vertex.getEdges(AtlasEdgeDirection.OUT, edgeLabel) : edges;
+    }
+
     private void mapVertexToPrimitive(AtlasVertex<?,?> instanceVertex, ITypedInstance typedInstance,
         AttributeInfo attributeInfo) throws AtlasException {
         LOG.debug("Adding primitive {} from vertex {}", attributeInfo, instanceVertex);
@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.typesystem.types.AttributeInfo;
+import org.apache.atlas.typesystem.types.ClassType;
+import org.apache.atlas.typesystem.types.DataTypes;
+import org.apache.atlas.typesystem.types.IConstructableType;
+import org.apache.atlas.typesystem.types.IDataType;
+import org.apache.atlas.typesystem.types.TraitType;
+import org.apache.atlas.typesystem.types.TypeSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outgoing edges of the vertices that make up one or more entities, read ahead of mapping the entities to typed
+ * instances.
+ *
+ * The vertices are read level by level, starting from the entity vertices: the outgoing edges of all the vertices of
+ * a level are read in one batch, then the properties of all the vertices they point to. Struct, trait and composite
+ * entity vertices are the next level, since the mapper reads their attributes as well; the other referenced entities
+ * only contribute their id, which is read from the prefetched properties. Entities loaded together share their
+ * batches, so loading N entities takes as many batches as the deepest of them rather than N times as many.
+ *
+ * Only valid within the graph transaction it was loaded in.
+ *
+ * @param <V> vertex class used by the graph
+ * @param <E> edge class used by the graph
+ */
+final class PrefetchedAdjacency<V, E> {
+    private static final Logger LOG = LoggerFactory.getLogger(PrefetchedAdjacency.class);
+
+    private static final TypeSystem typeSystem = TypeSystem.getInstance();
+
+    private final Map<AtlasVertex<V, E>, List<AtlasEdge<V, E>>> outEdgesByVertex = new HashMap<>();
+    private final Map<String, AtlasEdge<V, E>> edgesById = new HashMap<>();
+
+    private PrefetchedAdjacency() {
+    }
+
+    public static <V, E> PrefetchedAdjacency<V, E> load(AtlasGraph<V, E> graph, AtlasVertex<V, E> entityVertex,
+        ClassType classType) throws AtlasException {
+        Map<AtlasVertex<V, E>, ClassType> entityVertices = new LinkedHashMap<>();
+        entityVertices.put(entityVertex, classType);
+        return load(graph, entityVertices);
+    }
+
+    /**
+     * Loads the adjacency of all the given entity vertices together, each with the ClassType of its entity.
+     */
+    public static <V, E> PrefetchedAdjacency<V, E> load(AtlasGraph<V, E> graph,
+        Map<AtlasVertex<V, E>, ClassType> entityVertices) throws AtlasException {
+        PrefetchedAdjacency<V, E> adjacency = new PrefetchedAdjacency<>();
+        Map<AtlasVertex<V, E>, IConstructableType> level = new LinkedHashMap<>();
+        level.putAll(entityVertices);
+
+        int levels = 0;
+        while (!level.isEmpty()) {
+            levels++;
+            level = adjacency.loadLevel(graph, level);
+        }
+        LOG.debug("Prefetched {} edges of {} vertices of {} entities in {} levels", adjacency.edgesById.size(),
+            adjacency.outEdgesByVertex.size(), entityVertices.size(), levels);
+        return adjacency;
+    }
+
+    private Map<AtlasVertex<V, E>, IConstructableType> loadLevel(AtlasGraph<V, E> graph,
+        Map<AtlasVertex<V, E>, IConstructableType> level) throws AtlasException {
+        Map<AtlasVertex<V, E>, List<AtlasEdge<V, E>>> levelEdges = graph.getOutgoingEdges(level.keySet());
+
+        Set<AtlasVertex<V, E>> targets = new LinkedHashSet<>();
+        for (Map.Entry<AtlasVertex<V, E>, List<AtlasEdge<V, E>>> entry : levelEdges.entrySet()) {
+            List<AtlasEdge<V, E>> outEdges = new ArrayList<>(entry.getValue());
+            for (AtlasEdge<V, E> edge : outEdges) {
+                edgesById.put(edge.getId().toString(), edge);
+                targets.add(edge.getInVertex());
+            }
+            outEdgesByVertex.put(entry.getKey(), outEdges);
+        }
+        graph.prefetchProperties(targets);
+
+        Map<AtlasVertex<V, E>, IConstructableType> nextLevel = new LinkedHashMap<>();
+        for (Map.Entry<AtlasVertex<V, E>, IConstructableType> entry : level.entrySet()) {
+            List<AtlasEdge<V, E>> outEdges = outEdgesByVertex.get(entry.getKey());
+            if (outEdges == null || outEdges.isEmpty()) {
+                continue;
+            }
+
+            Map<String, IDataType> edgeTargetTypes = getEdgeTargetTypes(entry.getKey(), entry.getValue());
+            for (AtlasEdge<V, E> edge : outEdges) {
+                AtlasVertex<V, E> target = edge.getInVertex();
+                if (outEdgesByVertex.containsKey(target) || nextLevel.containsKey(target)) {
+                    continue;
+                }
+                IConstructableType targetType = getTargetType(edgeTargetTypes, edge.getLabel(), target);
+                if (targetType != null) {
+                    nextLevel.put(target, targetType);
+                }
+            }
+        }
+        return nextLevel;
+    }
+
+    /**
+     * Maps the edge labels of the attributes of the given type whose target vertex is read by the mapper to the type
+     * of their target. Composite entity references are mapped to the ClassType of the attribute, whose sub types
+     * are resolved from the target vertex.
+     */
+    private Map<String, IDataType> getEdgeTargetTypes(AtlasVertex<V, E> vertex, IConstructableType type)
+        throws AtlasException {
+        Map<String, IDataType> result = new HashMap<>();
+        for (AttributeInfo attributeInfo : type.fieldMapping().fields.values()) {
+            IDataType targetType = getTargetType(attributeInfo);
+            if (targetType != null) {
+                result.put(GraphHelper.getEdgeLabel(type, attributeInfo), targetType);
+            }
+        }
+
+        if (type instanceof ClassType) {
+            for (String traitName : GraphHelper.getTraitNames(vertex)) {
+                result.put(GraphHelper.getTraitLabel(type.getName(), traitName),
+                    typeSystem.getDataType(TraitType.class, traitName));
+            }
+        }
+        return result;
+    }
+
+    private IDataType getTargetType(AttributeInfo attributeInfo) {
+        IDataType dataType = attributeInfo.dataType();
+        switch (dataType.getTypeCategory()) {
+        case ARRAY:
+            dataType = ((DataTypes.ArrayType) dataType).getElemType();
+            break;
+
+        case MAP:
+            dataType = ((DataTypes.MapType) dataType).getValueType();
+            break;
+
+        default:
+            break;
+        }
+
+        switch (dataType.getTypeCategory()) {
+        case STRUCT:
+            return dataType;
+
+        case CLASS:
+            return attributeInfo.isComposite ? dataType : null;
+
+        default:
+            return null;
+        }
+    }
+
+    private IConstructableType getTargetType(Map<String, IDataType> edgeTargetTypes, String edgeLabel,
+        AtlasVertex<V, E> target) throws AtlasException {
+        IDataType targetType = edgeTargetTypes.get(edgeLabel);
+        if (targetType == null) {
+            // map values are on edges labelled with the attribute label and the key
+            int separator = edgeLabel.lastIndexOf(Constants.SEPARATOR);
+            while (targetType == null && separator > 0) {
+                targetType = edgeTargetTypes.get(edgeLabel.substring(0, separator));
+                separator = edgeLabel.lastIndexOf(Constants.SEPARATOR, separator - 1);
+            }
+        }
+
+        if (targetType instanceof ClassType) {
+            String typeName = target.getProperty(Constants.ENTITY_TYPE_PROPERTY_KEY, String.class);
+            return typeName == null ? null : typeSystem.getDataType(ClassType.class, typeName);
+        }
+        return (IConstructableType) targetType;
+    }
+
+    /**
+     * @return the edge with the given id, null if it was not prefetched
+     */
+    public AtlasEdge<V, E> getEdge(String edgeId) {
+        return edgesById.get(edgeId);
+    }
+
+    /**
+     * @return the outgoing edges of the vertex with the given label, null if the edges of the vertex were not
+     * prefetched
+     */
+    public List<AtlasEdge<V, E>> getOutEdges(AtlasVertex<V, E> vertex, String edgeLabel) {
+        List<AtlasEdge<V, E>> outEdges = outEdgesByVertex.get(vertex);
+        if (outEdges == null) {
+            return null;
+        }
+
+        List<AtlasEdge<V, E>> result = new ArrayList<>();
+        for (AtlasEdge<V, E> edge : outEdges) {
+            if (edgeLabel.equals(edge.getLabel())) {
+                result.add(edge);
+            }
+        }
+        return result;
+    }
+}
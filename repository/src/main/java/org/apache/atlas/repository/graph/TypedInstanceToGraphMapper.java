@@ -19,6 +19,7 @@ package org.apache.atlas.repository.graph;
 
 import static org.apache.atlas.repository.graph.GraphHelper.string;
 
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,9 +27,11 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.RequestContext;
@@ -71,11 +74,40 @@ public final class TypedInstanceToGraphMapper {
 
     private DeleteHandler deleteHandler;
     private GraphToTypedInstanceMapper graphToTypedInstanceMapper;
+    private final boolean deferFullText;
+    private final boolean skipUnchanged;
+    private final List<String> skippedEntityIds = new ArrayList<>();
+    /** signatures computed to compare the entities being updated, written with them once they are updated */
+    private final Map<Id, String> entitySignatures = new HashMap<>();
+    /** guids of the entities created or changed so far by this mapper */
+    private final Set<String> changedEntityGuids = new HashSet<>();
 
     @Inject
     public TypedInstanceToGraphMapper(GraphToTypedInstanceMapper graphToTypedInstanceMapper, DeleteHandler deleteHandler) {
+        this(graphToTypedInstanceMapper, deleteHandler, false);
+    }
+
+    /**
+     * @param deferFullText if true, the full text property is left to {@link DeferredFullTextIndexer} instead of
+     *                      being built while the entities are written
+     */
+    public TypedInstanceToGraphMapper(GraphToTypedInstanceMapper graphToTypedInstanceMapper, DeleteHandler deleteHandler,
+                                      boolean deferFullText) {
+        this(graphToTypedInstanceMapper, deleteHandler, deferFullText, false);
+    }
+
+    /**
+     * @param deferFullText if true, the full text property is left to {@link DeferredFullTextIndexer} instead of
+     *                      being built while the entities are written
+     * @param skipUnchanged if true, the signature of the attributes of the entities is kept with the entities, and
+     *                      updates to entities whose signature is unchanged are skipped
+     */
+    public TypedInstanceToGraphMapper(GraphToTypedInstanceMapper graphToTypedInstanceMapper, DeleteHandler deleteHandler,
+                                      boolean deferFullText, boolean skipUnchanged) {
         this.graphToTypedInstanceMapper = graphToTypedInstanceMapper;
         this.deleteHandler = deleteHandler;
+        this.deferFullText = deferFullText;
+        this.skipUnchanged = skipUnchanged;
     }
 
     private final String SIGNATURE_HASH_PROPERTY_KEY = Constants.INTERNAL_PROPERTY_KEY_PREFIX + "signature";
@@ -102,6 +134,7 @@ public final class TypedInstanceToGraphMapper {
             case CREATE:
                 List<String> ids = addOrUpdateAttributesAndTraits(operation, entitiesToCreate);
                 addFullTextProperty(entitiesToCreate, fulltextMapper);
+                cacheWrittenEntities(entitiesToCreate, fulltextMapper);
                 requestContext.recordEntityCreate(ids);
                 break;
 
@@ -109,11 +142,16 @@ public final class TypedInstanceToGraphMapper {
             case UPDATE_PARTIAL:
                 ids = addOrUpdateAttributesAndTraits(Operation.CREATE, entitiesToCreate);
                 requestContext.recordEntityCreate(ids);
-                ids = addOrUpdateAttributesAndTraits(operation, entitiesToUpdate);
+                // a partial update does not set all the attributes, so it cannot be compared with the signature
+                List<ITypedReferenceableInstance> changedEntities = operation == Operation.UPDATE_FULL
+                        ? removeUnchangedEntities(entitiesToUpdate, entitiesToCreate) : entitiesToUpdate;
+                ids = addOrUpdateAttributesAndTraits(operation, changedEntities);
                 requestContext.recordEntityUpdate(ids);
 
                 addFullTextProperty(entitiesToCreate, fulltextMapper);
-                addFullTextProperty(entitiesToUpdate, fulltextMapper);
+                addFullTextProperty(changedEntities, fulltextMapper);
+                cacheWrittenEntities(entitiesToCreate, fulltextMapper);
+                cacheWrittenEntities(changedEntities, fulltextMapper);
                 break;
 
             default:
@@ -122,6 +160,13 @@ public final class TypedInstanceToGraphMapper {
         }
     }
 
+    /**
+     * @return the guids of the entities whose update was skipped since they are unchanged
+     */
+    List<String> getSkippedEntityIds() {
+        return skippedEntityIds;
+    }
+
     private Collection<IReferenceableInstance> walkClassInstances(ITypedReferenceableInstance typedInstance)
             throws RepositoryException {
 
@@ -161,12 +206,14 @@ public final class TypedInstanceToGraphMapper {
         }
 
         AtlasVertex<?,?> instanceVertex = idToVertexMap.get(id);
+        RequestContext.get().evictInstance(GraphHelper.getIdFromVertex(instanceVertex));
 
         // add the attributes for the instance
         ClassType classType = typeSystem.getDataType(ClassType.class, typedInstance.getTypeName());
         final Map<String, AttributeInfo> fields = classType.fieldMapping().fields;
 
         mapInstanceToVertex(typedInstance, instanceVertex, fields, false, operation);
+        updateEntitySignature(typedInstance, instanceVertex, operation);
 
         if (Operation.CREATE.equals(operation)) {
             //TODO - Handle Trait updates
@@ -241,6 +288,7 @@ public final class TypedInstanceToGraphMapper {
 
         List<ITypedReferenceableInstance> instancesToCreate = new ArrayList<>();
         List<ITypedReferenceableInstance> instancesToUpdate = new ArrayList<>();
+        Set<IReferenceableInstance> instancesWithoutVertex = graphHelper.prefetchVertices(instances);
 
         for (IReferenceableInstance instance : instances) {
             LOG.debug("Discovering instance to create/update for {}", instance.toShortString());
@@ -262,7 +310,8 @@ public final class TypedInstanceToGraphMapper {
                 } else {
                     //Check if there is already an instance with the same unique attribute value
                     ClassType classType = typeSystem.getDataType(ClassType.class, instance.getTypeName());
-                    instanceVertex = graphHelper.getVertexForInstanceByUniqueAttribute(classType, instance);
+                    instanceVertex = instancesWithoutVertex.contains(instance) ? null
+                            : graphHelper.getVertexForInstanceByUniqueAttribute(classType, instance);
 
                     //no entity with the given unique attribute, create new
                     if (! GraphHelper.elementExists(instanceVertex)) {
@@ -293,6 +342,9 @@ public final class TypedInstanceToGraphMapper {
     }
 
     private void addFullTextProperty(List<ITypedReferenceableInstance> instances, FullTextMapper fulltextMapper) throws AtlasException {
+        if (deferFullText) {
+            return;
+        }
         for (ITypedReferenceableInstance typedInstance : instances) { // Traverse
             AtlasVertex<?,?> instanceVertex = getClassVertex(typedInstance);
             String fullText = fulltextMapper.mapRecursive(instanceVertex, true);
@@ -300,6 +352,24 @@ public final class TypedInstanceToGraphMapper {
         }
     }
 
+    /**
+     * Keeps the entities as written in the request context, for the change listeners. The full text mapper has
+     * already read the entities whose full text was just built, the others are read from the graph.
+     */
+    private void cacheWrittenEntities(List<ITypedReferenceableInstance> instances, FullTextMapper fulltextMapper)
+            throws AtlasException {
+        for (ITypedReferenceableInstance typedInstance : instances) {
+            AtlasVertex<?,?> instanceVertex = getClassVertex(typedInstance);
+            String guid = GraphHelper.getIdFromVertex(instanceVertex);
+            ITypedReferenceableInstance written = fulltextMapper.getCachedInstance(guid);
+            if (written == null) {
+                written = graphToTypedInstanceMapper.mapGraphToTypedInstance(guid, instanceVertex);
+                fulltextMapper.cache(written);
+            }
+            RequestContext.get().cache(written);
+        }
+    }
+
     private void addTraits(ITypedReferenceableInstance typedInstance, AtlasVertex<?,?> instanceVertex, ClassType classType)
             throws AtlasException {
         for (String traitName : typedInstance.getTraits()) {
@@ -312,6 +382,246 @@ public final class TypedInstanceToGraphMapper {
         }
     }
 
+    /******************************************** SIGNATURE **************************************************/
+
+    /**
+     * Drops the entities whose signature is unchanged. The full text of an entity includes the entities it
+     * references, so an entity that references an entity created or changed by this mapper is kept as changed.
+     */
+    private List<ITypedReferenceableInstance> removeUnchangedEntities(List<ITypedReferenceableInstance> instances,
+            List<ITypedReferenceableInstance> createdInstances) throws AtlasException {
+        if (!skipUnchanged) {
+            return instances;
+        }
+
+        for (ITypedReferenceableInstance instance : createdInstances) {
+            changedEntityGuids.add(getGuid(instance));
+        }
+        Map<Id, ITypedReferenceableInstance> unchangedInstances = new HashMap<>();
+        for (ITypedReferenceableInstance instance : instances) {
+            AtlasVertex<?,?> instanceVertex = idToVertexMap.get(instance.getId());
+            String curSignature = instanceVertex.getProperty(Constants.ENTITY_SIGNATURE_PROPERTY_KEY, String.class);
+            if (curSignature == null || GraphHelper.getState(instanceVertex) == Id.EntityState.DELETED) {
+                changedEntityGuids.add(getGuid(instance));
+                continue;
+            }
+
+            String signature = getEntitySignature(instance);
+            entitySignatures.put(instance.getId(), signature);
+            if (curSignature.equals(signature)) {
+                unchangedInstances.put(instance.getId(), instance);
+            } else {
+                changedEntityGuids.add(getGuid(instance));
+            }
+        }
+
+        boolean referencesChanged = true;
+        while (referencesChanged) {
+            referencesChanged = false;
+            Iterator<ITypedReferenceableInstance> iterator = unchangedInstances.values().iterator();
+            while (iterator.hasNext()) {
+                ITypedReferenceableInstance instance = iterator.next();
+                if (referencesAny(instance, changedEntityGuids)) {
+                    LOG.debug("Updating {} since an entity it references is changed", instance.toShortString());
+                    changedEntityGuids.add(getGuid(instance));
+                    iterator.remove();
+                    referencesChanged = true;
+                }
+            }
+        }
+
+        List<ITypedReferenceableInstance> changedInstances = new ArrayList<>(instances.size());
+        for (ITypedReferenceableInstance instance : instances) {
+            if (unchangedInstances.containsKey(instance.getId())) {
+                LOG.debug("Skipping update of {} since signature is unchanged {}", instance.toShortString(),
+                        entitySignatures.remove(instance.getId()));
+                skippedEntityIds.add(getGuid(instance));
+            } else {
+                changedInstances.add(instance);
+            }
+        }
+        return changedInstances;
+    }
+
+    private String getGuid(ITypedReferenceableInstance instance) {
+        return GraphHelper.getIdFromVertex(idToVertexMap.get(instance.getId()));
+    }
+
+    /**
+     * @return whether the attributes of the entity, or of its structs, reference one of the entities with the
+     * given guids
+     */
+    private boolean referencesAny(ITypedReferenceableInstance instance, Set<String> guids) throws AtlasException {
+        ClassType classType = typeSystem.getDataType(ClassType.class, instance.getTypeName());
+        return referencesAny(instance, classType.fieldMapping().fields, guids);
+    }
+
+    private boolean referencesAny(ITypedInstance typedInstance, Map<String, AttributeInfo> fields, Set<String> guids)
+            throws AtlasException {
+        for (AttributeInfo attributeInfo : fields.values()) {
+            if (referencesAny(attributeInfo.dataType(), typedInstance.get(attributeInfo.name), guids)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean referencesAny(IDataType dataType, Object value, Set<String> guids) throws AtlasException {
+        if (value == null) {
+            return false;
+        }
+
+        switch (dataType.getTypeCategory()) {
+        case ARRAY:
+            IDataType elementType = ((DataTypes.ArrayType) dataType).getElemType();
+            for (Object element : (List) value) {
+                if (referencesAny(elementType, element, guids)) {
+                    return true;
+                }
+            }
+            return false;
+
+        case MAP:
+            IDataType valueType = ((DataTypes.MapType) dataType).getValueType();
+            for (Object element : ((Map) value).values()) {
+                if (referencesAny(valueType, element, guids)) {
+                    return true;
+                }
+            }
+            return false;
+
+        case STRUCT:
+            ITypedStruct structInstance = (ITypedStruct) value;
+            return referencesAny(structInstance, structInstance.fieldMapping().fields, guids);
+
+        case CLASS:
+            String guid = getReferenceGuid((ITypedReferenceableInstance) value);
+            return guid != null && guids.contains(guid);
+
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return the guid of the vertex the referenced entity maps to, null if it has none
+     */
+    private String getReferenceGuid(ITypedReferenceableInstance reference) {
+        Id id = reference instanceof Id ? (Id) reference : reference.getId();
+        AtlasVertex<?,?> referenceVertex = idToVertexMap.get(id);
+        return referenceVertex != null ? GraphHelper.getIdFromVertex(referenceVertex)
+                : (id.isAssigned() ? id.id : null);
+    }
+
+    private void updateEntitySignature(ITypedReferenceableInstance typedInstance, AtlasVertex<?,?> instanceVertex,
+                                       Operation operation) throws AtlasException {
+        // a partial update leaves the attributes it does not set as they are, so the entity is not fully known
+        String signature = null;
+        if (skipUnchanged && operation != Operation.UPDATE_PARTIAL) {
+            // the vertices of the referenced entities are known before the update, so its signature is still valid
+            signature = entitySignatures.containsKey(typedInstance.getId())
+                    ? entitySignatures.remove(typedInstance.getId()) : getEntitySignature(typedInstance);
+        }
+        GraphHelper.setProperty(instanceVertex, Constants.ENTITY_SIGNATURE_PROPERTY_KEY, signature);
+    }
+
+    /**
+     * Signature of the attributes of the entity as written to the graph, where references to other entities are
+     * identified by the guid of the vertex they map to. Traits are not included, since they are not written by
+     * updates.
+     *
+     * @return the signature, null if a referenced entity has no vertex
+     */
+    private String getEntitySignature(ITypedReferenceableInstance typedInstance) throws AtlasException {
+        MessageDigest digester = MD5Utils.getDigester();
+        ClassType classType = typeSystem.getDataType(ClassType.class, typedInstance.getTypeName());
+        if (!updateSignature(digester, classType.getName(), typedInstance, classType.fieldMapping().fields)) {
+            return null;
+        }
+        return MD5Utils.toString(digester.digest());
+    }
+
+    private boolean updateSignature(MessageDigest digester, String typeName, ITypedInstance typedInstance,
+                                    Map<String, AttributeInfo> fields) throws AtlasException {
+        updateSignature(digester, typeName);
+        for (AttributeInfo attributeInfo : fields.values()) {
+            Object attrValue = typedInstance.get(attributeInfo.name);
+            // null and empty values are not written, whatever the entity had before for a full update
+            if (isEmpty(attrValue)) {
+                continue;
+            }
+            updateSignature(digester, attributeInfo.name);
+            if (!updateSignature(digester, attributeInfo.dataType(), attrValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean updateSignature(MessageDigest digester, IDataType dataType, Object value) throws AtlasException {
+        if (value == null) {
+            updateSignature(digester, "");
+            return true;
+        }
+
+        switch (dataType.getTypeCategory()) {
+        case PRIMITIVE:
+        case ENUM:
+            updateSignature(digester, String.valueOf(value instanceof Date ? ((Date) value).getTime() : value));
+            return true;
+
+        case ARRAY:
+            IDataType elementType = ((DataTypes.ArrayType) dataType).getElemType();
+            for (Object element : (List) value) {
+                if (!updateSignature(digester, elementType, element)) {
+                    return false;
+                }
+            }
+            return true;
+
+        case MAP:
+            IDataType valueType = ((DataTypes.MapType) dataType).getValueType();
+            Map<String, Object> sortedMap = new TreeMap<>();
+            for (Map.Entry entry : ((Map<?, ?>) value).entrySet()) {
+                sortedMap.put(entry.getKey().toString(), entry.getValue());
+            }
+            for (Map.Entry<String, Object> entry : sortedMap.entrySet()) {
+                updateSignature(digester, entry.getKey());
+                if (!updateSignature(digester, valueType, entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+
+        case STRUCT:
+            ITypedStruct structInstance = (ITypedStruct) value;
+            return updateSignature(digester, structInstance.getTypeName(), structInstance,
+                    structInstance.fieldMapping().fields);
+
+        case CLASS:
+            String guid = getReferenceGuid((ITypedReferenceableInstance) value);
+            if (guid == null) {
+                return false;
+            }
+            updateSignature(digester, guid);
+            return true;
+
+        default:
+            return true;
+        }
+    }
+
+    private void updateSignature(MessageDigest digester, String value) {
+        digester.update(value.getBytes(Charset.forName("UTF-8")));
+        // separates consecutive values, so that "ab", "c" and "a", "bc" differ
+        digester.update((byte) 0);
+    }
+
+    private boolean isEmpty(Object value) {
+        return value == null || (value instanceof Collection && ((Collection) value).isEmpty())
+                || (value instanceof Map && ((Map) value).isEmpty());
+    }
+
     /******************************************** ARRAY **************************************************/
 
     private void mapArrayCollectionToVertex(ITypedInstance typedInstance,AtlasVertex<?,?> instanceVertex,
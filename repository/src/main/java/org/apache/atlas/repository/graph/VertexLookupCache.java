@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.typesystem.persistence.Id;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the vertices looked up by guid and by unique attribute value, scoped to the outermost graph transaction
+ * of the current thread. Vertices are only usable within the transaction they were read in, so the cache is opened
+ * and discarded by {@link org.apache.atlas.GraphTransactionInterceptor} around that transaction. Outside of a graph
+ * transaction, {@link #get()} returns null and lookups go to the graph.
+ *
+ * Cached vertices are checked against their current state before being returned, so entities deleted or whose
+ * unique attribute changed within the transaction are looked up again.
+ */
+public final class VertexLookupCache {
+    private static final Logger LOG = LoggerFactory.getLogger(VertexLookupCache.class);
+
+    private static final ThreadLocal<VertexLookupCache> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, AtlasVertex<?, ?>> verticesByGuid = new HashMap<>();
+    private final Map<String, AtlasVertex<?, ?>> verticesByUniqueAttribute = new HashMap<>();
+    private int hits = 0;
+    private int misses = 0;
+
+    private VertexLookupCache() {
+    }
+
+    public static void begin() {
+        CURRENT.set(new VertexLookupCache());
+    }
+
+    public static void end() {
+        VertexLookupCache cache = CURRENT.get();
+        if (cache != null) {
+            LOG.debug("Vertex lookup cache: {} hits, {} misses", cache.hits, cache.misses);
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return the cache of the current graph transaction, null if there is none
+     */
+    public static VertexLookupCache get() {
+        return CURRENT.get();
+    }
+
+    public <V, E> AtlasVertex<V, E> getByGuid(String guid) {
+        AtlasVertex<V, E> vertex = (AtlasVertex<V, E>) verticesByGuid.get(guid);
+        if (vertex != null && !GraphHelper.elementExists(vertex)) {
+            verticesByGuid.remove(guid);
+            vertex = null;
+        }
+        record(vertex);
+        return vertex;
+    }
+
+    public void putByGuid(String guid, AtlasVertex<?, ?> vertex) {
+        verticesByGuid.put(guid, vertex);
+    }
+
+    public <V, E> AtlasVertex<V, E> getByUniqueAttribute(String typeName, String propertyKey, Object value) {
+        String key = uniqueAttributeKey(typeName, propertyKey, value);
+        AtlasVertex<V, E> vertex = (AtlasVertex<V, E>) verticesByUniqueAttribute.get(key);
+        if (vertex != null && !isStillMatching(vertex, propertyKey, value)) {
+            verticesByUniqueAttribute.remove(key);
+            vertex = null;
+        }
+        record(vertex);
+        return vertex;
+    }
+
+    public void putByUniqueAttribute(String typeName, String propertyKey, Object value, AtlasVertex<?, ?> vertex) {
+        verticesByUniqueAttribute.put(uniqueAttributeKey(typeName, propertyKey, value), vertex);
+    }
+
+    private boolean isStillMatching(AtlasVertex<?, ?> vertex, String propertyKey, Object value) {
+        return GraphHelper.elementExists(vertex)
+                && Id.EntityState.ACTIVE.name().equals(vertex.getProperty(Constants.STATE_PROPERTY_KEY, String.class))
+                && value.equals(vertex.getProperty(propertyKey, Object.class));
+    }
+
+    private void record(AtlasVertex<?, ?> vertex) {
+        if (vertex != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    private static String uniqueAttributeKey(String typeName, String propertyKey, Object value) {
+        return typeName + Constants.SEPARATOR + propertyKey + Constants.SEPARATOR + value;
+    }
+}
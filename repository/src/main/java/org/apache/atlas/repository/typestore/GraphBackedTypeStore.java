@@ -65,6 +65,8 @@ public class GraphBackedTypeStore<V,E> implements ITypeStore {
     public static final String VERTEX_TYPE = "typeSystem";
     private static final String PROPERTY_PREFIX = Constants.INTERNAL_PROPERTY_KEY_PREFIX + "type.";
     public static final String SUPERTYPE_EDGE_LABEL = PROPERTY_PREFIX + "supertype";
+    public static final String VERSION_VERTEX_TYPE = "typeSystemVersion";
+    static final String VERSION_PROPERTY_KEY = PROPERTY_PREFIX + "version";
 
     private static Logger LOG = LoggerFactory.getLogger(GraphBackedTypeStore.class);
 
@@ -105,6 +107,38 @@ public class GraphBackedTypeStore<V,E> implements ITypeStore {
                 break;
             }
         }
+        incrementVersion();
+    }
+
+    /**
+     * Bumps the version of the stored types, in the same transaction as the types themselves.
+     */
+    private void incrementVersion() throws AtlasException {
+        AtlasVertex<V,E> vertex = findVersionVertex();
+        if (! GraphHelper.elementExists(vertex)) {
+            LOG.debug("Adding vertex {}", VERSION_VERTEX_TYPE);
+            vertex = graph.addVertex();
+            addProperty(vertex, Constants.VERTEX_TYPE_PROPERTY_KEY, VERSION_VERTEX_TYPE);
+        }
+        Long version = vertex.getProperty(VERSION_PROPERTY_KEY, Long.class);
+        addProperty(vertex, VERSION_PROPERTY_KEY, version == null ? 1L : version + 1);
+    }
+
+    private AtlasVertex<V,E> findVersionVertex() {
+        Iterator<AtlasVertex<V,E>> results =
+                graph.query().has(Constants.VERTEX_TYPE_PROPERTY_KEY, VERSION_VERTEX_TYPE).vertices().iterator();
+        return results.hasNext() ? results.next() : null;
+    }
+
+    @Override
+    @GraphTransaction
+    public long getVersion() throws AtlasException {
+        AtlasVertex<V,E> vertex = findVersionVertex();
+        if (! GraphHelper.elementExists(vertex)) {
+            return 0;
+        }
+        Long version = vertex.getProperty(VERSION_PROPERTY_KEY, Long.class);
+        return version == null ? 0 : version;
     }
 
     private void addProperty(AtlasVertex<V,E> vertex, String propertyName, Object value) throws AtlasException {
@@ -251,7 +285,7 @@ public class GraphBackedTypeStore<V,E> implements ITypeStore {
             DataTypes.TypeCategory typeCategory = getTypeCategory(vertex);
             String typeName = vertex.getProperty(Constants.TYPENAME_PROPERTY_KEY, String.class);
             String typeDescription = vertex.getProperty(Constants.TYPEDESCRIPTION_PROPERTY_KEY, String.class);
-            LOG.info("Restoring type {}.{}.{}", typeCategory, typeName, typeDescription);
+            LOG.debug("Restoring type {}.{}.{}", typeCategory, typeName, typeDescription);
             switch (typeCategory) {
             case ENUM:
                 enums.add(getEnumType(vertex));
@@ -49,4 +49,13 @@ public interface ITypeStore {
      * @throws AtlasException
      */
     TypesDef restoreType(String typeName) throws AtlasException;
+
+    /**
+     * Get the version of the stored types, which changes every time types are stored. Lets a passive instance
+     * find out whether its types are current without restoring them.
+     *
+     * @return version of the stored types, 0 if no types were stored
+     * @throws AtlasException
+     */
+    long getVersion() throws AtlasException;
 }
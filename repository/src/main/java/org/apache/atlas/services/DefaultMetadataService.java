@@ -21,18 +21,21 @@ package org.apache.atlas.services;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provider;
 
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.EntityAuditEvent;
+import org.apache.atlas.GraphTransactionInterceptor;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.classification.InterfaceAudience;
 import org.apache.atlas.ha.HAConfiguration;
 import org.apache.atlas.listener.ActiveStateChangeHandler;
 import org.apache.atlas.listener.EntityChangeListener;
 import org.apache.atlas.listener.TypesChangeListener;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.repository.MetadataRepository;
 import org.apache.atlas.repository.RepositoryException;
 import org.apache.atlas.repository.audit.EntityAuditRepository;
@@ -82,9 +85,14 @@ import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.atlas.AtlasClient.PROCESS_ATTRIBUTE_INPUTS;
 import static org.apache.atlas.AtlasClient.PROCESS_ATTRIBUTE_OUTPUTS;
@@ -108,9 +116,19 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
 
     private final Collection<TypesChangeListener> typeChangeListeners = new LinkedHashSet<>();
     private final Collection<EntityChangeListener> entityChangeListeners = new LinkedHashSet<>();
+    private final EntityDefinitionCache entityDefinitionCache;
 
     private boolean wasInitialized = false;
 
+    //types loaded from the store while passive, to serve reads or for a fast failover; the active instance
+    //registers types on top of them
+    private final Object typeSystemLock = new Object();
+    private boolean typesLoaded = false;
+    private TypesDef loadedTypesDef;
+    private long loadedTypesVersion = -1;
+    private volatile boolean isActive = false;
+    private final ScheduledExecutorService passiveTypesRefresher;
+
     @Inject
     private EntityAuditRepository auditRepository;
 
@@ -154,37 +172,199 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
             entityChangeListeners.add(provider.get());
         }
 
+        if (configuration.getBoolean(EntityDefinitionCache.CACHE_ENABLED_PROPERTY, false)) {
+            entityDefinitionCache = new EntityDefinitionCache(repository,
+                    configuration.getLong(EntityDefinitionCache.CACHE_MAX_SIZE_PROPERTY,
+                            EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE));
+            entityChangeListeners.add(entityDefinitionCache);
+        } else {
+            entityDefinitionCache = null;
+        }
+
      //   if (!HAConfiguration.isHAEnabled(configuration) || !HAConfiguration.isLazyCacheLoading(configuration)) {
         if (!HAConfiguration.isHAEnabled(configuration)) {
             restoreTypeSystem();
         }
 
+        if (HAConfiguration.isWarmStandbyEnabled(configuration)) {
+            refreshTypeSystemIfPassive();
+            long refreshInterval = configuration.getLong(
+                    HAConfiguration.ATLAS_SERVER_HA_PASSIVE_TYPES_REFRESH_INTERVAL_KEY,
+                    HAConfiguration.DEFAULT_PASSIVE_TYPES_REFRESH_INTERVAL_MILLIS);
+            passiveTypesRefresher = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("passive-types-refresh-%d").setDaemon(true).build());
+            passiveTypesRefresher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    refreshTypeSystemIfPassive();
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            passiveTypesRefresher = null;
+        }
+
         maxAuditResults = configuration.getShort(CONFIG_MAX_AUDIT_RESULTS, DEFAULT_MAX_AUDIT_RESULTS);
     }
 
     public void restoreTypeSystem() throws AtlasException {
-        LOG.info("Restoring type system from the store");
+        synchronized (typeSystemLock) {
+            if (typesLoaded) {
+                //warm standby: only pick up the types stored since the last refresh, if any
+                loadTypesFromStore();
+                if (!wasInitialized) {
+                    createSuperTypes();
+                    typesRegistrar.registerTypes(ReservedTypesRegistrar.getTypesDir(), typeSystem, this);
+                    wasInitialized = true;
+                }
+                return;
+            }
+
+            LOG.info("Restoring type system from the store");
+            TypesDef typesDef = typeStore.restore();
+            if (!wasInitialized) {
+                LOG.info("Initializing type system for the first time.");
+                typeSystem.defineTypes(typesDef);
+
+                // restore types before creating super types
+                createSuperTypes();
+                typesRegistrar.registerTypes(ReservedTypesRegistrar.getTypesDir(), typeSystem, this);
+                wasInitialized = true;
+            } else {
+                LOG.info("Type system was already initialized, refreshing cache.");
+                refreshCache(typesDef);
+                //the types may have changed while passive, with no record of which
+                if (entityDefinitionCache != null) {
+                    entityDefinitionCache.clear();
+                }
+            }
+            LOG.info("Restored type system from the store");
+        }
+    }
+
+    /**
+     * Reloads the types from the store, without registering any, so that a passive instance knows the types the
+     * active instance created, and can serve reads or become active without restoring them.
+     * @return true if any types were loaded
+     */
+    private boolean refreshTypeSystemIfPassive() {
+        try {
+            synchronized (typeSystemLock) {
+                if (isActive) {
+                    return false;
+                }
+                return loadTypesFromStore();
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to refresh the type system of passive instance", e);
+            return false;
+        }
+    }
+
+    /**
+     * Refreshes the types of a passive instance serving reads after a read hit a type it doesn't know, which the
+     * active instance may have created since the last refresh.
+     * @return true if any types were loaded, so that the read is worth retrying
+     */
+    private boolean refreshTypesAfterMiss() {
+        if (isActive || passiveTypesRefresher == null) {
+            return false;
+        }
+        LOG.debug("Unknown type on passive instance, refreshing types from the store");
+        return refreshTypeSystemIfPassive();
+    }
+
+    private <T> T getDataType(Class<T> cls, String typeName) throws AtlasException {
+        try {
+            return typeSystem.getDataType(cls, typeName);
+        } catch (TypeNotFoundException e) {
+            if (!refreshTypesAfterMiss()) {
+                throw e;
+            }
+            return typeSystem.getDataType(cls, typeName);
+        }
+    }
+
+    /**
+     * Commits the types that were stored or changed since they were last loaded. Only the version of the stored
+     * types is read when nothing changed. Cached entity definitions are only dropped when types that were already
+     * known changed, since new types can't be part of any cached definition.
+     * @return true if any types were loaded
+     */
+    private boolean loadTypesFromStore() throws AtlasException {
+        long version = typeStore.getVersion();
+        if (typesLoaded && version == loadedTypesVersion) {
+            return false;
+        }
+
         TypesDef typesDef = typeStore.restore();
-        if (!wasInitialized) {
-            LOG.info("Initializing type system for the first time.");
-            typeSystem.defineTypes(typesDef);
-
-            // restore types before creating super types
-            createSuperTypes();
-            typesRegistrar.registerTypes(ReservedTypesRegistrar.getTypesDir(), typeSystem, this);
-            wasInitialized = true;
-        } else {
-            LOG.info("Type system was already initialized, refreshing cache.");
-            refreshCache(typesDef);
+        TypesDef changedTypesDef = loadedTypesDef == null ? typesDef : getChangedTypes(loadedTypesDef, typesDef);
+        LOG.info("Loading {} types of version {} from the store", getTypeCount(changedTypesDef), version);
+        boolean knownTypesChanged = loadedTypesDef != null && hasRegisteredTypes(changedTypesDef);
+        refreshCache(changedTypesDef);
+        if (knownTypesChanged && entityDefinitionCache != null) {
+            entityDefinitionCache.clear();
+        }
+        loadedTypesDef = typesDef;
+        loadedTypesVersion = version;
+        typesLoaded = true;
+        return true;
+    }
+
+    private static TypesDef getChangedTypes(TypesDef previous, TypesDef current) {
+        return TypesUtil.getTypesDef(
+                getChanged(previous.enumTypesAsJavaList(), current.enumTypesAsJavaList()),
+                getChanged(previous.structTypesAsJavaList(), current.structTypesAsJavaList()),
+                getChanged(previous.traitTypesAsJavaList(), current.traitTypesAsJavaList()),
+                getChanged(previous.classTypesAsJavaList(), current.classTypesAsJavaList()));
+    }
+
+    private static <T> ImmutableList<T> getChanged(List<T> previous, List<T> current) {
+        Set<T> previousDefs = new HashSet<>(previous);
+        ImmutableList.Builder<T> changed = ImmutableList.builder();
+        for (T def : current) {
+            if (!previousDefs.contains(def)) {
+                changed.add(def);
+            }
         }
-        LOG.info("Restored type system from the store");
+        return changed.build();
     }
 
+    private boolean hasRegisteredTypes(TypesDef typesDef) throws AtlasException {
+        List<String> typeNames = new ArrayList<>();
+        for (EnumTypeDefinition def : typesDef.enumTypesAsJavaList()) {
+            typeNames.add(def.name);
+        }
+        for (StructTypeDefinition def : typesDef.structTypesAsJavaList()) {
+            typeNames.add(def.typeName);
+        }
+        for (HierarchicalTypeDefinition<TraitType> def : typesDef.traitTypesAsJavaList()) {
+            typeNames.add(def.typeName);
+        }
+        for (HierarchicalTypeDefinition<ClassType> def : typesDef.classTypesAsJavaList()) {
+            typeNames.add(def.typeName);
+        }
+        for (String typeName : typeNames) {
+            if (typeSystem.isRegistered(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getTypeCount(TypesDef typesDef) {
+        return typesDef.enumTypesAsJavaList().size() + typesDef.structTypesAsJavaList().size()
+                + typesDef.traitTypesAsJavaList().size() + typesDef.classTypesAsJavaList().size();
+    }
+
+    /**
+     * Builds the given types in a transient type system, then swaps them into the type system together, so that
+     * reads in flight never see a partly loaded set of types.
+     */
     private void refreshCache(TypesDef typesDef) throws AtlasException {
         TypeSystem.TransientTypeSystem transientTypeSystem
         = typeSystem.createTransientTypeSystem(typesDef, true);
         Map<String, IDataType> typesAdded = transientTypeSystem.getTypesAdded();
-        LOG.info("Number of types got from transient type system: " + typesAdded.size());
+        LOG.debug("Number of types got from transient type system: " + typesAdded.size());
         typeSystem.commitTypes(typesAdded);
     }
 
@@ -277,7 +457,7 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
      */
     @Override
     public String getTypeDefinition(String typeName) throws AtlasException {
-        final IDataType dataType = typeSystem.getDataType(IDataType.class, typeName);
+        final IDataType dataType = getDataType(IDataType.class, typeName);
         return TypesSerialization.toJson(typeSystem, dataType.getName());
     }
 
@@ -349,6 +529,20 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
     public String getEntityDefinition(String guid) throws AtlasException {
         ParamChecker.notEmpty(guid, "entity id");
 
+        try {
+            return readEntityDefinition(guid);
+        } catch (TypeNotFoundException e) {
+            if (!refreshTypesAfterMiss()) {
+                throw e;
+            }
+            return readEntityDefinition(guid);
+        }
+    }
+
+    private String readEntityDefinition(String guid) throws AtlasException {
+        if (entityDefinitionCache != null) {
+            return entityDefinitionCache.getEntityDefinition(guid);
+        }
         final ITypedReferenceableInstance instance = repository.getEntityDefinition(guid);
         return InstanceSerialization.toJson(instance, true);
     }
@@ -373,7 +567,7 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
      * @param attributeName  the name of the attribute
      */
     private void validateUniqueAttribute(String entityType, String attributeName) throws AtlasException {
-        ClassType type = typeSystem.getDataType(ClassType.class, entityType);
+        ClassType type = getDataType(ClassType.class, entityType);
         AttributeInfo attribute = type.fieldMapping().fields.get(attributeName);
         if (!attribute.isUnique) {
             throw new IllegalArgumentException(
@@ -394,6 +588,20 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
         return repository.getEntityList(entityType);
     }
 
+    /**
+     * Return a page of the list of entity guids for the given type in the repository.
+     *
+     * @param entityType type
+     * @param queryParams page of the list to return
+     * @return list of entity guids for the given type in the repository
+     */
+    @Override
+    public List<String> getEntityList(String entityType, QueryParams queryParams) throws AtlasException {
+        validateTypeExists(entityType);
+
+        return repository.getEntityList(entityType, queryParams);
+    }
+
     /**
      * Updates an entity, instance of the type based on the guid set.
      *
@@ -406,6 +614,11 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
         ParamChecker.notEmpty(entityInstanceDefinition, "Entity instance definition");
         ITypedReferenceableInstance[] typedInstances = GraphHelper.deserializeClassInstances(typeSystem, entityInstanceDefinition);
 
+        return updateEntities(typedInstances);
+    }
+
+    @Override
+    public AtlasClient.EntityResult updateEntities(ITypedReferenceableInstance[] typedInstances) throws AtlasException {
         AtlasClient.EntityResult entityResult = repository.updateEntities(typedInstances);
         onEntitiesAddedUpdated(entityResult);
         return entityResult;
@@ -543,7 +756,7 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
     private void validateTypeExists(String entityType) throws AtlasException {
         ParamChecker.notEmpty(entityType, "entity type");
 
-        IDataType type = typeSystem.getDataType(IDataType.class, entityType);
+        IDataType type = getDataType(IDataType.class, entityType);
         if (type.getTypeCategory() != DataTypes.TypeCategory.CLASS) {
             throw new IllegalArgumentException("type " + entityType + " not a CLASS type");
         }
@@ -651,44 +864,69 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
     }
 
     private void onEntitiesAdded(List<String> guids) throws AtlasException {
-        List<ITypedReferenceableInstance> entities = loadEntities(guids);
-        for (EntityChangeListener listener : entityChangeListeners) {
-            listener.onEntitiesAdded(entities);
-        }
+        final List<ITypedReferenceableInstance> entities = loadEntities(guids);
+        GraphTransactionInterceptor.runAfterCommit(new GraphTransactionInterceptor.PostCommitAction() {
+            @Override
+            public void run() throws AtlasException {
+                for (EntityChangeListener listener : entityChangeListeners) {
+                    listener.onEntitiesAdded(entities);
+                }
+            }
+        });
     }
 
     private List<ITypedReferenceableInstance> loadEntities(List<String> guids) throws EntityNotFoundException,
     RepositoryException {
-        List<ITypedReferenceableInstance> entities = new ArrayList<>();
-        for (String guid : guids) {
-            entities.add(repository.getEntityDefinition(guid));
+        if (guids.isEmpty()) {
+            return new ArrayList<>();
         }
-        return entities;
+        return repository.getEntityDefinitions(guids);
     }
 
     private void onTypesUpdated(Map<String, IDataType> typesUpdated) throws AtlasException {
+        //the definitions of the entities of updated types may have new attributes
+        if (entityDefinitionCache != null) {
+            entityDefinitionCache.clear();
+        }
         for (TypesChangeListener listener : typeChangeListeners) {
             listener.onChange(typesUpdated.values());
         }
     }
 
     private void onEntitiesUpdated(List<String> guids) throws AtlasException {
-        List<ITypedReferenceableInstance> entities = loadEntities(guids);
-        for (EntityChangeListener listener : entityChangeListeners) {
-            listener.onEntitiesUpdated(entities);
-        }
+        final List<ITypedReferenceableInstance> entities = loadEntities(guids);
+        GraphTransactionInterceptor.runAfterCommit(new GraphTransactionInterceptor.PostCommitAction() {
+            @Override
+            public void run() throws AtlasException {
+                for (EntityChangeListener listener : entityChangeListeners) {
+                    listener.onEntitiesUpdated(entities);
+                }
+            }
+        });
     }
 
-    private void onTraitAddedToEntity(ITypedReferenceableInstance entity, IStruct trait) throws AtlasException {
-        for (EntityChangeListener listener : entityChangeListeners) {
-            listener.onTraitAdded(entity, trait);
-        }
+    private void onTraitAddedToEntity(final ITypedReferenceableInstance entity, final IStruct trait)
+        throws AtlasException {
+        GraphTransactionInterceptor.runAfterCommit(new GraphTransactionInterceptor.PostCommitAction() {
+            @Override
+            public void run() throws AtlasException {
+                for (EntityChangeListener listener : entityChangeListeners) {
+                    listener.onTraitAdded(entity, trait);
+                }
+            }
+        });
     }
 
-    private void onTraitDeletedFromEntity(ITypedReferenceableInstance entity, String traitName) throws AtlasException {
-        for (EntityChangeListener listener : entityChangeListeners) {
-            listener.onTraitDeleted(entity, traitName);
-        }
+    private void onTraitDeletedFromEntity(final ITypedReferenceableInstance entity, final String traitName)
+        throws AtlasException {
+        GraphTransactionInterceptor.runAfterCommit(new GraphTransactionInterceptor.PostCommitAction() {
+            @Override
+            public void run() throws AtlasException {
+                for (EntityChangeListener listener : entityChangeListeners) {
+                    listener.onTraitDeleted(entity, traitName);
+                }
+            }
+        });
     }
 
     public void registerListener(EntityChangeListener listener) {
@@ -738,10 +976,15 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
         return entityResult;
     }
 
-    private void onEntitiesDeleted(List<ITypedReferenceableInstance> entities) throws AtlasException {
-        for (EntityChangeListener listener : entityChangeListeners) {
-            listener.onEntitiesDeleted(entities);
-        }
+    private void onEntitiesDeleted(final List<ITypedReferenceableInstance> entities) throws AtlasException {
+        GraphTransactionInterceptor.runAfterCommit(new GraphTransactionInterceptor.PostCommitAction() {
+            @Override
+            public void run() throws AtlasException {
+                for (EntityChangeListener listener : entityChangeListeners) {
+                    listener.onEntitiesDeleted(entities);
+                }
+            }
+        });
     }
 
     /**
@@ -755,12 +998,19 @@ public class DefaultMetadataService implements MetadataService, ActiveStateChang
     @Override
     public void instanceIsActive() throws AtlasException {
         LOG.info("Reacting to active state: restoring type system");
+        //cached entity definitions are checked against the stored modification timestamps when read, so they stay
+        //valid across the transition; restoring the types drops them if known types changed
         restoreTypeSystem();
+        isActive = true;
     }
 
     @Override
     public void instanceIsPassive() {
-        LOG.info("Reacting to passive state: no action right now");
+        LOG.info("Reacting to passive state");
+        isActive = false;
+        if (passiveTypesRefresher != null) {
+            refreshTypeSystemIfPassive();
+        }
     }
 
     private class TypeRegistrationContext {
@@ -0,0 +1,300 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.services;
+
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.listener.EntityChangeListener;
+import org.apache.atlas.repository.MetadataRepository;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of the json definitions of entities, by guid, bounded by the approximate memory size of the definitions.
+ *
+ * A cached definition is only returned if the modification timestamps of the entity, of the composite entities
+ * included in it and of the entities it references still match those read with the definition, so definitions changed
+ * by other servers, or by transactions still in flight when the definition was read, are read again. The state of a
+ * reference is part of the definition, so deleting a referenced entity changes the definition too. The entity change notifications of this
+ * server remove changed definitions right away.
+ */
+public class EntityDefinitionCache implements EntityChangeListener {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityDefinitionCache.class);
+
+    public static final String CACHE_ENABLED_PROPERTY = "atlas.cache.entity.enabled";
+    public static final String CACHE_MAX_SIZE_PROPERTY = "atlas.cache.entity.maxSizeBytes";
+    public static final long DEFAULT_CACHE_MAX_SIZE = 64 * 1024 * 1024;
+
+    private static final int STATS_LOG_INTERVAL = 10000;
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int TIMESTAMP_OVERHEAD = 96;
+    private static final int MAX_TRACKED_INVALIDATIONS = 10000;
+
+    private final MetadataRepository repository;
+    private final long maxSize;
+
+    //access ordered, so iteration starts with the least recently used definition
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    //guids of the cached definitions that include or reference each entity
+    private final Map<String, Set<String>> includingGuids = new HashMap<>();
+    private long size = 0;
+
+    //sequence numbers of the latest invalidations, to tell whether an entity changed while its definition was read
+    private long invalidations = 0;
+    private long forgottenInvalidation = 0;
+    private final LinkedHashMap<String, Long> recentInvalidations = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (size() > MAX_TRACKED_INVALIDATIONS) {
+                forgottenInvalidation = eldest.getValue();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private long hits = 0;
+    private long misses = 0;
+    private long staleHits = 0;
+    private long evictions = 0;
+
+    public EntityDefinitionCache(MetadataRepository repository, long maxSize) {
+        this.repository = repository;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the json definition of the entity, from the cache if it is still current.
+     */
+    public String getEntityDefinition(String guid) throws AtlasException {
+        Entry entry;
+        long invalidationsBeforeRead;
+        synchronized (this) {
+            entry = entries.get(guid);
+            invalidationsBeforeRead = invalidations;
+        }
+
+        if (entry != null) {
+            if (entry.modificationTimestamps.equals(
+                    repository.getModificationTimestamps(entry.modificationTimestamps.keySet()))) {
+                record(true, false);
+                return entry.definition;
+            }
+            synchronized (this) {
+                if (entries.get(guid) == entry) {
+                    remove(guid);
+                }
+                invalidationsBeforeRead = invalidations;
+            }
+        }
+        record(false, entry != null);
+
+        Map<String, Long> modificationTimestamps = new HashMap<>();
+        ITypedReferenceableInstance instance = repository.getEntityDefinition(guid, modificationTimestamps);
+        String definition = InstanceSerialization.toJson(instance, true);
+        put(guid, new Entry(definition, modificationTimestamps), invalidationsBeforeRead);
+        return definition;
+    }
+
+    /**
+     * Removes all cached definitions, e.g. when types change.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        includingGuids.clear();
+        size = 0;
+        forgottenInvalidation = ++invalidations;
+        recentInvalidations.clear();
+    }
+
+    private synchronized void put(String guid, Entry entry, long invalidationsBeforeRead) {
+        //an entity changed while the definition was read, which it may not include yet
+        if (forgottenInvalidation > invalidationsBeforeRead) {
+            return;
+        }
+        for (String includedGuid : entry.modificationTimestamps.keySet()) {
+            Long invalidation = recentInvalidations.get(includedGuid);
+            if (invalidation != null && invalidation > invalidationsBeforeRead) {
+                return;
+            }
+        }
+        //don't flush the cache for a single huge definition
+        if (entry.size > maxSize / 4) {
+            return;
+        }
+        remove(guid);
+        entries.put(guid, entry);
+        size += entry.size;
+        for (String includedGuid : entry.modificationTimestamps.keySet()) {
+            Set<String> guids = includingGuids.get(includedGuid);
+            if (guids == null) {
+                guids = new HashSet<>();
+                includingGuids.put(includedGuid, guids);
+            }
+            guids.add(guid);
+        }
+
+        Iterator<Map.Entry<String, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+        while (size > maxSize && leastRecentlyUsed.hasNext()) {
+            Map.Entry<String, Entry> evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            removed(evicted.getKey(), evicted.getValue());
+            evictions++;
+        }
+    }
+
+    private void remove(String guid) {
+        Entry entry = entries.remove(guid);
+        if (entry != null) {
+            removed(guid, entry);
+        }
+    }
+
+    private void removed(String guid, Entry entry) {
+        size -= entry.size;
+        for (String includedGuid : entry.modificationTimestamps.keySet()) {
+            Set<String> guids = includingGuids.get(includedGuid);
+            if (guids != null) {
+                guids.remove(guid);
+                if (guids.isEmpty()) {
+                    includingGuids.remove(includedGuid);
+                }
+            }
+        }
+    }
+
+    private synchronized void invalidate(Collection<ITypedReferenceableInstance> entities) {
+        for (ITypedReferenceableInstance entity : entities) {
+            invalidate(entity);
+        }
+    }
+
+    private synchronized void invalidate(ITypedReferenceableInstance entity) {
+        String guid = entity.getId()._getId();
+        recentInvalidations.remove(guid);
+        recentInvalidations.put(guid, ++invalidations);
+
+        Set<String> guids = includingGuids.get(guid);
+        if (guids != null) {
+            for (String includingGuid : guids.toArray(new String[guids.size()])) {
+                remove(includingGuid);
+            }
+        }
+        remove(guid);
+    }
+
+    private synchronized void record(boolean hit, boolean stale) {
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+            if (stale) {
+                staleHits++;
+            }
+        }
+        if ((hits + misses) % STATS_LOG_INTERVAL == 0) {
+            LOG.info("Entity definition cache: {} entries, {} bytes, hit ratio {}, {} stale, {} evictions",
+                    entries.size(), size, getHitRatio(), staleHits, evictions);
+        }
+    }
+
+    // ----- EntityChangeListener --------------------------------------------
+
+    @Override
+    public void onEntitiesAdded(Collection<ITypedReferenceableInstance> entities) throws AtlasException {
+        invalidate(entities);
+    }
+
+    @Override
+    public void onEntitiesUpdated(Collection<ITypedReferenceableInstance> entities) throws AtlasException {
+        invalidate(entities);
+    }
+
+    @Override
+    public void onTraitAdded(ITypedReferenceableInstance entity, IStruct trait) throws AtlasException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void onTraitDeleted(ITypedReferenceableInstance entity, String traitName) throws AtlasException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void onEntitiesDeleted(Collection<ITypedReferenceableInstance> entities) throws AtlasException {
+        invalidate(entities);
+    }
+
+    // ----- metrics ---------------------------------------------------------
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of cached definitions found to be out of date when looked up, counted as misses
+     */
+    public synchronized long getStaleHits() {
+        return staleHits;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    private static final class Entry {
+        private final String definition;
+        private final Map<String, Long> modificationTimestamps;
+        private final long size;
+
+        private Entry(String definition, Map<String, Long> modificationTimestamps) {
+            this.definition = definition;
+            this.modificationTimestamps = modificationTimestamps;
+            this.size = ENTRY_OVERHEAD + 2L * definition.length()
+                    + TIMESTAMP_OVERHEAD * modificationTimestamps.size();
+        }
+    }
+}
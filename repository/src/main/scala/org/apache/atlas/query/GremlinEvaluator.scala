@@ -78,7 +78,8 @@ class GremlinEvaluator[V, E](qry: GremlinQuery, persistenceStrategy: GraphPersis
         import scala.collection.JavaConversions._
         val rType = qry.expr.dataType
         val oType = if (qry.isPathExpresion) qry.expr.children(0).dataType else rType
-        val rawRes = g.executeGremlinScript(qry.queryStr);
+        val bindings: java.util.Map[String, Object] = qry.queryBindings.map { case (k, v) => (k, v.asInstanceOf[AnyRef]) }
+        val rawRes = g.executeGremlinScript(qry.queryStr, bindings);
 
         if (!qry.hasSelectList) {
             val rows = rawRes.asInstanceOf[java.util.List[AnyRef]].map { v =>
@@ -132,7 +133,8 @@ object JsonHelper {
         new TypedReferenceableInstanceSerializer + new BigDecimalSerializer + new BigIntegerSerializer +
         new GremlinQueryResultSerializer
 
+    // compact, the results are sent to clients as is
     def toJson(r: GremlinQueryResult): String = {
-        writePretty(r)
+        write(r)
     }
 }
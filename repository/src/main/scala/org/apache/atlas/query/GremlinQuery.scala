@@ -46,7 +46,12 @@ trait IntSequence {
     def next: Int
 }
 
-case class GremlinQuery(expr: Expression, queryStr: String, resultMaping: Map[String, (String, Int)]) {
+/**
+ * @param queryStr the gremlin query template; literal values are referenced through variables
+ * @param queryBindings the values of the variables referenced by queryStr
+ */
+case class GremlinQuery(expr: Expression, queryStr: String, resultMaping: Map[String, (String, Int)],
+                        queryBindings: Map[String, Any] = Map()) {
 
     def hasSelectList = resultMaping != null
 
@@ -152,6 +157,7 @@ class GremlinTranslator(expr: Expression,
 
     val preStatements = ArrayBuffer[String]()
     val postStatements = ArrayBuffer[String]()
+    val queryBindings = mutable.LinkedHashMap[String, Any]()
 
     val wrapAndRule: PartialFunction[Expression, Expression] = {
         case f: FilterExpression if !f.condExpr.isInstanceOf[LogicalExpression] =>
@@ -215,6 +221,17 @@ class GremlinTranslator(expr: Expression,
       }
     }
 
+    /**
+     * Adds the value to the query bindings and returns the name of the variable
+     * that references it, so that queries differing only in this value share
+     * the same gremlin text.
+     */
+    def bindValue(value: Any) : String = {
+        val name = s"_param_${queryBindings.size}"
+        queryBindings.put(name, value)
+        name
+    }
+
     def typeTestExpression(typeName : String) : String = {
         val stats = gPersistenceBehavior.typeTestExpression(typeName, counter)
         preStatements ++= stats.init
@@ -401,13 +418,13 @@ class GremlinTranslator(expr: Expression,
           s"""${genQuery(child, inSelect)}.$orderby"""
         }
         case limitOffset@LimitExpression(child, limit, offset) => {
+            val offsetParam = bindValue(offset.value)
+            val totalResultRowsParam = bindValue(limit.value + offset.value)
             if(gPersistenceBehavior.getSupportedGremlinVersion() == GremlinVersion.TWO) {
-                val totalResultRows = limit.value + offset.value
-                s"""${genQuery(child, inSelect)} [$offset..<$totalResultRows]"""
+                s"""${genQuery(child, inSelect)} [$offsetParam..<$totalResultRowsParam]"""
             }
             else {
-                val totalResultRows = limit.value + offset.value
-                s"""${genQuery(child, inSelect)}.range($offset,$totalResultRows)"""
+                s"""${genQuery(child, inSelect)}.range($offsetParam,$totalResultRowsParam)"""
 
             }
         }
@@ -451,7 +468,12 @@ class GremlinTranslator(expr: Expression,
     def genHasPredicate(e: Option[Expression], fInfo : FieldInfo, fieldName: String, inSelect: Boolean, c: ComparisonExpression, expr: Expression) : String = {
       
        val qualifiedPropertyName = s"${gPersistenceBehavior.fieldNameInVertex(fInfo.dataType, fInfo.attrInfo)}"
-       val persistentExprValue = translateValueToPersistentForm(fInfo, expr);
+       val persistentExprValue = translateValueToPersistentForm(fInfo, expr) match {
+           //literal values, including dates converted to their persistent form, are passed as bindings
+           case l: Literal[_] if l.value != null => bindValue(l.value)
+           case millis: Long => bindValue(millis)
+           case v => v
+       }
        if(gPersistenceBehavior.getSupportedGremlinVersion() == GremlinVersion.TWO) {
             return generateAndPrependExpr(e, inSelect, s"""has("${qualifiedPropertyName}", ${gPersistenceBehavior.gremlinCompOp(c)}, $persistentExprValue)""");
        }
@@ -527,11 +549,13 @@ class GremlinTranslator(expr: Expression,
          if (se.isDefined)
          {
             val  rMap = buildResultMapping(se.get)
-            GremlinQuery(e1, genFullQuery(e1), rMap)
+            val queryStr = genFullQuery(e1)
+            GremlinQuery(e1, queryStr, rMap, queryBindings.toMap)
          }
          else
          {
-            GremlinQuery(e1, genFullQuery(e1), null)
+            val queryStr = genFullQuery(e1)
+            GremlinQuery(e1, queryStr, null, queryBindings.toMap)
          }
         }
 
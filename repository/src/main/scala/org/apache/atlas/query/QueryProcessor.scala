@@ -36,7 +36,7 @@ object QueryProcessor {
         val q = new GremlinTranslator(e1, strategy).translate()
         LOG.debug("Query: " + e1)
         LOG.debug("Expression Tree:\n" + e1.treeString)
-        LOG.debug("Gremlin Query: " + q.queryStr)
+        LOG.debug("Gremlin Query: " + q.queryStr + ", bindings: " + q.queryBindings)
         new GremlinEvaluator(q, strategy, g).evaluate()
     }
 
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.repository.graph.GraphProvider;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.GremlinVersion;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class GraphTransactionInterceptorTest {
+    private AtlasGraph graph;
+    private GraphTransactionInterceptor interceptor;
+
+    @BeforeMethod
+    public void setup() {
+        graph = mock(AtlasGraph.class);
+        when(graph.getSupportedGremlinVersion()).thenReturn(GremlinVersion.TWO);
+        GraphProvider<AtlasGraph> graphProvider = mock(GraphProvider.class);
+        when(graphProvider.get()).thenReturn(graph);
+
+        interceptor = new GraphTransactionInterceptor();
+        interceptor.graphProvider = graphProvider;
+    }
+
+    @Test
+    public void testPostCommitActionsOfNestedTransactionRunAfterOuterCommit() throws Throwable {
+        final GraphTransactionInterceptor.PostCommitAction action =
+                mock(GraphTransactionInterceptor.PostCommitAction.class);
+        final MethodInvocation inner = invocation(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                GraphTransactionInterceptor.runAfterCommit(action);
+                return null;
+            }
+        });
+        MethodInvocation outer = invocation(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                interceptor.invoke(inner);
+                verify(action, never()).run();
+                return null;
+            }
+        });
+
+        interceptor.invoke(outer);
+
+        InOrder inOrder = inOrder(graph, action);
+        inOrder.verify(graph).commit();
+        inOrder.verify(action).run();
+    }
+
+    @Test
+    public void testPostCommitActionsAreDroppedOnRollback() throws Throwable {
+        final GraphTransactionInterceptor.PostCommitAction action =
+                mock(GraphTransactionInterceptor.PostCommitAction.class);
+        MethodInvocation failing = invocation(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                GraphTransactionInterceptor.runAfterCommit(action);
+                throw new AtlasException("failed");
+            }
+        });
+
+        try {
+            interceptor.invoke(failing);
+            fail("Expected AtlasException");
+        } catch (AtlasException e) {
+            //expected
+        }
+
+        verify(graph).rollback();
+        verify(action, never()).run();
+
+        //the dropped action must not leak into the next transaction
+        interceptor.invoke(invocation(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                return null;
+            }
+        }));
+        verify(action, never()).run();
+    }
+
+    @Test
+    public void testPostCommitActionFailureDoesNotFailCommittedTransaction() throws Throwable {
+        final GraphTransactionInterceptor.PostCommitAction failingAction =
+                mock(GraphTransactionInterceptor.PostCommitAction.class);
+        doThrow(new AtlasException("listener failed")).when(failingAction).run();
+        final GraphTransactionInterceptor.PostCommitAction action =
+                mock(GraphTransactionInterceptor.PostCommitAction.class);
+        long failedActions = GraphTransactionInterceptor.getFailedPostCommitActions();
+
+        Object response = interceptor.invoke(invocation(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                GraphTransactionInterceptor.runAfterCommit(failingAction);
+                GraphTransactionInterceptor.runAfterCommit(action);
+                return "done";
+            }
+        }));
+
+        assertEquals(response, "done");
+        verify(graph).commit();
+        verify(action).run();
+        assertEquals(GraphTransactionInterceptor.getFailedPostCommitActions(), failedActions + 1);
+    }
+
+    @Test
+    public void testPostCommitActionRunsRightAwayOutsideOfTransaction() throws Throwable {
+        GraphTransactionInterceptor.PostCommitAction action = mock(GraphTransactionInterceptor.PostCommitAction.class);
+
+        GraphTransactionInterceptor.runAfterCommit(action);
+
+        verify(action).run();
+    }
+
+    private MethodInvocation invocation(Answer<Object> answer) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.proceed()).thenAnswer(answer);
+        return invocation;
+    }
+}
@@ -427,6 +427,31 @@ public class DataSetLineageServiceTest extends BaseRepositoryTest {
         assertEquals(results.getJSONObject("values").getJSONObject("vertices").length(), 0);
     }
 
+    @Test
+    public void testLineageWithCycle() throws Exception {
+        String dbId = getEntityId(DATABASE_TYPE, "name", "Sales");
+        Id salesDB = new Id(dbId, 0, DATABASE_TYPE);
+        Referenceable sd =
+                storageDescriptor("hdfs://host:8000/apps/warehouse/sales", "TextInputFormat", "TextOutputFormat", true,
+                        ImmutableList.of(column("time_id", "int", "time id")));
+        List<Referenceable> columns = ImmutableList.of(column("col" + random(), "int", "column descr"));
+        String tableName = "table" + random();
+        Id table = table(tableName, "test table", salesDB, sd, "fetl", "External", columns);
+        Id copy = table("table" + random(), "test table", salesDB, sd, "fetl", "External", columns);
+        loadProcess("process" + random(), "copy", "Tim ETL", ImmutableList.of(table), ImmutableList.of(copy),
+                "insert overwrite table select ", "plan", "id", "graph", "ETL");
+        loadProcess("process" + random(), "copy back", "Tim ETL", ImmutableList.of(copy), ImmutableList.of(table),
+                "insert overwrite table select ", "plan", "id", "graph", "ETL");
+
+        JSONObject values = new JSONObject(lineageService.getInputsGraph(tableName)).getJSONObject("values");
+        assertEquals(values.getJSONObject("vertices").length(), 2);
+        assertEquals(values.getJSONObject("edges").length(), 4);
+
+        values = new JSONObject(lineageService.getOutputsGraph(tableName)).getJSONObject("values");
+        assertEquals(values.getJSONObject("vertices").length(), 2);
+        assertEquals(values.getJSONObject("edges").length(), 4);
+    }
+
     private void createTable(String tableName, int numCols, boolean createLineage) throws Exception {
         String dbId = getEntityId(DATABASE_TYPE, "name", "Sales");
         Id salesDB = new Id(dbId, 0, DATABASE_TYPE);
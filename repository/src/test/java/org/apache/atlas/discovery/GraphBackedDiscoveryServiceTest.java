@@ -23,6 +23,7 @@ import static org.apache.atlas.typesystem.types.utils.TypesUtil.createOptionalAt
 import static org.apache.atlas.typesystem.types.utils.TypesUtil.createRequiredAttrDef;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,6 +32,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -40,6 +42,7 @@ import org.apache.atlas.RepositoryMetadataModule;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.TestUtils;
 import org.apache.atlas.discovery.graph.GraphBackedDiscoveryService;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.MetadataRepository;
 import org.apache.atlas.repository.graph.AtlasGraphProvider;
@@ -104,6 +107,8 @@ public class GraphBackedDiscoveryServiceTest extends BaseRepositoryTest {
             }
                        
         }
+        //release the read locks the graph dump in the base setup holds, the index commit below waits on them
+        graphProvider.get().commit();
         GraphBackedSearchIndexer idx = new GraphBackedSearchIndexer(new AtlasGraphProvider());        
         idx.onAdd(newTypes);
 
@@ -187,6 +192,38 @@ public class GraphBackedDiscoveryServiceTest extends BaseRepositoryTest {
         assertEquals(entityState, Id.EntityState.ACTIVE.name());
     }
 
+    @Test
+    public void testSearchByDSLWithPaging() throws Exception {
+        String dslQuery = "from Person";
+
+        JSONArray allRows = new JSONObject(discoveryService.searchByDSL(dslQuery)).getJSONArray("rows");
+        assertTrue(allRows.length() > 2);
+        Set<String> allGuids = new HashSet<>();
+        for (int i = 0; i < allRows.length(); i++) {
+            allGuids.add(allRows.getJSONObject(i).getJSONObject("$id$").getString("id"));
+        }
+
+        JSONArray rows = new JSONObject(discoveryService.searchByDSL(dslQuery, new QueryParams(2, 1)))
+                .getJSONArray("rows");
+        assertEquals(rows.length(), 2);
+        for (int i = 0; i < rows.length(); i++) {
+            assertTrue(allGuids.contains(rows.getJSONObject(i).getJSONObject("$id$").getString("id")));
+        }
+
+        rows = new JSONObject(discoveryService.searchByDSL(dslQuery, new QueryParams(-1, allRows.length() - 1)))
+                .getJSONArray("rows");
+        assertEquals(rows.length(), 1);
+
+        rows = new JSONObject(discoveryService.searchByDSL(dslQuery, new QueryParams(10, allRows.length())))
+                .getJSONArray("rows");
+        assertEquals(rows.length(), 0);
+
+        //a limit in the query itself is kept
+        rows = new JSONObject(discoveryService.searchByDSL(dslQuery + " limit 1", new QueryParams(10, 0)))
+                .getJSONArray("rows");
+        assertEquals(rows.length(), 1);
+    }
+
     @Test(expectedExceptions = Throwable.class)
     public void testSearchByDSLBadQuery() throws Exception {
         String dslQuery = "from blah";
@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.audit;
+
+import org.apache.atlas.EntityAuditEvent;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class AsyncEntityAuditWriterTest {
+    private HBaseBasedAuditRepository repository = new HBaseBasedAuditRepository();
+    private File spillFile;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        spillFile = File.createTempFile("audit", ".spill");
+        spillFile.delete();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        spillFile.delete();
+    }
+
+    @Test
+    public void testEventsAreWrittenInBatches() throws Exception {
+        BufferedMutator mutator = mock(BufferedMutator.class);
+        AsyncEntityAuditWriter writer =
+                new AsyncEntityAuditWriter(repository, mutator, 100, 10, 50, 1000, spillFile, 60000);
+
+        writer.enqueue(createEvents(25));
+
+        assertTrue(writer.flush(10000));
+        assertEquals(writer.getWrittenEvents(), 25);
+        assertTrue(writer.getWrittenBatches() >= 3);
+        verify(mutator, atLeastOnce()).mutate(anyListOf(Mutation.class));
+        assertFalse(spillFile.exists());
+        writer.close(1000);
+    }
+
+    @Test
+    public void testFailedWritesAreSpilledAndReplayed() throws Exception {
+        BufferedMutator failingMutator = mock(BufferedMutator.class);
+        doThrow(new IOException("Simulating hbase failure")).when(failingMutator).mutate(anyListOf(Mutation.class));
+        AsyncEntityAuditWriter writer =
+                new AsyncEntityAuditWriter(repository, failingMutator, 100, 10, 50, 1000, spillFile, 60000);
+
+        writer.enqueue(createEvents(5));
+
+        assertTrue(writer.flush(10000));
+        writer.close(1000);
+        assertEquals(writer.getWrittenEvents(), 0);
+        assertEquals(writer.getSpilledEvents(), 5);
+        assertTrue(spillFile.exists());
+
+        BufferedMutator mutator = mock(BufferedMutator.class);
+        writer = new AsyncEntityAuditWriter(repository, mutator, 100, 10, 50, 1000, spillFile, 60000);
+
+        assertEquals(writer.getWrittenEvents(), 5);
+        verify(mutator).mutate(anyListOf(Mutation.class));
+        assertFalse(spillFile.exists());
+        writer.close(1000);
+    }
+
+    @Test
+    public void testEventsAreSpilledWhenQueueIsFull() throws Exception {
+        BufferedMutator mutator = mock(BufferedMutator.class);
+        AsyncEntityAuditWriter writer =
+                new AsyncEntityAuditWriter(repository, mutator, 1, 1, 50, 0, spillFile, 60000);
+        writer.close(1000);
+
+        writer.enqueue(createEvents(3));
+
+        assertEquals(writer.getSpilledEvents(), 3);
+        assertTrue(spillFile.exists());
+    }
+
+    @Test
+    public void testSpilledEventsAreReplayedPeriodically() throws Exception {
+        BufferedMutator mutator = mock(BufferedMutator.class);
+        doThrow(new IOException("Simulating hbase failure")).doNothing().when(mutator)
+                .mutate(anyListOf(Mutation.class));
+        AsyncEntityAuditWriter writer =
+                new AsyncEntityAuditWriter(repository, mutator, 100, 10, 50, 1000, spillFile, 100);
+
+        writer.enqueue(createEvents(5));
+        assertTrue(writer.flush(10000));
+        assertEquals(writer.getSpilledEvents(), 5);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (spillFile.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(spillFile.exists());
+        assertEquals(writer.getWrittenEvents(), 5);
+        writer.close(1000);
+    }
+
+    @Test
+    public void testEnqueueTimeoutAppliesToAllEventsTogether() throws Exception {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWrite = new CountDownLatch(1);
+        BufferedMutator blockingMutator = mock(BufferedMutator.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                writeStarted.countDown();
+                releaseWrite.await();
+                return null;
+            }
+        }).when(blockingMutator).mutate(anyListOf(Mutation.class));
+        AsyncEntityAuditWriter writer =
+                new AsyncEntityAuditWriter(repository, blockingMutator, 1, 1, 50, 200, spillFile, 60000);
+
+        writer.enqueue(createEvents(1));
+        assertTrue(writeStarted.await(10, TimeUnit.SECONDS));
+
+        long start = System.currentTimeMillis();
+        writer.enqueue(createEvents(10));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < 1000, "enqueue blocked for " + elapsed + " ms");
+        assertEquals(writer.getSpilledEvents(), 9);
+        releaseWrite.countDown();
+        writer.close(1000);
+    }
+
+    private List<EntityAuditEvent> createEvents(int count) throws Exception {
+        List<EntityAuditEvent> events = new ArrayList<>(count);
+        long ts = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            events.add(new EntityAuditEvent("id" + i, ts, "user", EntityAuditEvent.EntityAuditAction.ENTITY_CREATE,
+                    "details" + i, new Referenceable("type")));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.repository.audit;
+
+import org.apache.atlas.EntityAuditEvent;
+import org.apache.atlas.ha.HAConfiguration;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class EntityAuditEventCodecTest {
+
+    @Test
+    public void testEncodedTextRoundTrip() throws Exception {
+        String text = "Created: " + json(createTable("t1", 100));
+
+        byte[] encoded = EntityAuditEventCodec.encodeText(text);
+
+        assertTrue(EntityAuditEventCodec.isEncoded(encoded));
+        assertTrue(encoded.length < Bytes.toBytes(text).length);
+        assertEquals(EntityAuditEventCodec.decode(encoded), text);
+    }
+
+    @Test
+    public void testLegacyValuesAreReadAsText() throws Exception {
+        String text = json(createTable("t1", 2));
+
+        assertFalse(EntityAuditEventCodec.isEncoded(Bytes.toBytes(text)));
+        assertEquals(EntityAuditEventCodec.getKind(Bytes.toBytes(text)), EntityAuditEventCodec.KIND_TEXT);
+        assertEquals(EntityAuditEventCodec.decode(Bytes.toBytes(text)), text);
+    }
+
+    @Test
+    public void testDeltaRebuildsDefinition() throws Exception {
+        Referenceable table = createTable("t1", 50);
+        String previous = json(table);
+        table.set("description", "updated");
+        table.set("column1", null);
+        String current = json(table);
+
+        String delta = EntityAuditEventCodec.diff(previous, current);
+        byte[] encoded = EntityAuditEventCodec.encodeDeltaDefinition(1234L, delta);
+
+        assertEquals(EntityAuditEventCodec.getKind(encoded), EntityAuditEventCodec.KIND_DELTA);
+        assertEquals(EntityAuditEventCodec.getDeltaBase(encoded), 1234L);
+        assertTrue(encoded.length < EntityAuditEventCodec.encodeFullDefinition(current).length);
+        String rebuilt = EntityAuditEventCodec.apply(previous, EntityAuditEventCodec.decode(encoded));
+        assertEquals(InstanceSerialization.fromJsonReferenceable(rebuilt, true).getValuesMap(),
+                InstanceSerialization.fromJsonReferenceable(current, true).getValuesMap());
+    }
+
+    @Test
+    public void testListEventsRebuildsDeltaDefinitions() throws Exception {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.setProperty(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, true);
+        configuration.setProperty(HBaseBasedAuditRepository.CONFIG_COMPACT_ENABLED, true);
+        configuration.setProperty(HBaseBasedAuditRepository.CONFIG_COMPACT_FULL_DEFINITION_INTERVAL, 3);
+        final Connection connection = mock(Connection.class);
+        Table table = mock(Table.class);
+        when(connection.getTable(any(TableName.class))).thenReturn(table);
+        HBaseBasedAuditRepository auditRepository = new HBaseBasedAuditRepository() {
+            @Override
+            protected Connection createConnection(org.apache.hadoop.conf.Configuration hbaseConf) {
+                return connection;
+            }
+        };
+        auditRepository.startInternal(configuration, null);
+
+        Referenceable entity = createTable("t1", 20);
+        List<EntityAuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entity.set("description", "version " + i);
+            events.add(new EntityAuditEvent("guid1", 1000L + i, "user",
+                    EntityAuditEvent.EntityAuditAction.ENTITY_UPDATE, "Updated",
+                    InstanceSerialization.fromJsonReferenceable(json(entity), true)));
+        }
+        List<Put> puts = auditRepository.toPuts(events);
+
+        List<Result> results = new ArrayList<>();
+        for (int i = puts.size() - 1; i >= 0; i--) {
+            results.add(toResult(puts.get(i)));
+        }
+        assertEquals(kindOf(puts.get(0)), EntityAuditEventCodec.KIND_FULL);
+        assertEquals(kindOf(puts.get(1)), EntityAuditEventCodec.KIND_DELTA);
+        assertEquals(kindOf(puts.get(2)), EntityAuditEventCodec.KIND_DELTA);
+        assertEquals(kindOf(puts.get(3)), EntityAuditEventCodec.KIND_FULL);
+
+        //list only the latest 2 events, so that the delta at index 4 is resolved through its base at index 3
+        ResultScanner scanner = mock(ResultScanner.class);
+        when(scanner.next()).thenReturn(results.get(0), results.get(1), null);
+        when(table.getScanner(any(Scan.class))).thenReturn(scanner);
+
+        List<EntityAuditEvent> listed = auditRepository.listEvents("guid1", null, (short) 2);
+
+        assertEquals(listed.size(), 2);
+        assertEquals(listed.get(0).getEntityDefinition().get("description"), "version 4");
+        assertEquals(listed.get(0).getDetails(), "Updated");
+        assertEquals(listed.get(1).getEntityDefinition().get("description"), "version 3");
+        verify(table, never()).get(any(Get.class));
+    }
+
+    private byte kindOf(Put put) {
+        Cell cell = put.get(HBaseBasedAuditRepository.COLUMN_FAMILY, HBaseBasedAuditRepository.COLUMN_DEFINITION)
+                .get(0);
+        return EntityAuditEventCodec.getKind(Arrays.copyOfRange(cell.getValueArray(), cell.getValueOffset(),
+                cell.getValueOffset() + cell.getValueLength()));
+    }
+
+    private Result toResult(Put put) {
+        List<Cell> cells = new ArrayList<>(put.getFamilyCellMap().get(HBaseBasedAuditRepository.COLUMN_FAMILY));
+        Collections.sort(cells, KeyValue.COMPARATOR);
+        return Result.create(cells);
+    }
+
+    private Referenceable createTable(String name, int columns) {
+        Referenceable table = new Referenceable("hive_table");
+        table.set("name", name);
+        table.set("description", "table " + name);
+        for (int i = 0; i < columns; i++) {
+            table.set("column" + i, "column " + i + " of table " + name + " with a reasonably long comment");
+        }
+        return table;
+    }
+
+    private String json(Referenceable entity) {
+        return InstanceSerialization.toJson(entity, true);
+    }
+}
@@ -24,25 +24,33 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Inject;
 
+import org.apache.atlas.AtlasClient;
 import org.apache.atlas.GraphTransaction;
 import org.apache.atlas.RepositoryMetadataModule;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.TestUtils;
 import org.apache.atlas.discovery.graph.GraphBackedDiscoveryService;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.RepositoryException;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
 import org.apache.atlas.repository.graphdb.AtlasGraphQuery.ComparisionOperator;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.typesystem.IReferenceableInstance;
 import org.apache.atlas.typesystem.IStruct;
 import org.apache.atlas.typesystem.ITypedReferenceableInstance;
 import org.apache.atlas.typesystem.ITypedStruct;
@@ -51,6 +59,7 @@ import org.apache.atlas.typesystem.Struct;
 import org.apache.atlas.typesystem.exception.EntityNotFoundException;
 import org.apache.atlas.typesystem.exception.TraitNotFoundException;
 import org.apache.atlas.typesystem.persistence.Id;
+import org.apache.atlas.typesystem.persistence.ReferenceableInstance;
 import org.apache.atlas.typesystem.types.ClassType;
 import org.apache.atlas.typesystem.types.DataTypes;
 import org.apache.atlas.typesystem.types.HierarchicalTypeDefinition;
@@ -58,9 +67,12 @@ import org.apache.atlas.typesystem.types.Multiplicity;
 import org.apache.atlas.typesystem.types.TraitType;
 import org.apache.atlas.typesystem.types.TypeSystem;
 import org.apache.atlas.typesystem.types.utils.TypesUtil;
+import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.commons.lang.RandomStringUtils;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -91,6 +103,12 @@ public class GraphBackedMetadataRepositoryTest {
     @Inject
     private GraphBackedDiscoveryService discoveryService;
 
+    @Inject
+    private DeferredFullTextIndexer fullTextIndexer;
+
+    @Inject
+    private DeleteHandler deleteHandler;
+
     private TypeSystem typeSystem;
     private String guid;
 
@@ -159,6 +177,11 @@ public class GraphBackedMetadataRepositoryTest {
         System.out.println("entityList = " + entityList);
         Assert.assertNotNull(entityList);
         Assert.assertTrue(entityList.contains(guid));
+
+        Assert.assertEquals(repositoryService.getEntityList(TestUtils.DEPARTMENT_TYPE, new QueryParams(1, 0)).size(),
+                1);
+        Assert.assertEquals(repositoryService.getEntityList(TestUtils.DEPARTMENT_TYPE,
+                new QueryParams(-1, entityList.size())).size(), 0);
     }
 
     @Test
@@ -206,6 +229,330 @@ public class GraphBackedMetadataRepositoryTest {
         System.out.println("*** table = " + table);
     }
 
+    @Test(dependsOnMethods = "testCreateEntity")
+    public void testGetEntityDefinitionWithModificationTimestamps() throws Exception {
+        String guid = getGUID();
+
+        Map<String, Long> timestamps = new HashMap<>();
+        ITypedReferenceableInstance table = repositoryService.getEntityDefinition(guid, timestamps);
+        Assert.assertEquals(table.getId()._getId(), guid);
+        Assert.assertTrue(timestamps.containsKey(guid));
+        //the state of referenced entities is part of the definition, so their timestamps are read too
+        Assert.assertTrue(timestamps.containsKey(((Id) table.get("database"))._getId()));
+
+        List<String> guids = new ArrayList<>(timestamps.keySet());
+        guids.add(UUID.randomUUID().toString());
+        Assert.assertEquals(repositoryService.getModificationTimestamps(guids), timestamps);
+    }
+
+    @Test(dependsOnMethods = "testCreateEntity")
+    public void testGetEntityDefinitionWithPrefetchedAdjacency() throws Exception {
+        AtlasGraph graph = graphProvider.get();
+        AtlasVertex tableVertex = getTableEntityVertex();
+        String guid = tableVertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class);
+        try {
+            ITypedReferenceableInstance expected =
+                new GraphToTypedInstanceMapper(graph, false).mapGraphToTypedInstance(guid, tableVertex);
+            ITypedReferenceableInstance table =
+                new GraphToTypedInstanceMapper(graph, true).mapGraphToTypedInstance(guid, tableVertex);
+
+            Assert.assertEquals(table.getId(), expected.getId());
+            Assert.assertEquals(table.getTraits(), expected.getTraits());
+            Assert.assertEquals(table.getValuesMap(), expected.getValuesMap());
+        } finally {
+            graph.rollback();
+        }
+    }
+
+    @Test(dependsOnMethods = "testCreateEntity")
+    public void testGetEntityDefinitionsPrefetchesAdjacencyTogether() throws Exception {
+        AtlasGraph graph = graphProvider.get();
+        AtlasVertex tableVertex = getTableEntityVertex();
+        String tableGuid = tableVertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class);
+        try {
+            ITypedReferenceableInstance table =
+                new GraphToTypedInstanceMapper(graph, false).mapGraphToTypedInstance(tableGuid, tableVertex);
+            String databaseGuid = ((Id) table.get("database"))._getId();
+            Map<String, AtlasVertex<?, ?>> instanceVertices = new LinkedHashMap<>();
+            instanceVertices.put(tableGuid, tableVertex);
+            instanceVertices.put(databaseGuid, GraphHelper.getInstance().getVertexForGUID(databaseGuid));
+
+            AtlasGraph separateGraph = Mockito.spy(graph);
+            GraphToTypedInstanceMapper separateMapper = new GraphToTypedInstanceMapper(separateGraph, true);
+            List<ITypedReferenceableInstance> expected = new ArrayList<>();
+            for (Map.Entry<String, AtlasVertex<?, ?>> entry : instanceVertices.entrySet()) {
+                expected.add(separateMapper.mapGraphToTypedInstance(entry.getKey(), entry.getValue()));
+            }
+
+            AtlasGraph togetherGraph = Mockito.spy(graph);
+            List<ITypedReferenceableInstance> entities =
+                new GraphToTypedInstanceMapper(togetherGraph, true).mapGraphToTypedInstances(instanceVertices);
+
+            Assert.assertEquals(entities.size(), expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(entities.get(i).getId(), expected.get(i).getId());
+                Assert.assertEquals(entities.get(i).getValuesMap(), expected.get(i).getValuesMap());
+            }
+            //one read per level of the deepest entity, instead of one per level of each entity
+            Assert.assertTrue(countOutgoingEdgesReads(togetherGraph) < countOutgoingEdgesReads(separateGraph));
+        } finally {
+            graph.rollback();
+        }
+    }
+
+    private int countOutgoingEdgesReads(AtlasGraph graph) {
+        ArgumentCaptor<Collection> vertices = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(graph, Mockito.atLeastOnce()).getOutgoingEdges(vertices.capture());
+        return vertices.getAllValues().size();
+    }
+
+    @Test
+    public void testEntitiesWrittenWithDeferredFullTextAreCachedInRequest() throws Exception {
+        AtlasGraph graph = graphProvider.get();
+        TypedInstanceToGraphMapper mapper =
+                new TypedInstanceToGraphMapper(new GraphToTypedInstanceMapper(graph), deleteHandler, true);
+        ClassType dbType = typeSystem.getDataType(ClassType.class, TestUtils.DATABASE_TYPE);
+        Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+        databaseInstance.set("name", randomString());
+        databaseInstance.set("description", "deferred database");
+        try {
+            RequestContext.createContext();
+            mapper.mapTypedInstanceToGraph(TypedInstanceToGraphMapper.Operation.CREATE,
+                    dbType.convert(databaseInstance, Multiplicity.REQUIRED));
+
+            String dbGuid = RequestContext.get().getCreatedEntityIds().get(0);
+            ITypedReferenceableInstance cached = RequestContext.get().getInstance(dbGuid);
+            Assert.assertNotNull(cached);
+            Assert.assertEquals(cached.getString("description"), "deferred database");
+        } finally {
+            graph.rollback();
+        }
+    }
+
+    @Test
+    public void testGetEntityDefinitionsReusesEntitiesWrittenInRequest() throws Exception {
+        Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+        databaseInstance.set("name", randomString());
+        databaseInstance.set("description", "bulk database");
+        ITypedReferenceableInstance table = createHiveTableInstance(databaseInstance);
+        List<String> guids = createEntities(table);
+
+        List<ITypedReferenceableInstance> written = repositoryService.getEntityDefinitions(guids);
+        Assert.assertEquals(written.size(), guids.size());
+        for (int i = 0; i < guids.size(); i++) {
+            Assert.assertSame(written.get(i), RequestContext.get().getInstance(guids.get(i)));
+            Assert.assertEquals(written.get(i).getId()._getId(), guids.get(i));
+        }
+
+        RequestContext.createContext();
+        List<ITypedReferenceableInstance> read = repositoryService.getEntityDefinitions(guids);
+        for (int i = 0; i < guids.size(); i++) {
+            Assert.assertEquals(read.get(i).getId()._getId(), guids.get(i));
+            Assert.assertEquals(read.get(i).getValuesMap(), written.get(i).getValuesMap());
+        }
+    }
+
+    @Test
+    public void testVertexLookupsAreCachedWithinTransaction() throws Exception {
+        Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+        databaseInstance.set("name", randomString());
+        databaseInstance.set("description", "cached database");
+        String dbGuid = createEntity(databaseInstance).get(0);
+        ClassType dbType = typeSystem.getDataType(ClassType.class, TestUtils.DATABASE_TYPE);
+        ITypedReferenceableInstance dbInstance = dbType.convert(databaseInstance, Multiplicity.REQUIRED);
+        GraphHelper graphHelper = GraphHelper.getInstance();
+
+        Assert.assertNull(VertexLookupCache.get());
+        VertexLookupCache.begin();
+        try {
+            AtlasVertex byGuid = graphHelper.getVertexForGUID(dbGuid);
+            Assert.assertSame(graphHelper.getVertexForGUID(dbGuid), byGuid);
+
+            AtlasVertex byName = graphHelper.getVertexForInstanceByUniqueAttribute(dbType, dbInstance);
+            Assert.assertEquals(byName.getId(), byGuid.getId());
+            Assert.assertSame(graphHelper.getVertexForInstanceByUniqueAttribute(dbType, dbInstance), byName);
+
+            //a cached vertex whose unique attribute changed no longer matches the old value
+            GraphHelper.setProperty(byName, GraphHelper.getQualifiedFieldName(dbType, "name"), randomString());
+            Assert.assertNull(graphHelper.getVertexForInstanceByUniqueAttribute(dbType, dbInstance));
+        } finally {
+            VertexLookupCache.end();
+            graphProvider.get().rollback();
+        }
+        Assert.assertNull(VertexLookupCache.get());
+    }
+
+    @Test
+    public void testDeferredFullTextIsBuiltFromQueuedInstances() throws Exception {
+        Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+        databaseInstance.set("name", randomString());
+        databaseInstance.set("description", "deferred database");
+        String dbGuid = createEntity(databaseInstance).get(0);
+
+        ITypedReferenceableInstance first = repositoryService.getEntityDefinition(dbGuid);
+        first.set("description", "firstdescription");
+        RequestContext.createContext();
+        ITypedReferenceableInstance second = repositoryService.getEntityDefinition(dbGuid);
+        second.set("description", "seconddescription");
+
+        long indexed = fullTextIndexer.getIndexedEntities();
+        fullTextIndexer.enqueue(Collections.singletonList(first));
+        fullTextIndexer.enqueue(Collections.singletonList(second));
+        Assert.assertEquals(fullTextIndexer.getPendingCount(), 1);
+
+        fullTextIndexer.flush();
+
+        Assert.assertEquals(fullTextIndexer.getPendingCount(), 0);
+        Assert.assertEquals(fullTextIndexer.getIndexedEntities(), indexed + 1);
+        String fullText = GraphHelper.getInstance().getVertexForGUID(dbGuid)
+                .getProperty(Constants.ENTITY_TEXT_PROPERTY_KEY, String.class);
+        Assert.assertTrue(fullText.contains("seconddescription"), fullText);
+        Assert.assertFalse(fullText.contains("firstdescription"), fullText);
+    }
+
+    @Test
+    public void testDeferredFullTextOfMissingEntityIsRetriedThenDropped() throws Exception {
+        Referenceable missing = new Referenceable(UUID.randomUUID().toString(), TestUtils.DATABASE_TYPE,
+                new HashMap<String, Object>());
+        missing.set("name", randomString());
+        missing.set("description", "missing database");
+        ClassType dbType = typeSystem.getDataType(ClassType.class, TestUtils.DATABASE_TYPE);
+
+        long indexed = fullTextIndexer.getIndexedEntities();
+        fullTextIndexer.enqueue(Collections.singletonList(dbType.convert(missing, Multiplicity.REQUIRED)));
+        fullTextIndexer.flush();
+
+        Assert.assertEquals(fullTextIndexer.getPendingCount(), 0);
+        Assert.assertEquals(fullTextIndexer.getIndexedEntities(), indexed);
+    }
+
+    @Test
+    public void testWritersIndexOnceMaxPendingEntitiesAreQueued() throws Exception {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(DeferredFullTextIndexer.CONFIG_ENABLED, true);
+        configuration.setProperty(DeferredFullTextIndexer.CONFIG_MAX_PENDING, 2);
+        configuration.setProperty(DeferredFullTextIndexer.CONFIG_BATCH_SIZE, 1);
+        DeferredFullTextIndexer indexer = new DeferredFullTextIndexer(graphProvider.get(), configuration);
+
+        for (int i = 0; i < 3; i++) {
+            Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+            databaseInstance.set("name", randomString());
+            databaseInstance.set("description", "bounded database");
+            String dbGuid = createEntity(databaseInstance).get(0);
+
+            indexer.enqueue(Collections.singletonList(repositoryService.getEntityDefinition(dbGuid)));
+            Assert.assertTrue(indexer.getPendingCount() < 2, "pending: " + indexer.getPendingCount());
+        }
+        graphProvider.get().commit();
+
+        Assert.assertEquals(indexer.getIndexedEntities(), 2);
+        Assert.assertEquals(indexer.getPendingCount(), 1);
+    }
+
+    @Test
+    public void testUpdatesOfUnchangedEntitiesAreSkipped() throws Exception {
+        GraphBackedMetadataRepository repository =
+                new GraphBackedMetadataRepository(graphProvider, deleteHandler, true);
+        ClassType dbType = typeSystem.getDataType(ClassType.class, TestUtils.DATABASE_TYPE);
+        Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+        databaseInstance.set("name", randomString());
+        databaseInstance.set("description", "unchanged database");
+        try {
+            RequestContext.createContext();
+            String dbGuid = repository.createEntities(dbType.convert(databaseInstance, Multiplicity.REQUIRED)).get(0);
+
+            RequestContext.createContext();
+            AtlasClient.EntityResult result =
+                    repository.updateEntities(dbType.convert(databaseInstance, Multiplicity.REQUIRED));
+            Assert.assertTrue(result.getUpdateEntities().isEmpty());
+            Assert.assertEquals(getSkippedEntityUpdates(repository), 1L);
+
+            //partial updates are always written, even when they set every attribute to its current value
+            ITypedReferenceableInstance partialInstance = dbType.convert(databaseInstance, Multiplicity.REQUIRED);
+            ((ReferenceableInstance) partialInstance).replaceWithNewId(new Id(dbGuid, 0, TestUtils.DATABASE_TYPE));
+            RequestContext.createContext();
+            result = repository.updatePartial(partialInstance);
+            Assert.assertEquals(result.getUpdateEntities(), Collections.singletonList(dbGuid));
+            Assert.assertEquals(getSkippedEntityUpdates(repository), 1L);
+
+            databaseInstance.set("description", "changed database");
+            RequestContext.createContext();
+            result = repository.updateEntities(dbType.convert(databaseInstance, Multiplicity.REQUIRED));
+            Assert.assertEquals(result.getUpdateEntities(), Collections.singletonList(dbGuid));
+            Assert.assertEquals(getSkippedEntityUpdates(repository), 1L);
+            Assert.assertEquals(repository.getEntityDefinition(dbGuid).getString("description"), "changed database");
+        } finally {
+            graphProvider.get().commit();
+        }
+    }
+
+    @Test
+    public void testUnchangedEntitiesReferencingChangedEntitiesAreUpdated() throws Exception {
+        GraphBackedMetadataRepository repository =
+                new GraphBackedMetadataRepository(graphProvider, deleteHandler, true);
+        ClassType tableType = typeSystem.getDataType(ClassType.class, TestUtils.TABLE_TYPE);
+        Referenceable databaseInstance = TestUtils.createDBEntity();
+        Referenceable tableInstance = TestUtils.createTableEntity(databaseInstance.getId()._getId());
+        tableInstance.set("database", databaseInstance);
+        try {
+            RequestContext.createContext();
+            repository.createEntities(tableType.convert(tableInstance, Multiplicity.REQUIRED));
+            String tableGuid = repository.getEntityDefinition(TestUtils.TABLE_TYPE, TestUtils.NAME,
+                    tableInstance.get(TestUtils.NAME)).getId()._getId();
+
+            //the table is unchanged, but its full text includes the changed description of its database
+            databaseInstance.set("description", "renamed database");
+            RequestContext.createContext();
+            AtlasClient.EntityResult result =
+                    repository.updateEntities(tableType.convert(tableInstance, Multiplicity.REQUIRED));
+            Assert.assertTrue(result.getUpdateEntities().contains(tableGuid), result.getUpdateEntities().toString());
+            String fullText = GraphHelper.getInstance().getVertexForGUID(tableGuid)
+                    .getProperty(Constants.ENTITY_TEXT_PROPERTY_KEY, String.class);
+            Assert.assertTrue(fullText.contains("renamed database"), fullText);
+        } finally {
+            graphProvider.get().commit();
+        }
+    }
+
+    private long getSkippedEntityUpdates(GraphBackedMetadataRepository repository) {
+        return (Long) repository.getMetrics().get(GraphBackedMetadataRepository.METRIC_SKIPPED_ENTITY_UPDATES);
+    }
+
+    @Test
+    public void testPrefetchVerticesLooksUpUniqueAttributesTogether() throws Exception {
+        ClassType dbType = typeSystem.getDataType(ClassType.class, TestUtils.DATABASE_TYPE);
+        String namePropertyKey = GraphHelper.getQualifiedFieldName(dbType, "name");
+        List<ITypedReferenceableInstance> existing = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Referenceable databaseInstance = new Referenceable(TestUtils.DATABASE_TYPE);
+            databaseInstance.set("name", randomString());
+            databaseInstance.set("description", "prefetched database");
+            createEntity(databaseInstance);
+            existing.add(dbType.convert(databaseInstance, Multiplicity.REQUIRED));
+        }
+        Referenceable newDatabase = new Referenceable(TestUtils.DATABASE_TYPE);
+        newDatabase.set("name", randomString());
+        newDatabase.set("description", "new database");
+        ITypedReferenceableInstance newInstance = dbType.convert(newDatabase, Multiplicity.REQUIRED);
+        List<ITypedReferenceableInstance> instances = new ArrayList<>(existing);
+        instances.add(newInstance);
+
+        VertexLookupCache.begin();
+        try {
+            Set<IReferenceableInstance> notFound = GraphHelper.getInstance().prefetchVertices(instances);
+
+            Assert.assertEquals(notFound.size(), 1);
+            Assert.assertTrue(notFound.contains(newInstance));
+            for (ITypedReferenceableInstance instance : existing) {
+                Assert.assertNotNull(VertexLookupCache.get().getByUniqueAttribute(TestUtils.DATABASE_TYPE,
+                        namePropertyKey, instance.get("name")));
+            }
+        } finally {
+            VertexLookupCache.end();
+            graphProvider.get().rollback();
+        }
+    }
+
     private List<String> createEntities(ITypedReferenceableInstance... instances) throws Exception {
         RequestContext.createContext();
         return repositoryService.createEntities(instances);
@@ -547,6 +894,15 @@ public class GraphBackedMetadataRepositoryTest {
         Assert.assertEquals(results.length(), 1);
         row = (JSONObject) results.get(0);
         Assert.assertEquals(row.get("typeName"), "Person");
+
+        //page through the people in hr department
+        response = discoveryService.searchByFullText("hr", QueryParams.all());
+        int total = new JSONArray(response).length();
+        Assert.assertTrue(total > 1);
+        response = discoveryService.searchByFullText("hr", new QueryParams(1, 0));
+        Assert.assertEquals(new JSONArray(response).length(), 1);
+        response = discoveryService.searchByFullText("hr", new QueryParams(10, total - 1));
+        Assert.assertEquals(new JSONArray(response).length(), 1);
     }
 
     private ITypedReferenceableInstance createHiveTableInstance(Referenceable databaseInstance) throws Exception {
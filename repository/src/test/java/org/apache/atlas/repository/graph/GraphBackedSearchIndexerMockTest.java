@@ -18,6 +18,8 @@
 
 package org.apache.atlas.repository.graph;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -91,4 +93,21 @@ public class GraphBackedSearchIndexerMockTest {
 
         verify(titanManagement).containsPropertyKey(Constants.VERTEX_TYPE_PROPERTY_KEY);
     }
+
+    @Test
+    public void testIndicesAreNotReinitializedWhenWarmStandbyBecomesActive() throws AtlasException {
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(true);
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_WARM_STANDBY_ENABLED_KEY, false))
+                .thenReturn(true);
+        when(graphProvider.get()).thenReturn(graph);
+        when(graph.getManagementSystem()).thenReturn(titanManagement);
+        when(titanManagement.containsPropertyKey(Constants.VERTEX_TYPE_PROPERTY_KEY)).thenReturn(true);
+
+        GraphBackedSearchIndexer graphBackedSearchIndexer = new GraphBackedSearchIndexer(graphProvider, configuration);
+        graphBackedSearchIndexer.instanceIsActive();
+
+        verify(titanManagement, times(1)).containsPropertyKey(Constants.VERTEX_TYPE_PROPERTY_KEY);
+        verify(titanManagement).rollback();
+        verify(titanManagement, never()).commit();
+    }
 }
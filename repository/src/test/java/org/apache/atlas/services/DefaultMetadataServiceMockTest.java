@@ -18,6 +18,8 @@
 
 package org.apache.atlas.services;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Provider;
 
 import org.apache.atlas.AtlasException;
@@ -25,27 +27,46 @@ import org.apache.atlas.listener.EntityChangeListener;
 import org.apache.atlas.listener.TypesChangeListener;
 import org.apache.atlas.repository.MetadataRepository;
 import org.apache.atlas.repository.typestore.ITypeStore;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.persistence.Id;
 import org.apache.atlas.typesystem.types.TypeSystem;
 import org.apache.atlas.ha.HAConfiguration;
 import org.apache.atlas.typesystem.TypesDef;
+import org.apache.atlas.typesystem.types.ClassType;
+import org.apache.atlas.typesystem.types.DataTypes;
+import org.apache.atlas.typesystem.types.EnumTypeDefinition;
+import org.apache.atlas.typesystem.types.HierarchicalTypeDefinition;
 import org.apache.atlas.typesystem.types.IDataType;
+import org.apache.atlas.typesystem.types.StructTypeDefinition;
+import org.apache.atlas.typesystem.types.TraitType;
+import org.apache.atlas.typesystem.types.utils.TypesUtil;
 import org.apache.commons.configuration.Configuration;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 
 public class DefaultMetadataServiceMockTest {
 
@@ -145,4 +166,133 @@ public class DefaultMetadataServiceMockTest {
         verify(typeSystem, times(1)).createTransientTypeSystem(typesDef, true);
         verify(typeSystem, times(1)).commitTypes(typesAdded);
     }
+
+    @Test
+    public void testShouldLoadTypesWithoutRegisteringIfPassiveReadsEnabled() throws AtlasException {
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(true);
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_PASSIVE_READS_ENABLED_KEY, false))
+                .thenReturn(true);
+        when(configuration.getLong(HAConfiguration.ATLAS_SERVER_HA_PASSIVE_TYPES_REFRESH_INTERVAL_KEY,
+                HAConfiguration.DEFAULT_PASSIVE_TYPES_REFRESH_INTERVAL_MILLIS)).thenReturn(3600000L);
+
+        TypesDef typesDef = mock(TypesDef.class);
+        when(typeStore.restore()).thenReturn(typesDef);
+        when(typeSystem.isRegistered(any(String.class))).thenReturn(true);
+
+        TypeSystem.TransientTypeSystem transientTypeSystem = mock(TypeSystem.TransientTypeSystem.class);
+        HashMap<String, IDataType> typesAdded = new HashMap<>();
+        when(transientTypeSystem.getTypesAdded()).thenReturn(typesAdded);
+        when(typeSystem.createTransientTypeSystem(typesDef, true)).thenReturn(transientTypeSystem);
+
+        DefaultMetadataService defaultMetadataService = new DefaultMetadataService(metadataRepository,
+                typeStore,
+                typesRegistrar, new ArrayList<Provider<TypesChangeListener>>(),
+                new ArrayList<Provider<EntityChangeListener>>(), typeSystem, configuration, null);
+
+        verify(typeSystem, times(1)).commitTypes(typesAdded);
+        verify(typeSystem, never()).defineTypes(Matchers.<TypesDef>any());
+        verifyZeroInteractions(typesRegistrar);
+
+        //becoming active registers types on top of the loaded ones, without restoring unchanged types again
+        defaultMetadataService.instanceIsActive();
+        verify(typeSystem, never()).defineTypes(Matchers.<TypesDef>any());
+        verify(typeStore, times(1)).restore();
+        verify(typeSystem, times(1)).commitTypes(typesAdded);
+        verify(typesRegistrar).registerTypes(ReservedTypesRegistrar.getTypesDir(), typeSystem, defaultMetadataService);
+    }
+
+    @Test
+    public void testShouldLoadOnlyChangedTypesOnServerActiveIfWarmStandbyEnabled() throws AtlasException {
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(true);
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_WARM_STANDBY_ENABLED_KEY, false))
+                .thenReturn(true);
+        when(configuration.getLong(HAConfiguration.ATLAS_SERVER_HA_PASSIVE_TYPES_REFRESH_INTERVAL_KEY,
+                HAConfiguration.DEFAULT_PASSIVE_TYPES_REFRESH_INTERVAL_MILLIS)).thenReturn(3600000L);
+
+        HierarchicalTypeDefinition<ClassType> tableType = TypesUtil.createClassTypeDef("table",
+                ImmutableSet.<String>of(), TypesUtil.createRequiredAttrDef("name", DataTypes.STRING_TYPE));
+        HierarchicalTypeDefinition<ClassType> columnType = TypesUtil.createClassTypeDef("column",
+                ImmutableSet.<String>of(), TypesUtil.createRequiredAttrDef("name", DataTypes.STRING_TYPE));
+        TypesDef typesDef = TypesUtil.getTypesDef(ImmutableList.<EnumTypeDefinition>of(),
+                ImmutableList.<StructTypeDefinition>of(), ImmutableList.<HierarchicalTypeDefinition<TraitType>>of(),
+                ImmutableList.of(tableType));
+        TypesDef changedTypesDef = TypesUtil.getTypesDef(ImmutableList.<EnumTypeDefinition>of(),
+                ImmutableList.<StructTypeDefinition>of(), ImmutableList.<HierarchicalTypeDefinition<TraitType>>of(),
+                ImmutableList.of(tableType, columnType));
+        when(typeStore.getVersion()).thenReturn(1L, 2L);
+        when(typeStore.restore()).thenReturn(typesDef, changedTypesDef);
+        when(typeSystem.isRegistered(any(String.class))).thenReturn(true);
+
+        TypeSystem.TransientTypeSystem transientTypeSystem = mock(TypeSystem.TransientTypeSystem.class);
+        when(transientTypeSystem.getTypesAdded()).thenReturn(new HashMap<String, IDataType>());
+        when(typeSystem.createTransientTypeSystem(any(TypesDef.class), eq(true))).thenReturn(transientTypeSystem);
+
+        DefaultMetadataService defaultMetadataService = new DefaultMetadataService(metadataRepository,
+                typeStore,
+                typesRegistrar, new ArrayList<Provider<TypesChangeListener>>(),
+                new ArrayList<Provider<EntityChangeListener>>(), typeSystem, configuration, null);
+        defaultMetadataService.instanceIsActive();
+
+        ArgumentCaptor<TypesDef> loadedTypes = ArgumentCaptor.forClass(TypesDef.class);
+        verify(typeSystem, times(2)).createTransientTypeSystem(loadedTypes.capture(), eq(true));
+        assertEquals(loadedTypes.getAllValues().get(0).classTypesAsJavaList(), Arrays.asList(tableType));
+        assertEquals(loadedTypes.getAllValues().get(1).classTypesAsJavaList(), Arrays.asList(columnType));
+        verify(typeSystem, never()).defineTypes(Matchers.<TypesDef>any());
+        verify(typesRegistrar).registerTypes(ReservedTypesRegistrar.getTypesDir(), typeSystem, defaultMetadataService);
+    }
+
+    @Test
+    public void testEntityDefinitionCacheIsKeptAcrossStateChanges() throws Exception {
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(true);
+        when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_WARM_STANDBY_ENABLED_KEY, false))
+                .thenReturn(true);
+        when(configuration.getLong(HAConfiguration.ATLAS_SERVER_HA_PASSIVE_TYPES_REFRESH_INTERVAL_KEY,
+                HAConfiguration.DEFAULT_PASSIVE_TYPES_REFRESH_INTERVAL_MILLIS)).thenReturn(3600000L);
+        when(configuration.getBoolean(EntityDefinitionCache.CACHE_ENABLED_PROPERTY, false)).thenReturn(true);
+        when(configuration.getLong(EntityDefinitionCache.CACHE_MAX_SIZE_PROPERTY,
+                EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE)).thenReturn(EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+
+        TypesDef typesDef = mock(TypesDef.class);
+        when(typeStore.getVersion()).thenReturn(1L);
+        when(typeStore.restore()).thenReturn(typesDef);
+        when(typeSystem.isRegistered(any(String.class))).thenReturn(true);
+        TypeSystem.TransientTypeSystem transientTypeSystem = mock(TypeSystem.TransientTypeSystem.class);
+        when(transientTypeSystem.getTypesAdded()).thenReturn(new HashMap<String, IDataType>());
+        when(typeSystem.createTransientTypeSystem(typesDef, true)).thenReturn(transientTypeSystem);
+
+        //the entity is built with a type of the real type system, as the one of the service is a mock
+        TypeSystem realTypeSystem = TypeSystem.getInstance().reset();
+        ClassType entityType = realTypeSystem.defineClassType(TypesUtil.createClassTypeDef("state_change_type",
+                ImmutableSet.<String>of(), TypesUtil.createOptionalAttrDef("name", DataTypes.STRING_TYPE)));
+        final ITypedReferenceableInstance entity = entityType.createInstance(new Id("1", 0, "state_change_type"));
+        when(metadataRepository.getEntityDefinition(eq("1"), anyTimestamps()))
+                .thenAnswer(new Answer<ITypedReferenceableInstance>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public ITypedReferenceableInstance answer(InvocationOnMock invocation) throws Throwable {
+                        ((Map<String, Long>) invocation.getArguments()[1]).put("1", 100L);
+                        return entity;
+                    }
+                });
+        when(metadataRepository.getModificationTimestamps(anyCollectionOf(String.class)))
+                .thenReturn(Collections.singletonMap("1", 100L));
+
+        DefaultMetadataService defaultMetadataService = new DefaultMetadataService(metadataRepository,
+                typeStore,
+                typesRegistrar, new ArrayList<Provider<TypesChangeListener>>(),
+                new ArrayList<Provider<EntityChangeListener>>(), typeSystem, configuration, null);
+        defaultMetadataService.instanceIsActive();
+        String definition = defaultMetadataService.getEntityDefinition("1");
+
+        defaultMetadataService.instanceIsPassive();
+        defaultMetadataService.instanceIsActive();
+
+        assertEquals(defaultMetadataService.getEntityDefinition("1"), definition);
+        verify(metadataRepository, times(1)).getEntityDefinition(eq("1"), anyTimestamps());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> anyTimestamps() {
+        return anyMap();
+    }
 }
@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.services;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.repository.MetadataRepository;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.persistence.Id;
+import org.apache.atlas.typesystem.types.ClassType;
+import org.apache.atlas.typesystem.types.DataTypes;
+import org.apache.atlas.typesystem.types.TypeSystem;
+import org.apache.atlas.typesystem.types.utils.TypesUtil;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class EntityDefinitionCacheTest {
+    private static final String TYPE_NAME = "cache_test_type";
+
+    private MetadataRepository repository;
+    private ClassType type;
+
+    //modification timestamps of the entities, as the repository reports them
+    private final Map<String, Long> timestamps = new HashMap<>();
+    //guids of the composite entities included in each definition
+    private final Map<String, Collection<String>> included = new HashMap<>();
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        TypeSystem typeSystem = TypeSystem.getInstance();
+        typeSystem.reset();
+        typeSystem.defineClassTypes(TypesUtil.createClassTypeDef(TYPE_NAME, ImmutableSet.<String>of(),
+                TypesUtil.createOptionalAttrDef("name", DataTypes.STRING_TYPE)));
+        type = typeSystem.getDataType(ClassType.class, TYPE_NAME);
+
+        timestamps.clear();
+        included.clear();
+        repository = mock(MetadataRepository.class);
+        when(repository.getEntityDefinition(any(String.class), anyTimestamps()))
+                .thenAnswer(new Answer<ITypedReferenceableInstance>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public ITypedReferenceableInstance answer(InvocationOnMock invocation) throws Throwable {
+                        String guid = (String) invocation.getArguments()[0];
+                        Map<String, Long> read = (Map<String, Long>) invocation.getArguments()[1];
+                        read.put(guid, timestamps.get(guid));
+                        if (included.containsKey(guid)) {
+                            for (String includedGuid : included.get(guid)) {
+                                read.put(includedGuid, timestamps.get(includedGuid));
+                            }
+                        }
+                        return instance(guid);
+                    }
+                });
+        when(repository.getModificationTimestamps(anyCollectionOf(String.class)))
+                .thenAnswer(new Answer<Map<String, Long>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map<String, Long> answer(InvocationOnMock invocation) throws Throwable {
+                        Map<String, Long> current = new HashMap<>();
+                        for (String guid : (Collection<String>) invocation.getArguments()[0]) {
+                            current.put(guid, timestamps.get(guid));
+                        }
+                        return current;
+                    }
+                });
+    }
+
+    @Test
+    public void testCurrentDefinitionIsServedFromCache() throws Exception {
+        timestamps.put("1", 100L);
+        EntityDefinitionCache cache = new EntityDefinitionCache(repository, EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+
+        String definition = cache.getEntityDefinition("1");
+        assertEquals(cache.getEntityDefinition("1"), definition);
+        assertEquals(cache.getEntityDefinition("1"), definition);
+
+        verify(repository, times(1)).getEntityDefinition(eq("1"), anyTimestamps());
+        assertEquals(cache.getHits(), 2);
+        assertEquals(cache.getMisses(), 1);
+        assertEquals(cache.getEntryCount(), 1);
+    }
+
+    @Test
+    public void testChangedDefinitionIsReadAgain() throws Exception {
+        timestamps.put("1", 100L);
+        EntityDefinitionCache cache = new EntityDefinitionCache(repository, EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+        cache.getEntityDefinition("1");
+
+        //changed by another server, so no change notification
+        timestamps.put("1", 200L);
+        cache.getEntityDefinition("1");
+        cache.getEntityDefinition("1");
+
+        verify(repository, times(2)).getEntityDefinition(eq("1"), anyTimestamps());
+        assertEquals(cache.getStaleHits(), 1);
+        assertEquals(cache.getHits(), 1);
+    }
+
+    @Test
+    public void testChangedCompositeEntityIsReadAgain() throws Exception {
+        timestamps.put("1", 100L);
+        timestamps.put("2", 100L);
+        included.put("1", Arrays.asList("2"));
+        EntityDefinitionCache cache = new EntityDefinitionCache(repository, EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+        cache.getEntityDefinition("1");
+
+        timestamps.put("2", 200L);
+        cache.getEntityDefinition("1");
+
+        verify(repository, times(2)).getEntityDefinition(eq("1"), anyTimestamps());
+    }
+
+    @Test
+    public void testNotificationsRemoveIncludingDefinitions() throws Exception {
+        timestamps.put("1", 100L);
+        timestamps.put("2", 100L);
+        timestamps.put("3", 100L);
+        included.put("1", Arrays.asList("2"));
+        EntityDefinitionCache cache = new EntityDefinitionCache(repository, EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+        cache.getEntityDefinition("1");
+        cache.getEntityDefinition("3");
+        assertEquals(cache.getEntryCount(), 2);
+
+        cache.onEntitiesUpdated(Arrays.asList(instance("2")));
+        assertEquals(cache.getEntryCount(), 1);
+
+        cache.onTraitDeleted(instance("3"), "trait");
+        assertEquals(cache.getEntryCount(), 0);
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testDefinitionChangedWhileReadIsNotCached() throws Exception {
+        timestamps.put("1", 100L);
+        final EntityDefinitionCache cache =
+                new EntityDefinitionCache(repository, EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+        doAnswer(new Answer<ITypedReferenceableInstance>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public ITypedReferenceableInstance answer(InvocationOnMock invocation) throws Throwable {
+                    ((Map<String, Long>) invocation.getArguments()[1]).put("1", 100L);
+                    //committed in the same millisecond, after the definition was read
+                    cache.onEntitiesUpdated(Arrays.asList(instance("1")));
+                    return instance("1");
+                }
+            }).when(repository).getEntityDefinition(eq("1"), anyTimestamps());
+
+        cache.getEntityDefinition("1");
+        assertEquals(cache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDefinitionsAreEvicted() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            timestamps.put(String.valueOf(i), 100L);
+        }
+        EntityDefinitionCache cache = new EntityDefinitionCache(repository, 1024 * 1024);
+        cache.getEntityDefinition("0");
+        long entrySize = cache.getSize();
+
+        cache = new EntityDefinitionCache(repository, entrySize * 5);
+        for (int i = 0; i < 10; i++) {
+            cache.getEntityDefinition(String.valueOf(i));
+            //keep the first definition in use
+            cache.getEntityDefinition("0");
+        }
+
+        assertEquals(cache.getEntryCount(), 5);
+        assertEquals(cache.getEvictions(), 5);
+        cache.getEntityDefinition("0");
+        cache.getEntityDefinition("9");
+        assertEquals(cache.getMisses(), 10);
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        timestamps.put("1", 100L);
+        EntityDefinitionCache cache = new EntityDefinitionCache(repository, EntityDefinitionCache.DEFAULT_CACHE_MAX_SIZE);
+        cache.getEntityDefinition("1");
+
+        cache.clear();
+        assertEquals(cache.getEntryCount(), 0);
+        assertEquals(cache.getSize(), 0);
+        cache.getEntityDefinition("1");
+        verify(repository, times(2)).getEntityDefinition(eq("1"), anyTimestamps());
+    }
+
+    private ITypedReferenceableInstance instance(String guid) throws AtlasException {
+        ITypedReferenceableInstance instance = type.createInstance(new Id(guid, 0, TYPE_NAME));
+        instance.set("name", "entity" + guid);
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> anyTimestamps() {
+        return anyMap();
+    }
+}
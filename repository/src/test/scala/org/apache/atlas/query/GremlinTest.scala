@@ -1083,4 +1083,22 @@ class GremlinTest extends BaseGremlinTest {
     val r = QueryProcessor.evaluate(e, g, gp)
     validateJson(r)
   }
+
+  @Test def testLiteralsAreBoundAsQueryParameters {
+    val reporting = translate("DB where name = \"Reporting\" and createTime > 1000 limit 10")
+    val sales = translate("DB where name = \"Sales\" and createTime > 500 limit 5 offset 2")
+
+    assert(sales.queryStr == reporting.queryStr)
+    assert(!reporting.queryStr.contains("Reporting"))
+    assert(!reporting.queryStr.contains("1000"))
+    assert(reporting.queryBindings.values.toList.contains("Reporting"))
+    assert(reporting.queryBindings.values.toList.contains(1000))
+    assert(sales.queryBindings.values.toList.contains("Sales"))
+    assert(sales.queryBindings.values.toList.contains(500))
+  }
+
+  private def translate(dslQuery: String): GremlinQuery = {
+    val e = QueryProcessor.validate(QueryParser(dslQuery).right.get)
+    new GremlinTranslator(e, gp).translate()
+  }
 }
@@ -26,9 +26,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class RequestContext {
@@ -40,6 +42,7 @@ public class RequestContext {
     private Set<String> updatedEntityIds = new LinkedHashSet<>();
     private Set<String> deletedEntityIds = new LinkedHashSet<>();
     private List<ITypedReferenceableInstance> deletedEntities = new ArrayList<>();
+    private Map<String, ITypedReferenceableInstance> entityCache = new HashMap<>();
 
     private String user;
     private long requestTime;
@@ -73,6 +76,18 @@ public class RequestContext {
         CURRENT_CONTEXT.remove();
     }
 
+    /**
+     * Makes the given context the context of the current thread again, e.g. after it was replaced by the
+     * context of a nested request.
+     */
+    public static void setCurrentContext(RequestContext context) {
+        if (context == null) {
+            CURRENT_CONTEXT.remove();
+        } else {
+            CURRENT_CONTEXT.set(context);
+        }
+    }
+
     public String getUser() {
         return user;
     }
@@ -91,6 +106,7 @@ public class RequestContext {
 
     public void recordEntityUpdate(String entityId) {
         this.updatedEntityIds.add(entityId);
+        entityCache.remove(entityId);
     }
 
     public void recordEntityDelete(String entityId, String typeName) throws AtlasException {
@@ -99,6 +115,30 @@ public class RequestContext {
         if (deletedEntityIds.add(entityId)) {
             deletedEntities.add(entity);
         }
+        entityCache.remove(entityId);
+    }
+
+    /**
+     * Adds the definition of an entity, as written in this request, to the request's entity cache
+     */
+    public void cache(ITypedReferenceableInstance instance) {
+        if (instance != null && instance.getId() != null) {
+            entityCache.put(instance.getId()._getId(), instance);
+        }
+    }
+
+    /**
+     * Removes the entity from the request's entity cache, when it is being modified
+     */
+    public void evictInstance(String entityId) {
+        entityCache.remove(entityId);
+    }
+
+    /**
+     * @return the definition of the entity written in this request, null if it isn't cached
+     */
+    public ITypedReferenceableInstance getInstance(String entityId) {
+        return entityCache.get(entityId);
     }
 
     public List<String> getCreatedEntityIds() {
@@ -18,6 +18,8 @@
 
 package org.apache.atlas.discovery;
 
+import org.apache.atlas.query.QueryParams;
+
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +33,15 @@ public interface DiscoveryService {
      */
     String searchByFullText(String query) throws DiscoveryException;
 
+    /**
+     * Full text search returning a page of the results.
+     *
+     * @param query full text query.
+     * @param queryParams page of the results to return.
+     * @return JSON array of the guid, type name and score of the matching entities.
+     */
+    String searchByFullText(String query, QueryParams queryParams) throws DiscoveryException;
+
     /**
      * Search using query DSL.
      *
@@ -39,6 +50,16 @@ public interface DiscoveryService {
      */
     String searchByDSL(String dslQuery) throws DiscoveryException;
 
+    /**
+     * Search using query DSL returning a page of the results. The page is ignored if the query has its own
+     * limit clause.
+     *
+     * @param dslQuery query in DSL format.
+     * @param queryParams page of the results to return.
+     * @return JSON representing the type and results.
+     */
+    String searchByDSL(String dslQuery, QueryParams queryParams) throws DiscoveryException;
+
     /**
      * Assumes the User is familiar with the persistence structure of the Repository.
      * The given query is run uninterpreted against the underlying Graph Store.
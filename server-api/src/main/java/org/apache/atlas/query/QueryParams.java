@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas.query;
+
+/**
+ * Page of the results requested from a search or listing.
+ */
+public class QueryParams {
+    public static final int NO_LIMIT = -1;
+
+    private final int limit;
+    private final int offset;
+
+    /**
+     * @param limit  maximum number of results, {@link #NO_LIMIT} for all of them
+     * @param offset number of results to skip
+     */
+    public QueryParams(int limit, int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative: " + offset);
+        }
+        this.limit = limit < 0 ? NO_LIMIT : limit;
+        this.offset = offset;
+    }
+
+    /**
+     * @return parameters selecting all the results
+     */
+    public static QueryParams all() {
+        return new QueryParams(NO_LIMIT, 0);
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public boolean hasLimit() {
+        return limit != NO_LIMIT;
+    }
+
+    /**
+     * @return whether the parameters select a page rather than all results
+     */
+    public boolean isPaged() {
+        return hasLimit() || offset > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryParams{limit=" + limit + ", offset=" + offset + '}';
+    }
+}
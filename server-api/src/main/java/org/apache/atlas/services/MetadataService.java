@@ -22,6 +22,7 @@ import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.EntityAuditEvent;
 import org.apache.atlas.listener.EntityChangeListener;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.typesystem.ITypedReferenceableInstance;
 import org.apache.atlas.typesystem.ITypedStruct;
 import org.apache.atlas.typesystem.Referenceable;
@@ -129,6 +130,15 @@ public interface MetadataService {
      */
     List<String> getEntityList(String entityType) throws AtlasException;
 
+    /**
+     * Return a page of the list of entity guids for the given type in the repository.
+     *
+     * @param entityType type
+     * @param queryParams page of the list to return
+     * @return list of entity guids for the given type in the repository
+     */
+    List<String> getEntityList(String entityType, QueryParams queryParams) throws AtlasException;
+
     /**
      * Adds the property to the given entity id(guid).
      * Currently supports updates only on PRIMITIVE, CLASS attribute types
@@ -157,6 +167,15 @@ public interface MetadataService {
      */
     AtlasClient.EntityResult updateEntities(String entityJson) throws AtlasException;
 
+    /**
+     * Batch API - Adds/Updates the given entity instances.
+     *
+     * @param typedInstances instances to create/update
+     * @return guids of entities created/updated
+     * @throws AtlasException if unable to update the entities
+     */
+    AtlasClient.EntityResult updateEntities(ITypedReferenceableInstance[] typedInstances) throws AtlasException;
+
     // Trait management functions
 
     /**
@@ -337,16 +337,12 @@ public class TypeSystem {
      * Commit the given types to this {@link TypeSystem} instance.
      *
      * This step should be called only after the types have been committed to the backend stores successfully.
+     * The types are added or replaced together, so readers don't see some of them without the others.
      * @param typesAdded newly added types.
      * @throws AtlasException
      */
     public void commitTypes(Map<String, IDataType> typesAdded) throws AtlasException {
-        for (Map.Entry<String, IDataType> typeEntry : typesAdded.entrySet()) {
-            String typeName = typeEntry.getKey();
-            IDataType type = typeEntry.getValue();
-            //Add/replace the new type in the typesystem
-            typeCache.put(type);
-        }
+        typeCache.putAll(typesAdded.values());
     }
 
     public class TransientTypeSystem extends TypeSystem {
@@ -36,12 +36,15 @@ import com.google.inject.Singleton;
 
 /**
  * Caches the types in-memory within the same process space.
+ *
+ * Types added together with {@link #putAll(Collection)} are swapped in as a new snapshot of the cache, so readers
+ * see either none or all of them, never a type whose dependencies aren't there yet.
  */
 @Singleton
 @SuppressWarnings("rawtypes")
 public class DefaultTypeCache implements TypeCache {
 
-    private Map<String, IDataType> types_ = new ConcurrentHashMap<>();
+    private volatile Map<String, IDataType> types_ = new ConcurrentHashMap<>();
 
     /*
      * (non-Javadoc)
@@ -154,7 +157,7 @@ public class DefaultTypeCache implements TypeCache {
      * .atlas.typesystem.types.IDataType)
      */
     @Override
-    public void put(IDataType type) throws AtlasException {
+    public synchronized void put(IDataType type) throws AtlasException {
 
         assertValidType(type);
         types_.put(type.getName(), type);
@@ -185,12 +188,16 @@ public class DefaultTypeCache implements TypeCache {
      * .util.Collection)
      */
     @Override
-    public void putAll(Collection<IDataType> types) throws AtlasException {
+    public synchronized void putAll(Collection<IDataType> types) throws AtlasException {
 
         for (IDataType type : types) {
             assertValidType(type);
-            types_.put(type.getName(), type);
         }
+        Map<String, IDataType> snapshot = new ConcurrentHashMap<>(types_);
+        for (IDataType type : types) {
+            snapshot.put(type.getName(), type);
+        }
+        types_ = snapshot;
     }
 
     /*
@@ -200,7 +207,7 @@ public class DefaultTypeCache implements TypeCache {
      * .lang.String)
      */
     @Override
-    public void remove(String typeName) throws AtlasException {
+    public synchronized void remove(String typeName) throws AtlasException {
 
         types_.remove(typeName);
     }
@@ -222,7 +229,7 @@ public class DefaultTypeCache implements TypeCache {
      * @see org.apache.atlas.typesystem.types.cache.TypeCache#clear()
      */
     @Override
-    public void clear() {
+    public synchronized void clear() {
 
         types_.clear();
     }
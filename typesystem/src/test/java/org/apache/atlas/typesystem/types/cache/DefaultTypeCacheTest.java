@@ -25,6 +25,8 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -236,6 +238,29 @@ public class DefaultTypeCacheTest {
         verifyType(shippingEnum, ENUMTYPE_SHIPPING, EnumType.class);
     }
 
+    @Test
+    public void testCacheBulkInsertIsSwappedInTogether() throws Exception {
+
+        cache = new DefaultTypeCache();
+        cache.put(shippingEnum);
+        Collection<String> namesBeforeInsert = cache.getAllTypeNames();
+
+        try {
+            cache.putAll(Arrays.<IDataType>asList(customerType, null));
+            fail("AtlasException was expected for a null type");
+        } catch (AtlasException e) {
+            // expected, and none of the types is added
+        }
+        assertFalse(cache.has(CLASSTYPE_CUSTOMER));
+
+        cache.putAll(Arrays.<IDataType>asList(customerType, addressType));
+        assertTrue(cache.has(CLASSTYPE_CUSTOMER));
+        assertTrue(cache.has(STRUCTTYPE_ADDRESS));
+
+        // readers that got the names before the insert keep seeing the snapshot they read
+        assertEquals(namesBeforeInsert.size(), 1);
+    }
+
     @Test
     public void testCacheRemove() throws Exception {
 
@@ -222,6 +222,12 @@ public class LocalAtlasClient extends AtlasClient {
         throw new IllegalStateException("Not supported in LocalAtlasClient");
     }
 
+    @Override
+    public List<String> listEntities(final String entityType, final int limit, final int offset)
+            throws AtlasServiceException {
+        throw new IllegalStateException("Not supported in LocalAtlasClient");
+    }
+
     @Override
     public List<EntityAuditEvent> getEntityAuditEvents(String entityId, String startKey, short numResults)
             throws AtlasServiceException {
@@ -238,6 +244,12 @@ public class LocalAtlasClient extends AtlasClient {
         throw new IllegalStateException("Not supported in LocalAtlasClient");
     }
 
+    @Override
+    public JSONArray searchByDSL(final String query, final int limit, final int offset)
+            throws AtlasServiceException {
+        throw new IllegalStateException("Not supported in LocalAtlasClient");
+    }
+
     @Override
     public JSONArray searchByGremlin(final String gremlinQuery) throws AtlasServiceException {
         throw new IllegalStateException("Not supported in LocalAtlasClient");
@@ -248,6 +260,12 @@ public class LocalAtlasClient extends AtlasClient {
         throw new IllegalStateException("Not supported in LocalAtlasClient");
     }
 
+    @Override
+    public JSONObject searchByFullText(final String query, final int limit, final int offset)
+            throws AtlasServiceException {
+        throw new IllegalStateException("Not supported in LocalAtlasClient");
+    }
+
     @Override
     public JSONObject getInputGraph(String datasetName) throws AtlasServiceException {
         throw new IllegalStateException("Not supported in LocalAtlasClient");
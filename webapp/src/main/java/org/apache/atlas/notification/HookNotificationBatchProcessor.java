@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.atlas.AtlasClient;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.GraphTransaction;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.services.MetadataService;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.web.filters.AuditFilter;
+import org.apache.atlas.web.util.DateTimeHelper;
+import org.codehaus.jettison.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Applies batches of hook notification messages directly through the {@link MetadataService},
+ * without going through the REST resources. All the messages of a batch are applied within
+ * a single graph transaction.
+ */
+@Singleton
+public class HookNotificationBatchProcessor {
+    private static final Logger LOG = LoggerFactory.getLogger(HookNotificationBatchProcessor.class);
+    private static final String LOCALHOST = "localhost";
+    private static final String CLASS = HookNotificationBatchProcessor.class.getSimpleName();
+
+    private final MetadataService metadataService;
+
+    @Inject
+    public HookNotificationBatchProcessor(MetadataService metadataService) {
+        this.metadataService = metadataService;
+    }
+
+    /**
+     * Applies the given messages, in order, in one graph transaction. If any of the messages fails,
+     * the whole batch is rolled back. Entity change listeners are notified of the changes of all the
+     * messages only once the batch has committed, so nothing is notified or audited for a batch that
+     * is rolled back.
+     *
+     * @param messages the messages to apply
+     * @throws AtlasException if any of the messages could not be applied
+     */
+    @GraphTransaction
+    public void process(List<HookNotification.HookNotificationMessage> messages) throws AtlasException {
+        for (HookNotification.HookNotificationMessage message : messages) {
+            processMessage(message);
+        }
+    }
+
+    private void processMessage(HookNotification.HookNotificationMessage message) throws AtlasException {
+        RequestContext requestContext = RequestContext.createContext();
+        requestContext.setUser(message.getUser());
+
+        switch (message.getType()) {
+        case ENTITY_CREATE:
+            audit(message, AtlasClient.API.CREATE_ENTITY);
+            HookNotification.EntityCreateRequest createRequest = (HookNotification.EntityCreateRequest) message;
+            metadataService.createEntities(toTypedInstances(createRequest));
+            break;
+
+        case ENTITY_PARTIAL_UPDATE:
+            audit(message, AtlasClient.API.UPDATE_ENTITY_PARTIAL);
+            HookNotification.EntityPartialUpdateRequest partialUpdateRequest =
+                    (HookNotification.EntityPartialUpdateRequest) message;
+            metadataService.updateEntityByUniqueAttribute(partialUpdateRequest.getTypeName(),
+                    partialUpdateRequest.getAttribute(), partialUpdateRequest.getAttributeValue(),
+                    partialUpdateRequest.getEntity());
+            break;
+
+        case ENTITY_DELETE:
+            audit(message, AtlasClient.API.DELETE_ENTITY);
+            HookNotification.EntityDeleteRequest deleteRequest = (HookNotification.EntityDeleteRequest) message;
+            metadataService.deleteEntityByUniqueAttribute(deleteRequest.getTypeName(),
+                    deleteRequest.getAttribute(), deleteRequest.getAttributeValue());
+            break;
+
+        case ENTITY_FULL_UPDATE:
+            audit(message, AtlasClient.API.UPDATE_ENTITY);
+            HookNotification.EntityUpdateRequest updateRequest = (HookNotification.EntityUpdateRequest) message;
+            metadataService.updateEntities(toTypedInstances(updateRequest));
+            break;
+
+        default:
+            throw new IllegalStateException("Unhandled exception!");
+        }
+    }
+
+    private ITypedReferenceableInstance[] toTypedInstances(HookNotification.EntityCreateRequest request)
+        throws AtlasException {
+        List<Referenceable> entities;
+        try {
+            entities = request.getEntities();
+        } catch (JSONException e) {
+            throw new AtlasException(e);
+        }
+
+        ITypedReferenceableInstance[] typedInstances = new ITypedReferenceableInstance[entities.size()];
+        for (int index = 0; index < entities.size(); index++) {
+            typedInstances[index] = metadataService.getTypedReferenceableInstance(entities.get(index));
+        }
+        return typedInstances;
+    }
+
+    private void audit(HookNotification.HookNotificationMessage message, AtlasClient.API api) {
+        LOG.debug("Processing {} message from user {}", message.getType(), message.getUser());
+        AuditFilter.audit(message.getUser(), CLASS, api.getMethod(), LOCALHOST, api.getPath(), LOCALHOST,
+                DateTimeHelper.formatDateUTC(new Date()));
+    }
+}
@@ -18,25 +18,39 @@
 package org.apache.atlas.notification;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import kafka.consumer.ConsumerTimeoutException;
 import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.LocalAtlasClient;
 import org.apache.atlas.ha.HAConfiguration;
 import org.apache.atlas.listener.ActiveStateChangeHandler;
 import org.apache.atlas.notification.hook.HookNotification;
 import org.apache.atlas.service.Service;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
 import org.apache.commons.configuration.Configuration;
+import org.codehaus.jettison.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -49,18 +63,31 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     private static final String THREADNAME_PREFIX = NotificationHookConsumer.class.getSimpleName();
 
     public static final String CONSUMER_THREADS_PROPERTY = "atlas.notification.hook.numthreads";
+    public static final String CONSUMER_BATCH_SIZE_PROPERTY = "atlas.notification.hook.consumer.batch.size";
+    public static final String CONSUMER_BATCH_TIMEOUT_PROPERTY = "atlas.notification.hook.consumer.batch.timeout.ms";
+    public static final String CONSUMER_LANES_PROPERTY = "atlas.notification.hook.consumer.lanes";
     public static final int SERVER_READY_WAIT_TIME_MS = 1000;
+    public static final int DEFAULT_BATCH_SIZE = 1;
+    public static final long DEFAULT_BATCH_TIMEOUT_MS = 1000;
+    public static final int DEFAULT_LANES = 1;
     private final LocalAtlasClient atlasClient;
+    private final HookNotificationBatchProcessor batchProcessor;
 
     private NotificationInterface notificationInterface;
     private ExecutorService executors;
     private Configuration applicationProperties;
     private List<HookConsumer> consumers;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long batchTimeoutMs = DEFAULT_BATCH_TIMEOUT_MS;
+    private int numLanes = DEFAULT_LANES;
+    private ExecutorService laneExecutor;
 
     @Inject
-    public NotificationHookConsumer(NotificationInterface notificationInterface, LocalAtlasClient atlasClient) {
+    public NotificationHookConsumer(NotificationInterface notificationInterface, LocalAtlasClient atlasClient,
+                                    HookNotificationBatchProcessor batchProcessor) {
         this.notificationInterface = notificationInterface;
         this.atlasClient = atlasClient;
+        this.batchProcessor = batchProcessor;
     }
 
     @Override
@@ -72,6 +99,9 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     void startInternal(Configuration configuration,
                        ExecutorService executorService) {
         this.applicationProperties = configuration;
+        this.batchSize = configuration.getInt(CONSUMER_BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+        this.batchTimeoutMs = configuration.getLong(CONSUMER_BATCH_TIMEOUT_PROPERTY, DEFAULT_BATCH_TIMEOUT_MS);
+        this.numLanes = configuration.getInt(CONSUMER_LANES_PROPERTY, DEFAULT_LANES);
         if (consumers == null) {
             consumers = new ArrayList<>();
         }
@@ -93,6 +123,17 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " thread-%d").build());
         }
         executors = executorService;
+        if (batchSize > 1) {
+            LOG.info("Consuming hook notifications in batches of up to {} messages / {} ms", batchSize, batchTimeoutMs);
+            if (numLanes > 1 && laneExecutor == null) {
+                LOG.info("Applying each batch on {} lanes partitioned by entity", numLanes);
+                laneExecutor = Executors.newFixedThreadPool(numLanes,
+                        new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " lane-%d").build());
+            }
+        } else if (numLanes > 1) {
+            LOG.warn("{} is ignored unless {} is greater than 1", CONSUMER_LANES_PROPERTY,
+                    CONSUMER_BATCH_SIZE_PROPERTY);
+        }
         for (final NotificationConsumer<HookNotification.HookNotificationMessage> consumer : notificationConsumers) {
             HookConsumer hookConsumer = new HookConsumer(consumer);
             consumers.add(hookConsumer);
@@ -113,6 +154,10 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                 }
                 executors = null;
             }
+            if (laneExecutor != null) {
+                laneExecutor.shutdownNow();
+                laneExecutor = null;
+            }
         } catch (InterruptedException e) {
             LOG.error("Failure in shutting down consumers");
         }
@@ -151,6 +196,146 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         stop();
     }
 
+    /**
+     * Splits messages into the given number of lanes, preserving the relative order of the messages within each
+     * lane. Messages that touch a common entity, directly or through the entities they embed, are put on the same
+     * lane. Messages whose entities can't be determined are grouped together, on a lane of their own.
+     */
+    @VisibleForTesting
+    static List<List<HookNotification.HookNotificationMessage>> partitionByEntity(
+            List<HookNotification.HookNotificationMessage> messages, int numLanes) {
+        List<List<HookNotification.HookNotificationMessage>> lanes = new ArrayList<>(numLanes);
+        for (int i = 0; i < numLanes; i++) {
+            lanes.add(new ArrayList<HookNotification.HookNotificationMessage>());
+        }
+
+        //messages sharing an entity key are grouped by merging the keys they touch into one set, with a root key
+        List<String> messageKeys = new ArrayList<>(messages.size());
+        Map<String, String> parentKeys = new HashMap<>();
+        for (HookNotification.HookNotificationMessage message : messages) {
+            Set<String> keys = entityKeys(message);
+            if (keys.isEmpty()) {
+                keys = Collections.singleton(UNKNOWN_ENTITIES_KEY);
+            }
+
+            String messageRoot = null;
+            for (String key : keys) {
+                String root = rootKey(parentKeys, key);
+                if (messageRoot == null) {
+                    messageRoot = root;
+                } else if (!root.equals(messageRoot)) {
+                    parentKeys.put(root, messageRoot);
+                }
+            }
+            messageKeys.add(messageRoot);
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            String root = rootKey(parentKeys, messageKeys.get(i));
+            lanes.get((root.hashCode() & Integer.MAX_VALUE) % numLanes).add(messages.get(i));
+        }
+        return lanes;
+    }
+
+    //entity keys always hold a type name, so this can't be the key of an entity
+    private static final String UNKNOWN_ENTITIES_KEY = "";
+
+    private static String rootKey(Map<String, String> parentKeys, String key) {
+        String root = key;
+        String parent;
+        while ((parent = parentKeys.get(root)) != null) {
+            root = parent;
+        }
+
+        //point the keys on the way directly to the root, so later lookups are short
+        String current = key;
+        while (!current.equals(root)) {
+            String next = parentKeys.get(current);
+            parentKeys.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * Keys of the entities a message touches: type name and unique attribute of the target of partial updates and
+     * deletes, and type name and qualified name of every entity in creates and full updates, including the
+     * entities embedded in the attributes of other entities. Entities without a qualified name are keyed by their
+     * id. References by id only link to an entity without changing it, so they are not keyed. Returns an empty set
+     * when the entities can't be determined.
+     */
+    @VisibleForTesting
+    static Set<String> entityKeys(HookNotification.HookNotificationMessage message) {
+        Set<String> keys = new LinkedHashSet<>();
+        switch (message.getType()) {
+        case ENTITY_PARTIAL_UPDATE:
+            HookNotification.EntityPartialUpdateRequest partialUpdateRequest =
+                    (HookNotification.EntityPartialUpdateRequest) message;
+            keys.add(entityKey(partialUpdateRequest.getTypeName(), partialUpdateRequest.getAttribute(),
+                    partialUpdateRequest.getAttributeValue()));
+            if (partialUpdateRequest.getEntity() != null) {
+                addEmbeddedEntityKeys(partialUpdateRequest.getEntity().getValuesMap().values(), keys,
+                        new IdentityHashMap<Object, Boolean>());
+            }
+            break;
+
+        case ENTITY_DELETE:
+            HookNotification.EntityDeleteRequest deleteRequest = (HookNotification.EntityDeleteRequest) message;
+            keys.add(entityKey(deleteRequest.getTypeName(), deleteRequest.getAttribute(),
+                    deleteRequest.getAttributeValue()));
+            break;
+
+        case ENTITY_CREATE:
+        case ENTITY_FULL_UPDATE:
+            List<Referenceable> entities;
+            try {
+                entities = ((HookNotification.EntityCreateRequest) message).getEntities();
+            } catch (JSONException e) {
+                return Collections.emptySet();
+            }
+            if (entities != null) {
+                addEmbeddedEntityKeys(entities, keys, new IdentityHashMap<Object, Boolean>());
+            }
+            break;
+
+        default:
+            break;
+        }
+        return keys;
+    }
+
+    private static void addEmbeddedEntityKeys(Collection<?> values, Set<String> keys,
+            Map<Object, Boolean> visited) {
+        for (Object value : values) {
+            if (value == null || visited.put(value, Boolean.TRUE) != null) {
+                continue;
+            }
+
+            if (value instanceof Referenceable) {
+                Referenceable entity = (Referenceable) value;
+                Object qualifiedName = entity.get(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME);
+                if (qualifiedName == null) {
+                    keys.add(entity.getTypeName() + "#" + entity.getId()._getId());
+                } else {
+                    keys.add(entityKey(entity.getTypeName(), AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME,
+                            String.valueOf(qualifiedName)));
+                }
+            }
+
+            if (value instanceof Struct) {
+                addEmbeddedEntityKeys(((Struct) value).getValuesMap().values(), keys, visited);
+            } else if (value instanceof Collection) {
+                addEmbeddedEntityKeys((Collection<?>) value, keys, visited);
+            } else if (value instanceof Map) {
+                addEmbeddedEntityKeys(((Map<?, ?>) value).values(), keys, visited);
+            }
+        }
+    }
+
+    private static String entityKey(String typeName, String attribute, String value) {
+        return typeName + "." + attribute + "=" + value;
+    }
+
     static class Timer {
         public void sleep(int interval) throws InterruptedException {
             Thread.sleep(interval);
@@ -181,6 +366,11 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                 return;
             }
 
+            if (batchSize > 1) {
+                runBatched();
+                return;
+            }
+
             while (shouldRun.get()) {
                 try {
                     if (hasNext()) {
@@ -192,44 +382,122 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
+        /**
+         * Drains up to batchSize messages, or whatever arrived within batchTimeoutMs, and applies them
+         * together. A partial batch is only flushed when hasNext() returns, so consumer.timeout.ms should be
+         * configured no larger than the batch timeout.
+         */
+        private void runBatched() {
+            List<HookNotification.HookNotificationMessage> batch = new ArrayList<>(batchSize);
+            long batchStartTime = 0;
+
+            while (shouldRun.get()) {
+                try {
+                    if (hasNext()) {
+                        if (batch.isEmpty()) {
+                            batchStartTime = System.currentTimeMillis();
+                        }
+                        batch.add(consumer.next());
+                    }
+
+                    if (!batch.isEmpty() && (batch.size() >= batchSize
+                            || System.currentTimeMillis() - batchStartTime >= batchTimeoutMs)) {
+                        handleBatch(batch);
+                        batch.clear();
+                    }
+                } catch (Throwable t) {
+                    //a batch that failed is kept, and applied again with the messages that arrive next
+                    LOG.warn("Failure in NotificationHookConsumer", t);
+                }
+            }
+        }
+
+        /**
+         * Applies the batch and commits the consumed offsets. With lanes configured, the batch is split by
+         * the entities the messages touch and the lanes are applied in parallel; messages touching a common
+         * entity stay on one lane, in their original order. The offsets are committed only after every lane
+         * is done. If a lane fails, see {@link #applyBatch(List)}, the failure is rethrown once all the lanes
+         * are done and the offsets are not committed, so that the batch is applied again.
+         */
         @VisibleForTesting
-        void handleMessage(HookNotification.HookNotificationMessage message) {
-            atlasClient.setUser(message.getUser());
+        void handleBatch(List<HookNotification.HookNotificationMessage> messages) {
+            ExecutorService lanes = laneExecutor;
+            if (lanes == null || messages.size() == 1) {
+                applyBatch(messages);
+            } else {
+                List<Future<?>> futures = new ArrayList<>(numLanes);
+                List<List<HookNotification.HookNotificationMessage>> partitions =
+                        partitionByEntity(messages, numLanes);
+                for (final List<HookNotification.HookNotificationMessage> lane : partitions) {
+                    if (!lane.isEmpty()) {
+                        futures.add(lanes.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                applyBatch(lane);
+                            }
+                        }));
+                    }
+                }
+
+                Throwable laneFailure = null;
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (InterruptedException e) {
+                        LOG.info("Interrupted while applying batch, offsets will not be committed");
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (ExecutionException e) {
+                        LOG.warn("Error applying lane of batch, offsets will not be committed", e.getCause());
+                        if (laneFailure == null) {
+                            laneFailure = e.getCause();
+                        }
+                    }
+                }
+                if (laneFailure != null) {
+                    throw Throwables.propagate(laneFailure);
+                }
+            }
+            consumer.commit();
+        }
+
+        /**
+         * Applies the messages together. If that fails, they are applied one at a time, and a message that
+         * can't be applied on its own is skipped, so that it doesn't block the others. If every message of a
+         * batch of several fails on its own, the failure is not about the messages, like the repository being
+         * unavailable, so it is rethrown rather than skipping them all.
+         */
+        private void applyBatch(List<HookNotification.HookNotificationMessage> messages) {
             try {
-                switch (message.getType()) {
-                case ENTITY_CREATE:
-                    HookNotification.EntityCreateRequest createRequest =
-                            (HookNotification.EntityCreateRequest) message;
-                    atlasClient.createEntity(createRequest.getEntities());
-                    break;
-
-                case ENTITY_PARTIAL_UPDATE:
-                    HookNotification.EntityPartialUpdateRequest partialUpdateRequest =
-                            (HookNotification.EntityPartialUpdateRequest) message;
-                    atlasClient.updateEntity(partialUpdateRequest.getTypeName(),
-                            partialUpdateRequest.getAttribute(),
-                            partialUpdateRequest.getAttributeValue(), partialUpdateRequest.getEntity());
-                    break;
-
-                case ENTITY_DELETE:
-                    HookNotification.EntityDeleteRequest deleteRequest =
-                        (HookNotification.EntityDeleteRequest) message;
-                    atlasClient.deleteEntity(deleteRequest.getTypeName(),
-                        deleteRequest.getAttribute(),
-                        deleteRequest.getAttributeValue());
-                    break;
-
-                case ENTITY_FULL_UPDATE:
-                    HookNotification.EntityUpdateRequest updateRequest =
-                            (HookNotification.EntityUpdateRequest) message;
-                    atlasClient.updateEntities(updateRequest.getEntities());
-                    break;
-
-                default:
-                    throw new IllegalStateException("Unhandled exception!");
+                batchProcessor.process(messages);
+            } catch (Exception e) {
+                LOG.warn("Error handling batch of {} messages, retrying them one at a time", messages.size(), e);
+                Exception lastFailure = null;
+                int failed = 0;
+                for (HookNotification.HookNotificationMessage message : messages) {
+                    try {
+                        batchProcessor.process(Collections.singletonList(message));
+                    } catch (Exception me) {
+                        LOG.warn("Error handling message {}", message, me);
+                        lastFailure = me;
+                        failed++;
+                    }
                 }
+                if (messages.size() > 1 && failed == messages.size()) {
+                    throw Throwables.propagate(lastFailure);
+                }
+            }
+        }
+
+        /**
+         * Applies the message through the batch processor, which hands its entities to the metadata service as
+         * they were decoded, and commits the consumed offset. A message that fails is logged and skipped.
+         */
+        @VisibleForTesting
+        void handleMessage(HookNotification.HookNotificationMessage message) {
+            try {
+                batchProcessor.process(Collections.singletonList(message));
             } catch (Exception e) {
-                //todo handle failures
                 LOG.warn("Error handling message {}", message, e);
             }
             consumer.commit();
@@ -38,6 +38,7 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.HttpHeaders;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 /**
  * A servlet {@link Filter} that redirects web requests from a passive Atlas server instance to an active one.
@@ -46,11 +47,28 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * by identifying the currently active server. Requests to servers which are in transition are returned with
  * an error SERVICE_UNAVAILABLE. Identification of this state is carried out using
  * {@link ServiceState} and {@link ActiveInstanceState}.
+ *
+ * If passive instances are configured to serve reads, GET requests for the definitions, traits and audit events of
+ * entities, DSL, full text and basic search, lineage and types are answered by the passive instance from the shared
+ * stores, and the other requests are redirected. Gremlin search is redirected, since a gremlin query can change the
+ * graph.
  */
 @Singleton
 public class ActiveServerFilter implements Filter {
 
     private static final Logger LOG = LoggerFactory.getLogger(ActiveServerFilter.class);
+    private static final String API_PREFIX = "api/atlas/";
+    private static final Pattern[] READ_SERVING_PATHS = {
+        Pattern.compile("entities"),
+        Pattern.compile("entities/[^/]+"),
+        Pattern.compile("entities/[^/]+/(traits|audit)"),
+        Pattern.compile("discovery/search(/dsl|/fulltext)?"),
+        Pattern.compile("lineage/[^/]+/(inputs/graph|outputs/graph|schema)"),
+        Pattern.compile("lineage/hive/table/[^/]+/(inputs/graph|outputs/graph|schema)"),
+        Pattern.compile("types"),
+        Pattern.compile("types/[^/]+"),
+    };
+
     private final ActiveInstanceState activeInstanceState;
     private ServiceState serviceState;
 
@@ -84,6 +102,9 @@ public class ActiveServerFilter implements Filter {
         } else if (isInstanceActive()) {
             LOG.debug("Active. Passing request downstream");
             filterChain.doFilter(servletRequest, servletResponse);
+        } else if (isServedByPassiveInstance((HttpServletRequest) servletRequest)) {
+            LOG.debug("Passive. Serving read request {}", ((HttpServletRequest) servletRequest).getRequestURI());
+            filterChain.doFilter(servletRequest, servletResponse);
         } else if (serviceState.isInstanceInTransition()) {
             HttpServletResponse httpServletResponse = (HttpServletResponse) servletResponse;
             LOG.error("Instance in transition. Service may not be ready to return a result");
@@ -111,6 +132,28 @@ public class ActiveServerFilter implements Filter {
         return serviceState.getState() == ServiceState.ServiceStateValue.ACTIVE;
     }
 
+    private boolean isServedByPassiveInstance(HttpServletRequest httpServletRequest) {
+        if (serviceState.getState() != ServiceState.ServiceStateValue.PASSIVE
+                || !serviceState.isServingReadsWhenPassive() || !isSafeHttpMethod(httpServletRequest)) {
+            return false;
+        }
+        String requestURI = httpServletRequest.getRequestURI();
+        int resourceStart = requestURI.indexOf(API_PREFIX);
+        if (resourceStart < 0) {
+            return false;
+        }
+        String resourcePath = requestURI.substring(resourceStart + API_PREFIX.length());
+        if (resourcePath.endsWith("/")) {
+            resourcePath = resourcePath.substring(0, resourcePath.length() - 1);
+        }
+        for (Pattern readPath : READ_SERVING_PATHS) {
+            if (readPath.matcher(resourcePath).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void handleRedirect(HttpServletRequest servletRequest, HttpServletResponse httpServletResponse,
                                 String activeServerAddress) throws IOException {
         HttpServletRequest httpServletRequest = servletRequest;
@@ -142,6 +185,11 @@ public class ActiveServerFilter implements Filter {
                 (method.equals(HttpMethod.DELETE));
     }
 
+    private boolean isSafeHttpMethod(HttpServletRequest httpServletRequest) {
+        String method = httpServletRequest.getMethod();
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+    }
+
     @Override
     public void destroy() {
 
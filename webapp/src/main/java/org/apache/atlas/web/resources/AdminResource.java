@@ -20,6 +20,7 @@ package org.apache.atlas.web.resources;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Singleton;
@@ -31,6 +32,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.repository.MetadataRepository;
+import org.apache.atlas.repository.graph.GraphProvider;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.web.service.ServiceState;
 import org.apache.atlas.web.util.Servlets;
 import org.apache.commons.configuration.ConfigurationException;
@@ -53,10 +57,15 @@ public class AdminResource {
 
     private Response version;
     private ServiceState serviceState;
+    private GraphProvider<AtlasGraph> graphProvider;
+    private MetadataRepository repository;
 
     @Inject
-    public AdminResource(ServiceState serviceState) {
+    public AdminResource(ServiceState serviceState, GraphProvider<AtlasGraph> graphProvider,
+                         MetadataRepository repository) {
         this.serviceState = serviceState;
+        this.graphProvider = graphProvider;
+        this.repository = repository;
     }
 
     /**
@@ -130,6 +139,30 @@ public class AdminResource {
         }
     }
     
+    /**
+     * Fetches the metrics of this application's graph database backend and repository.
+     *
+     * @return json representing the metric values by name.
+     */
+    @GET
+    @Path("metrics")
+    @Produces(Servlets.JSON_MEDIA_TYPE)
+    public Response getMetrics() {
+        JSONObject responseData = new JSONObject();
+        try {
+            Map<String, Object> graphMetrics = graphProvider.get().getMetrics();
+            for (Map.Entry<String, Object> metric : graphMetrics.entrySet()) {
+                responseData.put(metric.getKey(), metric.getValue());
+            }
+            for (Map.Entry<String, Object> metric : repository.getMetrics().entrySet()) {
+                responseData.put(metric.getKey(), metric.getValue());
+            }
+            return Response.ok(responseData).build();
+        } catch (JSONException e) {
+            throw new WebApplicationException(Servlets.getErrorResponse(e, Response.Status.INTERNAL_SERVER_ERROR));
+        }
+    }
+
     @GET
     @Path("session")
     @Produces(Servlets.JSON_MEDIA_TYPE)
@@ -27,6 +27,8 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.apache.atlas.catalog.BaseRequest;
+import org.apache.atlas.catalog.CollectionRequest;
 import org.apache.atlas.catalog.JsonSerializer;
 import org.apache.atlas.catalog.Request;
 import org.apache.atlas.catalog.ResourceProvider;
@@ -51,6 +53,11 @@ public abstract class BaseService {
     private final Logger LOG = LoggerFactory.getLogger(getClass());
     private final static JsonSerializer serializer = new JsonSerializer();
 
+    // query string parameters selecting a page of a collection, the rest of the query string is the query
+    private static final String OFFSET_PARAM = "offset";
+    private static final String LIMIT_PARAM = "limit";
+    private static final String SORT_PARAM = "sort";
+
     protected Result getResource(ResourceProvider provider, Request request)
             throws ResourceNotFoundException {
 
@@ -116,6 +123,56 @@ public abstract class BaseService {
         return (qsBegin == -1) ? null : uri.substring(qsBegin + 1);
     }
 
+    /**
+     * Create a collection request from the query string of the request uri. The paging parameters
+     * offset, limit and sort are taken out of the query string and the remainder is the query.
+     */
+    protected CollectionRequest createCollectionRequest(Map<String, Object> properties, UriInfo ui)
+            throws CatalogException {
+
+        String queryString = getQueryString(ui);
+        int offset = 0;
+        int limit = BaseRequest.NO_LIMIT;
+        String sortProperty = null;
+        if (queryString != null) {
+            StringBuilder query = new StringBuilder();
+            for (String param : queryString.split("&")) {
+                int valueBegin = param.indexOf('=');
+                String name = valueBegin == -1 ? null : param.substring(0, valueBegin);
+                if (OFFSET_PARAM.equals(name)) {
+                    offset = parsePagingParam(name, param.substring(valueBegin + 1));
+                } else if (LIMIT_PARAM.equals(name)) {
+                    limit = parsePagingParam(name, param.substring(valueBegin + 1));
+                } else if (SORT_PARAM.equals(name)) {
+                    sortProperty = decode(param.substring(valueBegin + 1));
+                } else {
+                    if (query.length() > 0) {
+                        query.append('&');
+                    }
+                    query.append(param);
+                }
+            }
+            queryString = query.toString();
+        }
+
+        CollectionRequest request = new CollectionRequest(properties, decode(queryString));
+        request.setPage(offset, limit);
+        request.setSortProperty(sortProperty);
+        return request;
+    }
+
+    private int parsePagingParam(String name, String value) throws CatalogException {
+        try {
+            int intValue = Integer.parseInt(value);
+            if (intValue >= 0) {
+                return intValue;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new CatalogException(String.format("Invalid value for parameter '%s': %s", name, value), 400);
+    }
+
     protected <T extends Map> T parsePayload(String body) throws InvalidPayloadException {
         T properties;
 
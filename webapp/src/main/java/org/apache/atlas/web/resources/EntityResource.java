@@ -20,11 +20,15 @@ package org.apache.atlas.web.resources;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasConstants;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.EntityAuditEvent;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.services.MetadataService;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.atlas.typesystem.exception.EntityExistsException;
 import org.apache.atlas.typesystem.exception.EntityNotFoundException;
@@ -34,7 +38,13 @@ import org.apache.atlas.typesystem.json.InstanceSerialization;
 import org.apache.atlas.typesystem.types.ValueConversionException;
 import org.apache.atlas.utils.ParamChecker;
 import org.apache.atlas.web.util.Servlets;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
@@ -60,6 +70,8 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -79,6 +91,11 @@ public class EntityResource {
     private static final Logger LOG = LoggerFactory.getLogger(EntityResource.class);
     private static final String TRAIT_NAME = "traitName";
 
+    public static final String BULK_CHUNK_SIZE_PROPERTY = "atlas.rest.entities.bulk.chunkSize";
+    public static final String BULK_MAX_CHUNK_SIZE_PROPERTY = "atlas.rest.entities.bulk.maxChunkSize";
+
+    private static final ObjectMapper BULK_MAPPER = new ObjectMapper();
+
     private final MetadataService metadataService;
 
     @Context
@@ -211,6 +228,157 @@ public class EntityResource {
         }
     }
 
+    /**
+     * Adds/Updates a large number of entities identified by their GUID or unique attribute, like
+     * {@link #updateEntities(HttpServletRequest)}. The body is the JSONArray of entity json, which is read entity by
+     * entity and applied in chunks of chunkSize entities, each in its own transaction, so memory use doesn't grow with
+     * the size of the request. Entities can only refer to the entities of other chunks by their unique attributes.
+     * If a chunk fails, the chunks before it stay committed, and the error response has the guids of their entities
+     * and the number of committed chunks and entities.
+     *
+     * @param chunkSize the number of entities applied per transaction, defaults to atlas.rest.entities.bulk.chunkSize
+     * @return response payload as json, with the guids of the created and updated entities. The entity definitions
+     * aren't included.
+     */
+    @POST
+    @Path("bulk")
+    @Consumes({Servlets.JSON_MEDIA_TYPE, MediaType.APPLICATION_JSON})
+    @Produces(Servlets.JSON_MEDIA_TYPE)
+    public Response updateEntitiesBulk(@QueryParam("chunkSize") Integer chunkSize,
+                                       @Context HttpServletRequest request) {
+        List<String> createdGuids = new ArrayList<>();
+        List<String> updatedGuids = new ArrayList<>();
+        List<String> deletedGuids = new ArrayList<>();
+        int entityCount = 0;
+        int chunkCount = 0;
+        try {
+            int maxChunkSize = getBulkChunkSize(chunkSize);
+            LOG.info("Bulk updating entities in chunks of {}", maxChunkSize);
+
+            List<ITypedReferenceableInstance> chunk = new ArrayList<>(maxChunkSize);
+            JsonParser parser = BULK_MAPPER.getJsonFactory().createJsonParser(request.getInputStream());
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a json array of entities");
+            }
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Unexpected end of the json array of entities");
+                }
+                //entities can be sent as json objects, or as strings like AtlasClient does
+                String entityJson = token == JsonToken.VALUE_STRING ? parser.getText() : copyJson(parser);
+                Referenceable entity = InstanceSerialization.fromJsonReferenceable(entityJson, true);
+                chunk.add(metadataService.getTypedReferenceableInstance(entity));
+
+                if (chunk.size() >= maxChunkSize) {
+                    AtlasClient.EntityResult result = updateChunk(chunk);
+                    entityCount += chunk.size();
+                    chunkCount++;
+                    addChunkResult(result, createdGuids, updatedGuids, deletedGuids);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                AtlasClient.EntityResult result = updateChunk(chunk);
+                entityCount += chunk.size();
+                chunkCount++;
+                addChunkResult(result, createdGuids, updatedGuids, deletedGuids);
+            }
+            LOG.info("Bulk updated {} entities in {} chunks, created {}, updated {}", entityCount, chunkCount,
+                    createdGuids.size(), updatedGuids.size());
+
+            JSONObject response = new JSONObject();
+            response.put(AtlasClient.REQUEST_ID, Servlets.getRequestId());
+            AtlasClient.EntityResult entityResult = new AtlasClient.EntityResult(createdGuids, updatedGuids,
+                    deletedGuids);
+            response.put(AtlasClient.ENTITIES, new JSONObject(entityResult.toString()).get(AtlasClient.ENTITIES));
+            return Response.ok(response).build();
+        } catch(EntityExistsException e) {
+            LOG.error("Unique constraint violation after bulk updating {} entities", entityCount, e);
+            throw new WebApplicationException(getBulkErrorResponse(e, Response.Status.CONFLICT, createdGuids,
+                    updatedGuids, deletedGuids, entityCount, chunkCount));
+        } catch (ValueConversionException ve) {
+            LOG.error("Unable to persist entity instance due to a deserialization error after bulk updating {} entities",
+                    entityCount, ve);
+            throw new WebApplicationException(getBulkErrorResponse(ve.getCause(), Response.Status.BAD_REQUEST,
+                    createdGuids, updatedGuids, deletedGuids, entityCount, chunkCount));
+        } catch (AtlasException | IllegalArgumentException | JsonProcessingException e) {
+            LOG.error("Unable to persist entity instance after bulk updating {} entities", entityCount, e);
+            throw new WebApplicationException(getBulkErrorResponse(e, Response.Status.BAD_REQUEST, createdGuids,
+                    updatedGuids, deletedGuids, entityCount, chunkCount));
+        } catch (Throwable e) {
+            LOG.error("Unable to persist entity instance after bulk updating {} entities", entityCount, e);
+            throw new WebApplicationException(getBulkErrorResponse(e, Response.Status.INTERNAL_SERVER_ERROR,
+                    createdGuids, updatedGuids, deletedGuids, entityCount, chunkCount));
+        }
+    }
+
+    /**
+     * Copies the json value the parser is at into a string, without building a tree of it.
+     */
+    private String copyJson(JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = BULK_MAPPER.getJsonFactory().createJsonGenerator(writer);
+        generator.copyCurrentStructure(parser);
+        generator.close();
+        return writer.toString();
+    }
+
+    /**
+     * Error response of a failed bulk update, with the result of the chunks committed before the failure.
+     */
+    private Response getBulkErrorResponse(Throwable e, Response.Status status, List<String> createdGuids,
+                                          List<String> updatedGuids, List<String> deletedGuids, int entityCount,
+                                          int chunkCount) {
+        Response response = Servlets.getErrorResponse(e, status);
+        try {
+            JSONObject responseJson = (JSONObject) response.getEntity();
+            AtlasClient.EntityResult committed = new AtlasClient.EntityResult(createdGuids, updatedGuids,
+                    deletedGuids);
+            responseJson.put(AtlasClient.ENTITIES, new JSONObject(committed.toString()).get(AtlasClient.ENTITIES));
+            responseJson.put(AtlasClient.COMMITTED_CHUNKS, chunkCount);
+            responseJson.put(AtlasClient.COMMITTED_ENTITIES, entityCount);
+        } catch (JSONException | ClassCastException je) {
+            LOG.warn("Could not add the committed entities to the bulk update error response", je);
+        }
+        return response;
+    }
+
+    private int getBulkChunkSize(Integer requestedChunkSize) throws AtlasException {
+        Configuration configuration = ApplicationProperties.get();
+        int maxChunkSize = configuration.getInt(BULK_MAX_CHUNK_SIZE_PROPERTY, 10000);
+        int chunkSize = requestedChunkSize != null ? requestedChunkSize
+                : configuration.getInt(BULK_CHUNK_SIZE_PROPERTY, 500);
+        if (chunkSize <= 0 || chunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("chunkSize should be > 0 and <= " + maxChunkSize
+                    + ", current value " + chunkSize);
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Applies a chunk of a bulk update in its own request context, so that the result only has the entities of
+     * the chunk, and the deletes of earlier chunks aren't notified again.
+     */
+    private AtlasClient.EntityResult updateChunk(List<ITypedReferenceableInstance> chunk) throws AtlasException {
+        RequestContext requestContext = RequestContext.get();
+        RequestContext chunkContext = RequestContext.createContext();
+        chunkContext.setUser(requestContext.getUser());
+        chunkContext.setTenantId(requestContext.getTenantId());
+
+        try {
+            return metadataService.updateEntities(chunk.toArray(new ITypedReferenceableInstance[chunk.size()]));
+        } finally {
+            RequestContext.setCurrentContext(requestContext);
+        }
+    }
+
+    private void addChunkResult(AtlasClient.EntityResult result, List<String> createdGuids, List<String> updatedGuids,
+                                List<String> deletedGuids) {
+        createdGuids.addAll(result.getCreatedEntities());
+        updatedGuids.addAll(result.getUpdateEntities());
+        deletedGuids.addAll(result.getDeletedEntities());
+    }
+
     private String getSample(AtlasClient.EntityResult entityResult) {
         String sample = getSample(entityResult.getCreatedEntities());
         if (sample == null) {
@@ -453,16 +621,20 @@ public class EntityResource {
     }
 
     /**
-     * Gets the list of entities for a given entity type.
+     * Gets a page of the list of entities for a given entity type.
      *
      * @param entityType name of a type which is unique
+     * @param limit maximum number of entities. All entities if negative and offset is 0, the configured default
+     *              limit if negative and offset is given
+     * @param offset number of entities to skip
      */
-    public Response getEntityListByType(String entityType) {
+    public Response getEntityListByType(String entityType, int limit, int offset) {
         try {
             Preconditions.checkNotNull(entityType, "Entity type cannot be null");
+            QueryParams queryParams = Servlets.getQueryParams(limit, offset);
 
-            LOG.debug("Fetching entity list for type={} ", entityType);
-            final List<String> entityList = metadataService.getEntityList(entityType);
+            LOG.debug("Fetching entity list for type={}, {}", entityType, queryParams);
+            final List<String> entityList = metadataService.getEntityList(entityType, queryParams);
 
             JSONObject response = new JSONObject();
             response.put(AtlasClient.REQUEST_ID, Servlets.getRequestId());
@@ -488,10 +660,12 @@ public class EntityResource {
     @Produces(Servlets.JSON_MEDIA_TYPE)
     public Response getEntity(@QueryParam("type") String entityType,
                               @QueryParam("property") String attribute,
-                              @QueryParam("value") String value) {
+                              @QueryParam("value") String value,
+                              @DefaultValue("-1") @QueryParam("limit") int limit,
+                              @DefaultValue("0") @QueryParam("offset") int offset) {
         if (StringUtils.isEmpty(attribute)) {
             //List API
-            return getEntityListByType(entityType);
+            return getEntityListByType(entityType, limit, offset);
         } else {
             //Get entity by unique attribute
             return getEntityDefinitionByAttribute(entityType, attribute, value);
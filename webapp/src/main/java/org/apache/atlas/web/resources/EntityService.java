@@ -49,9 +49,7 @@ public class EntityService extends BaseService {
     @GET
     @Produces(Servlets.JSON_MEDIA_TYPE)
     public Response getEntities(@Context HttpHeaders headers, @Context UriInfo ui) throws CatalogException {
-        String queryString = decode(getQueryString(ui));
-
-        BaseRequest request = new CollectionRequest(Collections.<String, Object>emptyMap(), queryString);
+        BaseRequest request = createCollectionRequest(Collections.<String, Object>emptyMap(), ui);
         Result result = getResources(entityResourceProvider, request);
 
         return Response.status(Response.Status.OK).entity(getSerializer().serialize(result, ui)).build();
@@ -23,6 +23,7 @@ import org.apache.atlas.AtlasClient;
 import org.apache.atlas.utils.ParamChecker;
 import org.apache.atlas.discovery.DiscoveryException;
 import org.apache.atlas.discovery.DiscoveryService;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.web.util.Servlets;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
@@ -33,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -54,6 +56,8 @@ public class MetadataDiscoveryResource {
     private static final String QUERY_TYPE_DSL = "dsl";
     private static final String QUERY_TYPE_GREMLIN = "gremlin";
     private static final String QUERY_TYPE_FULLTEXT = "full-text";
+    private static final String LIMIT_DEFAULT = "-1";
+    private static final String OFFSET_DEFAULT = "0";
 
     private final DiscoveryService discoveryService;
 
@@ -72,19 +76,24 @@ public class MetadataDiscoveryResource {
      * Search using a given query.
      *
      * @param query search query in raw gremlin or DSL format falling back to full text.
+     * @param limit maximum number of results. All results if neither limit nor offset is given,
+     *              the configured default limit if only the offset is given.
+     * @param offset number of results to skip.
      * @return JSON representing the type and results.
      */
     @GET
     @Path("search")
     @Consumes(Servlets.JSON_MEDIA_TYPE)
     @Produces(Servlets.JSON_MEDIA_TYPE)
-    public Response search(@QueryParam("query") String query) {
-        JSONObject response;
+    public Response search(@QueryParam("query") String query,
+                           @DefaultValue(LIMIT_DEFAULT) @QueryParam("limit") int limit,
+                           @DefaultValue(OFFSET_DEFAULT) @QueryParam("offset") int offset) {
         try {   // fall back to dsl
             ParamChecker.notEmpty(query, "query cannot be null");
+            QueryParams queryParams = Servlets.getQueryParams(limit, offset);
 
-            final String jsonResultStr = discoveryService.searchByDSL(query);
-            response = new DSLJSONResponseBuilder().results(jsonResultStr).query(query).build();
+            final String jsonResultStr = discoveryService.searchByDSL(query, queryParams);
+            JSONObject response = new DSLJSONResponseBuilder().results(jsonResultStr).query(query).build();
             return Response.ok(response).build();
 
         } catch (IllegalArgumentException e) {
@@ -93,7 +102,7 @@ public class MetadataDiscoveryResource {
 
         } catch (Throwable throwable) {
             LOG.error("Unable to get entity list for query {} using dsl", query, throwable);
-            return searchUsingFullText(query);
+            return searchUsingFullText(query, limit, offset);
         }
     }
 
@@ -101,16 +110,23 @@ public class MetadataDiscoveryResource {
      * Search using query DSL format.
      *
      * @param dslQuery search query in DSL format.
+     * @param limit maximum number of results. All results if neither limit nor offset is given,
+     *              the configured default limit if only the offset is given.
+     *              Ignored if the query has its own limit clause.
+     * @param offset number of results to skip.
      * @return JSON representing the type and results.
      */
     @GET
     @Path("search/dsl")
     @Consumes(Servlets.JSON_MEDIA_TYPE)
     @Produces(Servlets.JSON_MEDIA_TYPE)
-    public Response searchUsingQueryDSL(@QueryParam("query") String dslQuery) {
+    public Response searchUsingQueryDSL(@QueryParam("query") String dslQuery,
+                                        @DefaultValue(LIMIT_DEFAULT) @QueryParam("limit") int limit,
+                                        @DefaultValue(OFFSET_DEFAULT) @QueryParam("offset") int offset) {
         try {
             ParamChecker.notEmpty(dslQuery, "dslQuery cannot be null");
-            final String jsonResultStr = discoveryService.searchByDSL(dslQuery);
+            QueryParams queryParams = Servlets.getQueryParams(limit, offset);
+            final String jsonResultStr = discoveryService.searchByDSL(dslQuery, queryParams);
 
             JSONObject response = new DSLJSONResponseBuilder().results(jsonResultStr).query(dslQuery).build();
 
@@ -166,16 +182,22 @@ public class MetadataDiscoveryResource {
      * Search using full text search.
      *
      * @param query search query.
+     * @param limit maximum number of results. All results, up to the configured maximum limit, if neither limit
+     *              nor offset is given, the configured default limit if only the offset is given.
+     * @param offset number of results to skip.
      * @return JSON representing the type and results.
      */
     @GET
     @Path("search/fulltext")
     @Consumes(Servlets.JSON_MEDIA_TYPE)
     @Produces(Servlets.JSON_MEDIA_TYPE)
-    public Response searchUsingFullText(@QueryParam("query") String query) {
+    public Response searchUsingFullText(@QueryParam("query") String query,
+                                        @DefaultValue(LIMIT_DEFAULT) @QueryParam("limit") int limit,
+                                        @DefaultValue(OFFSET_DEFAULT) @QueryParam("offset") int offset) {
         try {
             ParamChecker.notEmpty(query, "query cannot be null or empty");
-            final String jsonResultStr = discoveryService.searchByFullText(query);
+            QueryParams queryParams = Servlets.getQueryParams(limit, offset);
+            final String jsonResultStr = discoveryService.searchByFullText(query, queryParams);
             JSONArray rowsJsonArr = new JSONArray(jsonResultStr);
 
             JSONObject response = new FullTextJSonResponseBuilder().results(rowsJsonArr).query(query).build();
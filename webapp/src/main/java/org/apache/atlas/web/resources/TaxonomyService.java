@@ -67,8 +67,7 @@ public class TaxonomyService extends BaseService {
     @GET
     @Produces(Servlets.JSON_MEDIA_TYPE)
     public Response getTaxonomies(@Context HttpHeaders headers, @Context UriInfo ui) throws CatalogException {
-        String queryString = decode(getQueryString(ui));
-        Request request = new CollectionRequest(Collections.<String, Object>emptyMap(), queryString);
+        Request request = createCollectionRequest(Collections.<String, Object>emptyMap(), ui);
         Result result = getResources(taxonomyResourceProvider, request);
         return Response.status(Response.Status.OK).entity(getSerializer().serialize(result, ui)).build();
     }
@@ -146,10 +145,9 @@ public class TaxonomyService extends BaseService {
                                      @Context UriInfo ui,
                                      @PathParam("taxonomyName") String taxonomyName) throws CatalogException {
 
-        String queryString = decode(getQueryString(ui));
         TermPath termPath = new TermPath(taxonomyName, null);
-        Request request = new CollectionRequest(
-                Collections.<String, Object>singletonMap("termPath", termPath), queryString);
+        Request request = createCollectionRequest(
+                Collections.<String, Object>singletonMap("termPath", termPath), ui);
         Result result = getResources(termResourceProvider, request);
 
         return Response.status(Response.Status.OK).entity(getSerializer().serialize(result, ui)).build();
@@ -167,7 +165,6 @@ public class TaxonomyService extends BaseService {
         Result result;
         String termName = String.format("%s%s", rootTerm,
                 remainder.replaceAll("/?terms/?([.]*)", "$1."));
-        String queryString = decode(getQueryString(ui));
         TermPath termPath = new TermPath(taxonomyName, termName);
 
         Map<String, Object> properties = new HashMap<>();
@@ -177,7 +174,7 @@ public class TaxonomyService extends BaseService {
         int lastIndex = pathSegments.size() - 1;
         String lastSegment = pathSegments.get(lastIndex).getPath();
         if (lastSegment.equals("terms") || (lastSegment.isEmpty() && pathSegments.get(lastIndex - 1).getPath().equals("terms"))) {
-            result = getResources(termResourceProvider, new CollectionRequest(properties, queryString));
+            result = getResources(termResourceProvider, createCollectionRequest(properties, ui));
         } else {
             result = getResource(termResourceProvider, new InstanceRequest(properties));
         }
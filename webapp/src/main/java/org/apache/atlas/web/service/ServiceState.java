@@ -93,4 +93,11 @@ public class ServiceState {
         return state == ServiceStateValue.BECOMING_ACTIVE
                 || state == ServiceStateValue.BECOMING_PASSIVE;
     }
+
+    /**
+     * @return true if this instance serves read requests itself while it is passive
+     */
+    public boolean isServingReadsWhenPassive() {
+        return HAConfiguration.isPassiveReadsEnabled(configuration);
+    }
 }
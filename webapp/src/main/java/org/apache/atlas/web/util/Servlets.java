@@ -18,9 +18,13 @@
 
 package org.apache.atlas.web.util;
 
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.LocalServletRequest;
+import org.apache.atlas.query.QueryParams;
 import org.apache.atlas.utils.ParamChecker;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -53,6 +57,9 @@ public final class Servlets {
 
     public static final String JSON_MEDIA_TYPE = MediaType.APPLICATION_JSON + "; charset=UTF-8";
 
+    public static final String DEFAULT_LIMIT_PROPERTY = "atlas.search.defaultlimit";
+    public static final String MAX_LIMIT_PROPERTY = "atlas.search.maxlimit";
+
     /**
      * Returns the user of the given request.
      *
@@ -175,6 +182,31 @@ public final class Servlets {
         return Thread.currentThread().getName();
     }
 
+    /**
+     * Returns the page of results selected by the limit and offset request parameters. Requests without either
+     * of them get all the results. Paged requests without a limit get the default limit, and limits are capped at
+     * the maximum limit, from the configuration.
+     *
+     * @param limit  limit request parameter, negative if it wasn't given
+     * @param offset offset request parameter
+     * @return the page of results to return
+     */
+    public static QueryParams getQueryParams(int limit, int offset) throws AtlasException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset cannot be negative: " + offset);
+        }
+        if (limit < 0 && offset == 0) {
+            return QueryParams.all();
+        }
+
+        Configuration configuration = ApplicationProperties.get();
+        int maxLimit = configuration.getInt(MAX_LIMIT_PROPERTY, 10000);
+        if (limit < 0) {
+            limit = configuration.getInt(DEFAULT_LIMIT_PROPERTY, 100);
+        }
+        return new QueryParams(Math.min(limit, maxLimit), offset);
+    }
+
     public static String escapeJsonString(String inputStr) {
         ParamChecker.notNull(inputStr, "Input String cannot be null");
         return StringEscapeUtils.escapeJson(inputStr);
@@ -26,13 +26,18 @@ import org.apache.atlas.kafka.KafkaNotification;
 import org.apache.atlas.notification.hook.HookNotification;
 import org.apache.atlas.typesystem.Referenceable;
 import org.apache.commons.lang.RandomStringUtils;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Guice;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
 
 @Guice(modules = NotificationModule.class)
 public class NotificationHookConsumerKafkaTest {
@@ -59,46 +64,45 @@ public class NotificationHookConsumerKafkaTest {
 
         NotificationConsumer<HookNotification.HookNotificationMessage> consumer =
                 createNewConsumer(kafkaNotification, false);
-        LocalAtlasClient localAtlasClient = mock(LocalAtlasClient.class);
+        HookNotificationBatchProcessor batchProcessor = mock(HookNotificationBatchProcessor.class);
         NotificationHookConsumer notificationHookConsumer =
-                new NotificationHookConsumer(kafkaNotification, localAtlasClient);
+                new NotificationHookConsumer(kafkaNotification, mock(LocalAtlasClient.class), batchProcessor);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(consumer);
 
         consumeOneMessage(consumer, hookConsumer);
-        verify(localAtlasClient).setUser("test_user1");
+        assertLastProcessedUser(batchProcessor, "test_user1");
 
 
         // produce another message, and make sure it moves ahead. If commit succeeded, this would work.
         produceMessage(new HookNotification.EntityCreateRequest("test_user2", createEntity()));
         consumeOneMessage(consumer, hookConsumer);
-        verify(localAtlasClient).setUser("test_user2");
+        assertLastProcessedUser(batchProcessor, "test_user2");
 
         kafkaNotification.close();
     }
 
     @Test
-    public void testConsumerRemainsAtSameMessageWithAutoCommitEnabled()
-            throws NotificationException, InterruptedException {
+    public void testConsumerRemainsAtSameMessageWithAutoCommitEnabled() throws AtlasException, InterruptedException {
 
         produceMessage(new HookNotification.EntityCreateRequest("test_user3", createEntity()));
 
         NotificationConsumer<HookNotification.HookNotificationMessage> consumer =
                 createNewConsumer(kafkaNotification, true);
-        LocalAtlasClient localAtlasClient = mock(LocalAtlasClient.class);
+        HookNotificationBatchProcessor batchProcessor = mock(HookNotificationBatchProcessor.class);
         NotificationHookConsumer notificationHookConsumer =
-                new NotificationHookConsumer(kafkaNotification, localAtlasClient);
+                new NotificationHookConsumer(kafkaNotification, mock(LocalAtlasClient.class), batchProcessor);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(consumer);
 
         consumeOneMessage(consumer, hookConsumer);
-        verify(localAtlasClient).setUser("test_user3");
+        assertLastProcessedUser(batchProcessor, "test_user3");
 
         // produce another message, but this will not be consumed, as commit code is not executed in hook consumer.
         produceMessage(new HookNotification.EntityCreateRequest("test_user4", createEntity()));
 
         consumeOneMessage(consumer, hookConsumer);
-        verify(localAtlasClient).setUser("test_user3");
+        assertLastProcessedUser(batchProcessor, "test_user3");
 
         kafkaNotification.close();
     }
@@ -117,6 +121,13 @@ public class NotificationHookConsumerKafkaTest {
         hookConsumer.handleMessage(consumer.next());
     }
 
+    void assertLastProcessedUser(HookNotificationBatchProcessor batchProcessor, String user) throws AtlasException {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(batchProcessor, atLeastOnce()).process(captor.capture());
+        List<HookNotification.HookNotificationMessage> messages = captor.getValue();
+        assertEquals(messages.get(0).getUser(), user);
+    }
+
     Referenceable createEntity() {
         final Referenceable entity = new Referenceable(AtlasClient.DATA_SET_SUPER_TYPE);
         entity.set("name", "db" + randomString());
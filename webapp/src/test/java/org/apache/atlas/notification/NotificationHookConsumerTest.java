@@ -18,17 +18,22 @@
 package org.apache.atlas.notification;
 
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.AtlasServiceException;
 import org.apache.atlas.LocalAtlasClient;
 import org.apache.atlas.ha.HAConfiguration;
 import org.apache.atlas.notification.hook.HookNotification;
+import org.apache.atlas.typesystem.Referenceable;
 import org.apache.commons.configuration.Configuration;
+import org.codehaus.jettison.json.JSONException;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
@@ -40,8 +45,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 public class NotificationHookConsumerTest {
 
@@ -51,6 +58,9 @@ public class NotificationHookConsumerTest {
     @Mock
     private LocalAtlasClient atlasClient;
 
+    @Mock
+    private HookNotificationBatchProcessor batchProcessor;
+
     @Mock
     private Configuration configuration;
 
@@ -64,7 +74,8 @@ public class NotificationHookConsumerTest {
 
     @Test
     public void testConsumerCanProceedIfServerIsReady() throws InterruptedException, AtlasServiceException {
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
         NotificationHookConsumer.Timer timer = mock(NotificationHookConsumer.Timer.class);
@@ -77,7 +88,8 @@ public class NotificationHookConsumerTest {
 
     @Test
     public void testConsumerWaitsNTimesIfServerIsNotReadyNTimes() throws AtlasServiceException, InterruptedException {
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
         NotificationHookConsumer.Timer timer = mock(NotificationHookConsumer.Timer.class);
@@ -89,9 +101,9 @@ public class NotificationHookConsumerTest {
     }
 
     @Test
-    public void testCommitIsCalledWhenMessageIsProcessed() throws AtlasServiceException {
+    public void testCommitIsCalledWhenMessageIsProcessed() throws AtlasException {
         NotificationHookConsumer notificationHookConsumer =
-                new NotificationHookConsumer(notificationInterface, atlasClient);
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         NotificationConsumer consumer = mock(NotificationConsumer.class);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(consumer);
@@ -101,21 +113,22 @@ public class NotificationHookConsumerTest {
 
         hookConsumer.handleMessage(message);
 
+        verify(batchProcessor).process(Collections.<HookNotification.HookNotificationMessage>singletonList(message));
         verify(consumer).commit();
     }
 
     @Test
-    public void testCommitIsCalledEvenWhenMessageProcessingFails() throws AtlasServiceException {
+    public void testCommitIsCalledEvenWhenMessageProcessingFails() throws AtlasException {
         NotificationHookConsumer notificationHookConsumer =
-                new NotificationHookConsumer(notificationInterface, atlasClient);
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         NotificationConsumer consumer = mock(NotificationConsumer.class);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(consumer);
         HookNotification.EntityCreateRequest message = mock(HookNotification.EntityCreateRequest.class);
         when(message.getUser()).thenReturn("user");
         when(message.getType()).thenReturn(HookNotification.HookNotificationType.ENTITY_CREATE);
-        when(atlasClient.createEntity(any(List.class))).
-                thenThrow(new RuntimeException("Simulating exception in processing message"));
+        doThrow(new RuntimeException("Simulating exception in processing message")).when(batchProcessor)
+                .process(Collections.<HookNotification.HookNotificationMessage>singletonList(message));
 
         hookConsumer.handleMessage(message);
 
@@ -124,7 +137,8 @@ public class NotificationHookConsumerTest {
 
     @Test
     public void testConsumerProceedsWithFalseIfInterrupted() throws AtlasServiceException, InterruptedException {
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
         NotificationHookConsumer.Timer timer = mock(NotificationHookConsumer.Timer.class);
@@ -136,7 +150,8 @@ public class NotificationHookConsumerTest {
 
     @Test
     public void testConsumerProceedsWithFalseOnAtlasServiceException() throws AtlasServiceException {
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         NotificationHookConsumer.HookConsumer hookConsumer =
                 notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
         NotificationHookConsumer.Timer timer = mock(NotificationHookConsumer.Timer.class);
@@ -154,7 +169,8 @@ public class NotificationHookConsumerTest {
         consumers.add(mock(NotificationConsumer.class));
         when(notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, 1)).
                 thenReturn(consumers);
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         notificationHookConsumer.startInternal(configuration, executorService);
         verify(notificationInterface).createConsumers(NotificationInterface.NotificationType.HOOK, 1);
         verify(executorService).submit(any(NotificationHookConsumer.HookConsumer.class));
@@ -168,11 +184,179 @@ public class NotificationHookConsumerTest {
         consumers.add(mock(NotificationConsumer.class));
         when(notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, 1)).
                 thenReturn(consumers);
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         notificationHookConsumer.startInternal(configuration, executorService);
         verifyZeroInteractions(notificationInterface);
     }
 
+    @Test
+    public void testBatchIsProcessedTogetherAndCommittedOnce() throws AtlasException {
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+        List<HookNotification.HookNotificationMessage> messages =
+                Arrays.<HookNotification.HookNotificationMessage>asList(
+                        mock(HookNotification.EntityCreateRequest.class),
+                        mock(HookNotification.EntityDeleteRequest.class));
+
+        hookConsumer.handleBatch(messages);
+
+        verify(batchProcessor).process(messages);
+        verify(consumer, times(1)).commit();
+        verifyZeroInteractions(atlasClient);
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedOneMessageAtATime() throws AtlasException {
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer =
+                notificationHookConsumer.new HookConsumer(consumer);
+        HookNotification.HookNotificationMessage good = mock(HookNotification.EntityCreateRequest.class);
+        HookNotification.HookNotificationMessage bad = mock(HookNotification.EntityDeleteRequest.class);
+        List<HookNotification.HookNotificationMessage> messages = Arrays.asList(good, bad);
+        doThrow(new AtlasException("Simulating exception in processing batch")).when(batchProcessor).process(messages);
+        doThrow(new AtlasException("Simulating exception in processing message")).when(batchProcessor)
+                .process(Collections.singletonList(bad));
+
+        hookConsumer.handleBatch(messages);
+
+        verify(batchProcessor).process(Collections.singletonList(good));
+        verify(batchProcessor).process(Collections.singletonList(bad));
+        verify(consumer, times(1)).commit();
+    }
+
+    @Test
+    public void testMessagesForSameEntityArePartitionedToSameLaneInOrder() {
+        Referenceable table = new Referenceable("hive_table");
+        table.set(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t1@cl1");
+        HookNotification.HookNotificationMessage create = new HookNotification.EntityCreateRequest("user", table);
+        HookNotification.HookNotificationMessage update = new HookNotification.EntityPartialUpdateRequest("user",
+                "hive_table", AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t1@cl1",
+                new Referenceable("hive_table"));
+        HookNotification.HookNotificationMessage delete = new HookNotification.EntityDeleteRequest("user",
+                "hive_table", AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t1@cl1");
+        List<HookNotification.HookNotificationMessage> messages = new ArrayList<>();
+        messages.add(create);
+        for (int i = 0; i < 20; i++) {
+            messages.add(new HookNotification.EntityDeleteRequest("user", "hive_table",
+                    AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.other" + i + "@cl1"));
+        }
+        messages.add(update);
+        messages.add(delete);
+
+        assertEquals(NotificationHookConsumer.entityKeys(create), NotificationHookConsumer.entityKeys(update));
+        assertEquals(NotificationHookConsumer.entityKeys(create), NotificationHookConsumer.entityKeys(delete));
+
+        List<List<HookNotification.HookNotificationMessage>> lanes =
+                NotificationHookConsumer.partitionByEntity(messages, 4);
+
+        assertEquals(4, lanes.size());
+        int total = 0;
+        for (List<HookNotification.HookNotificationMessage> lane : lanes) {
+            total += lane.size();
+            if (lane.contains(create)) {
+                int createIndex = lane.indexOf(create);
+                assertTrue(createIndex < lane.indexOf(update));
+                assertTrue(lane.indexOf(update) < lane.indexOf(delete));
+            }
+        }
+        assertEquals(messages.size(), total);
+    }
+
+    @Test
+    public void testMessagesSharingEmbeddedEntityArePartitionedToSameLane() {
+        Referenceable db = new Referenceable("hive_db");
+        db.set(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default@cl1");
+        List<HookNotification.HookNotificationMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Referenceable table = new Referenceable("hive_table");
+            table.set(AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t" + i + "@cl1");
+            table.set("db", db);
+            messages.add(new HookNotification.EntityCreateRequest("user", table));
+        }
+        HookNotification.HookNotificationMessage deleteDb = new HookNotification.EntityDeleteRequest("user",
+                "hive_db", AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default@cl1");
+        messages.add(deleteDb);
+
+        List<List<HookNotification.HookNotificationMessage>> lanes =
+                NotificationHookConsumer.partitionByEntity(messages, 4);
+
+        for (List<HookNotification.HookNotificationMessage> lane : lanes) {
+            if (lane.contains(deleteDb)) {
+                assertEquals(messages, lane);
+            } else {
+                assertTrue(lane.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testMessagesWithUnknownEntitiesDoNotShareTheOtherMessagesLane() throws Exception {
+        HookNotification.EntityCreateRequest unknown = mock(HookNotification.EntityCreateRequest.class);
+        when(unknown.getType()).thenReturn(HookNotification.HookNotificationType.ENTITY_CREATE);
+        when(unknown.getEntities()).thenThrow(new JSONException("Simulating undecodable entities"));
+        List<HookNotification.HookNotificationMessage> messages = new ArrayList<>();
+        messages.add(unknown);
+        for (int i = 0; i < 20; i++) {
+            messages.add(new HookNotification.EntityDeleteRequest("user", "hive_table",
+                    AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t" + i + "@cl1"));
+        }
+
+        List<List<HookNotification.HookNotificationMessage>> lanes =
+                NotificationHookConsumer.partitionByEntity(messages, 4);
+
+        int usedLanes = 0;
+        int total = 0;
+        for (List<HookNotification.HookNotificationMessage> lane : lanes) {
+            usedLanes += lane.isEmpty() ? 0 : 1;
+            total += lane.size();
+        }
+        assertTrue(usedLanes > 1);
+        assertEquals(messages.size(), total);
+    }
+
+    @Test
+    public void testOffsetsAreNotCommittedWhenLaneFails() throws AtlasException {
+        when(configuration.getInt(NotificationHookConsumer.CONSUMER_BATCH_SIZE_PROPERTY,
+                NotificationHookConsumer.DEFAULT_BATCH_SIZE)).thenReturn(10);
+        when(configuration.getInt(NotificationHookConsumer.CONSUMER_LANES_PROPERTY,
+                NotificationHookConsumer.DEFAULT_LANES)).thenReturn(2);
+        when(configuration.getInt(NotificationHookConsumer.CONSUMER_THREADS_PROPERTY, 1)).thenReturn(1);
+        when(notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, 1)).
+                thenReturn(new ArrayList());
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
+        notificationHookConsumer.startInternal(configuration, executorService);
+        NotificationConsumer consumer = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer = notificationHookConsumer.new HookConsumer(consumer);
+        List<HookNotification.HookNotificationMessage> messages =
+                Arrays.<HookNotification.HookNotificationMessage>asList(
+                        new HookNotification.EntityDeleteRequest("user", "hive_table",
+                                AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t1@cl1"),
+                        new HookNotification.EntityDeleteRequest("user", "hive_table",
+                                AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t1@cl1"),
+                        new HookNotification.EntityDeleteRequest("user", "hive_table",
+                                AtlasClient.REFERENCEABLE_ATTRIBUTE_NAME, "default.t2@cl1"));
+        //every message of the lane of t1 fails on its own too, as when the repository is unavailable
+        doThrow(new AtlasException("Simulating failure of lane")).when(batchProcessor).process(any(List.class));
+
+        try {
+            hookConsumer.handleBatch(messages);
+            fail("Expected the failure of the lane to be rethrown");
+        } catch (RuntimeException e) {
+            assertEquals("Simulating failure of lane", e.getCause().getMessage());
+        } finally {
+            notificationHookConsumer.stop();
+        }
+
+        verify(consumer, never()).commit();
+    }
+
     @Test
     public void testConsumersAreStartedWhenInstanceBecomesActive() {
         when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(true);
@@ -181,7 +365,8 @@ public class NotificationHookConsumerTest {
         consumers.add(mock(NotificationConsumer.class));
         when(notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, 1)).
                 thenReturn(consumers);
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         notificationHookConsumer.startInternal(configuration, executorService);
         notificationHookConsumer.instanceIsActive();
         verify(notificationInterface).createConsumers(NotificationInterface.NotificationType.HOOK, 1);
@@ -196,7 +381,8 @@ public class NotificationHookConsumerTest {
         consumers.add(mock(NotificationConsumer.class));
         when(notificationInterface.createConsumers(NotificationInterface.NotificationType.HOOK, 1)).
                 thenReturn(consumers);
-        NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasClient);
+        NotificationHookConsumer notificationHookConsumer =
+                new NotificationHookConsumer(notificationInterface, atlasClient, batchProcessor);
         notificationHookConsumer.startInternal(configuration, executorService);
         notificationHookConsumer.instanceIsPassive();
         verify(notificationInterface).close();
@@ -33,6 +33,7 @@ import javax.ws.rs.HttpMethod;
 
 import java.io.IOException;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -175,6 +176,66 @@ public class ActiveServerFilterTest {
         verify(servletResponse).setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
     }
 
+    @Test
+    public void testShouldServeReadRequestsIfPassiveReadsEnabled() throws IOException, ServletException {
+        when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.PASSIVE);
+        when(serviceState.isServingReadsWhenPassive()).thenReturn(true);
+        when(servletRequest.getMethod()).thenReturn(HttpMethod.GET);
+        when(servletRequest.getRequestURI()).thenReturn("/api/atlas/lineage/hive/table/t1/inputs/graph");
+
+        ActiveServerFilter activeServerFilter = new ActiveServerFilter(activeInstanceState, serviceState);
+        activeServerFilter.doFilter(servletRequest, servletResponse, filterChain);
+
+        verify(filterChain).doFilter(servletRequest, servletResponse);
+        verifyZeroInteractions(activeInstanceState);
+    }
+
+    @Test
+    public void testShouldRedirectWritesIfPassiveReadsEnabled() throws IOException, ServletException {
+        when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.PASSIVE);
+        when(serviceState.isServingReadsWhenPassive()).thenReturn(true);
+        when(activeInstanceState.getActiveServerAddress()).thenReturn(ACTIVE_SERVER_ADDRESS);
+        when(servletRequest.getMethod()).thenReturn(HttpMethod.POST);
+        when(servletRequest.getRequestURI()).thenReturn("api/atlas/entities");
+
+        ActiveServerFilter activeServerFilter = new ActiveServerFilter(activeInstanceState, serviceState);
+        activeServerFilter.doFilter(servletRequest, servletResponse, filterChain);
+
+        verify(filterChain, never()).doFilter(servletRequest, servletResponse);
+        verify(servletResponse).setHeader("Location", ACTIVE_SERVER_ADDRESS + "api/atlas/entities");
+        verify(servletResponse).setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+    }
+
+    @Test
+    public void testShouldRedirectOtherReadsIfPassiveReadsEnabled() throws IOException, ServletException {
+        when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.PASSIVE);
+        when(serviceState.isServingReadsWhenPassive()).thenReturn(true);
+        when(activeInstanceState.getActiveServerAddress()).thenReturn(ACTIVE_SERVER_ADDRESS);
+        when(servletRequest.getMethod()).thenReturn(HttpMethod.GET);
+        when(servletRequest.getRequestURI()).thenReturn("api/atlas/v1/taxonomies");
+
+        ActiveServerFilter activeServerFilter = new ActiveServerFilter(activeInstanceState, serviceState);
+        activeServerFilter.doFilter(servletRequest, servletResponse, filterChain);
+
+        verify(filterChain, never()).doFilter(servletRequest, servletResponse);
+        verify(servletResponse).sendRedirect(ACTIVE_SERVER_ADDRESS + "api/atlas/v1/taxonomies");
+    }
+
+    @Test
+    public void testShouldRedirectGremlinSearchIfPassiveReadsEnabled() throws IOException, ServletException {
+        when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.PASSIVE);
+        when(serviceState.isServingReadsWhenPassive()).thenReturn(true);
+        when(activeInstanceState.getActiveServerAddress()).thenReturn(ACTIVE_SERVER_ADDRESS);
+        when(servletRequest.getMethod()).thenReturn(HttpMethod.GET);
+        when(servletRequest.getRequestURI()).thenReturn("api/atlas/discovery/search/gremlin");
+
+        ActiveServerFilter activeServerFilter = new ActiveServerFilter(activeInstanceState, serviceState);
+        activeServerFilter.doFilter(servletRequest, servletResponse, filterChain);
+
+        verify(filterChain, never()).doFilter(servletRequest, servletResponse);
+        verify(servletResponse).sendRedirect(ACTIVE_SERVER_ADDRESS + "api/atlas/discovery/search/gremlin");
+    }
+
     @Test
     public void testShouldReturnServiceUnavailableIfStateBecomingActive() throws IOException, ServletException {
         when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.BECOMING_ACTIVE);
@@ -18,6 +18,9 @@
 
 package org.apache.atlas.web.resources;
 
+import org.apache.atlas.repository.MetadataRepository;
+import org.apache.atlas.repository.graph.GraphProvider;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.web.service.ServiceState;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
@@ -29,6 +32,9 @@ import org.testng.annotations.Test;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Response;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -38,9 +44,19 @@ public class AdminResourceTest {
     @Mock
     private ServiceState serviceState;
 
+    @Mock
+    private GraphProvider<AtlasGraph> graphProvider;
+
+    @Mock
+    private AtlasGraph graph;
+
+    @Mock
+    private MetadataRepository repository;
+
     @BeforeMethod
     public void setup() {
         MockitoAnnotations.initMocks(this);
+        when(graphProvider.get()).thenReturn(graph);
     }
 
     @Test
@@ -48,7 +64,7 @@ public class AdminResourceTest {
 
         when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.ACTIVE);
 
-        AdminResource adminResource = new AdminResource(serviceState);
+        AdminResource adminResource = new AdminResource(serviceState, graphProvider, repository);
         Response response = adminResource.getStatus();
         assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
         JSONObject entity = (JSONObject) response.getEntity();
@@ -59,7 +75,7 @@ public class AdminResourceTest {
     public void testResourceGetsValueFromServiceState() throws JSONException {
         when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.PASSIVE);
 
-        AdminResource adminResource = new AdminResource(serviceState);
+        AdminResource adminResource = new AdminResource(serviceState, graphProvider, repository);
         Response response = adminResource.getStatus();
 
         verify(serviceState).getState();
@@ -67,4 +83,22 @@ public class AdminResourceTest {
         assertEquals(entity.get("Status"), "PASSIVE");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMetricsOfGraphBackendAreReturned() throws JSONException {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("solr.writeBehind.pendingDocuments", 3L);
+        when(graph.getMetrics()).thenReturn(metrics);
+        Map<String, Object> repositoryMetrics = new LinkedHashMap<>();
+        repositoryMetrics.put("repository.skippedEntityUpdates", 2L);
+        when(repository.getMetrics()).thenReturn(repositoryMetrics);
+
+        AdminResource adminResource = new AdminResource(serviceState, graphProvider, repository);
+        Response response = adminResource.getMetrics();
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        JSONObject entity = (JSONObject) response.getEntity();
+        assertEquals(entity.getLong("solr.writeBehind.pendingDocuments"), 3L);
+        assertEquals(entity.getLong("repository.skippedEntityUpdates"), 2L);
+    }
+}
@@ -17,18 +17,38 @@
  */
 package org.apache.atlas.web.resources;
 
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 
+import org.apache.atlas.AtlasClient;
 import org.apache.atlas.AtlasClient.EntityResult;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.RequestContext;
 import org.apache.atlas.services.MetadataService;
+import org.apache.atlas.typesystem.ITypedReferenceableInstance;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.codehaus.jettison.json.JSONObject;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.Assert;
@@ -71,4 +91,126 @@ public class EntityResourceTest {
         EntityResult resultFromEntityResource = EntityResult.fromString(response.getEntity().toString());
         Assert.assertTrue(resultFromEntityResource.getDeletedEntities().contains(DELETED_GUID));
     }
+
+    @Test
+    public void testBulkUpdateAppliesEntitiesInChunks() throws Exception {
+        ITypedReferenceableInstance typedInstance = mock(ITypedReferenceableInstance.class);
+        when(mockService.getTypedReferenceableInstance(Matchers.any(Referenceable.class))).thenReturn(typedInstance);
+        when(mockService.updateEntities(Matchers.any(ITypedReferenceableInstance[].class)))
+            .thenAnswer(new Answer<EntityResult>() {
+                private int chunk = 0;
+
+                @Override
+                public EntityResult answer(InvocationOnMock invocation) throws Throwable {
+                    chunk++;
+                    return new EntityResult(Arrays.asList("created" + chunk), Arrays.asList("updated" + chunk), null);
+                }
+            });
+
+        //objects and json strings, as AtlasClient sends them, can be mixed
+        StringBuilder entities = new StringBuilder("[");
+        for (int i = 0; i < 5; i++) {
+            String entity = InstanceSerialization.toJson(new Referenceable("test_type"), true);
+            entities.append(i > 0 ? "," : "").append(i % 2 == 0 ? entity : JSONObject.quote(entity));
+        }
+        entities.append("]");
+
+        EntityResource entityResource = new EntityResource(mockService);
+        Response response = entityResource.updateEntitiesBulk(2, newRequest(entities.toString()));
+
+        ArgumentCaptor<ITypedReferenceableInstance[]> chunks =
+            ArgumentCaptor.forClass(ITypedReferenceableInstance[].class);
+        verify(mockService, times(3)).updateEntities(chunks.capture());
+        List<Integer> chunkSizes = new ArrayList<>();
+        for (ITypedReferenceableInstance[] chunk : chunks.getAllValues()) {
+            chunkSizes.add(chunk.length);
+        }
+        Assert.assertEquals(chunkSizes, Arrays.asList(2, 2, 1));
+        verify(mockService, never()).getEntityDefinition(Matchers.anyString());
+
+        EntityResult result = EntityResult.fromString(response.getEntity().toString());
+        Assert.assertEquals(result.getCreatedEntities(), Arrays.asList("created1", "created2", "created3"));
+        Assert.assertEquals(result.getUpdateEntities(), Arrays.asList("updated1", "updated2", "updated3"));
+    }
+
+    @Test
+    public void testBulkUpdateFailureReturnsCommittedChunks() throws Exception {
+        ITypedReferenceableInstance typedInstance = mock(ITypedReferenceableInstance.class);
+        when(mockService.getTypedReferenceableInstance(Matchers.any(Referenceable.class))).thenReturn(typedInstance);
+        when(mockService.updateEntities(Matchers.any(ITypedReferenceableInstance[].class)))
+            .thenReturn(new EntityResult(Arrays.asList("created1"), Arrays.asList("updated1"), null))
+            .thenThrow(new AtlasException("Simulating failure of the second chunk"));
+
+        StringBuilder entities = new StringBuilder("[");
+        for (int i = 0; i < 4; i++) {
+            entities.append(i > 0 ? "," : "").append(InstanceSerialization.toJson(new Referenceable("test_type"), true));
+        }
+        entities.append("]");
+
+        RequestContext requestContext = RequestContext.createContext();
+        requestContext.setUser("bulk_user");
+        try {
+            new EntityResource(mockService).updateEntitiesBulk(2, newRequest(entities.toString()));
+            Assert.fail("Expected the bulk update to fail");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(e.getResponse().getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+            JSONObject response = (JSONObject) e.getResponse().getEntity();
+            Assert.assertEquals(response.getInt(AtlasClient.COMMITTED_CHUNKS), 1);
+            Assert.assertEquals(response.getInt(AtlasClient.COMMITTED_ENTITIES), 2);
+            EntityResult committed = EntityResult.fromString(response.toString());
+            Assert.assertEquals(committed.getCreatedEntities(), Arrays.asList("created1"));
+            Assert.assertEquals(committed.getUpdateEntities(), Arrays.asList("updated1"));
+        }
+
+        //the chunks run in their own request contexts, the request's is current again after them
+        Assert.assertSame(RequestContext.get(), requestContext);
+        Assert.assertEquals(RequestContext.get().getUser(), "bulk_user");
+        RequestContext.clear();
+    }
+
+    @Test
+    public void testBulkUpdateRejectsInvalidRequests() throws Exception {
+        EntityResource entityResource = new EntityResource(mockService);
+        for (String body : Arrays.asList("{}", "[{\"typeName\"", "[")) {
+            assertBadRequest(entityResource, 10, body);
+        }
+        assertBadRequest(entityResource, 0, "[]");
+        assertBadRequest(entityResource, Integer.MAX_VALUE, "[]");
+        verify(mockService, never()).updateEntities(Matchers.any(ITypedReferenceableInstance[].class));
+    }
+
+    private void assertBadRequest(EntityResource entityResource, int chunkSize, String body) throws IOException {
+        try {
+            entityResource.updateEntitiesBulk(chunkSize, newRequest(body));
+            Assert.fail("Expected the bulk update of " + body + " to fail");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(e.getResponse().getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+        }
+    }
+
+    private HttpServletRequest newRequest(String body) throws IOException {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes("UTF-8"));
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        });
+        return request;
+    }
 }
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.web.resources;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.apache.atlas.AtlasClient;
+import org.apache.atlas.discovery.DiscoveryService;
+import org.apache.atlas.query.QueryParams;
+import org.codehaus.jettison.json.JSONObject;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *   Unit test of {@link MetadataDiscoveryResource}
+ */
+public class MetadataDiscoveryResourceTest {
+
+    private static final String DSL_QUERY = "from Person";
+
+    @Mock
+    DiscoveryService mockService;
+
+    private MetadataDiscoveryResource resource;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        resource = new MetadataDiscoveryResource(mockService);
+    }
+
+    @Test
+    public void testSearchByDSLWithoutPagingGetsAllResults() throws Exception {
+        when(mockService.searchByDSL(eq(DSL_QUERY), any(QueryParams.class))).thenReturn("{\"query\":\"from Person\","
+                + "\"dataType\":{\"typeName\":\"Person\"},\"rows\":[{\"name\":\"a\"},{\"name\":\"b\"}]}");
+
+        Response response = resource.searchUsingQueryDSL(DSL_QUERY, -1, 0);
+
+        ArgumentCaptor<QueryParams> queryParams = ArgumentCaptor.forClass(QueryParams.class);
+        verify(mockService).searchByDSL(eq(DSL_QUERY), queryParams.capture());
+        Assert.assertFalse(queryParams.getValue().isPaged());
+
+        JSONObject responseJson = getEntity(response);
+        Assert.assertEquals(responseJson.getString(AtlasClient.QUERY), DSL_QUERY);
+        Assert.assertEquals(responseJson.getJSONObject(AtlasClient.DATATYPE).getString("typeName"), "Person");
+        Assert.assertEquals(responseJson.getJSONArray(AtlasClient.RESULTS).length(), 2);
+        Assert.assertEquals(responseJson.getInt(AtlasClient.COUNT), 2);
+    }
+
+    @Test
+    public void testInvalidDSLResultsFailTheRequest() throws Exception {
+        when(mockService.searchByDSL(eq(DSL_QUERY), any(QueryParams.class))).thenReturn("{\"rows\":[{\"name\":");
+
+        try {
+            resource.searchUsingQueryDSL(DSL_QUERY, -1, 0);
+            Assert.fail("Expected WebApplicationException");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(e.getResponse().getStatus(), Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testInvalidFullTextResultsFailTheRequest() throws Exception {
+        when(mockService.searchByFullText(eq("Person"), any(QueryParams.class))).thenReturn("{}");
+
+        try {
+            resource.searchUsingFullText("Person", 10, 0);
+            Assert.fail("Expected WebApplicationException");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(e.getResponse().getStatus(), Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+        }
+    }
+
+    private JSONObject getEntity(Response response) {
+        Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        return (JSONObject) response.getEntity();
+    }
+}
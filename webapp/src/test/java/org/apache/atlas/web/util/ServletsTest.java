@@ -19,6 +19,7 @@
 package org.apache.atlas.web.util;
 
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.query.QueryParams;
 import org.codehaus.jettison.json.JSONObject;
 import org.testng.annotations.Test;
 
@@ -37,4 +38,25 @@ public class ServletsTest {
         assertNotNull(responseEntity);
         assertNotNull(responseEntity.getString(AtlasClient.ERROR));
     }
+
+    public void testQueryParamsWithoutPagingSelectAllResults() throws Exception {
+        QueryParams queryParams = Servlets.getQueryParams(-1, 0);
+        assertFalse(queryParams.isPaged());
+    }
+
+    public void testQueryParamsWithOffsetGetDefaultLimit() throws Exception {
+        QueryParams queryParams = Servlets.getQueryParams(-1, 10);
+        assertEquals(queryParams.limit(), 100);
+        assertEquals(queryParams.offset(), 10);
+    }
+
+    public void testQueryParamsLimitIsCapped() throws Exception {
+        QueryParams queryParams = Servlets.getQueryParams(Integer.MAX_VALUE, 0);
+        assertEquals(queryParams.limit(), 10000);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryParamsRejectNegativeOffset() throws Exception {
+        Servlets.getQueryParams(10, -1);
+    }
 }